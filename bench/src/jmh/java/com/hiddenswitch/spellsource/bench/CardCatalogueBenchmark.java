@@ -0,0 +1,41 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.cards.CardParser;
+import net.demilich.metastone.game.shared.utils.ResourceInputStream;
+import net.demilich.metastone.game.shared.utils.ResourceLoader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading every card in the catalogue: reading the JSON resources, parsing them and creating the cards.
+ * <p>
+ * {@link CardCatalogue#loadCardsFromPackage()} only loads once per JVM, so this performs the same steps without
+ * registering the cards.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class CardCatalogueBenchmark {
+
+	@Benchmark
+	public void load(Blackhole blackhole) throws Exception {
+		Collection<ResourceInputStream> inputStreams = ResourceLoader.loadJsonInputStreams(CardCatalogue.CARDS_FOLDER, false);
+		CardParser parser = new CardParser();
+		for (ResourceInputStream inputStream : inputStreams) {
+			try {
+				Card card = parser.parseCard(inputStream).getDesc().create();
+				blackhole.consume(card);
+			} catch (Exception e) {
+				// The catalogue skips cards that fail to parse, and so does this benchmark
+				blackhole.consume(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.cards.CardZone;
+import net.demilich.metastone.game.entities.EntityZone;
+import net.demilich.metastone.game.entities.minions.Minion;
+import net.demilich.metastone.game.targeting.Zones;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the zone bookkeeping that every draw, play and summon performs, outside of any game logic.
+ * <p>
+ * The deck scenario shuffles a full deck, draws every card into the hand and returns them to the deck. The battlefield
+ * scenario summons a full board and then removes the minions from the left, which relocates every minion to their
+ * right.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class EntityZoneBenchmark {
+	private static final int DECK_SIZE = 30;
+	private static final int BOARD_SIZE = 7;
+
+	private CardZone deck;
+	private CardZone hand;
+	private EntityZone<Minion> battlefield;
+	private Minion[] minions;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		CardCatalogue.loadCardsFromPackage();
+		Card card = CardCatalogue.getCardById("minion_acolyte_of_pain");
+		deck = new CardZone(0, Zones.DECK);
+		hand = new CardZone(0, Zones.HAND);
+		for (int i = 0; i < DECK_SIZE; i++) {
+			deck.addCard(card.clone());
+		}
+		battlefield = new EntityZone<>(0, Zones.BATTLEFIELD);
+		minions = new Minion[BOARD_SIZE];
+		for (int i = 0; i < BOARD_SIZE; i++) {
+			minions[i] = card.summon();
+		}
+		random = new Random(Fixtures.SEED);
+	}
+
+	@Benchmark
+	public CardZone shuffleDrawAndReturn() {
+		deck.shuffle(random);
+		while (!deck.isEmpty()) {
+			deck.move(0, hand, hand.size());
+		}
+		while (!hand.isEmpty()) {
+			hand.move(hand.size() - 1, deck, deck.size());
+		}
+		return deck;
+	}
+
+	@Benchmark
+	public EntityZone<Minion> summonAndRemove() {
+		for (Minion minion : minions) {
+			battlefield.add(minion);
+		}
+		for (Minion minion : minions) {
+			battlefield.remove(minion);
+		}
+		return battlefield;
+	}
+}
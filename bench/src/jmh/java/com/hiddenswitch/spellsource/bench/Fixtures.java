@@ -0,0 +1,59 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.logic.GameLogic;
+import net.demilich.metastone.tests.util.FixedDecks;
+
+/**
+ * Fixed seeds and game positions shared by the benchmarks, so that results are comparable across commits. The decks
+ * are the {@link FixedDecks}.
+ * <p>
+ * Changing anything in this class invalidates comparisons with earlier results.
+ */
+public final class Fixtures {
+	/**
+	 * The seed used for the {@link GameLogic} and for the random behaviours of every benchmark game.
+	 */
+	public static final long SEED = 1010101010101L;
+
+	/**
+	 * The number of turns played before a mid-game position is captured.
+	 */
+	public static final int MID_GAME_TURN = 8;
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Creates a game between the fixed decks with seeded logic and seeded random play. The game has not been started.
+	 *
+	 * @param seed The seed.
+	 * @return A context for which {@link GameContext#play()} will immediately work.
+	 */
+	public static GameContext newGame(long seed) {
+		CardCatalogue.loadCardsFromPackage();
+		return FixedDecks.seededGame(seed);
+	}
+
+	/**
+	 * Creates a game between the fixed decks that has been played randomly until {@link #MID_GAME_TURN}, stopping at the
+	 * start of the active player's turn.
+	 *
+	 * @return A context whose active player is ready to choose an action.
+	 */
+	public static GameContext midGame() {
+		GameContext context = newGame(SEED);
+		context.init();
+		while (!context.updateAndGetGameOver() && context.getTurn() < MID_GAME_TURN) {
+			context.startTurn(context.getActivePlayerId());
+			while (context.takeActionInTurn()) {
+			}
+		}
+		if (context.updateAndGetGameOver()) {
+			throw new IllegalStateException("The fixture game ended before the mid-game turn");
+		}
+		context.startTurn(context.getActivePlayerId());
+		return context;
+	}
+}
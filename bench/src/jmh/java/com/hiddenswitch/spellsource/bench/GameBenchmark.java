@@ -0,0 +1,56 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.actions.GameAction;
+import net.demilich.metastone.game.shared.threat.GameStateValueBehaviour;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole games and whole AI decisions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class GameBenchmark {
+	@Param({"2"})
+	public int maxDepth;
+
+	private GameContext midGame;
+	private GameContext game;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		midGame = Fixtures.midGame();
+	}
+
+	@Setup(Level.Invocation)
+	public void newGame() {
+		game = Fixtures.newGame(Fixtures.SEED);
+	}
+
+	/**
+	 * A full game between the fixed decks with seeded random play on both sides.
+	 *
+	 * @return The finished game.
+	 */
+	@Benchmark
+	public GameContext randomVersusRandom() {
+		game.play();
+		return game;
+	}
+
+	/**
+	 * A single {@link GameStateValueBehaviour} decision from the mid-game position. A new behaviour is used every time, so
+	 * that a plan from a previous invocation is never reused.
+	 *
+	 * @return The chosen action.
+	 */
+	@Benchmark
+	public GameAction gameStateValueRequestAction() {
+		GameStateValueBehaviour behaviour = new GameStateValueBehaviour();
+		behaviour.setMaxDepth(maxDepth);
+		return behaviour.requestAction(midGame, midGame.getActivePlayer(), midGame.getValidActions());
+	}
+}
@@ -0,0 +1,72 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.actions.GameAction;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.entities.Entity;
+import net.demilich.metastone.game.targeting.EntityReference;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the engine calls that AI search makes most often against a fixed mid-game position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GameContextBenchmark {
+	private GameContext context;
+	private Player player;
+	private EntityReference[] references;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = Fixtures.midGame();
+		player = context.getActivePlayer();
+		// Only keep references that the context can resolve, e.g. not entities removed from play
+		references = context.getEntities()
+				.map(Entity::getReference)
+				.filter(reference -> context.tryFind(reference) != null)
+				.toArray(EntityReference[]::new);
+	}
+
+	@Benchmark
+	public GameContext cloneContext() {
+		return context.clone();
+	}
+
+	@Benchmark
+	public List<GameAction> getValidActions() {
+		return context.getValidActions();
+	}
+
+	@Benchmark
+	public long[] getValidActionCodes() {
+		return context.getLogic().getValidActionCodes(player.getId());
+	}
+
+	@Benchmark
+	public int countValidActions() {
+		return context.getLogic().countValidActions(player.getId());
+	}
+
+	@Benchmark
+	public void resolveSingleTarget(Blackhole blackhole) {
+		for (EntityReference reference : references) {
+			blackhole.consume(context.resolveSingleTarget(reference));
+		}
+	}
+
+	@Benchmark
+	public int getModifiedManaCost() {
+		int total = 0;
+		for (Card card : player.getHand()) {
+			total += context.getLogic().getModifiedManaCost(player, card);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,122 @@
+package com.hiddenswitch.spellsource.bench;
+
+import com.hiddenswitch.spellsource.impl.GameId;
+import com.hiddenswitch.spellsource.models.RequestActionRequest;
+import com.hiddenswitch.spellsource.models.RequestActionResponse;
+import com.hiddenswitch.spellsource.util.RpcCodec;
+import com.hiddenswitch.spellsource.util.Serialization;
+import com.hiddenswitch.spellsource.util.VertxBufferInputStream;
+import com.hiddenswitch.spellsource.util.VertxBufferOutputStream;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import net.demilich.metastone.game.GameContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trip of a bot action request and its response over the event bus, once with Java serialization
+ * and once with the {@link RpcCodec}, using a request captured from a fixed mid-game position.
+ * <p>
+ * The {@code EventBus} benchmarks deliver to a consumer on the same node. The {@code Wire} benchmarks only encode and
+ * decode the request and the response, which is the serialization work a delivery to another node adds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RpcCodecBenchmark {
+	private static final String JAVA_ADDRESS = "RpcCodecBenchmark::java";
+	private static final String BINARY_ADDRESS = "RpcCodecBenchmark::binary";
+
+	private Vertx vertx;
+	private EventBus eventBus;
+	private RequestActionRequest request;
+	private RequestActionResponse response;
+	private RpcCodec codec;
+	private DeliveryOptions binaryOptions;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		GameContext context = Fixtures.midGame();
+		request = new RequestActionRequest(new GameId(context.getGameId()), context.getActivePlayerId(),
+				context.getValidActions(), context.getDeckFormat(), context.getGameStateCopy());
+		response = new RequestActionResponse();
+		response.gameAction = request.validActions.get(0);
+		codec = new RpcCodec();
+		binaryOptions = new DeliveryOptions().setCodecName(RpcCodec.NAME);
+
+		vertx = Vertx.vertx();
+		eventBus = vertx.eventBus();
+		RpcCodec.register(eventBus);
+		eventBus.<Buffer>consumer(JAVA_ADDRESS, message -> {
+			try {
+				Object ignored = Serialization.deserialize(new VertxBufferInputStream(message.body()));
+				message.reply(serialize(response));
+			} catch (IOException | ClassNotFoundException e) {
+				message.fail(1, e.getMessage());
+			}
+		});
+		eventBus.consumer(BINARY_ADDRESS, message -> message.reply(response, binaryOptions));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		vertx.close();
+	}
+
+	@Benchmark
+	public Object javaEventBus() throws Exception {
+		CompletableFuture<Object> reply = new CompletableFuture<>();
+		eventBus.<Buffer>send(JAVA_ADDRESS, serialize(request), result -> {
+			try {
+				reply.complete(Serialization.deserialize(new VertxBufferInputStream(result.result().body())));
+			} catch (IOException | ClassNotFoundException | RuntimeException e) {
+				reply.completeExceptionally(e);
+			}
+		});
+		return reply.get();
+	}
+
+	@Benchmark
+	public Object binaryEventBus() throws Exception {
+		CompletableFuture<Object> reply = new CompletableFuture<>();
+		eventBus.send(BINARY_ADDRESS, request, binaryOptions, result -> {
+			if (result.succeeded()) {
+				reply.complete(result.result().body());
+			} else {
+				reply.completeExceptionally(result.cause());
+			}
+		});
+		return reply.get();
+	}
+
+	@Benchmark
+	public Object javaWire() throws Exception {
+		Serialization.deserialize(new VertxBufferInputStream(serialize(request)));
+		return Serialization.deserialize(new VertxBufferInputStream(serialize(response)));
+	}
+
+	@Benchmark
+	public Object binaryWire() {
+		Buffer requestBuffer = Buffer.buffer(512);
+		codec.encodeToWire(requestBuffer, request);
+		codec.decodeFromWire(0, requestBuffer);
+		Buffer responseBuffer = Buffer.buffer(512);
+		codec.encodeToWire(responseBuffer, response);
+		return codec.decodeFromWire(0, responseBuffer);
+	}
+
+	private static Buffer serialize(Object object) {
+		Buffer buffer = Buffer.buffer(512);
+		try {
+			Serialization.serialize(object, new VertxBufferOutputStream(buffer));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return buffer;
+	}
+}
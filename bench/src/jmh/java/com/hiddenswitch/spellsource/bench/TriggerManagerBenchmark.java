@@ -0,0 +1,48 @@
+package com.hiddenswitch.spellsource.bench;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.events.DamageEvent;
+import net.demilich.metastone.game.events.GameEvent;
+import net.demilich.metastone.game.spells.desc.trigger.EnchantmentDesc;
+import net.demilich.metastone.game.targeting.DamageType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures dispatching a game event through {@link net.demilich.metastone.game.spells.trigger.TriggerManager} with a
+ * varying number of registered triggers.
+ * <p>
+ * Every trigger is an Acolyte of Pain damage trigger hosted by the active player's hero. The fired event damages the
+ * opposing hero, so every trigger is considered and none of them fire.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TriggerManagerBenchmark {
+	@Param({"1", "10", "100"})
+	public int triggers;
+
+	private GameContext context;
+	private GameEvent event;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = Fixtures.midGame();
+		Player player = context.getActivePlayer();
+		Player opponent = context.getOpponent(player);
+		EnchantmentDesc trigger = CardCatalogue.getCardById("minion_acolyte_of_pain").getDesc().getTrigger();
+		for (int i = 0; i < triggers; i++) {
+			context.getLogic().addGameEventListener(player, trigger.create(), player.getHero());
+		}
+		event = new DamageEvent(context, opponent.getHero(), player.getHero(), 0, DamageType.PHYSICAL);
+	}
+
+	@Benchmark
+	public GameContext fireGameEvent() {
+		context.fireGameEvent(event);
+		return context;
+	}
+}
@@ -1,6 +1,7 @@
 package com.hiddenswitch.cluster.applications;
 
 import ch.qos.logback.classic.Level;
+import com.hiddenswitch.cluster.functions.RacingFitness;
 import com.hiddenswitch.spellsource.Spellsource;
 import com.hiddenswitch.spellsource.common.DeckCreateRequest;
 import com.hiddenswitch.spellsource.util.Logging;
@@ -11,15 +12,11 @@ import io.jenetics.engine.EvolutionResult;
 import io.jenetics.engine.EvolutionStatistics;
 import io.jenetics.stat.DoubleMomentStatistics;
 import io.jenetics.util.Factory;
-import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.decks.Deck;
 import net.demilich.metastone.game.decks.GameDeck;
-import net.demilich.metastone.game.logic.GameLogic;
 import net.demilich.metastone.game.shared.threat.FeatureVector;
 import net.demilich.metastone.game.shared.threat.GameStateValueBehaviour;
 import net.demilich.metastone.game.shared.threat.WeightedFeature;
-import net.demilich.metastone.game.statistics.SimulationResult;
-import net.demilich.metastone.game.statistics.Statistic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +27,8 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class Cuckoo {
 	public static final int NUMBER_OF_GAMES_IN_BATCH = 20;
+	public static final int RACE_BLOCK_SIZE = 4;
+	public static final double RACE_DELTA = 0.05;
 	static Logger logger = LoggerFactory.getLogger(Cuckoo.class);
 	static AtomicInteger counter = new AtomicInteger();
 
@@ -91,23 +90,18 @@ public class Cuckoo {
 		return featureVector;
 	}
 
-	static double evaluate(Genotype<DoubleGene> genotype) {
+	static RacingFitness<Genotype<DoubleGene>> fitness() {
 		List<DeckCreateRequest> decks = Spellsource.spellsource().getStandardDecks();
 		List<GameDeck> gameDecks = Arrays.asList(decks.get(0).toGameDeck(), decks.get(1).toGameDeck());
-		SimulationResult result = GameContext.simulate(gameDecks, () -> {
-			FeatureVector featureVector = fromGenotype(genotype);
-			GameStateValueBehaviour agent = new GameStateValueBehaviour(featureVector, "Agent");
+		return new RacingFitness<>(gameDecks, genotype -> {
+			GameStateValueBehaviour agent = new GameStateValueBehaviour(fromGenotype(genotype), "Agent");
 			agent.setMaxDepth(2);
 			return agent;
 		}, () -> {
 			GameStateValueBehaviour gsvb = new GameStateValueBehaviour();
 			gsvb.setMaxDepth(2);
 			return gsvb;
-		}, NUMBER_OF_GAMES_IN_BATCH, true, counter, (gameContext -> {
-			gameContext.setLogic(new GameLogic(1010101010101L));
-		}));
-
-		return result.getPlayer1Stats().getDouble(Statistic.WIN_RATE);
+		}, NUMBER_OF_GAMES_IN_BATCH, RACE_BLOCK_SIZE, RACE_DELTA, 1010101010101L, counter);
 	}
 
 	public static void main(String[] args) {
@@ -122,8 +116,9 @@ public class Cuckoo {
 		double discoveryRate = 0.25;
 		int generations = 10;
 
+		RacingFitness<Genotype<DoubleGene>> fitness = fitness();
 		Engine<DoubleGene, Double> engine = Engine
-				.builder(Cuckoo::evaluate, gtf)
+				.builder(fitness, gtf)
 				.populationSize(populationSize)
 				.selector(new EliteSelector<>(1, new LinearRankSelector<DoubleGene, Double>((int) (populationSize * discoveryRate))))
 				.alterers(new GaussianMutator<>(mutatorProbability), new MultiPointCrossover<>(crossoverCount))
@@ -139,6 +134,7 @@ public class Cuckoo {
 		Genotype<DoubleGene> result =
 				engine.stream()
 						.peek(statistics)
+						.peek(result1 -> fitness.nextGeneration())
 						.peek(result1 -> {
 							final Phenotype<DoubleGene, Double> bestPhenotype = result1.getBestPhenotype();
 							if (best.get() == null
@@ -151,6 +147,8 @@ public class Cuckoo {
 						.limit(generations).collect(EvolutionResult.toBestGenotype());
 
 		monitor.interrupt();
+		logger.info("main: Played {} games, stopped {} races early, {} cached evaluations", fitness.getGamesPlayed(),
+				fitness.getRacesStopped(), fitness.getCacheHits());
 		logger.info("main: Vector=\n{}", fromGenotype(result));
 	}
 }
@@ -0,0 +1,192 @@
+package com.hiddenswitch.cluster.applications;
+
+import ch.qos.logback.classic.Level;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.logic.Trace;
+import net.demilich.metastone.game.logic.TraceReader;
+import net.demilich.metastone.game.logic.TraceWriter;
+import org.apache.commons.cli.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays a directory of traces written by {@link TraceWriter} and reports the traces that no longer replay the same
+ * way, either because the game ended before all of their actions were taken, because it ended with a different winner
+ * or on a different turn than the one recorded in the trace, or because the replay threw an exception.
+ * <p>
+ * Every regular file in the directory is read as a stream of traces. The traces are replayed in parallel. The process
+ * exits with status {@code 1} if any trace diverged or failed.
+ */
+public class Replay {
+	private static final String INPUT = "input";
+	private static final String THREADS = "threads";
+
+	/**
+	 * Sets the default logging level to ERROR to prevent slow log printing.
+	 */
+	private static void setLogLevelToError() {
+		ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger)
+				LoggerFactory.getLogger(ch.qos.logback.classic.Logger.ROOT_LOGGER_NAME);
+		root.setLevel(Level.ERROR);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		setLogLevelToError();
+
+		ReplayConfiguration configuration = new ReplayConfiguration().parseCommandLine(args);
+		if (!configuration.isValid()) {
+			return;
+		}
+
+		CardCatalogue.loadCardsFromPackage();
+
+		List<Path> files;
+		try (Stream<Path> paths = Files.list(Paths.get(configuration.getInput()))) {
+			files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+
+		int threads = configuration.getThreads();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		// Limits the number of traces held in memory while they wait to be replayed
+		Semaphore inFlight = new Semaphore(threads * 4);
+		AtomicInteger replayed = new AtomicInteger();
+		AtomicInteger diverged = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+
+		for (Path file : files) {
+			try (InputStream stream = Files.newInputStream(file);
+			     TraceReader reader = new TraceReader(stream)) {
+				int index = 0;
+				while (true) {
+					Trace trace;
+					try {
+						trace = reader.read();
+					} catch (IOException | RuntimeException e) {
+						System.out.println(String.format("%s#%d: ERROR could not read trace: %s", file, index, e));
+						failed.incrementAndGet();
+						break;
+					}
+					if (trace == null) {
+						break;
+					}
+
+					String name = String.format("%s#%d", file, index++);
+					inFlight.acquire();
+					executor.execute(() -> {
+						try {
+							String divergence = replay(trace);
+							if (divergence != null) {
+								System.out.println(String.format("%s: DIVERGED %s", name, divergence));
+								diverged.incrementAndGet();
+							}
+						} catch (Throwable e) {
+							StackTraceElement[] stackTrace = e.getStackTrace();
+							System.out.println(String.format("%s: ERROR %s%s", name, e,
+									stackTrace.length > 0 ? " at " + stackTrace[0] : ""));
+							failed.incrementAndGet();
+						} finally {
+							replayed.incrementAndGet();
+							inFlight.release();
+						}
+					});
+				}
+			} catch (IOException e) {
+				System.out.println(String.format("%s: ERROR could not open file: %s", file, e));
+				failed.incrementAndGet();
+			}
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+		System.out.println(String.format("Replayed %d traces from %d files: %d diverged, %d failed", replayed.get(), files.size(), diverged.get(), failed.get()));
+		if (diverged.get() > 0 || failed.get() > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Replays a trace.
+	 *
+	 * @param trace The trace.
+	 * @return A description of how the replay diverged from the trace, or {@code null} if every action in the trace was
+	 * taken and the game ended the way the trace recorded.
+	 */
+	static String replay(Trace trace) {
+		GameContext context = trace.replayContext(false);
+		List<Integer> actions = context.getTrace().getActions();
+		String divergence;
+		if (!actions.equals(trace.getActions())) {
+			divergence = String.format("the game ended on turn %d after %d of %d actions", context.getTurn(), actions.size(), trace.getActions().size());
+		} else if (trace.hasOutcome()
+				&& (context.getWinningPlayerId() != trace.getWinner() || context.getTurn() != trace.getTurn())) {
+			divergence = String.format("the game ended on turn %d with winner %d instead of on turn %d with winner %d",
+					context.getTurn(), context.getWinningPlayerId(), trace.getTurn(), trace.getWinner());
+		} else {
+			return null;
+		}
+		if (trace.getCatalogueVersion() != CardCatalogue.getVersion()) {
+			divergence += String.format(" (the trace was recorded with catalogue version %d)", trace.getCatalogueVersion());
+		}
+		return divergence;
+	}
+
+	static class ReplayConfiguration {
+		private boolean invalid;
+		private String input;
+		private int threads;
+
+		boolean isValid() {
+			return !invalid;
+		}
+
+		String getInput() {
+			return input;
+		}
+
+		int getThreads() {
+			return threads;
+		}
+
+		ReplayConfiguration parseCommandLine(String... args) {
+			Options options = new Options();
+			Option input = new Option(Character.toString(INPUT.charAt(0)), INPUT, true, "The directory of trace files to replay.");
+			input.setRequired(true);
+			options.addOption(input);
+			options.addOption(new Option(Character.toString(THREADS.charAt(0)), THREADS, true, "The number of traces to replay in parallel. Defaults to the number of processors."));
+			CommandLineParser parser = new DefaultParser();
+			CommandLine cmd;
+			try {
+				cmd = parser.parse(options, args);
+				this.input = cmd.getOptionValue(INPUT);
+				this.threads = cmd.hasOption(THREADS) ? Integer.parseInt(cmd.getOptionValue(THREADS)) : Runtime.getRuntime().availableProcessors();
+				if (threads < 1) {
+					throw new ParseException("--threads must be at least 1");
+				}
+			} catch (ParseException | NumberFormatException e) {
+				System.err.println(e.getMessage());
+				HelpFormatter formatter = new HelpFormatter();
+				formatter.printHelp("--input traces/ [--threads 8]", options);
+				invalid = true;
+				return this;
+			}
+
+			invalid = false;
+			return this;
+		}
+	}
+}
@@ -7,6 +7,7 @@ import net.demilich.metastone.game.behaviour.Behaviour;
 import net.demilich.metastone.game.cards.CardCatalogue;
 import net.demilich.metastone.game.decks.Deck;
 import net.demilich.metastone.game.decks.GameDeck;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.statistics.SimulationResult;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,9 @@ public class Simulate {
 		final boolean quiet = simulationConfig.isQuiet();
 		// Should we include mirror matchups?
 		final boolean mirrors = simulationConfig.playMirrorMatchups();
+		// Should we profile the engine? Desc creation is only visible to a process-wide profiler
+		final Profiler profiler = simulationConfig.getProfilePath() == null ? null : new Profiler();
+		Profiler.setGlobal(profiler);
 
 		// Load all the cards specified in the resources of this JAR
 		CardCatalogue.loadCardsFromPackage();
@@ -105,10 +109,19 @@ public class Simulate {
 			progressThread.start();
 		}
 
-		final Map<String[], SimulationResult> results = Simulation.getResults(behaviourSupplier1, behaviourSupplier2, number, decks, combinations, matchesComplete);
+		final Map<String[], SimulationResult> results = Simulation.getResults(behaviourSupplier1, behaviourSupplier2, number, decks, combinations, matchesComplete, profiler);
 
 		Simulation.writeResults(out, results);
 
+		if (profiler != null) {
+			Profiler.setGlobal(null);
+			try {
+				FileUtils.writeStringToFile(new File(simulationConfig.getProfilePath()), profiler.toJson().encodePrettily());
+			} catch (IOException e) {
+				System.err.println(String.format("Simulate: Failed to write the profile to %s: %s", simulationConfig.getProfilePath(), e.getMessage()));
+			}
+		}
+
 		if (progressThread != null) {
 			progressThread.interrupt();
 		}
@@ -0,0 +1,321 @@
+package com.hiddenswitch.cluster.functions;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.behaviour.Behaviour;
+import net.demilich.metastone.game.decks.GameDeck;
+import net.demilich.metastone.game.logic.GameLogic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A fitness function that races candidates against the best fully-evaluated candidate seen so far (the incumbent).
+ * <p>
+ * Every candidate plays the same sequence of seeded games (common random numbers): game {@code i} of every candidate is
+ * played with a {@link GameLogic} constructed with the same seed, so differences in outcomes are attributable to the
+ * candidate rather than to the deck shuffle and random effects. Games are played in blocks of {@link
+ * #getBlockSize()} in parallel. After each block, the paired per-seed outcomes of the candidate and the incumbent are
+ * compared with an exact one-sided sign test: the seeds where both did equally well are ignored, and the race is stopped
+ * once the candidate did worse on so many of the others that this would happen with probability at most {@code delta}
+ * to a candidate that is not worse than the incumbent. The stopped candidate receives the incumbent's win rate shifted
+ * by the observed paired difference. A bound on the mean difference like Hoeffding's or the empirical Bernstein bound
+ * needs many more games than a race usually has to stop anything; the sign test stops a clearly worse candidate after
+ * a handful of games.
+ * <p>
+ * Candidates which survive every block are fully evaluated and may become the new incumbent. The incumbent is frozen
+ * while a generation is evaluated: every race of the generation is compared with the same incumbent, whatever order the
+ * candidates are evaluated in, and the best fully-evaluated candidate only replaces it when {@link #nextGeneration()} is
+ * called between generations. Fitness values are cached
+ * by candidate, up to {@link #MAXIMUM_CACHE_SIZE} of the most recently used candidates, so duplicate genotypes that
+ * survive between generations are never played again.
+ * <p>
+ * Fitness is the win rate of the candidate as player 1, where a draw counts as half a win.
+ *
+ * @param <T> The candidate type. It must implement {@link Object#equals(Object)} and {@link Object#hashCode()} by value
+ *            for fitness caching to work.
+ */
+public class RacingFitness<T> implements Function<T, Double> {
+	private static Logger logger = LoggerFactory.getLogger(RacingFitness.class);
+	/**
+	 * The maximum number of candidates whose fitness is cached. The least recently used candidates are evicted first.
+	 */
+	public static final int MAXIMUM_CACHE_SIZE = 1024;
+
+	private final List<GameDeck> decks;
+	private final Function<T, Behaviour> candidateBehaviour;
+	private final Supplier<Behaviour> opponentBehaviour;
+	private final long[] seeds;
+	private final int blockSize;
+	private final double delta;
+	private final AtomicInteger matchCounter;
+	private final Map<T, CompletableFuture<Double>> cache = new LinkedHashMap<T, CompletableFuture<Double>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<T, CompletableFuture<Double>> eldest) {
+			return size() > MAXIMUM_CACHE_SIZE;
+		}
+	};
+	private volatile double[] incumbent;
+	private final AtomicReference<double[]> challenger = new AtomicReference<>();
+	private final AtomicInteger gamesPlayed = new AtomicInteger();
+	private final AtomicInteger racesStopped = new AtomicInteger();
+	private final AtomicInteger cacheHits = new AtomicInteger();
+
+	/**
+	 * Creates a racing fitness function.
+	 *
+	 * @param decks              The decks to play. The candidate plays the first deck as player 1.
+	 * @param candidateBehaviour Creates a new behaviour for the given candidate. Called once per game.
+	 * @param opponentBehaviour  Creates a new behaviour for the opponent. Called once per game.
+	 * @param maxGames           The maximum number of games a candidate plays, i.e. the number of common seeds.
+	 * @param blockSize          The number of games played in parallel between sequential tests.
+	 * @param delta              The probability of wrongly stopping a candidate that is not worse than the incumbent.
+	 * @param baseSeed           The seed from which the common game seeds are generated.
+	 * @param matchCounter       When not {@code null}, incremented whenever a game completes.
+	 */
+	public RacingFitness(List<GameDeck> decks,
+	                     Function<T, Behaviour> candidateBehaviour,
+	                     Supplier<Behaviour> opponentBehaviour,
+	                     int maxGames,
+	                     int blockSize,
+	                     double delta,
+	                     long baseSeed,
+	                     AtomicInteger matchCounter) {
+		if (maxGames <= 0 || blockSize <= 0) {
+			throw new IllegalArgumentException("maxGames and blockSize must be positive");
+		}
+		if (delta <= 0d || delta >= 1d) {
+			throw new IllegalArgumentException("delta must be in (0, 1)");
+		}
+		this.decks = decks;
+		this.candidateBehaviour = candidateBehaviour;
+		this.opponentBehaviour = opponentBehaviour;
+		this.blockSize = blockSize;
+		this.delta = delta;
+		this.matchCounter = matchCounter;
+		Random random = new Random(baseSeed);
+		this.seeds = new long[maxGames];
+		for (int i = 0; i < maxGames; i++) {
+			seeds[i] = random.nextLong();
+		}
+	}
+
+	@Override
+	public Double apply(T candidate) {
+		CompletableFuture<Double> future = new CompletableFuture<>();
+		CompletableFuture<Double> existing;
+		synchronized (cache) {
+			existing = cache.putIfAbsent(candidate, future);
+		}
+		if (existing != null) {
+			cacheHits.incrementAndGet();
+			return existing.join();
+		}
+
+		try {
+			double fitness = race(candidate);
+			future.complete(fitness);
+			return fitness;
+		} catch (RuntimeException e) {
+			// Don't cache failures, so that the candidate can be retried
+			synchronized (cache) {
+				cache.remove(candidate, future);
+			}
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private double race(T candidate) {
+		double[] outcomes = new double[seeds.length];
+		int played = 0;
+		int looks = (seeds.length + blockSize - 1) / blockSize;
+
+		while (played < seeds.length) {
+			final int start = played;
+			final int end = Math.min(seeds.length, start + blockSize);
+			IntStream.range(start, end).parallel().forEach(i -> outcomes[i] = play(candidate, seeds[i]));
+			played = end;
+
+			double[] best = incumbent;
+			if (best == null || played == seeds.length) {
+				continue;
+			}
+
+			if (isWorse(outcomes, best, played, looks, delta)) {
+				racesStopped.incrementAndGet();
+				logger.debug("race: Stopped candidate after {} of {} games", played, seeds.length);
+				return stoppedFitness(outcomes, best, played);
+			}
+		}
+
+		offer(outcomes);
+		return mean(outcomes, outcomes.length);
+	}
+
+	/**
+	 * Makes the best candidate fully evaluated since the last call the incumbent, if it did better than the current one.
+	 * Call this between generations, when no candidate is being evaluated.
+	 */
+	public void nextGeneration() {
+		double[] best = challenger.getAndSet(null);
+		if (best != null && (incumbent == null || isBetter(best, incumbent))) {
+			incumbent = best;
+		}
+	}
+
+	/**
+	 * Offers the outcomes of a fully evaluated candidate as the next incumbent.
+	 *
+	 * @param outcomes The candidate's outcomes on every seed.
+	 */
+	void offer(double[] outcomes) {
+		challenger.accumulateAndGet(outcomes, (current, offered) -> current == null || isBetter(offered, current) ? offered : current);
+	}
+
+	/**
+	 * @return The outcomes of the incumbent the current generation is raced against, or {@code null} if there is none.
+	 */
+	double[] getIncumbent() {
+		return incumbent;
+	}
+
+	/**
+	 * Estimates the fitness of a stopped candidate as the incumbent's win rate shifted by the mean paired difference of
+	 * the games played so far, but never below zero.
+	 *
+	 * @param candidate The candidate's outcomes.
+	 * @param incumbent The incumbent's outcomes on every seed.
+	 * @param played    The number of games the candidate played.
+	 * @return The fitness.
+	 */
+	static double stoppedFitness(double[] candidate, double[] incumbent, int played) {
+		double meanDifference = 0d;
+		for (int i = 0; i < played; i++) {
+			meanDifference += candidate[i] - incumbent[i];
+		}
+		meanDifference /= played;
+		return Math.max(0d, mean(incumbent, incumbent.length) + meanDifference);
+	}
+
+	/**
+	 * Orders fully evaluated candidates by their mean outcome, breaking ties by their outcomes seed by seed, so that the
+	 * best of a generation doesn't depend on the order the candidates finished in.
+	 */
+	private static boolean isBetter(double[] challenger, double[] current) {
+		int comparison = Double.compare(mean(challenger, challenger.length), mean(current, current.length));
+		for (int i = 0; comparison == 0 && i < challenger.length; i++) {
+			comparison = Double.compare(challenger[i], current[i]);
+		}
+		return comparison > 0;
+	}
+
+	/**
+	 * Tests whether a candidate is worse than the incumbent on the games played so far with a one-sided sign test.
+	 * <p>
+	 * Seeds where the candidate and the incumbent did equally well are ignored. If the candidate is not worse, it does
+	 * worse on each of the remaining seeds with probability at most one half, so the number of seeds where it does worse
+	 * is at most binomially distributed. The delta is split across every look so that the sequential test as a whole
+	 * wrongly stops a candidate with probability at most delta.
+	 *
+	 * @param candidate The candidate's outcomes.
+	 * @param incumbent The incumbent's outcomes on the same seeds.
+	 * @param played    The number of games played so far.
+	 * @param looks     The number of times the test is made during a race.
+	 * @param delta     The probability of wrongly stopping a candidate that is not worse than the incumbent.
+	 * @return {@code true} if the candidate is worse with confidence {@code 1 - delta}.
+	 */
+	static boolean isWorse(double[] candidate, double[] incumbent, int played, int looks, double delta) {
+		int worse = 0;
+		int better = 0;
+		for (int i = 0; i < played; i++) {
+			if (candidate[i] < incumbent[i]) {
+				worse++;
+			} else if (candidate[i] > incumbent[i]) {
+				better++;
+			}
+		}
+		int untied = worse + better;
+		// The probability of doing worse on at least this many of the untied seeds by chance
+		double p = 0d;
+		double binomial = 1d;
+		for (int k = 0; k <= untied; k++) {
+			if (k > 0) {
+				binomial = binomial * (untied - k + 1) / k;
+			}
+			if (k >= worse) {
+				p += binomial;
+			}
+		}
+		p /= Math.pow(2d, untied);
+		return p <= delta / looks;
+	}
+
+	private double play(T candidate, long seed) {
+		GameContext context = GameContext.fromDecks(decks, candidateBehaviour.apply(candidate), opponentBehaviour.get());
+		context.setLogic(new GameLogic(seed));
+		context.play();
+		gamesPlayed.incrementAndGet();
+		if (matchCounter != null) {
+			matchCounter.incrementAndGet();
+		}
+		int winner = context.getWinningPlayerId();
+		if (winner == -1) {
+			return 0.5d;
+		}
+		return winner == GameContext.PLAYER_1 ? 1d : 0d;
+	}
+
+	private static double mean(double[] values, int count) {
+		double sum = 0d;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		return sum / count;
+	}
+
+	/**
+	 * The number of games a candidate plays between sequential tests.
+	 *
+	 * @return The block size.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * The total number of games played by this fitness function so far.
+	 *
+	 * @return The number of games.
+	 */
+	public int getGamesPlayed() {
+		return gamesPlayed.get();
+	}
+
+	/**
+	 * The number of candidates whose races were stopped early because they were worse than the incumbent.
+	 *
+	 * @return The number of stopped races.
+	 */
+	public int getRacesStopped() {
+		return racesStopped.get();
+	}
+
+	/**
+	 * The number of evaluations answered from the fitness cache.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public int getCacheHits() {
+		return cacheHits.get();
+	}
+}
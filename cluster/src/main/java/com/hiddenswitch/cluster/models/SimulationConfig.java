@@ -21,6 +21,7 @@ public class SimulationConfig implements Serializable {
 	private static final String BEHAVIOUR = "behaviour";
 	private static final String QUIET = "quiet";
 	private static final String MIRRORS = "mirrors";
+	private static final String PROFILE = "profile";
 
 	private boolean invalid;
 	private Supplier<Behaviour> behaviourSupplier1;
@@ -31,6 +32,7 @@ public class SimulationConfig implements Serializable {
 	private boolean quiet;
 	private boolean mirrors;
 	private boolean twoDifferentBehaviours;
+	private String profilePath;
 
 	public SimulationConfig() {
 	}
@@ -67,6 +69,15 @@ public class SimulationConfig implements Serializable {
 		return mirrors;
 	}
 
+	/**
+	 * Gets the file path the engine profile should be written to.
+	 *
+	 * @return The path, or {@code null} if profiling was not requested.
+	 */
+	public String getProfilePath() {
+		return profilePath;
+	}
+
 	/**
 	 * Returns true if the player specified two different behaviours. This would indicate that the deck list needs to be
 	 * a full table and not an upper triangle.
@@ -89,6 +100,7 @@ public class SimulationConfig implements Serializable {
 						availableBehaviours.keySet().toString()));
 		Option quietOption = new Option(Character.toString(QUIET.charAt(0)), QUIET, false, "When set, does not print progress to the standard error stream.");
 		Option mirrorOption = new Option(Character.toString(MIRRORS.charAt(0)), MIRRORS, false, "When set, include the mirror matchups for decks.");
+		Option profileOption = new Option(Character.toString(PROFILE.charAt(0)), PROFILE, true, "The file path to write a JSON profile of the time and allocation spent per spell, trigger and card to. When unspecified, the engine is not profiled.");
 
 		decksOption.setRequired(true);
 		decksOption.setArgs(Option.UNLIMITED_VALUES);
@@ -96,6 +108,7 @@ public class SimulationConfig implements Serializable {
 		behaviourOption.setArgs(Option.UNLIMITED_VALUES);
 		behaviourOption.setValueSeparator(',');
 		outputOption.setArgs(1);
+		profileOption.setArgs(1);
 		numberOption.setRequired(true);
 
 		options.addOption(decksOption);
@@ -104,6 +117,7 @@ public class SimulationConfig implements Serializable {
 		options.addOption(behaviourOption);
 		options.addOption(quietOption);
 		options.addOption(mirrorOption);
+		options.addOption(profileOption);
 
 		CommandLineParser parser = new DefaultParser();
 		CommandLine cmd = null;
@@ -126,6 +140,10 @@ public class SimulationConfig implements Serializable {
 			quiet = true;
 		}
 
+		if (cmd.hasOption(profileOption.getOpt())) {
+			profilePath = cmd.getOptionValue(profileOption.getOpt());
+		}
+
 		if (cmd.hasOption(outputOption.getOpt())) {
 			String filePath = cmd.getOptionValue(outputOption.getOpt());
 			try {
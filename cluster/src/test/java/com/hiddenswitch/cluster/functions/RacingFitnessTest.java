@@ -0,0 +1,80 @@
+package com.hiddenswitch.cluster.functions;
+
+import com.hiddenswitch.cluster.applications.Cuckoo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RacingFitnessTest {
+	private static final int LOOKS = (Cuckoo.NUMBER_OF_GAMES_IN_BATCH + Cuckoo.RACE_BLOCK_SIZE - 1) / Cuckoo.RACE_BLOCK_SIZE;
+
+	@Test
+	public void testWorseCandidateStopsEarly() {
+		double[] incumbent = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		double[] candidate = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		for (int i = 0; i < incumbent.length; i++) {
+			incumbent[i] = 1d;
+			// The candidate only draws one of the games the incumbent won
+			candidate[i] = i == 3 ? 0.5d : 0d;
+		}
+
+		Assert.assertFalse(RacingFitness.isWorse(candidate, incumbent, Cuckoo.RACE_BLOCK_SIZE, LOOKS, Cuckoo.RACE_DELTA),
+				"Four games are never enough");
+		Assert.assertTrue(RacingFitness.isWorse(candidate, incumbent, 2 * Cuckoo.RACE_BLOCK_SIZE, LOOKS, Cuckoo.RACE_DELTA),
+				"The race should stop after the second block, well before all the games are played");
+	}
+
+	@Test
+	public void testEvenCandidateIsNotStopped() {
+		double[] incumbent = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		double[] candidate = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		for (int i = 0; i < incumbent.length; i++) {
+			incumbent[i] = i % 2;
+			candidate[i] = i % 3 == 0 ? 1d : incumbent[i];
+		}
+
+		for (int played = Cuckoo.RACE_BLOCK_SIZE; played < Cuckoo.NUMBER_OF_GAMES_IN_BATCH; played += Cuckoo.RACE_BLOCK_SIZE) {
+			Assert.assertFalse(RacingFitness.isWorse(candidate, incumbent, played, LOOKS, Cuckoo.RACE_DELTA));
+		}
+		Assert.assertFalse(RacingFitness.isWorse(incumbent, incumbent, Cuckoo.NUMBER_OF_GAMES_IN_BATCH, LOOKS, Cuckoo.RACE_DELTA),
+				"Ties are never worse");
+	}
+
+	@Test
+	public void testStoppedFitnessShiftsIncumbentByPairedDifference() {
+		double[] incumbent = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		double[] candidate = new double[Cuckoo.NUMBER_OF_GAMES_IN_BATCH];
+		for (int i = 0; i < incumbent.length; i++) {
+			incumbent[i] = i < incumbent.length / 2 ? 1d : 0.5d;
+			candidate[i] = i % 2 == 0 ? 1d : 0.5d;
+		}
+		int played = 2 * Cuckoo.RACE_BLOCK_SIZE;
+
+		// The incumbent's win rate is 0.75 and the candidate did 0.25 worse on average on the games it played
+		Assert.assertEquals(RacingFitness.stoppedFitness(candidate, incumbent, played), 0.5d, 1e-9);
+		Assert.assertEquals(RacingFitness.stoppedFitness(new double[incumbent.length], incumbent, played), 0d,
+				"The fitness is never negative");
+	}
+
+	@Test
+	public void testIncumbentIsFrozenUntilNextGeneration() {
+		RacingFitness<String> fitness = new RacingFitness<>(null, null, null, 2, 1, Cuckoo.RACE_DELTA, 1L, null);
+		double[] first = {1d, 0d};
+		double[] second = {0d, 1d};
+		double[] best = {1d, 1d};
+		fitness.offer(second);
+		fitness.offer(first);
+		Assert.assertNull(fitness.getIncumbent());
+
+		fitness.nextGeneration();
+		Assert.assertSame(fitness.getIncumbent(), first, "Ties are broken by the outcomes, not by the order of the offers");
+		fitness.offer(best);
+		Assert.assertSame(fitness.getIncumbent(), first);
+		fitness.nextGeneration();
+		Assert.assertSame(fitness.getIncumbent(), best);
+
+		// A worse candidate never replaces the incumbent
+		fitness.offer(second);
+		fitness.nextGeneration();
+		Assert.assertSame(fitness.getIncumbent(), best);
+	}
+}
@@ -111,7 +111,7 @@ public class GameState implements Serializable, Cloneable {
 		player1 = clone.getPlayer1();
 		player2 = clone.getPlayer2();
 		tempCards = clone.getTempCards();
-		environment = clone.getEnvironment();
+		environment = clone.getEnvironmentState();
 		currentId = clone.getLogic().getInternalId();
 		triggerManager = clone.getTriggerManager();
 		activePlayerId = clone.getActivePlayerId();
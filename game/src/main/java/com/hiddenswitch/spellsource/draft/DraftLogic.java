@@ -1,7 +1,6 @@
 package com.hiddenswitch.spellsource.draft;
 
-import net.demilich.metastone.game.cards.*;
-import net.demilich.metastone.game.decks.DeckFormat;
+import net.demilich.metastone.game.cards.Rarity;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,8 +8,6 @@ import org.slf4j.LoggerFactory;
 import java.lang.ref.WeakReference;
 import java.util.*;
 
-import static java.util.stream.Collectors.toList;
-
 /**
  * Created by bberman on 12/14/16.
  */
@@ -75,81 +72,9 @@ public class DraftLogic {
 	}
 
 	private List<List<String>> createDraftCards(HeroClass hero) {
-		ArrayList<List<Card>> draftCards = new ArrayList<>(DRAFTS);
-
-		List<CardSet> equals = Arrays.asList(
-				CardSet.BASIC,
-				CardSet.CLASSIC,
-				CardSet.BLACKROCK_MOUNTAIN,
-				CardSet.GOBLINS_VS_GNOMES,
-				CardSet.LEAGUE_OF_EXPLORERS,
-				CardSet.MEAN_STREETS_OF_GADGETZAN,
-				CardSet.NAXXRAMAS,
-				CardSet.ONE_NIGHT_IN_KARAZHAN,
-				CardSet.HALL_OF_FAME,
-				CardSet.THE_GRAND_TOURNAMENT,
-				CardSet.THE_OLD_GODS,
-				CardSet.JOURNEY_TO_UNGORO,
-				CardSet.KNIGHTS_OF_THE_FROZEN_THRONE,
-				CardSet.WITCHWOOD,
-				CardSet.KOBOLDS_AND_CATACOMBS,
-				CardSet.BATTLE_FOR_ASHENVALE,
-				CardSet.SANDS_OF_TIME
-		);
-
-		// Until we have enough mean streets cards, don't use it
-		CardSet latestExpansion = CardSet.CUSTOM;
-
-		Set<CardType> validCardTypes = new HashSet<>(Arrays.asList(CardType.values()));
-
-		Set<String> bannedCards = new HashSet<>();
-		bannedCards.addAll(Arrays.asList(
-				"spell_forgotten_torch",
-				"minion_snowchugger",
-				"minion_faceless_summoner",
-				"minion_goblin_auto-barber",
-				"minion_undercity_valiant",
-				"minion_vitality_totem",
-				"minion_dust_devil",
-				"spell_totemic_might",
-				"spell_ancestral_healing",
-				"minion_dunemaul_shaman",
-				"minion_windspeaker",
-				"minion_anima_golem",
-				"spell_sacrificial_pact",
-				"spell_curse_of_rafaam",
-				"spell_sense_demons",
-				"minion_void_crusher",
-				"minion_reliquary_seeker",
-				"minion_succubus",
-				"spell_savagery",
-				"spell_poison_seeds",
-				"spell_soul_of_the_forest",
-				"spell_mark_of_nature",
-				"spell_tree_of_life",
-				"spell_astral_communion",
-				"minion_warsong_commander",
-				"spell_bolster",
-				"spell_charge",
-				"spell_bouncing_blade",
-				"minion_axe_flinger",
-				"spell_rampage",
-				"minion_ogre_warmaul",
-				"minion_starving_buzzard",
-				"spell_call_pet",
-				"minion_timber_wolf",
-				"spell_cobra_shot",
-				"spell_lock_and_load",
-				"secret_dart_trap",
-				"secret_snipe",
-				"spell_mind_blast",
-				"minion_shadowbomber",
-				"minion_lightwell",
-				"spell_power_word_glory",
-				"spell_confuse",
-				"spell_convert",
-				"spell_inner_fire"
-		));
+		List<List<String>> draftCards = new ArrayList<>(DRAFTS);
+		DraftPools pools = DraftPools.get();
+		Random random = getRandom();
 
 		for (int draft = 0; draft < DRAFTS; draft++) {
 			// Select a rarity at the appropriate frequency
@@ -166,63 +91,33 @@ public class DraftLogic {
 			}
 
 			// Select the card set. The latest expansion gets a 50% bonus
-			List<Card> draftChoices = new ArrayList<>(CARDS_PER_DRAFT);
+			List<String> draftChoices = new ArrayList<>(CARDS_PER_DRAFT);
 
-			while (draftChoices.stream().map(Card::getCardId).distinct().count() < CARDS_PER_DRAFT) {
+			while (draftChoices.size() < CARDS_PER_DRAFT) {
 				float cardSetRoll = roll();
-				DeckFormat format = new DeckFormat();
-				float latestExpansionOdds = EXPANSION_ODDS_FACTOR / (equals.size() + EXPANSION_ODDS_FACTOR);
-				if (cardSetRoll < latestExpansionOdds) {
-					format.withCardSets(latestExpansion);
-				} else {
-					format.withCardSets(equals);
-				}
+				float latestExpansionOdds = EXPANSION_ODDS_FACTOR / (DraftPools.CARD_SETS.size() + EXPANSION_ODDS_FACTOR);
+				boolean latestExpansion = cardSetRoll < latestExpansionOdds;
+
+				// Class cards are five times as likely as neutrals
+				DraftPools.Pool pool = pools.getPool(hero, rarity, latestExpansion);
 
-				// Get neutral and hero cards
-				CardList classCards = CardCatalogue.query(format, c -> {
-					return c.hasHeroClass(hero)
-							&& !bannedCards.contains(c.getCardId())
-							&& c.getRarity() == rarity
-							&& validCardTypes.contains(c.getCardType())
-							&& c.isCollectible();
-				});
-
-				CardList neutralCards = CardCatalogue.query(format, c -> {
-					return c.hasHeroClass(HeroClass.ANY)
-							&& !bannedCards.contains(c.getCardId())
-							&& c.getRarity() == rarity
-							&& validCardTypes.contains(c.getCardType())
-							&& c.isCollectible();
-				});
-
-				// Total five copies of the class cards and then the neutrals
-				CardList cards = classCards.clone()
-						.addAll(classCards)
-						.addAll(classCards)
-						.addAll(classCards)
-						.addAll(classCards)
-						.addAll(neutralCards);
-
-				if (cards.getCount() == 0) {
-					logger.info("Draft pulled no cards given parameters: draft={}, rarity={}, sets={}", draft, rarity, format.getCardSets());
+				if (pool.isEmpty()) {
+					logger.info("Draft pulled no cards given parameters: draft={}, rarity={}, latestExpansion={}", draft, rarity, latestExpansion);
 					continue;
 				}
 
-				// Shuffle then choose until we're done
-				cards.shuffle(getRandom());
-
-				final Card nextCard = cards.removeFirst();
+				final String nextCardId = pool.sample(random);
 
-				if (draftChoices.stream().anyMatch(c -> Objects.equals(c.getCardId(), nextCard.getCardId()))) {
+				if (draftChoices.contains(nextCardId)) {
 					continue;
 				}
 
-				draftChoices.add(nextCard);
+				draftChoices.add(nextCardId);
 			}
 
 			draftCards.add(draftChoices);
 		}
-		return draftCards.stream().map(d -> d.stream().map(Card::getCardId).collect(toList())).collect(toList());
+		return draftCards;
 	}
 
 	private float roll() {
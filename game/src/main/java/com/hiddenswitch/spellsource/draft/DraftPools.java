@@ -0,0 +1,288 @@
+package com.hiddenswitch.spellsource.draft;
+
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.cards.CardSet;
+import net.demilich.metastone.game.cards.Rarity;
+import net.demilich.metastone.game.entities.heroes.HeroClass;
+
+import java.util.*;
+
+/**
+ * The cards that can be offered in a draft, grouped into pools by hero class, rarity and card sets.
+ * <p>
+ * The pools are computed once from the {@link CardCatalogue} and recomputed only when the catalogue changes. Each pool
+ * samples card IDs with the alias method, so a pick takes constant time and doesn't create any {@link Card} objects.
+ * Class cards are {@link #CLASS_CARD_WEIGHT} times as likely to be offered as neutral cards.
+ */
+public final class DraftPools {
+	/**
+	 * The card sets drafts normally draw from.
+	 */
+	public static final List<CardSet> CARD_SETS = Collections.unmodifiableList(Arrays.asList(
+			CardSet.BASIC,
+			CardSet.CLASSIC,
+			CardSet.BLACKROCK_MOUNTAIN,
+			CardSet.GOBLINS_VS_GNOMES,
+			CardSet.LEAGUE_OF_EXPLORERS,
+			CardSet.MEAN_STREETS_OF_GADGETZAN,
+			CardSet.NAXXRAMAS,
+			CardSet.ONE_NIGHT_IN_KARAZHAN,
+			CardSet.HALL_OF_FAME,
+			CardSet.THE_GRAND_TOURNAMENT,
+			CardSet.THE_OLD_GODS,
+			CardSet.JOURNEY_TO_UNGORO,
+			CardSet.KNIGHTS_OF_THE_FROZEN_THRONE,
+			CardSet.WITCHWOOD,
+			CardSet.KOBOLDS_AND_CATACOMBS,
+			CardSet.BATTLE_FOR_ASHENVALE,
+			CardSet.SANDS_OF_TIME
+	));
+	/**
+	 * The card set that gets a bonus to appear in drafts. Until we have enough mean streets cards, don't use it.
+	 */
+	public static final CardSet LATEST_EXPANSION = CardSet.CUSTOM;
+	public static final double CLASS_CARD_WEIGHT = 5d;
+	public static final Set<String> BANNED_CARDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"spell_forgotten_torch",
+			"minion_snowchugger",
+			"minion_faceless_summoner",
+			"minion_goblin_auto-barber",
+			"minion_undercity_valiant",
+			"minion_vitality_totem",
+			"minion_dust_devil",
+			"spell_totemic_might",
+			"spell_ancestral_healing",
+			"minion_dunemaul_shaman",
+			"minion_windspeaker",
+			"minion_anima_golem",
+			"spell_sacrificial_pact",
+			"spell_curse_of_rafaam",
+			"spell_sense_demons",
+			"minion_void_crusher",
+			"minion_reliquary_seeker",
+			"minion_succubus",
+			"spell_savagery",
+			"spell_poison_seeds",
+			"spell_soul_of_the_forest",
+			"spell_mark_of_nature",
+			"spell_tree_of_life",
+			"spell_astral_communion",
+			"minion_warsong_commander",
+			"spell_bolster",
+			"spell_charge",
+			"spell_bouncing_blade",
+			"minion_axe_flinger",
+			"spell_rampage",
+			"minion_ogre_warmaul",
+			"minion_starving_buzzard",
+			"spell_call_pet",
+			"minion_timber_wolf",
+			"spell_cobra_shot",
+			"spell_lock_and_load",
+			"secret_dart_trap",
+			"secret_snipe",
+			"spell_mind_blast",
+			"minion_shadowbomber",
+			"minion_lightwell",
+			"spell_power_word_glory",
+			"spell_confuse",
+			"spell_convert",
+			"spell_inner_fire"
+	)));
+
+	private static volatile DraftPools instance;
+
+	private final int catalogueModifications;
+	private final Map<Key, Pool> pools;
+
+	private DraftPools(int catalogueModifications, Map<Key, Pool> pools) {
+		this.catalogueModifications = catalogueModifications;
+		this.pools = pools;
+	}
+
+	/**
+	 * Gets the draft pools of the current catalogue, computing them if the catalogue changed since they were last
+	 * computed.
+	 *
+	 * @return The pools.
+	 */
+	public static DraftPools get() {
+		DraftPools pools = instance;
+		int modifications = CardCatalogue.getModifications();
+		if (pools == null || pools.catalogueModifications != modifications) {
+			synchronized (DraftPools.class) {
+				pools = instance;
+				if (pools == null || pools.catalogueModifications != modifications) {
+					pools = create(modifications);
+					instance = pools;
+				}
+			}
+		}
+		return pools;
+	}
+
+	/**
+	 * Gets the pool of cards to offer a hero in a draft.
+	 *
+	 * @param heroClass        The drafting hero's class.
+	 * @param rarity           The rarity of the cards.
+	 * @param latestExpansion {@code true} to draw from the {@link #LATEST_EXPANSION}, otherwise from the {@link
+	 *                         #CARD_SETS}.
+	 * @return The pool, which may be empty.
+	 */
+	public Pool getPool(HeroClass heroClass, Rarity rarity, boolean latestExpansion) {
+		return pools.getOrDefault(new Key(heroClass, rarity, latestExpansion), Pool.EMPTY);
+	}
+
+	private static DraftPools create(int modifications) {
+		Set<CardSet> cardSets = EnumSet.copyOf(CARD_SETS);
+		HeroClass[] heroClasses = HeroClass.values();
+		Map<Key, List<String>> cardIds = new HashMap<>();
+		Map<Key, List<Double>> weights = new HashMap<>();
+		// Visits every card once instead of querying the catalogue for every pick
+		CardCatalogue.stream().forEach(card -> {
+			boolean latestExpansion;
+			if (card.getCardSet() == LATEST_EXPANSION) {
+				latestExpansion = true;
+			} else if (cardSets.contains(card.getCardSet())) {
+				latestExpansion = false;
+			} else {
+				return;
+			}
+
+			if (!card.isCollectible()
+					|| BANNED_CARDS.contains(card.getCardId())) {
+				return;
+			}
+
+			boolean neutral = card.hasHeroClass(HeroClass.ANY);
+			for (HeroClass heroClass : heroClasses) {
+				// Neutral cards are offered to every hero
+				double weight = (card.hasHeroClass(heroClass) ? CLASS_CARD_WEIGHT : 0d) + (neutral ? 1d : 0d);
+				if (weight == 0d) {
+					continue;
+				}
+				Key key = new Key(heroClass, card.getRarity(), latestExpansion);
+				cardIds.computeIfAbsent(key, k -> new ArrayList<>()).add(card.getCardId());
+				weights.computeIfAbsent(key, k -> new ArrayList<>()).add(weight);
+			}
+		});
+
+		Map<Key, Pool> pools = new HashMap<>();
+		for (Map.Entry<Key, List<String>> entry : cardIds.entrySet()) {
+			pools.put(entry.getKey(), new Pool(entry.getValue(), weights.get(entry.getKey())));
+		}
+		return new DraftPools(modifications, pools);
+	}
+
+	/**
+	 * An immutable, weighted pool of card IDs.
+	 */
+	public static final class Pool {
+		private static final Pool EMPTY = new Pool(Collections.emptyList(), Collections.emptyList());
+
+		private final String[] cardIds;
+		private final double[] probabilities;
+		private final int[] aliases;
+
+		private Pool(List<String> cardIds, List<Double> weights) {
+			int n = cardIds.size();
+			this.cardIds = cardIds.toArray(new String[n]);
+			this.probabilities = new double[n];
+			this.aliases = new int[n];
+			if (n == 0) {
+				return;
+			}
+
+			// Vose's alias method
+			double total = 0d;
+			for (double weight : weights) {
+				total += weight;
+			}
+			double[] scaled = new double[n];
+			int[] small = new int[n];
+			int[] large = new int[n];
+			int smallCount = 0;
+			int largeCount = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = weights.get(i) * n / total;
+				if (scaled[i] < 1d) {
+					small[smallCount++] = i;
+				} else {
+					large[largeCount++] = i;
+				}
+			}
+			while (smallCount > 0 && largeCount > 0) {
+				int less = small[--smallCount];
+				int more = large[--largeCount];
+				probabilities[less] = scaled[less];
+				aliases[less] = more;
+				scaled[more] = scaled[more] + scaled[less] - 1d;
+				if (scaled[more] < 1d) {
+					small[smallCount++] = more;
+				} else {
+					large[largeCount++] = more;
+				}
+			}
+			// Whatever remains is only off from 1 by rounding
+			while (largeCount > 0) {
+				probabilities[large[--largeCount]] = 1d;
+			}
+			while (smallCount > 0) {
+				probabilities[small[--smallCount]] = 1d;
+			}
+		}
+
+		/**
+		 * Draws a card ID with probability proportional to its weight.
+		 *
+		 * @param random The random number generator.
+		 * @return The card ID.
+		 * @throws NoSuchElementException if the pool is empty.
+		 */
+		public String sample(Random random) {
+			if (cardIds.length == 0) {
+				throw new NoSuchElementException();
+			}
+			int i = random.nextInt(cardIds.length);
+			return random.nextDouble() < probabilities[i] ? cardIds[i] : cardIds[aliases[i]];
+		}
+
+		public boolean isEmpty() {
+			return cardIds.length == 0;
+		}
+
+		public int size() {
+			return cardIds.length;
+		}
+	}
+
+	private static final class Key {
+		private final HeroClass heroClass;
+		private final Rarity rarity;
+		private final boolean latestExpansion;
+
+		private Key(HeroClass heroClass, Rarity rarity, boolean latestExpansion) {
+			this.heroClass = heroClass;
+			this.rarity = rarity;
+			this.latestExpansion = latestExpansion;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return heroClass == other.heroClass
+					&& rarity == other.rarity
+					&& latestExpansion == other.latestExpansion;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(heroClass, rarity, latestExpansion);
+		}
+	}
+}
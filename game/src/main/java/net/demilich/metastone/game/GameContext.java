@@ -23,11 +23,14 @@ import net.demilich.metastone.game.entities.heroes.HeroClass;
 import net.demilich.metastone.game.entities.minions.Minion;
 import net.demilich.metastone.game.environment.Environment;
 import net.demilich.metastone.game.environment.EnvironmentDeque;
+import net.demilich.metastone.game.environment.EnvironmentIntStack;
 import net.demilich.metastone.game.environment.EnvironmentMap;
+import net.demilich.metastone.game.environment.EnvironmentReferenceStack;
 import net.demilich.metastone.game.environment.EnvironmentValue;
 import net.demilich.metastone.game.events.GameEvent;
 import net.demilich.metastone.game.logic.GameLogic;
 import net.demilich.metastone.game.logic.GameStatus;
+import net.demilich.metastone.game.logic.PendingDeaths;
 import net.demilich.metastone.game.logic.TargetLogic;
 import net.demilich.metastone.game.logic.Trace;
 import net.demilich.metastone.game.services.Inventory;
@@ -35,12 +38,14 @@ import net.demilich.metastone.game.spells.desc.SpellDesc;
 import net.demilich.metastone.game.spells.trigger.Enchantment;
 import net.demilich.metastone.game.spells.trigger.Trigger;
 import net.demilich.metastone.game.spells.trigger.TriggerManager;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.statistics.SimulationResult;
 import net.demilich.metastone.game.targeting.EntityReference;
 import net.demilich.metastone.game.targeting.IdFactory;
 import net.demilich.metastone.game.targeting.IdFactoryImpl;
 import net.demilich.metastone.game.targeting.Zones;
 import net.demilich.metastone.game.utils.Attribute;
+import net.demilich.metastone.game.utils.ChangeCounter;
 import net.demilich.metastone.game.utils.TurnState;
 import org.apache.commons.math3.util.Combinations;
 import org.jetbrains.annotations.NotNull;
@@ -144,6 +149,19 @@ import static java.util.stream.Collectors.toList;
 public class GameContext implements Cloneable, Serializable, Inventory, EntityZoneTable {
 	public static final int PLAYER_1 = 0;
 	public static final int PLAYER_2 = 1;
+	private static final int ENVIRONMENT_SLOTS = Environment.values().length;
+	private static final Set<Environment> VALUE_STACKS = EnumSet.of(
+			Environment.DAMAGE_STACK,
+			Environment.SPELL_VALUE_STACK,
+			Environment.EVENT_VALUE_STACK);
+	private static final Set<Environment> REFERENCE_STACKS = EnumSet.of(
+			Environment.EVENT_TARGET_REFERENCE_STACK,
+			Environment.SUMMON_REFERENCE_STACK,
+			Environment.SPELL_TARGET,
+			Environment.OUTPUTS,
+			Environment.ATTACKER_REFERENCE_STACK,
+			Environment.EVENT_SOURCE_REFERENCE_STACK,
+			Environment.TRIGGER_HOST_STACK);
 	protected static Logger logger = LoggerFactory.getLogger(GameContext.class);
 	private Player[] players = new Player[2];
 	private Behaviour[] behaviours = new Behaviour[2];
@@ -152,6 +170,10 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	private TargetLogic targetLogic = new TargetLogic();
 	private TriggerManager triggerManager = new TriggerManager();
 	private Map<Environment, Object> environment = new HashMap<>();
+	private EnvironmentIntStack[] stacks = new EnvironmentIntStack[ENVIRONMENT_SLOTS];
+	private transient PendingDeaths pendingDeaths = new PendingDeaths();
+	private transient long stateVersion;
+	private transient ChangeCounter changes = new ChangeCounter();
 	private int activePlayerId = -1;
 	private Player winner;
 	private GameStatus result;
@@ -163,8 +185,10 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	private boolean ignoreEvents;
 	private CardList tempCards = new CardArrayList();
 	private boolean didCallEndGame;
+	private boolean headless;
 
 	private transient Trace trace = new Trace();
+	private transient Profiler profiler;
 
 	/**
 	 * Creates a game context with two empty players.
@@ -297,7 +321,26 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 */
 	@Override
 	public GameContext clone() {
-		GameLogic logicClone = getLogic().clone();
+		return clone(getLogic().clone());
+	}
+
+	/**
+	 * Clones the game context like {@link #clone()}, except that the clone draws its random numbers from an independent
+	 * stream.
+	 * <p>
+	 * AI functions that run many simulations from the same game state should fork each simulation with a different
+	 * stream ID, so that the simulations are not correlated and seeded simulations give the same results regardless of
+	 * the order or the threads they run in.
+	 *
+	 * @param streamId The ID of the stream, typically the index of the simulation.
+	 * @return A cloned instance of the game context.
+	 * @see GameLogic#fork(long)
+	 */
+	public GameContext fork(long streamId) {
+		return clone(getLogic().fork(streamId));
+	}
+
+	private GameContext clone(GameLogic logicClone) {
 		Player player1Clone = getPlayer1().clone();
 		Player player2Clone = getPlayer2().clone();
 		GameContext clone = new GameContext(player1Clone, player2Clone, logicClone, getDeckFormat());
@@ -320,8 +363,13 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 				clone.getEnvironment().put(entry.getKey(), value.getCopy());
 			}
 		}
+		for (int i = 0; i < stacks.length; i++) {
+			clone.stacks[i] = stacks[i] == null ? null : stacks[i].getCopy();
+		}
 
 		clone.behaviours = new Behaviour[]{behaviours[0] == null ? null : behaviours[0].clone(), behaviours[1] == null ? null : behaviours[1].clone()};
+		clone.setProfiler(profiler);
+		clone.setHeadless(headless);
 		return clone;
 	}
 
@@ -350,8 +398,13 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 
 		// Expire the game just once here
 		getTriggerManager().expireAll();
-		logger.debug("endGame {}: Game is now ending", getGameId());
+		if (shouldLogDebug()) {
+			logger.debug("endGame {}: Game is now ending", getGameId());
+		}
 		setWinner(getLogic().getWinner(getActivePlayer(), getOpponent(getActivePlayer())));
+		if (!headless) {
+			trace.setOutcome(getWinningPlayerId(), getTurn());
+		}
 		notifyPlayersGameOver();
 		calculateStatistics();
 	}
@@ -364,6 +417,9 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	}
 
 	protected void calculateStatistics() {
+		if (headless) {
+			return;
+		}
 		if (getWinner() != null) {
 			logger.debug("calculateStatistics {}: Game finished after {}, turns, the winner is {}", getGameId(), getTurn(), getWinner().getName());
 			getWinner().getStatistics().gameWon();
@@ -381,11 +437,15 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 */
 	@Suspendable
 	public void endTurn() {
-		logger.debug("{} endTurn: Ending turn {}", getGameId(), getActivePlayer().getId());
+		if (shouldLogDebug()) {
+			logger.debug("{} endTurn: Ending turn {}", getGameId(), getActivePlayer().getId());
+		}
 		getLogic().endTurn(getActivePlayerId());
 		setActivePlayerId(getLogic().getNextActivePlayerId());
 		setTurnState(TurnState.TURN_ENDED);
-		onGameStateChanged();
+		if (!headless) {
+			onGameStateChanged();
+		}
 	}
 
 
@@ -424,6 +484,7 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 */
 	@Suspendable
 	public void fireGameEvent(GameEvent gameEvent, List<Trigger> otherTriggers) {
+		stateVersion++;
 		if (ignoreEvents()) {
 			return;
 		}
@@ -527,12 +588,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 *
 	 * @return The stack.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<Integer> getDamageStack() {
-		if (!getEnvironment().containsKey(Environment.DAMAGE_STACK)) {
-			getEnvironment().put(Environment.DAMAGE_STACK, new EnvironmentDeque<Integer>());
-		}
-		return (Deque<Integer>) getEnvironment().get(Environment.DAMAGE_STACK);
+	public EnvironmentIntStack getDamageStack() {
+		return getValueStack(Environment.DAMAGE_STACK);
 	}
 
 	/**
@@ -549,14 +606,51 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 * currently being summoned, which targets are being targeted, how much damage is set to be dealt, etc.
 	 * <p>
 	 * This helps implement a variety of complex rules in the game.
+	 * <p>
+	 * The execution stacks, like {@link Environment#EVENT_TARGET_REFERENCE_STACK} and {@link Environment#DAMAGE_STACK},
+	 * are not stored in this map. They are kept in fixed slots of primitive stacks and accessed through their getters,
+	 * like {@link #getEventTargetStack()}, because they are pushed and popped for every trigger and spell.
 	 *
 	 * @return A mutable map of environment variables.
 	 * @see Environment for a description of the environment variables.
+	 * @see #getEnvironmentState() for a copy of the environment that includes the execution stacks.
 	 */
 	public Map<Environment, Object> getEnvironment() {
 		return environment;
 	}
 
+	/**
+	 * Gets a copy of the complete environment, including the execution stacks, in the format stored in {@link
+	 * GameState#environment}: every stack is an {@link EnvironmentDeque} of {@link Integer} or {@link EntityReference}
+	 * objects.
+	 *
+	 * @return A new map.
+	 * @see #setEnvironment(Map) to restore an environment in this format.
+	 */
+	public Map<Environment, Object> getEnvironmentState() {
+		Map<Environment, Object> state = new HashMap<>(getEnvironment());
+		for (Environment key : Environment.values()) {
+			EnvironmentIntStack stack = stacks[key.ordinal()];
+			if (stack == null) {
+				continue;
+			}
+			EnvironmentDeque<Serializable> deque = new EnvironmentDeque<>();
+			for (int i = 0; i < stack.size(); i++) {
+				Serializable value = stack instanceof EnvironmentReferenceStack
+						? new EntityReference(stack.get(i))
+						: Integer.valueOf(stack.get(i));
+				// The spell value stack was always a queue read from its head, the others were pushed onto their heads
+				if (key == Environment.SPELL_VALUE_STACK) {
+					deque.addLast(value);
+				} else {
+					deque.addFirst(value);
+				}
+			}
+			state.put(key, deque);
+		}
+		return state;
+	}
+
 	/**
 	 * Gets the current output card.
 	 *
@@ -564,7 +658,7 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 * @see Environment#OUTPUTS for more.
 	 */
 	public Card getOutputCard() {
-		return (Card) resolveSingleTarget(getOutputStack().peek()).getSourceCard();
+		return (Card) resolveSingleTarget(getOutputStack().peekReference()).getSourceCard();
 	}
 
 	/**
@@ -573,12 +667,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 * @return A stack of targets.
 	 * @see Environment#EVENT_TARGET_REFERENCE_STACK for more.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getEventTargetStack() {
-		if (!getEnvironment().containsKey(Environment.EVENT_TARGET_REFERENCE_STACK)) {
-			getEnvironment().put(Environment.EVENT_TARGET_REFERENCE_STACK, new EnvironmentDeque<EntityReference>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.EVENT_TARGET_REFERENCE_STACK);
+	public EnvironmentReferenceStack getEventTargetStack() {
+		return getReferenceStack(Environment.EVENT_TARGET_REFERENCE_STACK);
 	}
 
 	/**
@@ -751,12 +841,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 *
 	 * @return A stack of summons.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getSummonReferenceStack() {
-		if (!getEnvironment().containsKey(Environment.SUMMON_REFERENCE_STACK)) {
-			getEnvironment().put(Environment.SUMMON_REFERENCE_STACK, new EnvironmentDeque<EntityReference>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.SUMMON_REFERENCE_STACK);
+	public EnvironmentReferenceStack getSummonReferenceStack() {
+		return getReferenceStack(Environment.SUMMON_REFERENCE_STACK);
 	}
 
 	/**
@@ -838,19 +924,25 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	@Suspendable
 	public void init() {
 		getLogic().contextReady();
-		startTrace();
+		if (!headless) {
+			startTrace();
+		}
 		int startingPlayerId = getLogic().determineBeginner(PLAYER_1, PLAYER_2);
 		setActivePlayerId(getPlayer(startingPlayerId).getId());
-		logger.debug("{} init: Initializing game with starting player {}", getGameId(), getActivePlayer().getUserId());
+		if (shouldLogDebug()) {
+			logger.debug("{} init: Initializing game with starting player {}", getGameId(), getActivePlayer().getUserId());
+		}
 		getPlayers().forEach(p -> p.getAttributes().put(Attribute.GAME_START_TIME_MILLIS, (int) (System.currentTimeMillis() % Integer.MAX_VALUE)));
 		getLogic().initializePlayer(PLAYER_1);
 		getLogic().initializePlayer(PLAYER_2);
 		List<Card> mulligans1 = getLogic().init(getActivePlayerId(), true);
 		List<Card> mulligans2 = getLogic().init(getOpponent(getActivePlayer()).getId(), false);
-		int[][] tracedMulligans = new int[2][];
-		tracedMulligans[getActivePlayerId()] = mulligans1.stream().mapToInt(Card::getId).toArray();
-		tracedMulligans[getOpponent(getActivePlayer()).getId()] = mulligans2.stream().mapToInt(Card::getId).toArray();
-		trace.setMulligans(tracedMulligans);
+		if (!headless) {
+			int[][] tracedMulligans = new int[2][];
+			tracedMulligans[getActivePlayerId()] = mulligans1.stream().mapToInt(Card::getId).toArray();
+			tracedMulligans[getOpponent(getActivePlayer()).getId()] = mulligans2.stream().mapToInt(Card::getId).toArray();
+			trace.setMulligans(tracedMulligans);
+		}
 		startGame();
 	}
 
@@ -875,7 +967,9 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	@Suspendable
 	protected void performAction(int playerId, GameAction gameAction) {
 		getLogic().performGameAction(playerId, gameAction);
-		onGameStateChanged();
+		if (!headless) {
+			onGameStateChanged();
+		}
 	}
 
 	/**
@@ -892,7 +986,9 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 */
 	@Suspendable
 	public void play() {
-		logger.debug("play {}: Game starts {} {} vs {} {}", getGameId(), getPlayer1().getName(), getPlayer1().getUserId(), getPlayer2().getName(), getPlayer2().getUserId());
+		if (shouldLogDebug()) {
+			logger.debug("play {}: Game starts {} {} vs {} {}", getGameId(), getPlayer1().getName(), getPlayer1().getUserId(), getPlayer2().getName(), getPlayer2().getUserId());
+		}
 		if (Arrays.stream(behaviours).anyMatch(FiberBehaviour.class::isInstance)) {
 			Fiber<Void> f;
 			SuspendableCallable<Void> innerPlay = () -> {
@@ -935,19 +1031,35 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 			return true;
 		}
 
-		List<GameAction> validActions = getValidActions();
-		if (validActions.size() == 0) {
-			//endTurn();
-			return false;
-		}
+		GameAction nextAction;
+		Behaviour behaviour = behaviours[getActivePlayerId()];
+		if (behaviour instanceof ActionCodeBehaviour) {
+			// Only the chosen action is created
+			long[] validActionCodes = updateAndGetGameOver() ? new long[0] : getLogic().getValidActionCodes(getActivePlayerId());
+			if (validActionCodes.length == 0) {
+				return false;
+			}
 
-		GameAction nextAction = behaviours[getActivePlayerId()].requestAction(this, getActivePlayer(), getValidActions());
+			int index = ((ActionCodeBehaviour) behaviour).requestActionIndex(this, getActivePlayer(), validActionCodes);
+			nextAction = getLogic().getGameAction(getActivePlayerId(), validActionCodes[index]);
+			nextAction.setId(index);
+		} else {
+			List<GameAction> validActions = getValidActions();
+			if (validActions.size() == 0) {
+				//endTurn();
+				return false;
+			}
+
+			nextAction = behaviour.requestAction(this, getActivePlayer(), validActions);
+		}
 
 		if (nextAction == null) {
 			throw new NullPointerException("nextAction");
 		}
 
-		trace.addAction(nextAction.getId(), nextAction);
+		if (!headless) {
+			trace.addAction(nextAction.getId(), nextAction);
+		}
 		performAction(getActivePlayerId(), nextAction);
 
 		return nextAction.getActionType() != ActionType.END_TURN;
@@ -1021,13 +1133,12 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 		this.ignoreEvents = ignoreEvents;
 	}
 
-	@SuppressWarnings("unchecked")
 	public int getEventValue() {
-		if (getEnvironment().containsKey(Environment.EVENT_VALUE_STACK)) {
-			return ((Deque<Integer>) getEnvironment().get(Environment.EVENT_VALUE_STACK)).peek();
-		} else {
+		EnvironmentIntStack stack = stacks[Environment.EVENT_VALUE_STACK.ordinal()];
+		if (stack == null || stack.isEmpty()) {
 			return 0;
 		}
+		return stack.peek();
 	}
 
 	/**
@@ -1096,12 +1207,16 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 */
 	@Suspendable
 	public void startTurn(int playerId) {
-		logger.debug("{} startTurn: Starting turn {} for playerId={}", getGameId(), getTurn() + 1, playerId);
+		if (shouldLogDebug()) {
+			logger.debug("{} startTurn: Starting turn {} for playerId={}", getGameId(), getTurn() + 1, playerId);
+		}
 		setTurn(getTurn() + 1);
 		getLogic().startTurn(playerId);
 		setActionsThisTurn(0);
 		setTurnState(TurnState.TURN_IN_PROGRESS);
-		onGameStateChanged();
+		if (!headless) {
+			onGameStateChanged();
+		}
 	}
 
 	@Override
@@ -1132,8 +1247,55 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 		this.deckFormat = deckFormat;
 	}
 
+	/**
+	 * Replaces the environment, including the execution stacks.
+	 *
+	 * @param environment A map of environment variables. Execution stacks may be given as {@link Deque} objects in the
+	 *                    format of {@link #getEnvironmentState()}, or as {@link EnvironmentIntStack} objects.
+	 */
 	public void setEnvironment(Map<Environment, Object> environment) {
-		this.environment = environment;
+		this.environment = new HashMap<>();
+		this.stacks = new EnvironmentIntStack[ENVIRONMENT_SLOTS];
+		for (Map.Entry<Environment, Object> entry : environment.entrySet()) {
+			Environment key = entry.getKey();
+			Object value = entry.getValue();
+			if (!isStack(key) || value == null) {
+				this.environment.put(key, value);
+			} else if (value instanceof EnvironmentIntStack) {
+				stacks[key.ordinal()] = ((EnvironmentIntStack) value).getCopy();
+			} else {
+				Deque<?> deque = (Deque<?>) value;
+				EnvironmentIntStack stack = REFERENCE_STACKS.contains(key) ? new EnvironmentReferenceStack() : new EnvironmentIntStack();
+				Iterator<?> iterator = key == Environment.SPELL_VALUE_STACK ? deque.iterator() : deque.descendingIterator();
+				while (iterator.hasNext()) {
+					Object element = iterator.next();
+					stack.push(element instanceof EntityReference ? ((EntityReference) element).getId() : ((Number) element).intValue());
+				}
+				stacks[key.ordinal()] = stack;
+			}
+		}
+	}
+
+	private static boolean isStack(Environment key) {
+		return VALUE_STACKS.contains(key) || REFERENCE_STACKS.contains(key);
+	}
+
+	private EnvironmentIntStack getValueStack(Environment key) {
+		EnvironmentIntStack stack = stacks[key.ordinal()];
+		if (stack == null) {
+			stack = new EnvironmentIntStack();
+			stacks[key.ordinal()] = stack;
+		}
+		return stack;
+	}
+
+	private EnvironmentReferenceStack getReferenceStack(Environment key) {
+		EnvironmentIntStack stack = stacks[key.ordinal()];
+		if (stack == null) {
+			stack = new EnvironmentReferenceStack();
+			stacks[key.ordinal()] = stack;
+		}
+		return (EnvironmentReferenceStack) stack;
 	}
 
 	public Player getWinner() {
@@ -1177,6 +1339,7 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	}
 
 	public void setGameState(GameState state) {
+		stateVersion++;
 		this.setPlayer(GameContext.PLAYER_1, state.player1);
 		this.setPlayer(GameContext.PLAYER_2, state.player2);
 		this.setTempCards(state.tempCards);
@@ -1198,6 +1361,7 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 		if (player.getId() != index) {
 			player.setId(index);
 		}
+		player.setChangeCounter(getChangeCounter());
 	}
 
 	public void setActivePlayerId(int id) {
@@ -1293,44 +1457,24 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 *
 	 * @return A stack of {@link Integer} spell values.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<Integer> getSpellValueStack() {
-		if (!getEnvironment().containsKey(Environment.SPELL_VALUE_STACK)) {
-			getEnvironment().put(Environment.SPELL_VALUE_STACK, new EnvironmentDeque<Integer>());
-		}
-		return (Deque<Integer>) getEnvironment().get(Environment.SPELL_VALUE_STACK);
+	public EnvironmentIntStack getSpellValueStack() {
+		return getValueStack(Environment.SPELL_VALUE_STACK);
 	}
 
-	@SuppressWarnings("unchecked")
-	public Deque<Integer> getEventValueStack() {
-		if (!getEnvironment().containsKey(Environment.EVENT_VALUE_STACK)) {
-			getEnvironment().put(Environment.EVENT_VALUE_STACK, new EnvironmentDeque<>());
-		}
-		return (Deque<Integer>) getEnvironment().get(Environment.EVENT_VALUE_STACK);
+	public EnvironmentIntStack getEventValueStack() {
+		return getValueStack(Environment.EVENT_VALUE_STACK);
 	}
 
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getSpellTargetStack() {
-		if (!getEnvironment().containsKey(Environment.SPELL_TARGET)) {
-			getEnvironment().put(Environment.SPELL_TARGET, new EnvironmentDeque<>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.SPELL_TARGET);
+	public EnvironmentReferenceStack getSpellTargetStack() {
+		return getReferenceStack(Environment.SPELL_TARGET);
 	}
 
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getOutputStack() {
-		if (!getEnvironment().containsKey(Environment.OUTPUTS)) {
-			getEnvironment().put(Environment.OUTPUTS, new EnvironmentDeque<>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.OUTPUTS);
+	public EnvironmentReferenceStack getOutputStack() {
+		return getReferenceStack(Environment.OUTPUTS);
 	}
 
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getAttackerReferenceStack() {
-		if (!getEnvironment().containsKey(Environment.ATTACKER_REFERENCE_STACK)) {
-			getEnvironment().put(Environment.ATTACKER_REFERENCE_STACK, new EnvironmentDeque<>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.ATTACKER_REFERENCE_STACK);
+	public EnvironmentReferenceStack getAttackerReferenceStack() {
+		return getReferenceStack(Environment.ATTACKER_REFERENCE_STACK);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1381,12 +1525,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 *
 	 * @return A stack of event source {@link EntityReference} objects.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getEventSourceStack() {
-		if (!getEnvironment().containsKey(Environment.EVENT_SOURCE_REFERENCE_STACK)) {
-			getEnvironment().put(Environment.EVENT_SOURCE_REFERENCE_STACK, new EnvironmentDeque<EntityReference>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.EVENT_SOURCE_REFERENCE_STACK);
+	public EnvironmentReferenceStack getEventSourceStack() {
+		return getReferenceStack(Environment.EVENT_SOURCE_REFERENCE_STACK);
 	}
 
 	/**
@@ -1453,8 +1593,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 			try {
 				newGame.play();
 
-				innerResult.getPlayer1Stats().merge(newGame.getPlayer1().getStatistics());
-				innerResult.getPlayer2Stats().merge(newGame.getPlayer2().getStatistics());
+				newGame.getPlayer1().getStatistics().mergeInto(innerResult.getPlayer1Stats());
+				newGame.getPlayer2().getStatistics().mergeInto(innerResult.getPlayer2Stats());
 				innerResult.calculateMetaStatistics();
 			} finally {
 				newGame.dispose();
@@ -1465,7 +1605,7 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 			}
 
 			return innerResult;
-		}).reduce(SimulationResult::merge).orElseThrow(NullPointerException::new);
+		}).reduce((accumulator, next) -> next.mergeInto(accumulator)).orElseThrow(NullPointerException::new);
 	}
 
 	/**
@@ -1479,6 +1619,22 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 * @throws InterruptedException
 	 */
 	public static void simulate(List<GameDeck> deckPair, List<Supplier<Behaviour>> behaviours, int numberOfGamesInBatch, boolean reduce, Consumer<SimulationResult> computed) throws InterruptedException {
+		simulate(deckPair, behaviours, numberOfGamesInBatch, reduce, computed, null);
+	}
+
+	/**
+	 * A generator of simulation results. Blocks until all simulations are complete.
+	 *
+	 * @param deckPair
+	 * @param behaviours
+	 * @param numberOfGamesInBatch
+	 * @param reduce               When {@code true}, merges matches that have the same behaviour and decks.
+	 * @param computed             The callback that will be fed a simulation result whenever it is computed.
+	 * @param contextHandler       When not {@code null}, a handler that can modify each game context before it is
+	 *                             played, for example to {@link #setProfiler(Profiler)}.
+	 * @throws InterruptedException
+	 */
+	public static void simulate(List<GameDeck> deckPair, List<Supplier<Behaviour>> behaviours, int numberOfGamesInBatch, boolean reduce, Consumer<SimulationResult> computed, Consumer<GameContext> contextHandler) throws InterruptedException {
 		// Actually run the computation
 		Stream<Integer> stream = IntStream.range(0, numberOfGamesInBatch).boxed().parallel().unordered();
 
@@ -1491,6 +1647,9 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 			} else {
 				newGame = fromDecks(deckPair, behaviours.get(0).get(), behaviours.get(1).get());
 			}
+			if (contextHandler != null) {
+				contextHandler.accept(newGame);
+			}
 
 			SimulationResult innerResult = new SimulationResult(1);
 
@@ -1501,15 +1660,15 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 				return null;
 			}
 
-			innerResult.getPlayer1Stats().merge(newGame.getPlayer1().getStatistics());
-			innerResult.getPlayer2Stats().merge(newGame.getPlayer2().getStatistics());
+			newGame.getPlayer1().getStatistics().mergeInto(innerResult.getPlayer1Stats());
+			newGame.getPlayer2().getStatistics().mergeInto(innerResult.getPlayer2Stats());
 			innerResult.calculateMetaStatistics();
 
 			return innerResult;
 		}).filter(Objects::nonNull);
 
 		if (reduce) {
-			computed.accept(result.reduce(SimulationResult::merge).orElseThrow(NullPointerException::new));
+			computed.accept(result.reduce((accumulator, next) -> next.mergeInto(accumulator)).orElseThrow(NullPointerException::new));
 		} else {
 			result.forEach(computed);
 		}
@@ -1687,6 +1846,99 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 		return null;
 	}
 
+	/**
+	 * Gets the profiler that records the time and allocation spent in spells, triggers and target resolution in this
+	 * game.
+	 *
+	 * @return The profiler, or {@code null} if profiling is off, which is the default.
+	 */
+	public Profiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Turns on profiling for this game. Clones of this context share the same profiler, so the cost of AI rollouts is
+	 * included.
+	 *
+	 * @param profiler The profiler to record into, possibly shared with other games, or {@code null} to turn profiling
+	 *                 off.
+	 */
+	public void setProfiler(Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Indicates whether this game runs headless.
+	 *
+	 * @return {@code true} if this game skips everything that does not affect its outcome.
+	 * @see #setHeadless(boolean) for what a headless game skips.
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Configures this game to run headless, which is appropriate for AI rollouts and bulk simulations that only need the
+	 * outcome of a game.
+	 * <p>
+	 * A headless game does not record its {@link #getTrace()}, does not update the {@link
+	 * net.demilich.metastone.game.statistics.GameStatistics} that no card reads (like damage dealt, cards drawn or games
+	 * won), does not call the {@link #onWillPerformGameAction(int, GameAction)}, {@link #onDidPerformGameAction(int,
+	 * GameAction)}, {@link #onEnchantmentFired(Enchantment)} and {@link #onGameStateChanged()} notification hooks and
+	 * does not evaluate the arguments of debug logging. Unlike {@link #setIgnoreEvents(boolean)}, events and triggers are
+	 * processed as usual, so a headless game has the same outcome as a normal game with the same seed and behaviours.
+	 * <p>
+	 * Clones of a headless game are headless.
+	 *
+	 * @param headless {@code true} to run headless.
+	 */
+	public void setHeadless(boolean headless) {
+		this.headless = headless;
+	}
+
+	/**
+	 * Gets a number that changes whenever a game event is fired or the game state is replaced with {@link
+	 * #setGameState(GameState)}. Values computed from the game state, like {@link GameLogic#conditionMet(int, Card)},
+	 * can be cached until it changes.
+	 *
+	 * @return The version.
+	 */
+	public long getStateVersion() {
+		return stateVersion;
+	}
+
+	/**
+	 * Gets the counter of changes to this game's attributes, zones and mana, which spells make without firing events.
+	 * Together with {@link #getStateVersion()} it tells whether values computed from the game state are still valid.
+	 *
+	 * @return The counter shared by the players, their zones and the entities in them.
+	 */
+	public ChangeCounter getChangeCounter() {
+		if (changes == null) {
+			changes = new ChangeCounter();
+		}
+		return changes;
+	}
+
+	/**
+	 * Gets the tracker of actors that may have been destroyed since {@link GameLogic#endOfSequence()} last looked for
+	 * deaths.
+	 * <p>
+	 * A clone starts with its own tracker, whose first check scans every zone.
+	 *
+	 * @return The pending deaths of this game.
+	 */
+	public PendingDeaths getPendingDeaths() {
+		if (pendingDeaths == null) {
+			pendingDeaths = new PendingDeaths();
+		}
+		return pendingDeaths;
+	}
+
+	private boolean shouldLogDebug() {
+		return !headless && logger.isDebugEnabled();
+	}
+
 	/**
 	 * Sets the logging level on this instance.
 	 *
@@ -1701,12 +1953,8 @@ public class GameContext implements Cloneable, Serializable, Inventory, EntityZo
 	 *
 	 * @return A host reference, or null if the trigger didn't have a host.
 	 */
-	@SuppressWarnings("unchecked")
-	public Deque<EntityReference> getTriggerHostStack() {
-		if (!getEnvironment().containsKey(Environment.TRIGGER_HOST_STACK)) {
-			getEnvironment().put(Environment.TRIGGER_HOST_STACK, new EnvironmentDeque<>());
-		}
-		return (Deque<EntityReference>) getEnvironment().get(Environment.TRIGGER_HOST_STACK);
+	public EnvironmentReferenceStack getTriggerHostStack() {
+		return getReferenceStack(Environment.TRIGGER_HOST_STACK);
 	}
 
 	public void setTargetOverride(EntityReference reference) {
@@ -17,6 +17,7 @@ import net.demilich.metastone.game.statistics.GameStatistics;
 import net.demilich.metastone.game.targeting.EntityReference;
 import net.demilich.metastone.game.targeting.Zones;
 import net.demilich.metastone.game.utils.Attribute;
+import net.demilich.metastone.game.utils.ChangeCounter;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
@@ -60,6 +61,7 @@ public class Player extends Entity implements Serializable {
 	 */
 	private int maxMana;
 	private int lockedMana;
+	private transient ChangeCounter changes;
 
 	/**
 	 * Create an empty player instance.
@@ -309,6 +311,7 @@ public class Player extends Entity implements Serializable {
 	 */
 	public void setLockedMana(int lockedMana) {
 		this.lockedMana = lockedMana;
+		changed();
 	}
 
 	/**
@@ -319,6 +322,7 @@ public class Player extends Entity implements Serializable {
 	 */
 	public void setMana(int mana) {
 		this.mana = mana;
+		changed();
 	}
 
 	/**
@@ -328,6 +332,30 @@ public class Player extends Entity implements Serializable {
 	 */
 	public void setMaxMana(int maxMana) {
 		this.maxMana = maxMana;
+		changed();
+	}
+
+	/**
+	 * Sets the game's counter of changes on this player, its zones and the entities in them. Changes to the player's
+	 * mana are counted too.
+	 *
+	 * @param changes The game's counter.
+	 * @see ChangeCounter for more about counting changes.
+	 */
+	@Override
+	public void setChangeCounter(ChangeCounter changes) {
+		super.setChangeCounter(changes);
+		this.changes = changes;
+		for (EntityZone<?> zone : new EntityZone<?>[]{deck, hand, discoverZone, setAsideZone, graveyard, removedFromPlay,
+				minions, heroZone, secretZone, quests}) {
+			zone.setChangeCounter(changes);
+		}
+	}
+
+	private void changed() {
+		if (changes != null) {
+			changes.increment();
+		}
 	}
 
 	@Override
@@ -0,0 +1,175 @@
+package net.demilich.metastone.game.actions;
+
+import net.demilich.metastone.game.targeting.EntityReference;
+
+/**
+ * Encodes a valid action as a single {@code long}, so that search code and the network protocol can enumerate, store
+ * and compare actions without allocating {@link GameAction} objects.
+ * <p>
+ * A code packs four fields, from the most to the least significant bits:
+ * <ul>
+ * <li>4 bits: the {@link ActionType} ordinal.</li>
+ * <li>4 bits: the choose one option. {@code 0} means the action has no option, {@code 15} means both options were
+ * chosen and any other value {@code n} means option {@code n - 1}.</li>
+ * <li>28 bits: the entity ID of the source, i.e., the card played, the attacker or the player ending the turn.</li>
+ * <li>28 bits: the entity ID of the target plus one, or {@code 0} for an action without a target.</li>
+ * </ul>
+ * Codes are only meaningful for the game state they were enumerated from. Use {@link
+ * net.demilich.metastone.game.logic.GameLogic#getGameAction(int, long)} to turn a code back into an action that can be
+ * performed.
+ *
+ * @see net.demilich.metastone.game.logic.ActionLogic#forEachValidAction(net.demilich.metastone.game.GameContext,
+ * net.demilich.metastone.game.Player, java.util.function.LongPredicate) for the enumerator that produces codes.
+ */
+public final class ActionCode {
+	/**
+	 * The largest entity ID that can be encoded as a source or target.
+	 */
+	public static final int MAX_ENTITY_ID = 0xFFFFFFE;
+	/**
+	 * The value of {@link #getChooseOneOptionIndex(long)} for an action that has no choose one option.
+	 */
+	public static final int NO_OPTION = -2;
+	/**
+	 * The value of {@link #getChooseOneOptionIndex(long)} for an action that plays both choose one options, matching
+	 * {@link GameAction#getChooseOneOptionIndex()}.
+	 */
+	public static final int BOTH_OPTIONS = -1;
+
+	private static final int ID_BITS = 28;
+	private static final long ID_MASK = (1L << ID_BITS) - 1L;
+	private static final ActionType[] ACTION_TYPES = ActionType.values();
+	private static final int MAX_OPTION = 13;
+	private static final int BOTH_OPTIONS_FIELD = 0xF;
+
+	private ActionCode() {
+	}
+
+	/**
+	 * Encodes an action.
+	 *
+	 * @param actionType           The type of action.
+	 * @param sourceId             The entity ID of the source.
+	 * @param targetId             The entity ID of the target, or {@code -1} if the action has no target.
+	 * @param chooseOneOptionIndex The choose one option index, {@link #BOTH_OPTIONS} or {@link #NO_OPTION}.
+	 * @return The code.
+	 * @throws IllegalArgumentException if an entity ID or option is too large to be encoded.
+	 */
+	public static long of(ActionType actionType, int sourceId, int targetId, int chooseOneOptionIndex) {
+		if (sourceId < 0 || sourceId > MAX_ENTITY_ID) {
+			throw new IllegalArgumentException("sourceId " + sourceId + " cannot be encoded");
+		}
+		if (targetId < -1 || targetId > MAX_ENTITY_ID) {
+			throw new IllegalArgumentException("targetId " + targetId + " cannot be encoded");
+		}
+		int option;
+		if (chooseOneOptionIndex == NO_OPTION) {
+			option = 0;
+		} else if (chooseOneOptionIndex == BOTH_OPTIONS) {
+			option = BOTH_OPTIONS_FIELD;
+		} else if (chooseOneOptionIndex >= 0 && chooseOneOptionIndex <= MAX_OPTION) {
+			option = chooseOneOptionIndex + 1;
+		} else {
+			throw new IllegalArgumentException("chooseOneOptionIndex " + chooseOneOptionIndex + " cannot be encoded");
+		}
+		return (long) actionType.ordinal() << 60
+				| (long) option << 56
+				| (long) sourceId << ID_BITS
+				| (targetId + 1);
+	}
+
+	/**
+	 * Encodes an existing action.
+	 *
+	 * @param action The action.
+	 * @return The code.
+	 * @throws IllegalArgumentException if an entity ID or option is too large to be encoded.
+	 */
+	public static long of(GameAction action) {
+		EntityReference target = action.getTargetReference();
+		Integer option = action.getChooseOneOptionIndex();
+		return of(action.getActionType(),
+				action.getSourceReference().getId(),
+				target == null ? -1 : target.getId(),
+				option == null ? NO_OPTION : option);
+	}
+
+	/**
+	 * Gets the type of the encoded action.
+	 *
+	 * @param code The code.
+	 * @return The action type.
+	 */
+	public static ActionType getActionType(long code) {
+		return ACTION_TYPES[(int) (code >>> 60)];
+	}
+
+	/**
+	 * Gets the entity ID of the source of the encoded action.
+	 *
+	 * @param code The code.
+	 * @return The entity ID.
+	 */
+	public static int getSourceId(long code) {
+		return (int) ((code >>> ID_BITS) & ID_MASK);
+	}
+
+	/**
+	 * Gets the entity ID of the target of the encoded action.
+	 *
+	 * @param code The code.
+	 * @return The entity ID, or {@code -1} if the action has no target.
+	 */
+	public static int getTargetId(long code) {
+		return (int) (code & ID_MASK) - 1;
+	}
+
+	/**
+	 * Gets the choose one option of the encoded action.
+	 *
+	 * @param code The code.
+	 * @return The option index, {@link #BOTH_OPTIONS} or {@link #NO_OPTION}.
+	 */
+	public static int getChooseOneOptionIndex(long code) {
+		int option = (int) ((code >>> 56) & 0xF);
+		if (option == 0) {
+			return NO_OPTION;
+		}
+		if (option == BOTH_OPTIONS_FIELD) {
+			return BOTH_OPTIONS;
+		}
+		return option - 1;
+	}
+
+	/**
+	 * Checks whether the entity ID can be encoded as a source or target.
+	 *
+	 * @param entityId The entity ID.
+	 * @return {@code true} if the ID fits.
+	 */
+	public static boolean canEncode(int entityId) {
+		return entityId >= 0 && entityId <= MAX_ENTITY_ID;
+	}
+
+	/**
+	 * Describes the encoded action for debugging.
+	 *
+	 * @param code The code.
+	 * @return A string like {@code [SPELL source=12 target=4 option=1]}.
+	 */
+	public static String toString(long code) {
+		StringBuilder builder = new StringBuilder("[")
+				.append(getActionType(code))
+				.append(" source=").append(getSourceId(code));
+		if (getTargetId(code) != -1) {
+			builder.append(" target=").append(getTargetId(code));
+		}
+		int option = getChooseOneOptionIndex(code);
+		if (option == BOTH_OPTIONS) {
+			builder.append(" option=both");
+		} else if (option != NO_OPTION) {
+			builder.append(" option=").append(option);
+		}
+		return builder.append("]").toString();
+	}
+}
@@ -0,0 +1,36 @@
+package net.demilich.metastone.game.behaviour;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.actions.ActionCode;
+
+/**
+ * A behaviour that chooses among the {@link ActionCode} values of the valid actions instead of among {@link
+ * net.demilich.metastone.game.actions.GameAction} objects.
+ * <p>
+ * When a player's behaviour implements this interface, {@link GameContext#takeActionInTurn()} enumerates the codes of
+ * the valid actions and only creates the action that was chosen, instead of cloning an action for every valid target.
+ * This suits behaviours that pick quickly and often, like the random players of rollouts and simulations.
+ * <p>
+ * Implementations must choose the same action for a code that {@link #requestAction(GameContext, Player,
+ * java.util.List)} would choose for the corresponding action, because the codes are in the same order as the valid
+ * actions.
+ * <p>
+ * Since {@link GameContext#takeActionInTurn()} never calls {@link #requestAction(GameContext, Player, java.util.List)}
+ * on such a behaviour, a subclass that overrides only {@code requestAction} would be silently ignored. Classes meant to
+ * be extended should therefore declare their {@code requestAction} {@code final}, like {@link PlayRandomBehaviour}.
+ */
+public interface ActionCodeBehaviour extends Behaviour {
+	/**
+	 * Requests an action from the player.
+	 *
+	 * @param context          The game context where the choice is being made.
+	 * @param player           The player who is making the choice.
+	 * @param validActionCodes The codes of the valid actions, in the order of {@link
+	 *                         net.demilich.metastone.game.logic.GameLogic#getValidActions(int)}.
+	 * @return The index of the chosen code in {@code validActionCodes}.
+	 */
+	@Suspendable
+	int requestActionIndex(GameContext context, Player player, long[] validActionCodes);
+}
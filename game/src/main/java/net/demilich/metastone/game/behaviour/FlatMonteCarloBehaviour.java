@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import co.paralleluniverse.fibers.Suspendable;
 import org.slf4j.Logger;
@@ -66,7 +67,7 @@ public class FlatMonteCarloBehaviour extends IntelligentBehaviour {
 
 	@Suspendable
 	private int playRandomUntilEnd(GameContext simulation, int playerId) {
-		simulation.setBehaviours(new Behaviour[]{new PlayRandomBehaviour(), new PlayRandomBehaviour()});
+		simulation.setBehaviours(new Behaviour[]{new LogicRandomBehaviour(), new LogicRandomBehaviour()});
 		simulation.resume();
 		return simulation.getWinningPlayerId() == playerId ? 1 : 0;
 	}
@@ -79,10 +80,11 @@ public class FlatMonteCarloBehaviour extends IntelligentBehaviour {
 		}
 		final int playerId = player.getId();
 		final long startMillis = System.currentTimeMillis();
-		Map<GameAction, Double> actionScores = validActions
-				.parallelStream()
-				.map(gameAction -> {
-					double score = simulate(context, playerId, gameAction, startMillis);
+		Map<GameAction, Double> actionScores = IntStream.range(0, validActions.size())
+				.parallel()
+				.mapToObj(i -> {
+					GameAction gameAction = validActions.get(i);
+					double score = simulate(context, playerId, gameAction, i, startMillis);
 					ScoredAction scored = new ScoredAction();
 					scored.action = gameAction;
 					scored.score = score;
@@ -93,8 +95,9 @@ public class FlatMonteCarloBehaviour extends IntelligentBehaviour {
 	}
 
 	@Suspendable
-	private double simulate(GameContext context, int playerId, GameAction action, long startMillis) {
-		GameContext simulation = context.clone();
+	private double simulate(GameContext context, int playerId, GameAction action, int actionIndex, long startMillis) {
+		GameContext simulation = context.fork(actionIndex);
+		simulation.setHeadless(true);
 		simulation.getLogic().performGameAction(simulation.getActivePlayerId(), action);
 		if (simulation.updateAndGetGameOver()) {
 			// Action leads to lethal
@@ -107,7 +110,7 @@ public class FlatMonteCarloBehaviour extends IntelligentBehaviour {
 			if (timedOut) {
 				break;
 			}
-			score += playRandomUntilEnd(simulation.clone(), playerId);
+			score += playRandomUntilEnd(simulation.fork(i), playerId);
 		}
 		return score;
 	}
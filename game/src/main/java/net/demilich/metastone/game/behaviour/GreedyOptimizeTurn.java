@@ -30,6 +30,7 @@ public class GreedyOptimizeTurn extends IntelligentBehaviour {
 
 	private double alphaBeta(GameContext context, int playerId, GameAction action, int depth) {
 		GameContext simulation = context.clone();
+		simulation.setHeadless(true);
 		simulation.getLogic().performGameAction(playerId, action);
 		if (!evaluatedActions.containsKey(action.getActionType())) {
 			evaluatedActions.put(action.getActionType(), 0);
@@ -136,6 +137,7 @@ public class GreedyOptimizeTurn extends IntelligentBehaviour {
 
 	/*private double simulateAction(GameContext context, int playerId, GameAction action) {
 		GameContext simulation = context.clone();
+		simulation.setHeadless(true);
 		simulation.getLogic().performGameAction(playerId, action);
 		if (!evaluatedActions.containsKey(action.getActionType())) {
 			evaluatedActions.put(action.getActionType(), 0);
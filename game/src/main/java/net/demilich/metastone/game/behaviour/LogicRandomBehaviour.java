@@ -0,0 +1,20 @@
+package net.demilich.metastone.game.behaviour;
+
+import net.demilich.metastone.game.GameContext;
+
+import java.util.Random;
+
+/**
+ * A random behaviour that makes its choices with the game's own random numbers, so that seeded or forked simulations
+ * are reproducible without seeding the behaviour.
+ *
+ * @see GameContext#fork(long) for simulations whose random numbers are independent of each other.
+ */
+public class LogicRandomBehaviour extends PlayRandomBehaviour {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected Random getRandom(GameContext context) {
+		return context.getLogic().getRandom();
+	}
+}
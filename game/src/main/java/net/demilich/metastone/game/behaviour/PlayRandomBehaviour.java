@@ -7,7 +7,7 @@ import net.demilich.metastone.game.cards.Card;
 
 import java.util.*;
 
-public class PlayRandomBehaviour extends IntelligentBehaviour {
+public class PlayRandomBehaviour extends IntelligentBehaviour implements ActionCodeBehaviour {
 
 	public PlayRandomBehaviour() {
 	}
@@ -28,8 +28,15 @@ public class PlayRandomBehaviour extends IntelligentBehaviour {
 		return random;
 	}
 
+	/**
+	 * Chooses a random action.
+	 * <p>
+	 * This method is final because {@link GameContext#takeActionInTurn()} calls {@link #requestActionIndex(GameContext,
+	 * Player, long[])} instead, which would silently ignore an override. Subclasses change the choices with {@link
+	 * #getRandom(GameContext)}.
+	 */
 	@Override
-	public GameAction requestAction(GameContext context, Player player, List<GameAction> validActions) {
+	public final GameAction requestAction(GameContext context, Player player, List<GameAction> validActions) {
 		if (validActions.size() == 1) {
 			return validActions.get(0);
 		}
@@ -38,8 +45,19 @@ public class PlayRandomBehaviour extends IntelligentBehaviour {
 		return validActions.get(randomIndex);
 	}
 
+	@Override
+	public int requestActionIndex(GameContext context, Player player, long[] validActionCodes) {
+		// Draws from the random exactly like requestAction, so both choose the same action
+		if (validActionCodes.length == 1) {
+			return 0;
+		}
+
+		return getRandom(context).nextInt(validActionCodes.length);
+	}
+
 	public <T> Set<T> randomSubset(List<T> items, int m, Random random) {
-		HashSet<T> res = new HashSet<T>(m);
+		// Preserve the order of selection, so that a seeded random produces the same mulligan every time
+		Set<T> res = new LinkedHashSet<T>(m);
 		int n = items.size();
 		for (int i = n - m; i < n; i++) {
 			int pos = random.nextInt(i + 1);
@@ -80,6 +80,7 @@ class Node {
 
 	public void initState(GameContext state, List<GameAction> validActions) {
 		this.state = state.clone();
+		this.state.setHeadless(true);
 		this.validTransitions = new ArrayList<GameAction>(validActions);
 	}
 
@@ -22,6 +22,7 @@ public class CardCatalogue {
 	public static final String CARDS_FOLDER = "cards";
 	private static Logger logger = LoggerFactory.getLogger(CardCatalogue.class);
 	private static int version = 1;
+	private static volatile int modifications;
 
 	private final static Map<String, Card> cards = new LinkedHashMap<>();
 	private final static Map<String, CardCatalogueRecord> records = new LinkedHashMap<>();
@@ -29,6 +30,7 @@ public class CardCatalogue {
 
 	public static void add(Card card) {
 		cards.put(card.getCardId(), card);
+		modifications++;
 	}
 
 	public static CardList getAll() {
@@ -210,5 +212,16 @@ public class CardCatalogue {
 
 	public static void setVersion(int version) {
 		CardCatalogue.version = version;
+		modifications++;
+	}
+
+	/**
+	 * Gets a counter that changes whenever a card is added or the version changes. Data computed from the catalogue can
+	 * compare it to tell when it's stale.
+	 *
+	 * @return The counter.
+	 */
+	public static int getModifications() {
+		return modifications;
 	}
 }
@@ -49,7 +49,8 @@ public class CardZone extends EntityZone<Card> implements CardList {
 	public CardZone clone() {
 		// Clone all the cards too
 		CardZone zone = new CardZone(getPlayer(), getZone());
-		for (Card e : this) {
+		zone.internal = new ArrayList<>(internal.size());
+		for (Card e : internal) {
 			zone.uncheckedAdd(zone.size(), e.clone());
 		}
 		return zone;
@@ -115,9 +116,7 @@ public class CardZone extends EntityZone<Card> implements CardList {
 	@Override
 	public CardList shuffle(Random random) {
 		Collections.shuffle(internal, random);
-		for (int i = 0; i < internal.size(); i++) {
-			internal.get(i).setEntityLocation(new EntityLocation(getZone(), getPlayer(), i));
-		}
+		relocate(0);
 		return this;
 	}
 
@@ -153,6 +153,7 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 	public EventTriggerDesc secret;
 	public EventTriggerDesc quest;
 	public int countUntilCast;
+	private transient volatile Condition[] compiledConditions;
 
 	public CardDesc() {
 		super();
@@ -193,6 +194,7 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 	public CardDesc clone() {
 		try {
 			CardDesc clone = (CardDesc) super.clone();
+			clone.compiledConditions = null;
 			if (getAttributes() != null) {
 				clone.setAttributes(getAttributes().clone());
 			}
@@ -586,6 +588,7 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 
 	public void setBattlecry(BattlecryDesc battlecry) {
 		this.battlecry = battlecry;
+		this.compiledConditions = null;
 	}
 
 	/**
@@ -889,6 +892,7 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 
 	public void setSpell(SpellDesc spell) {
 		this.spell = spell;
+		this.compiledConditions = null;
 	}
 
 	/**
@@ -901,6 +905,7 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 
 	public void setCondition(ConditionDesc condition) {
 		this.condition = condition;
+		this.compiledConditions = null;
 	}
 
 	/**
@@ -1012,15 +1017,17 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 		// Case 3: ComboSpell, conditions in subspells
 		Stream<SpellDesc> spells = Stream.empty();
 		if (spell != null) {
-			spells = Stream.concat(spells, spell.spellStream(20));
+			spells = Stream.concat(spells, Stream.concat(Stream.of(spell), spell.spellStream(20)));
 		}
 
-		if (battlecry.spell != null) {
-			spells = Stream.concat(spells, battlecry.spell.spellStream(20));
+		if (battlecry != null
+				&& battlecry.spell != null) {
+			spells = Stream.concat(spells, Stream.concat(Stream.of(battlecry.spell), battlecry.spell.spellStream(20)));
 		}
 
 		stream = Stream.concat(stream, spells.flatMap(spellDesc -> {
-			if (spellDesc.getClass().isAssignableFrom(ComboSpell.class)) {
+			if (spellDesc.getDescClass() != null
+					&& ComboSpell.class.isAssignableFrom(spellDesc.getDescClass())) {
 				return Stream.of(ComboCondition.INSTANCE.getDesc());
 			}
 			if (spellDesc.containsKey(SpellArg.CONDITION)) {
@@ -1034,4 +1041,22 @@ public final class CardDesc /*extends AbstractMap<CardDescArg, Object>*/ impleme
 
 		return stream;
 	}
+
+	/**
+	 * Gets the conditions in {@link #getConditions()} as {@link Condition} instances.
+	 * <p>
+	 * The instances are created the first time this is called and reused afterwards, since conditions do not hold any
+	 * game state. Changing the spell, battlecry or condition of this desc through its setters creates them again.
+	 *
+	 * @return The conditions, which may be empty.
+	 */
+	@JsonIgnore
+	public Condition[] getCompiledConditions() {
+		Condition[] conditions = compiledConditions;
+		if (conditions == null) {
+			conditions = getConditions().map(ConditionDesc::create).toArray(Condition[]::new);
+			compiledConditions = conditions;
+		}
+		return conditions;
+	}
 }
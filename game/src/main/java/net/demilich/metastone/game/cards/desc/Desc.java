@@ -8,6 +8,7 @@ import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.logic.CustomCloneable;
 import net.demilich.metastone.game.spells.desc.valueprovider.ValueProvider;
+import net.demilich.metastone.game.statistics.Profiler;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -53,10 +54,25 @@ public abstract class Desc<T extends Enum<T>, V extends HasDesc<?>> extends Enum
 
 	/**
 	 * Per-instance memoized desc create instance.
+	 * <p>
+	 * Records into the {@link Profiler#getGlobal()} profiler when one is installed.
 	 *
 	 * @return An instance of the underlying implementation of this desc.
 	 */
 	public V create() {
+		Profiler profiler = Profiler.getGlobal();
+		if (profiler == null) {
+			return createInstance();
+		}
+
+		long startNanos = profiler.nanoTime();
+		long startBytes = profiler.allocatedBytes();
+		V instance = createInstance();
+		profiler.record(Profiler.Category.DESC, instance.getClass(), startNanos, startBytes);
+		return instance;
+	}
+
+	private V createInstance() {
 		Class<? extends V> clazz = getDescClass();
 		try {
 			return clazz.getConstructor(getDescImplClass()).newInstance(this);
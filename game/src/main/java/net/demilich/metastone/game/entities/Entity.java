@@ -18,6 +18,7 @@ import net.demilich.metastone.game.logic.GameLogic;
 import net.demilich.metastone.game.targeting.EntityReference;
 import net.demilich.metastone.game.targeting.Zones;
 import net.demilich.metastone.game.utils.AttributeMap;
+import net.demilich.metastone.game.utils.ChangeCounter;
 
 /**
  * An in-game entity.
@@ -108,6 +109,17 @@ public abstract class Entity extends CustomCloneable implements Serializable, Ha
 		return attributes;
 	}
 
+	/**
+	 * Sets the game's counter of changes on this entity's attributes and on any zones it contains. {@link EntityZone}
+	 * calls this whenever the entity is added to a zone of a game.
+	 *
+	 * @param changes The game's counter.
+	 * @see ChangeCounter for more about counting changes.
+	 */
+	public void setChangeCounter(ChangeCounter changes) {
+		getAttributes().setChangeCounter(changes);
+	}
+
 	/**
 	 * Gets the specified attribute as an {@link Integer} value or fails with an exception.
 	 *
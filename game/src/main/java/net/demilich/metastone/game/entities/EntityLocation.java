@@ -6,7 +6,6 @@ import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.targeting.EntityReference;
 import net.demilich.metastone.game.targeting.IdFactoryImpl;
 import net.demilich.metastone.game.targeting.Zones;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.io.Serializable;
 
@@ -40,6 +39,11 @@ public final class EntityLocation implements Serializable {
 	 * An unassigned location.
 	 */
 	public static final EntityLocation UNASSIGNED = new EntityLocation(Zones.NONE, -1, -1);
+	/**
+	 * The number of indices per zone and player whose locations are interned by {@link #of(Zones, int, int)}.
+	 */
+	private static final int INTERNED_INDICES = 128;
+	private static final EntityLocation[][][] INTERNED = intern();
 	/**
 	 * @see #getZone()
 	 */
@@ -66,6 +70,37 @@ public final class EntityLocation implements Serializable {
 		this.index = index;
 	}
 
+	/**
+	 * Gets the location with the specified zone, player and index.
+	 * <p>
+	 * Locations are immutable, so the ones that are in common use are shared instead of allocated every time an {@link
+	 * EntityZone} renumbers its entities. Use this instead of the constructor.
+	 *
+	 * @param zone   The zone in the game.
+	 * @param player The player's index, or {@link IdFactoryImpl#UNASSIGNED} if the owner is not yet known.
+	 * @param index  The index of the object, or {@code -1} if it is not yet known.
+	 * @return A possibly shared location.
+	 */
+	public static EntityLocation of(Zones zone, int player, int index) {
+		if (player < -1 || player > 1 || index < 0 || index >= INTERNED_INDICES) {
+			return new EntityLocation(zone, player, index);
+		}
+		return INTERNED[zone.ordinal()][player + 1][index];
+	}
+
+	private static EntityLocation[][][] intern() {
+		Zones[] zones = Zones.values();
+		EntityLocation[][][] interned = new EntityLocation[zones.length][3][INTERNED_INDICES];
+		for (Zones zone : zones) {
+			for (int player = -1; player <= 1; player++) {
+				for (int index = 0; index < INTERNED_INDICES; index++) {
+					interned[zone.ordinal()][player + 1][index] = new EntityLocation(zone, player, index);
+				}
+			}
+		}
+		return interned;
+	}
+
 	@Override
 	public boolean equals(Object other) {
 		if (other == null) {
@@ -78,10 +113,7 @@ public final class EntityLocation implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return new HashCodeBuilder()
-				.append(index)
-				.append(zone)
-				.append(player).toHashCode();
+		return (index * 31 + zone.ordinal()) * 31 + player;
 	}
 
 	/**
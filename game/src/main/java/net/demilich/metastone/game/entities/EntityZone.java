@@ -2,6 +2,7 @@ package net.demilich.metastone.game.entities;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.targeting.Zones;
+import net.demilich.metastone.game.utils.ChangeCounter;
 
 import java.io.Serializable;
 import java.util.*;
@@ -11,6 +12,11 @@ import java.util.*;
  * Entity} object is only in one zone at any time.
  * <p>
  * Each zone has a corresponding {@link Zones} and owning {@link net.demilich.metastone.game.Player} ID.
+ * <p>
+ * The zone keeps the {@link Entity#getEntityLocation()} of its entities up to date, using shared {@link
+ * EntityLocation#of(Zones, int, int)} instances. {@link #indexOf(Object)} and {@link #contains(Object)} answer from the
+ * location of an entity that names this zone and player in constant time. Any other entity, like an equal copy whose
+ * location is stale or {@link EntityLocation#UNASSIGNED}, is looked for with {@link Object#equals(Object)}.
  *
  * @param <E> The subclass of {@link Entity} that is stored. For example, {@link Zones#BATTLEFIELD} can only store
  *            {@link net.demilich.metastone.game.entities.minions.Minion} entities.
@@ -22,6 +28,8 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 	protected final Zones zone;
 	protected int player = -1;
 	protected List<E> internal = new ArrayList<>();
+	private int version;
+	private transient ChangeCounter changes;
 
 	public EntityZone(int player, Zones zone) {
 		this.zone = zone;
@@ -32,7 +40,8 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 	public EntityZone<E> clone() {
 		// Clone all the cards too
 		EntityZone<E> zone = new EntityZone<>(getPlayer(), getZone());
-		for (E e : this) {
+		zone.internal = new ArrayList<>(internal.size());
+		for (E e : internal) {
 			zone.uncheckedAdd(zone.size(), (E) e.clone());
 		}
 		return zone;
@@ -60,8 +69,12 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 	}
 
 	protected E setUnchecked(int index, E element) {
+		changed();
 		internal.set(index, element);
-		element.setEntityLocation(new EntityLocation(zone, player, index));
+		if (changes != null) {
+			element.setChangeCounter(changes);
+		}
+		element.setEntityLocation(EntityLocation.of(zone, player, index));
 		return element;
 	}
 
@@ -76,8 +89,21 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 			throw new IndexOutOfBoundsException();
 		}
 		internal.add(index, element);
-		for (int i = index; i < internal.size(); i++) {
-			internal.get(i).setEntityLocation(new EntityLocation(zone, player, i));
+		if (changes != null) {
+			element.setChangeCounter(changes);
+		}
+		relocate(index);
+	}
+
+	/**
+	 * Updates the locations of the entities from the specified index to the end of this zone.
+	 *
+	 * @param fromIndex The first index whose entity may have moved.
+	 */
+	protected void relocate(int fromIndex) {
+		changed();
+		for (int i = fromIndex; i < internal.size(); i++) {
+			internal.get(i).setEntityLocation(EntityLocation.of(zone, player, i));
 		}
 	}
 
@@ -85,9 +111,7 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 	public E remove(int index) {
 		E result = internal.remove(index);
 		result.setEntityLocation(EntityLocation.UNASSIGNED);
-		for (int i = index; i < internal.size(); i++) {
-			internal.get(i).setEntityLocation(new EntityLocation(zone, player, i));
-		}
+		relocate(index);
 		return result;
 	}
 
@@ -96,9 +120,8 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 		if (e == null) {
 			return -1;
 		}
-		if (Entity.class.isAssignableFrom(e.getClass())) {
-			final Entity entity = (Entity) e;
-			final EntityLocation location = entity.getEntityLocation();
+		if (e instanceof Entity) {
+			final EntityLocation location = ((Entity) e).getEntityLocation();
 			if (location.getZone() == getZone()
 					&& location.getPlayer() == getPlayer()) {
 				return location.getIndex();
@@ -122,9 +145,7 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 	@SuppressWarnings("unchecked")
 	public void move(int index, EntityZone destination, int destinationIndex) {
 		Entity result = internal.remove(index);
-		for (int i = index; i < internal.size(); i++) {
-			internal.get(i).setEntityLocation(new EntityLocation(zone, player, i));
-		}
+		relocate(index);
 		destination.uncheckedAdd(destinationIndex, result);
 	}
 
@@ -152,8 +173,37 @@ public class EntityZone<E extends Entity> extends AbstractList<E> implements
 		}
 
 		player = playerIndex;
-		for (int i = 0; i < internal.size(); i++) {
-			internal.get(i).setEntityLocation(new EntityLocation(zone, player, i));
+		relocate(0);
+	}
+
+	/**
+	 * Gets a counter that changes whenever entities are added to, removed from or moved within this zone. Comparing it
+	 * with an earlier value tells whether the zone has to be scanned again.
+	 *
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the game's counter of changes on this zone and the entities in it. The zone increments it whenever entities
+	 * are added, removed or moved, and hands it to the entities added later. It is not copied by {@link #clone()}.
+	 *
+	 * @param changes The game's counter.
+	 * @see Entity#setChangeCounter(ChangeCounter)
+	 */
+	public void setChangeCounter(ChangeCounter changes) {
+		this.changes = changes;
+		for (E e : internal) {
+			e.setChangeCounter(changes);
+		}
+	}
+
+	private void changed() {
+		version++;
+		if (changes != null) {
+			changes.increment();
 		}
 	}
 
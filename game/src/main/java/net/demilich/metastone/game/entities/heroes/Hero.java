@@ -10,6 +10,7 @@ import net.demilich.metastone.game.entities.EntityType;
 import net.demilich.metastone.game.entities.EntityZone;
 import net.demilich.metastone.game.entities.weapons.Weapon;
 import net.demilich.metastone.game.targeting.Zones;
+import net.demilich.metastone.game.utils.ChangeCounter;
 
 public class Hero extends Actor {
 	private HeroClass heroClass;
@@ -37,6 +38,13 @@ public class Hero extends Actor {
 		return clone;
 	}
 
+	@Override
+	public void setChangeCounter(ChangeCounter changes) {
+		super.setChangeCounter(changes);
+		heroPowerZone.setChangeCounter(changes);
+		weaponZone.setChangeCounter(changes);
+	}
+
 	@Override
 	public int getAttack() {
 		int attack = super.getAttack();
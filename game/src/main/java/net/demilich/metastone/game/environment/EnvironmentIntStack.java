@@ -0,0 +1,124 @@
+package net.demilich.metastone.game.environment;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A stack of primitive {@code int} values, used for the execution stacks in the environment that are pushed and popped
+ * for every spell, trigger and event.
+ * <p>
+ * Unlike an {@link EnvironmentDeque} of boxed values, pushing and popping does not allocate once the stack has grown to
+ * its working size, and copying it for a game context clone is a single array copy.
+ */
+public class EnvironmentIntStack implements EnvironmentValue {
+	private static final long serialVersionUID = 1L;
+	private static final int INITIAL_CAPACITY = 8;
+
+	protected int[] values;
+	protected int size;
+
+	public EnvironmentIntStack() {
+		this.values = new int[INITIAL_CAPACITY];
+	}
+
+	protected EnvironmentIntStack(EnvironmentIntStack other) {
+		this.values = Arrays.copyOf(other.values, Math.max(INITIAL_CAPACITY, other.size));
+		this.size = other.size;
+	}
+
+	/**
+	 * Pushes a value onto the top of the stack.
+	 *
+	 * @param value The value.
+	 */
+	public void push(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Removes the value at the top of the stack.
+	 *
+	 * @return The value.
+	 * @throws NoSuchElementException if the stack is empty.
+	 */
+	public int pop() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return values[--size];
+	}
+
+	/**
+	 * Gets the value at the top of the stack, i.e., the most recently pushed value.
+	 *
+	 * @return The value.
+	 * @throws NoSuchElementException if the stack is empty.
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return values[size - 1];
+	}
+
+	/**
+	 * Gets the value at the bottom of the stack, i.e., the least recently pushed value that is still on the stack.
+	 *
+	 * @return The value.
+	 * @throws NoSuchElementException if the stack is empty.
+	 */
+	public int peekBottom() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return values[0];
+	}
+
+	/**
+	 * Gets a value by its position from the bottom of the stack.
+	 *
+	 * @param index The position, where {@code 0} is the bottom.
+	 * @return The value.
+	 * @throws IndexOutOfBoundsException if there is no such position.
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		return values[index];
+	}
+
+	public boolean contains(int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	@Override
+	public EnvironmentIntStack getCopy() {
+		return new EnvironmentIntStack(this);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(values, size));
+	}
+}
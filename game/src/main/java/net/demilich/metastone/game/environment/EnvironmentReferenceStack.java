@@ -0,0 +1,62 @@
+package net.demilich.metastone.game.environment;
+
+import net.demilich.metastone.game.entities.Entity;
+import net.demilich.metastone.game.targeting.EntityReference;
+
+/**
+ * A stack of entity IDs, used for the execution stacks in the environment that track event targets, attackers, trigger
+ * hosts and the like.
+ * <p>
+ * The stack stores the {@link EntityReference#getId()} of each reference. {@link #peekReference()} creates a reference
+ * only when one is needed to resolve a target.
+ */
+public class EnvironmentReferenceStack extends EnvironmentIntStack {
+	private static final long serialVersionUID = 1L;
+
+	public EnvironmentReferenceStack() {
+		super();
+	}
+
+	protected EnvironmentReferenceStack(EnvironmentReferenceStack other) {
+		super(other);
+	}
+
+	/**
+	 * Pushes a reference onto the top of the stack.
+	 *
+	 * @param reference The reference. Group references like {@link EntityReference#NONE} are allowed.
+	 */
+	public void push(EntityReference reference) {
+		push(reference.getId());
+	}
+
+	/**
+	 * Pushes a reference to the entity onto the top of the stack.
+	 *
+	 * @param entity The entity.
+	 */
+	public void push(Entity entity) {
+		push(entity.getId());
+	}
+
+	/**
+	 * Gets the reference at the top of the stack.
+	 *
+	 * @return The reference, or {@code null} if the stack is empty.
+	 */
+	public EntityReference peekReference() {
+		if (isEmpty()) {
+			return null;
+		}
+		return new EntityReference(peek());
+	}
+
+	public boolean contains(EntityReference reference) {
+		return reference != null && contains(reference.getId());
+	}
+
+	@Override
+	public EnvironmentReferenceStack getCopy() {
+		return new EnvironmentReferenceStack(this);
+	}
+}
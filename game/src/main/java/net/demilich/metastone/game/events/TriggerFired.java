@@ -14,7 +14,7 @@ public class TriggerFired implements Notification {
 
 	public TriggerFired(GameContext context, Enchantment enchantment) {
 		this.enchantment = enchantment;
-		this.eventTarget = context.getEventTargetStack().peek();
+		this.eventTarget = context.getEventTargetStack().peekReference();
 	}
 
 
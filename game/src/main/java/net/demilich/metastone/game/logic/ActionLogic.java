@@ -2,7 +2,9 @@ package net.demilich.metastone.game.logic;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.google.common.collect.Sets;
@@ -11,11 +13,15 @@ import net.demilich.metastone.game.utils.Attribute;
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.utils.TurnState;
+import net.demilich.metastone.game.actions.ActionCode;
+import net.demilich.metastone.game.actions.ActionType;
 import net.demilich.metastone.game.actions.EndTurnAction;
 import net.demilich.metastone.game.actions.GameAction;
 import net.demilich.metastone.game.actions.PhysicalAttackAction;
 import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardType;
 import net.demilich.metastone.game.cards.HasChooseOneActions;
+import net.demilich.metastone.game.entities.Actor;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.entities.heroes.Hero;
 import net.demilich.metastone.game.entities.minions.Minion;
@@ -73,20 +79,8 @@ public class ActionLogic implements Serializable {
 				continue;
 			}
 
-			List<PhysicalAttackTargetOverrideAura> filters = context.getTriggersAssociatedWith(minion.getReference()).stream()
-					.filter(trigger -> trigger instanceof PhysicalAttackTargetOverrideAura)
-					.map(trigger -> (PhysicalAttackTargetOverrideAura) trigger).collect(Collectors.toList());
-			if (!filters.isEmpty()) {
-				Set<EntityReference> common = new HashSet<>();
-
-				for (Integer targetId : filters.get(0).getAffectedEntities()) {
-					common.add(new EntityReference(targetId));
-				}
-
-				for (int i = 1; i < filters.size(); i++) {
-					common = Sets.intersection(common, filters.get(i).getAffectedEntities().stream().map(EntityReference::new).collect(Collectors.toSet()));
-				}
-
+			Set<EntityReference> common = getAttackTargetOverrides(context, minion);
+			if (common != null) {
 				for (EntityReference target : common) {
 					PhysicalAttackAction attackAction = new PhysicalAttackAction(minion.getReference());
 					attackAction.setTargetReference(target);
@@ -100,6 +94,34 @@ public class ActionLogic implements Serializable {
 		return physicalAttackActions;
 	}
 
+	/**
+	 * Gets the only targets the minion may attack when it is affected by {@link PhysicalAttackTargetOverrideAura}
+	 * auras.
+	 *
+	 * @param context The game context.
+	 * @param minion  The attacking minion.
+	 * @return The targets common to every override aura, or {@code null} if no override aura affects the minion.
+	 */
+	private Set<EntityReference> getAttackTargetOverrides(GameContext context, Minion minion) {
+		List<PhysicalAttackTargetOverrideAura> filters = context.getTriggersAssociatedWith(minion.getReference()).stream()
+				.filter(trigger -> trigger instanceof PhysicalAttackTargetOverrideAura)
+				.map(trigger -> (PhysicalAttackTargetOverrideAura) trigger).collect(Collectors.toList());
+		if (filters.isEmpty()) {
+			return null;
+		}
+
+		Set<EntityReference> common = new HashSet<>();
+
+		for (Integer targetId : filters.get(0).getAffectedEntities()) {
+			common.add(new EntityReference(targetId));
+		}
+
+		for (int i = 1; i < filters.size(); i++) {
+			common = Sets.intersection(common, filters.get(i).getAffectedEntities().stream().map(EntityReference::new).collect(Collectors.toSet()));
+		}
+		return common;
+	}
+
 	@Suspendable
 	private List<GameAction> getPlayCardActions(GameContext context, Player player) {
 		List<GameAction> playCardActions = new ArrayList<GameAction>();
@@ -148,6 +170,239 @@ public class ActionLogic implements Serializable {
 		return validActions;
 	}
 
+	/**
+	 * Enumerates the actions {@link #getValidActions(GameContext, Player)} would return, in the same order, as {@link
+	 * ActionCode} values.
+	 * <p>
+	 * Unlike {@link #getValidActions(GameContext, Player)}, this method does not clone an action for every valid target:
+	 * it creates at most one template action per source to compute the targets, and the visitor receives only codes. The
+	 * enumeration is lazy and stops as soon as the visitor returns {@code false}.
+	 *
+	 * @param context The game context.
+	 * @param player  The player whose actions should be enumerated.
+	 * @param visitor Receives each code. Returns {@code false} to stop the enumeration.
+	 * @return {@code false} if the visitor stopped the enumeration, otherwise {@code true}.
+	 * @see #getGameAction(GameContext, Player, long) to turn a code into an action that can be performed.
+	 */
+	@Suspendable
+	public boolean forEachValidAction(GameContext context, Player player, LongPredicate visitor) {
+		Hero hero = player.getHero();
+		if (hero.canAttackThisTurn() && !visitAttackActions(context, player, hero, visitor)) {
+			return false;
+		}
+		for (Minion minion : player.getMinions()) {
+			if (minion.canAttackThisTurn() && !visitAttackActions(context, player, minion, visitor)) {
+				return false;
+			}
+		}
+		if (!visitPlayCardActions(context, player, hero.getHeroPower(), visitor)) {
+			return false;
+		}
+		for (Card card : player.getHand()) {
+			if (!visitPlayCardActions(context, player, card, visitor)) {
+				return false;
+			}
+		}
+		if (context.getTurnState() != TurnState.TURN_ENDED) {
+			return visitor.test(ActionCode.of(ActionType.END_TURN, player.getId(), -1, ActionCode.NO_OPTION));
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the codes of all the valid actions a player can take.
+	 *
+	 * @param context The game context.
+	 * @param player  The player.
+	 * @return The codes, in the order of {@link #getValidActions(GameContext, Player)}.
+	 */
+	@Suspendable
+	public long[] getValidActionCodes(GameContext context, Player player) {
+		LongStream.Builder codes = LongStream.builder();
+		forEachValidAction(context, player, code -> {
+			codes.accept(code);
+			return true;
+		});
+		return codes.build().toArray();
+	}
+
+	/**
+	 * Counts the valid actions a player can take without materializing them.
+	 *
+	 * @param context The game context.
+	 * @param player  The player.
+	 * @return The number of actions {@link #getValidActions(GameContext, Player)} would return.
+	 */
+	@Suspendable
+	public int countValidActions(GameContext context, Player player) {
+		int[] count = new int[1];
+		forEachValidAction(context, player, code -> {
+			count[0]++;
+			return true;
+		});
+		return count[0];
+	}
+
+	/**
+	 * Checks whether a code is one of the valid actions a player can currently take.
+	 * <p>
+	 * Only the actions of the code's source are enumerated.
+	 *
+	 * @param context The game context.
+	 * @param player  The player.
+	 * @param code    The {@link ActionCode}.
+	 * @return {@code true} if {@link #forEachValidAction(GameContext, Player, LongPredicate)} would produce the code.
+	 */
+	@Suspendable
+	public boolean isValidAction(GameContext context, Player player, long code) {
+		ActionType actionType = ActionCode.getActionType(code);
+		Entity source = findSource(player, actionType, ActionCode.getSourceId(code));
+		if (source == null) {
+			return false;
+		}
+		LongPredicate differs = candidate -> candidate != code;
+		switch (actionType) {
+			case END_TURN:
+				return context.getTurnState() != TurnState.TURN_ENDED
+						&& code == ActionCode.of(ActionType.END_TURN, player.getId(), -1, ActionCode.NO_OPTION);
+			case PHYSICAL_ATTACK:
+				Actor attacker = (Actor) source;
+				return attacker.canAttackThisTurn() && !visitAttackActions(context, player, attacker, differs);
+			default:
+				return !visitPlayCardActions(context, player, (Card) source, differs);
+		}
+	}
+
+	/**
+	 * Creates the action a code represents, so that it can be performed.
+	 * <p>
+	 * The code is not validated. The returned action's {@link GameAction#getId()} is not assigned.
+	 *
+	 * @param context The game context.
+	 * @param player  The player who would take the action.
+	 * @param code    An {@link ActionCode} produced by {@link #forEachValidAction(GameContext, Player, LongPredicate)}.
+	 * @return An action equal to the corresponding entry of {@link #getValidActions(GameContext, Player)}.
+	 * @throws IllegalArgumentException if the code's source does not belong to the player.
+	 */
+	@Suspendable
+	public GameAction getGameAction(GameContext context, Player player, long code) {
+		ActionType actionType = ActionCode.getActionType(code);
+		Entity source = findSource(player, actionType, ActionCode.getSourceId(code));
+		if (source == null) {
+			throw new IllegalArgumentException("No source for action " + ActionCode.toString(code));
+		}
+
+		GameAction action;
+		switch (actionType) {
+			case END_TURN:
+				action = new EndTurnAction();
+				action.setSource(player.getReference());
+				return action;
+			case PHYSICAL_ATTACK:
+				action = new PhysicalAttackAction(source.getReference());
+				break;
+			default:
+				Card card = (Card) source;
+				int option = ActionCode.getChooseOneOptionIndex(code);
+				if (option == ActionCode.NO_OPTION) {
+					action = card.play();
+				} else if (option == ActionCode.BOTH_OPTIONS) {
+					action = card.playBothOptions();
+				} else {
+					action = card.playOptions()[option];
+				}
+				break;
+		}
+
+		context.getLogic().processTargetModifiers(player, action);
+		int targetId = ActionCode.getTargetId(code);
+		if (targetId != -1) {
+			action.setTargetReference(new EntityReference(targetId));
+		}
+		return action;
+	}
+
+	private Entity findSource(Player player, ActionType actionType, int sourceId) {
+		switch (actionType) {
+			case END_TURN:
+				return player.getId() == sourceId ? player : null;
+			case PHYSICAL_ATTACK:
+				if (player.getHero().getId() == sourceId) {
+					return player.getHero();
+				}
+				for (Minion minion : player.getMinions()) {
+					if (minion.getId() == sourceId) {
+						return minion;
+					}
+				}
+				return null;
+			default:
+				if (player.getHero().getHeroPower().getId() == sourceId) {
+					return player.getHero().getHeroPower();
+				}
+				for (Card card : player.getHand()) {
+					if (card.getId() == sourceId) {
+						return card;
+					}
+				}
+				return null;
+		}
+	}
+
+	@Suspendable
+	private boolean visitAttackActions(GameContext context, Player player, Actor attacker, LongPredicate visitor) {
+		Set<EntityReference> overrides = attacker instanceof Minion ? getAttackTargetOverrides(context, (Minion) attacker) : null;
+		if (overrides == null) {
+			return visitRollout(new PhysicalAttackAction(attacker.getReference()), context, player, visitor);
+		}
+		for (EntityReference target : overrides) {
+			if (!visitor.test(ActionCode.of(ActionType.PHYSICAL_ATTACK, attacker.getId(), target.getId(), ActionCode.NO_OPTION))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Suspendable
+	private boolean visitPlayCardActions(GameContext context, Player player, Card card, LongPredicate visitor) {
+		if (!context.getLogic().canPlayCard(player.getId(), card.getReference())) {
+			return true;
+		}
+		if (!card.isChooseOne()) {
+			return visitRollout(card.play(), context, player, visitor);
+		}
+		// Hero powers never play both options
+		if (card.getCardType() != CardType.HERO_POWER
+				&& context.getLogic().hasAttribute(player, Attribute.BOTH_CHOOSE_ONE_OPTIONS)
+				&& card.hasBothOptions()) {
+			return visitRollout(card.playBothOptions(), context, player, visitor);
+		}
+		for (GameAction chooseOneAction : card.playOptions()) {
+			if (!visitRollout(chooseOneAction, context, player, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean visitRollout(GameAction action, GameContext context, Player player, LongPredicate visitor) {
+		context.getLogic().processTargetModifiers(player, action);
+		int sourceId = action.getSourceReference().getId();
+		int option = action.getChooseOneOptionIndex() == null ? ActionCode.NO_OPTION : action.getChooseOneOptionIndex();
+		if (action.getTargetRequirement() == TargetSelection.NONE || action.getTargetRequirement() == TargetSelection.AUTO) {
+			EntityReference target = action.getTargetReference();
+			return visitor.test(ActionCode.of(action.getActionType(), sourceId, target == null ? -1 : target.getId(), option));
+		}
+		for (Entity validTarget : targetLogic.getValidTargets(context, player, action)) {
+			// Matches rollout, which gives an action no target when the target logic yields null
+			int targetId = validTarget == null ? -1 : validTarget.getId();
+			if (!visitor.test(ActionCode.of(action.getActionType(), sourceId, targetId, option))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Suspendable
 	public boolean hasAutoHeroPower(GameContext context, Player player) {
 		Card heroPower = player.getHero().getHeroPower();
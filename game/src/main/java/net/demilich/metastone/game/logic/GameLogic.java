@@ -23,12 +23,14 @@ import net.demilich.metastone.game.spells.aura.Aura;
 import net.demilich.metastone.game.spells.custom.EnvironmentEntityList;
 import net.demilich.metastone.game.spells.desc.SpellArg;
 import net.demilich.metastone.game.spells.desc.SpellDesc;
+import net.demilich.metastone.game.spells.desc.condition.Condition;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilter;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilterArg;
 import net.demilich.metastone.game.spells.desc.trigger.EnchantmentDesc;
 import net.demilich.metastone.game.spells.trigger.*;
 import net.demilich.metastone.game.spells.trigger.secrets.Quest;
 import net.demilich.metastone.game.spells.trigger.secrets.Secret;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.targeting.*;
 import net.demilich.metastone.game.utils.Attribute;
 import org.jetbrains.annotations.NotNull;
@@ -40,6 +42,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -146,7 +149,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	private final ActionLogic actionLogic = new ActionLogic();
 	private IdFactoryImpl idFactory;
 	private long seed = createSeed();
-	private Random random = new Random(seed);
+	private Random random = new GameRandom(seed);
 
 	/**
 	 * Ensures {@link GameLogic} has a valid, unique seed in this JVM instance.
@@ -174,6 +177,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	}
 
 	protected transient GameContext context;
+	private transient Map<Long, Boolean> conditionsMet;
+	private transient long conditionsMetStateVersion;
+	private transient long conditionsMetChanges;
 
 	static {
 		IMMUNE_TO_SILENCE.add(Attribute.HP);
@@ -234,7 +240,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	public GameLogic(long seed) {
 		this();
 		this.seed = seed;
-		random = new Random(seed);
+		random = new GameRandom(seed);
 	}
 
 	/**
@@ -246,7 +252,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	public GameLogic(IdFactoryImpl idFactory, long seed) {
 		this(idFactory);
 		this.seed = seed;
-		random = new Random(seed);
+		random = new GameRandom(seed);
 	}
 
 	/**
@@ -594,7 +600,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		}
 
 		Spell spell = spellDesc.create();
-		spell.cast(context, player, spellDesc, source, targets);
+		cast(spell, player, spellDesc, source, targets, chosenCard);
 
 		context.getEnvironment().remove(Environment.TARGET_OVERRIDE);
 
@@ -705,7 +711,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		}
 
 		Spell spell = spellDesc.create();
-		spell.cast(context, player, spellDesc, source, targets);
+		cast(spell, player, spellDesc, source, targets, sourceCard);
 
 		// This implements Lynessa Sunsorrow
 		if (sourceCard != null
@@ -732,6 +738,32 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		}
 	}
 
+	private boolean shouldLogDebug() {
+		return !context.isHeadless() && logger.isDebugEnabled();
+	}
+
+	/**
+	 * Casts the spell, recording it into the context's {@link Profiler} when profiling is on.
+	 *
+	 * @param responsibleCard The card the time should be attributed to, or {@code null} if there is none.
+	 */
+	@Suspendable
+	private void cast(Spell spell, Player player, SpellDesc spellDesc, Entity source, List<Entity> targets, Card responsibleCard) {
+		Profiler profiler = context.getProfiler();
+		if (profiler == null) {
+			spell.cast(context, player, spellDesc, source, targets);
+			return;
+		}
+
+		long startNanos = profiler.nanoTime();
+		long startBytes = profiler.allocatedBytes();
+		spell.cast(context, player, spellDesc, source, targets);
+		profiler.record(Profiler.Category.SPELL, spell.getClass(), startNanos, startBytes);
+		if (responsibleCard != null) {
+			profiler.record(Profiler.Category.CARD, responsibleCard.getCardId(), startNanos, startBytes);
+		}
+	}
+
 	/**
 	 * Processes an action for its appropriate target overriding effects, if any, and triggers target acquisiton.
 	 *
@@ -896,6 +928,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 
 	/**
 	 * Checks all player minions and weapons for destroyed actors and proceeds with the removal in correct order.
+	 * <p>
+	 * The check is answered by {@link GameContext#getPendingDeaths()}, which only looks at the actors that may have died
+	 * since the previous check.
 	 *
 	 * @param sequenceDepth The number of times this method has been called to avoid infinite death checking.
 	 */
@@ -910,34 +945,8 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			throw new RuntimeException("Infinite death checking loop");
 		}
 
-		List<Actor> destroyList = new ArrayList<>();
-		for (Player player : context.getPlayers()) {
-
-			if ((player.getHero().isDestroyed() || player.hasAttribute(Attribute.DESTROYED)) &&
-					player.getHero().getZone() != Zones.GRAVEYARD) {
-				destroyList.add(player.getHero());
-			}
-
-			for (Minion minion : player.getMinions()) {
-				if (minion.isDestroyed()) {
-					destroyList.add(minion);
-				}
-			}
-
-			for (Entity entity : player.getSetAsideZone()) {
-				if (!(entity instanceof Actor)) {
-					continue;
-				}
-				if (entity.isDestroyed()) {
-					destroyList.add((Actor) entity);
-				}
-			}
-
-			if (player.getHero().getWeapon() != null && player.getHero().getWeapon().isDestroyed()) {
-				destroyList.add(player.getHero().getWeapon());
-			}
-		}
-
+		// Only the actors whose health or destroyed state changed, or that entered the board, are checked
+		List<Actor> destroyList = context.getPendingDeaths().collect(context);
 		if (destroyList.isEmpty()) {
 			// This is the end of the sequence, call board changed event at most once even if no minions died.
 			if (sequenceDepth == 0) {
@@ -950,6 +959,10 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		destroyList.sort(Comparator.comparingInt(Entity::getId));
 		// this method performs the actual removal
 		destroy(destroyList.toArray(new Actor[0]));
+		// An actor that survived its removal must be found again on the next check, just like a full scan would
+		for (Actor actor : destroyList) {
+			context.getPendingDeaths().mark(actor);
+		}
 		if (context.updateAndGetGameOver()) {
 			// The game ended. By now, all the triggers that were put into play may have been expired
 			return;
@@ -961,18 +974,42 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	}
 
 	/**
-	 * Clones the game logic. The only state in this instance is its debug history and the current ID of the ID Factory.
+	 * Clones the game logic. The only state in this instance is its debug history, the current ID of the ID Factory and
+	 * the position of its random number generator, so the clone draws the same random numbers the original would.
 	 *
 	 * @return A clone of this logic.
 	 * @see IdFactoryImpl for the internal state of an {@link IdFactoryImpl}.
+	 * @see #fork(long) to clone the logic for a simulation that should draw its own random numbers.
 	 */
 	@Override
 	public GameLogic clone() {
 		GameLogic clone = new GameLogic(idFactory.clone(), getSeed());
+		if (random instanceof GameRandom) {
+			clone.random = ((GameRandom) random).copy();
+		}
 		clone.context = context;
 		return clone;
 	}
 
+	/**
+	 * Clones the game logic with an independent random number generator for the specified stream.
+	 * <p>
+	 * AI searches should fork their simulations with a stream ID that depends only on the position of the simulation in
+	 * the search, like the index of the action it simulates. Seeded searches then produce the same results regardless of
+	 * how many threads run them.
+	 *
+	 * @param streamId The ID of the stream.
+	 * @return A clone of this logic.
+	 * @see GameRandom#fork(long) for how the streams are derived.
+	 */
+	public GameLogic fork(long streamId) {
+		GameLogic fork = clone();
+		fork.random = random instanceof GameRandom
+				? ((GameRandom) random).fork(streamId)
+				: new GameRandom(random.nextLong() ^ streamId);
+		return fork;
+	}
+
 	/**
 	 * Deals damage to a target.
 	 *
@@ -1056,7 +1093,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			// Implement Doomlord
 			target.modifyAttribute(Attribute.DAMAGE_THIS_TURN, damageDealt);
 
-			player.getStatistics().damageDealt(damageDealt);
+			if (!context.isHeadless()) {
+				player.getStatistics().damageDealt(damageDealt);
+			}
 			DamageEvent damageEvent = new DamageEvent(context, target, source, damageDealt, damageType);
 			context.fireGameEvent(damageEvent);
 		}
@@ -1255,16 +1294,22 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	public void discardCard(Player player, Card card) {
 		// only a 'real' discard should fire a DiscardEvent
 		if (card.getZone() == Zones.HAND) {
-			logger.debug("discardCard {}: {} discards {}", context.getGameId(), player.getName(), card);
+			if (shouldLogDebug()) {
+				logger.debug("discardCard {}: {} discards {}", context.getGameId(), player.getName(), card);
+			}
 			card.getAttributes().put(Attribute.DISCARDED, true);
 			context.fireGameEvent(new DiscardEvent(context, player.getId(), card));
 			if (!card.hasAttribute(Attribute.DISCARDED)) {
-				logger.debug("discardCard {}: Discard of {} has been canceled by a trigger.", context.getGameId(), card);
+				if (shouldLogDebug()) {
+					logger.debug("discardCard {}: Discard of {} has been canceled by a trigger.", context.getGameId(), card);
+				}
 				return;
 			}
 			player.getStatistics().cardDiscarded();
 		} else if (card.getZone() == Zones.DECK) {
-			logger.debug("discardCard {}: {} mills {}", context.getGameId(), player.getName(), card);
+			if (shouldLogDebug()) {
+				logger.debug("discardCard {}: {} mills {}", context.getGameId(), player.getName(), card);
+			}
 			context.fireGameEvent(new MillEvent(context, player.getId(), card));
 		}
 
@@ -1321,7 +1366,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			player.setAttribute(Attribute.FATIGUE, fatigue);
 			damage(player, hero, fatigue, hero);
 			context.fireGameEvent(new FatigueEvent(context, player.getId(), fatigue));
-			player.getStatistics().fatigueDamage(fatigue);
+			if (!context.isHeadless()) {
+				player.getStatistics().fatigueDamage(fatigue);
+			}
 			return true;
 		}
 		return false;
@@ -1339,7 +1386,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	@Suspendable
 	public Card drawCard(int playerId, Card card, Entity source) {
 		Player player = context.getPlayer(playerId);
-		player.getStatistics().cardDrawn();
+		if (!context.isHeadless()) {
+			player.getStatistics().cardDrawn();
+		}
 		card = receiveCard(playerId, card, source, true);
 		return card;
 	}
@@ -1440,7 +1489,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			markAsDestroyed(currentWeapon);
 		}
 
-		player.getStatistics().equipWeapon(weapon);
+		if (!context.isHeadless()) {
+			player.getStatistics().equipWeapon(weapon);
+		}
 		weapon.onEquip(context, player);
 		weapon.setActive(context.getActivePlayerId() == playerId);
 
@@ -1491,7 +1542,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	 */
 	@Suspendable
 	public void fight(Player player, Actor attacker, Actor defender, PhysicalAttackAction sourceAction) {
-		context.getAttackerReferenceStack().push(attacker.getReference());
+		context.getAttackerReferenceStack().push(attacker);
 
 		Actor target = defender;
 		Entity targetOverride = targetAcquisition(player, attacker, sourceAction);
@@ -1562,9 +1613,13 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	 */
 	@Suspendable
 	public void gainArmor(Player player, int armor) {
-		logger.debug("{} gains {} armor", player.getHero(), armor);
+		if (shouldLogDebug()) {
+			logger.debug("{} gains {} armor", player.getHero(), armor);
+		}
 		player.getHero().modifyArmor(armor);
-		player.getStatistics().armorGained(armor);
+		if (!context.isHeadless()) {
+			player.getStatistics().armorGained(armor);
+		}
 		if (armor != 0) {
 			context.fireGameEvent(new ArmorChangedEvent(context, player.getHero(), armor));
 		}
@@ -1776,6 +1831,80 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		return actionLogic.getValidActions(context, player);
 	}
 
+	/**
+	 * Enumerates the valid actions a player can take as {@link ActionCode} values, without creating a {@link GameAction}
+	 * for each of them.
+	 *
+	 * @param playerId The player whose point of view should be considered.
+	 * @param visitor  Receives each code in the order of {@link #getValidActions(int)}. Returns {@code false} to stop.
+	 * @see ActionLogic#forEachValidAction(GameContext, Player, LongPredicate) for more about the enumeration.
+	 */
+	@Suspendable
+	public void forEachValidAction(int playerId, LongPredicate visitor) {
+		if (context.getActivePlayerId() != playerId) {
+			return;
+		}
+		actionLogic.forEachValidAction(context, context.getPlayer(playerId), visitor);
+	}
+
+	/**
+	 * Computes the {@link ActionCode} values of all the valid actions a player can currently take.
+	 *
+	 * @param playerId The player whose point of view should be considered.
+	 * @return The codes in the order of {@link #getValidActions(int)}. If it is not the player's turn, no codes are
+	 * returned.
+	 */
+	@Suspendable
+	public long[] getValidActionCodes(int playerId) {
+		if (context.getActivePlayerId() != playerId) {
+			return new long[0];
+		}
+		return actionLogic.getValidActionCodes(context, context.getPlayer(playerId));
+	}
+
+	/**
+	 * Counts the valid actions a player can currently take without creating them.
+	 *
+	 * @param playerId The player whose point of view should be considered.
+	 * @return The size of {@link #getValidActions(int)}.
+	 */
+	@Suspendable
+	public int countValidActions(int playerId) {
+		if (context.getActivePlayerId() != playerId) {
+			return 0;
+		}
+		return actionLogic.countValidActions(context, context.getPlayer(playerId));
+	}
+
+	/**
+	 * Checks whether an {@link ActionCode} is a valid action for the player in the current state.
+	 *
+	 * @param playerId   The player whose point of view should be considered.
+	 * @param actionCode The code.
+	 * @return {@code true} if the code is among {@link #getValidActionCodes(int)}.
+	 */
+	@Suspendable
+	public boolean isValidAction(int playerId, long actionCode) {
+		if (context.getActivePlayerId() != playerId) {
+			return false;
+		}
+		return actionLogic.isValidAction(context, context.getPlayer(playerId), actionCode);
+	}
+
+	/**
+	 * Creates the {@link GameAction} an {@link ActionCode} represents so that it can be passed to {@link
+	 * #performGameAction(int, GameAction)}.
+	 *
+	 * @param playerId   The player who would take the action.
+	 * @param actionCode A valid code.
+	 * @return The action.
+	 * @see ActionLogic#getGameAction(GameContext, Player, long) for more about the conversion.
+	 */
+	@Suspendable
+	public GameAction getGameAction(int playerId, long actionCode) {
+		return actionLogic.getGameAction(context, context.getPlayer(playerId), actionCode);
+	}
+
 	/**
 	 * Gets the list of valid targets for an action.
 	 * <p>
@@ -1975,7 +2104,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			target.modifyAttribute(Attribute.HEALING_THIS_TURN, healing);
 			target.setAttribute(Attribute.LAST_HEAL, healing);
 			context.fireGameEvent(healEvent);
-			player.getStatistics().heal(healing);
+			if (!context.isHeadless()) {
+				player.getStatistics().heal(healing);
+			}
 		}
 	}
 
@@ -2409,7 +2540,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	 */
 	@Suspendable
 	public void performGameAction(int playerId, GameAction action) {
-		context.onWillPerformGameAction(playerId, action);
+		if (!context.isHeadless()) {
+			context.onWillPerformGameAction(playerId, action);
+		}
 		if (playerId != context.getActivePlayerId()) {
 			logger.warn("Player {} tries to perform an action, but it is not his turn!", context.getPlayer(playerId).getName());
 		}
@@ -2430,7 +2563,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		}
 
 		// Calculate how all the entities changed.
-		context.onDidPerformGameAction(playerId, action);
+		if (!context.isHeadless()) {
+			context.onDidPerformGameAction(playerId, action);
+		}
 	}
 
 	/**
@@ -2485,7 +2620,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		} else {
 			context.getEnvironment().put(Environment.LAST_MANA_COST, modifiedManaCost);
 			modifyCurrentMana(playerId, -modifiedManaCost, true);
-			player.getStatistics().manaSpent(modifiedManaCost);
+			if (!context.isHeadless()) {
+				player.getStatistics().manaSpent(modifiedManaCost);
+			}
 		}
 
 		player.getStatistics().cardPlayed(card, context.getTurn());
@@ -3038,7 +3175,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			actions.get(i).setId(i);
 		}
 		GameAction action = context.getBehaviours().get(player.getId()).requestAction(context, player, actions);
-		context.getTrace().addAction(action.getId(), action);
+		if (!context.isHeadless()) {
+			context.getTrace().addAction(action.getId(), action);
+		}
 		return action;
 	}
 
@@ -3302,7 +3441,9 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		if (player.getMaxMana() < MAX_MANA) {
 			player.setMaxMana(player.getMaxMana() + 1);
 		}
-		player.getStatistics().startTurn();
+		if (!context.isHeadless()) {
+			player.getStatistics().startTurn();
+		}
 
 		player.setLockedMana(player.getAttributeValue(Attribute.OVERLOAD));
 		int mana = Math.min(player.getMaxMana() - player.getLockedMana(), MAX_MANA);
@@ -3377,7 +3518,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 		minion.setId(generateId());
 		minion.setOwner(player.getId());
 
-		context.getSummonReferenceStack().push(minion.getReference());
+		context.getSummonReferenceStack().push(minion);
 
 		if (index < 0 || index >= player.getMinions().size()) {
 			minion.moveOrAddTo(context, Zones.BATTLEFIELD);
@@ -3505,7 +3646,7 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 			// minion on the stack.
 			// Otherwise, summon the add the new minion.
 			// However, do not give a summon event.
-			if (!context.getSummonReferenceStack().isEmpty() && context.getSummonReferenceStack().peek().equals(minion.getReference())
+			if (!context.getSummonReferenceStack().isEmpty() && context.getSummonReferenceStack().peek() == minion.getId()
 					&& !context.getEnvironment().containsKey(Environment.TRANSFORM_REFERENCE)) {
 				context.getEnvironment().put(Environment.TRANSFORM_REFERENCE, newMinion.getReference());
 				owner.getMinions().add(index, newMinion);
@@ -3713,6 +3854,12 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	 * <p>
 	 * For cards with spells that contain multiple conditions, it's unlikely they are supposed to be interpreted as all of
 	 * them are met.
+	 * <p>
+	 * The conditions are created once per {@link net.demilich.metastone.game.cards.desc.CardDesc} with {@link
+	 * net.demilich.metastone.game.cards.desc.CardDesc#getCompiledConditions()}, and results are remembered until the
+	 * game changes, so checking a whole hand whenever a client state is built is cheap. Spells change attributes, mana and
+	 * zones without firing events, so besides {@link GameContext#getStateVersion()} the game is considered changed when
+	 * its {@link GameContext#getChangeCounter()}, which counts every attribute, zone and mana change, moves.
 	 *
 	 * @param localPlayerId
 	 * @param card
@@ -3720,11 +3867,50 @@ public class GameLogic implements Cloneable, Serializable, IdFactory {
 	 */
 	@Suspendable
 	public boolean conditionMet(int localPlayerId, @NotNull Card card) {
+		Condition[] conditions;
 		try {
-			return card.getDesc().getConditions().allMatch(conditionDesc -> conditionDesc.create().isFulfilled(context, context.getPlayer(localPlayerId), card, null));
-		} catch (Throwable ignored) {
+			conditions = card.getDesc().getCompiledConditions();
+		} catch (RuntimeException e) {
+			logger.warn("conditionMet {}: Could not create the conditions of {}", context.getGameId(), card.getCardId(), e);
+			return false;
+		}
+		if (conditions.length == 0) {
 			return false;
 		}
+
+		long stateVersion = context.getStateVersion();
+		long changes = context.getChangeCounter().get();
+		if (conditionsMet == null
+				|| conditionsMetStateVersion != stateVersion
+				|| conditionsMetChanges != changes) {
+			conditionsMet = new HashMap<>();
+			conditionsMetStateVersion = stateVersion;
+			conditionsMetChanges = changes;
+		}
+		// Cards that were never put into this game have no ID and are not remembered
+		long key = card.getId() == IdFactory.UNASSIGNED ? -1L : ((long) card.getId() << 32) | (localPlayerId & 0xFFFFFFFFL);
+		Boolean met = key == -1L ? null : conditionsMet.get(key);
+		if (met != null) {
+			return met;
+		}
+
+		met = true;
+		try {
+			Player player = context.getPlayer(localPlayerId);
+			for (Condition condition : conditions) {
+				if (!condition.isFulfilled(context, player, card, null)) {
+					met = false;
+					break;
+				}
+			}
+		} catch (RuntimeException e) {
+			logger.warn("conditionMet {}: Could not evaluate the conditions of {}", context.getGameId(), card.getCardId(), e);
+			met = false;
+		}
+		if (key != -1L) {
+			conditionsMet.put(key, met);
+		}
+		return met;
 	}
 
 	/**
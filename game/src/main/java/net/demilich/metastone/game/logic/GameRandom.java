@@ -0,0 +1,113 @@
+package net.demilich.metastone.game.logic;
+
+import java.util.Random;
+
+/**
+ * The random number generator used by {@link GameLogic}.
+ * <p>
+ * The generator is counter based: the {@code n}th number it produces is a hash of its seed and {@code n}, using the
+ * SplitMix64 mixing function of {@link java.util.SplittableRandom}. This makes it cheap to copy, so that a clone of a
+ * game continues the same sequence as the original, and cheap to {@link #fork(long)} into independent streams, so that
+ * parallel simulations see the same numbers no matter which thread runs them or in what order.
+ * <p>
+ * Unlike {@link Random}, instances are not safe to share between threads.
+ */
+public class GameRandom extends Random {
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final long STREAM_GAMMA = 0xbf58476d1ce4e5b9L;
+
+	private long seed;
+	private long counter;
+
+	/**
+	 * Creates a generator whose sequence is determined entirely by the seed.
+	 *
+	 * @param seed The seed.
+	 */
+	public GameRandom(long seed) {
+		// Calls setSeed
+		super(seed);
+	}
+
+	private GameRandom(long seed, long counter) {
+		super(0L);
+		this.seed = seed;
+		this.counter = counter;
+	}
+
+	/**
+	 * Creates a generator that starts where this one is now and produces the same sequence from here on.
+	 *
+	 * @return The copy.
+	 */
+	public GameRandom copy() {
+		return new GameRandom(seed, counter);
+	}
+
+	/**
+	 * Creates an independent generator for the stream with the given ID.
+	 * <p>
+	 * The new generator depends only on this generator's position and the stream ID. Forking does not advance this
+	 * generator, so forks with the same ID taken at the same position always produce the same sequence.
+	 *
+	 * @param streamId The ID of the stream, typically the index of the simulation or action it will be used for.
+	 * @return The new generator.
+	 */
+	public GameRandom fork(long streamId) {
+		return new GameRandom(mix64(mix64(seed + counter * GOLDEN_GAMMA) ^ (streamId + 1) * STREAM_GAMMA), 0L);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		// Also called by the Random constructor, which runs before this class's fields are initialized
+		this.seed = mix64(seed);
+		this.counter = 0L;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(seed + (++counter) * GOLDEN_GAMMA);
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r = nextInt();
+		int m = bound - 1;
+		if ((bound & m) == 0) {
+			return r & m;
+		}
+		// Rejects the values that would make the result biased towards small numbers
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) ;
+		return r;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0L;
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
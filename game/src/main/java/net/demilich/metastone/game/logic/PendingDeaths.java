@@ -0,0 +1,274 @@
+package net.demilich.metastone.game.logic;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.entities.Actor;
+import net.demilich.metastone.game.entities.Entity;
+import net.demilich.metastone.game.entities.EntityLocation;
+import net.demilich.metastone.game.entities.EntityZone;
+import net.demilich.metastone.game.entities.heroes.Hero;
+import net.demilich.metastone.game.entities.minions.Minion;
+import net.demilich.metastone.game.entities.weapons.Weapon;
+import net.demilich.metastone.game.targeting.Zones;
+import net.demilich.metastone.game.utils.Attribute;
+import net.demilich.metastone.game.utils.AttributeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tracks the actors that may have died since {@link GameLogic#endOfSequence()} last looked for destroyed actors, so
+ * that it does not have to call {@link Entity#isDestroyed()} on every hero, minion, set aside actor and weapon each
+ * time it runs.
+ * <p>
+ * Whether an actor is destroyed depends only on its {@link Attribute#HP}, {@link Attribute#DESTROYED} and {@link
+ * Attribute#PERMANENT} attributes, and for a hero on its player's {@link Attribute#DESTROYED} attribute. Every actor
+ * that has been checked gets an {@link AttributeMap.Listener} that marks it as pending when one of these attributes
+ * changes, whether the change came from {@link GameLogic#markAsDestroyed(Actor)}, from damage or from a spell that
+ * edits the attributes directly. Actors that entered the checked zones are found by comparing {@link
+ * EntityZone#getVersion()} with the version seen by the previous check, in which case the zone is scanned again.
+ * <p>
+ * The result of {@link #collect(GameContext)} is therefore exactly the list that a full scan would produce.
+ */
+public final class PendingDeaths {
+	private static final int BATTLEFIELD_SLOT = 0;
+	private static final int SET_ASIDE_ZONE_SLOT = 1;
+	private static final int HERO_SLOT = 2;
+	private static final int WEAPON_SLOT = 3;
+	private static final int ZONES_PER_PLAYER = 4;
+
+	private final List<Actor> pending = new ArrayList<>();
+	private Player[] players = new Player[0];
+	private EntityZone<?>[] zones = new EntityZone<?>[0];
+	private int[] versions = new int[0];
+
+	/**
+	 * Records that the actor may have been destroyed.
+	 *
+	 * @param actor The actor.
+	 */
+	public void mark(Actor actor) {
+		pending.add(actor);
+	}
+
+	/**
+	 * Finds the actors that {@link GameLogic#endOfSequence()} has to destroy and forgets the pending actors.
+	 * <p>
+	 * These are the heroes that are destroyed or whose player is {@link Attribute#DESTROYED}, and the destroyed minions,
+	 * set aside actors and weapons.
+	 *
+	 * @param context The game context.
+	 * @return The destroyed actors in no particular order, or an empty list if nothing died.
+	 */
+	public List<Actor> collect(GameContext context) {
+		List<Player> players = context.getPlayers();
+		if (this.players.length != players.size()) {
+			this.players = new Player[players.size()];
+			this.zones = new EntityZone<?>[players.size() * ZONES_PER_PLAYER];
+			this.versions = new int[players.size() * ZONES_PER_PLAYER];
+		}
+
+		List<Actor> destroyed = null;
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (this.players[i] != player) {
+				this.players[i] = player;
+				watch(player);
+				for (int j = 0; j < ZONES_PER_PLAYER; j++) {
+					zones[i * ZONES_PER_PLAYER + j] = null;
+				}
+			}
+
+			if (player.getHeroZone().isEmpty()) {
+				// The hero is in the graveyard, which happens at most once per game, so just check everything
+				for (int j = 0; j < ZONES_PER_PLAYER; j++) {
+					zones[i * ZONES_PER_PLAYER + j] = null;
+				}
+				destroyed = scan(player, destroyed);
+				continue;
+			}
+
+			Hero hero = player.getHeroZone().get(0);
+			if (hasChanged(i, HERO_SLOT, player.getHeroZone())) {
+				watch(hero);
+				if (hero.isDestroyed() || player.hasAttribute(Attribute.DESTROYED)) {
+					destroyed = add(destroyed, hero);
+				}
+			}
+
+			if (hasChanged(i, BATTLEFIELD_SLOT, player.getMinions())) {
+				for (Minion minion : player.getMinions()) {
+					watch(minion);
+					if (minion.isDestroyed()) {
+						destroyed = add(destroyed, minion);
+					}
+				}
+			}
+
+			if (hasChanged(i, SET_ASIDE_ZONE_SLOT, player.getSetAsideZone())) {
+				for (Entity entity : player.getSetAsideZone()) {
+					if (!(entity instanceof Actor)) {
+						continue;
+					}
+					watch(entity);
+					if (entity.isDestroyed()) {
+						destroyed = add(destroyed, (Actor) entity);
+					}
+				}
+			}
+
+			if (hasChanged(i, WEAPON_SLOT, hero.getWeaponZone())) {
+				Weapon weapon = hero.getWeapon();
+				if (weapon != null) {
+					watch(weapon);
+					if (weapon.isDestroyed()) {
+						destroyed = add(destroyed, weapon);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < pending.size(); i++) {
+			Actor actor = pending.get(i);
+			Player player = getWatchingPlayer(players, actor);
+			if (player == null) {
+				continue;
+			}
+			if (actor.isDestroyed()
+					|| (actor.getEntityLocation().getZone() == Zones.HERO
+					&& player.hasAttribute(Attribute.DESTROYED))) {
+				destroyed = add(destroyed, actor);
+			}
+		}
+		pending.clear();
+
+		return destroyed == null ? Collections.emptyList() : destroyed;
+	}
+
+	/**
+	 * Checks the player's zones the way {@link GameLogic#endOfSequence()} did before deaths were tracked.
+	 */
+	private List<Actor> scan(Player player, List<Actor> destroyed) {
+		if ((player.getHero().isDestroyed() || player.hasAttribute(Attribute.DESTROYED)) &&
+				player.getHero().getZone() != Zones.GRAVEYARD) {
+			destroyed = add(destroyed, player.getHero());
+		}
+
+		for (Minion minion : player.getMinions()) {
+			if (minion.isDestroyed()) {
+				destroyed = add(destroyed, minion);
+			}
+		}
+
+		for (Entity entity : player.getSetAsideZone()) {
+			if (entity instanceof Actor && entity.isDestroyed()) {
+				destroyed = add(destroyed, (Actor) entity);
+			}
+		}
+
+		if (player.getHero().getWeapon() != null && player.getHero().getWeapon().isDestroyed()) {
+			destroyed = add(destroyed, player.getHero().getWeapon());
+		}
+		return destroyed;
+	}
+
+	private boolean hasChanged(int playerIndex, int zoneIndex, EntityZone<?> zone) {
+		int i = playerIndex * ZONES_PER_PLAYER + zoneIndex;
+		if (zones[i] == zone && versions[i] == zone.getVersion()) {
+			return false;
+		}
+		zones[i] = zone;
+		versions[i] = zone.getVersion();
+		return true;
+	}
+
+	/**
+	 * Finds the player whose hero, battlefield, set aside zone or weapon currently holds the actor.
+	 *
+	 * @return The player, or {@code null} if the actor is anywhere else.
+	 */
+	private static Player getWatchingPlayer(List<Player> players, Actor actor) {
+		EntityLocation location = actor.getEntityLocation();
+		for (Player player : players) {
+			EntityZone<?> zone;
+			switch (location.getZone()) {
+				case BATTLEFIELD:
+					zone = player.getMinions();
+					break;
+				case SET_ASIDE_ZONE:
+					zone = player.getSetAsideZone();
+					break;
+				case HERO:
+					zone = player.getHeroZone();
+					break;
+				case WEAPON:
+					zone = player.getHeroZone().isEmpty() ? null : player.getHeroZone().get(0).getWeaponZone();
+					break;
+				default:
+					return null;
+			}
+			if (zone != null
+					&& location.getIndex() >= 0
+					&& location.getIndex() < zone.size()
+					&& zone.get(location.getIndex()) == actor) {
+				return player;
+			}
+		}
+		return null;
+	}
+
+	private static List<Actor> add(List<Actor> destroyed, Actor actor) {
+		if (destroyed == null) {
+			destroyed = new ArrayList<>();
+		}
+		for (int i = 0; i < destroyed.size(); i++) {
+			if (destroyed.get(i) == actor) {
+				return destroyed;
+			}
+		}
+		destroyed.add(actor);
+		return destroyed;
+	}
+
+	private void watch(Entity entity) {
+		AttributeMap attributes = entity.getAttributes();
+		if (attributes.getListener() instanceof Watch
+				&& ((Watch) attributes.getListener()).owner == this) {
+			return;
+		}
+		attributes.setListener(new Watch(this, entity));
+	}
+
+	/**
+	 * Marks an actor, or the hero of a player, as pending when an attribute that decides whether it is destroyed
+	 * changes.
+	 */
+	private static final class Watch implements AttributeMap.Listener {
+		private final PendingDeaths owner;
+		private final Entity entity;
+
+		private Watch(PendingDeaths owner, Entity entity) {
+			this.owner = owner;
+			this.entity = entity;
+		}
+
+		@Override
+		public void onAttributeChanged(Attribute attribute) {
+			if (attribute != null
+					&& attribute != Attribute.HP
+					&& attribute != Attribute.DESTROYED
+					&& attribute != Attribute.PERMANENT) {
+				return;
+			}
+			if (entity instanceof Player) {
+				EntityZone<Hero> heroZone = ((Player) entity).getHeroZone();
+				if (!heroZone.isEmpty()) {
+					owner.mark(heroZone.get(0));
+				}
+			} else {
+				owner.mark((Actor) entity);
+			}
+		}
+	}
+}
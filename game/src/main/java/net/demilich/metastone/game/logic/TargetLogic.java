@@ -21,6 +21,7 @@ import net.demilich.metastone.game.entities.Actor;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.entities.heroes.Hero;
 import net.demilich.metastone.game.entities.minions.Minion;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.targeting.EntityReference;
 import net.demilich.metastone.game.targeting.TargetSelection;
 
@@ -104,10 +105,10 @@ public class TargetLogic implements Serializable {
 
 	private Entity findInEnvironment(GameContext context, EntityReference targetKey) {
 		if (!context.getEventTargetStack().isEmpty() && targetKey.equals(EntityReference.EVENT_TARGET)) {
-			return context.resolveSingleTarget(context.getEventTargetStack().peek());
+			return context.resolveSingleTarget(context.getEventTargetStack().peekReference());
 		}
 		if (!context.getEventSourceStack().isEmpty() && targetKey.equals(EntityReference.EVENT_TARGET)) {
-			return context.resolveSingleTarget(context.getEventSourceStack().peek());
+			return context.resolveSingleTarget(context.getEventSourceStack().peekReference());
 		}
 		return null;
 	}
@@ -198,8 +199,21 @@ public class TargetLogic implements Serializable {
 	 * possibly empty list of entities.
 	 * @see EntityReference for more about the meaning of the specified entitiy references that are groups of entities.
 	 */
-	@SuppressWarnings("deprecation")
 	public List<Entity> resolveTargetKey(GameContext context, Player player, Entity source, EntityReference targetKey) {
+		Profiler profiler = context.getProfiler();
+		if (profiler == null || targetKey == null) {
+			return resolve(context, player, source, targetKey);
+		}
+
+		long startNanos = profiler.nanoTime();
+		long startBytes = profiler.allocatedBytes();
+		List<Entity> entities = resolve(context, player, source, targetKey);
+		profiler.record(Profiler.Category.TARGET, targetKey, startNanos, startBytes);
+		return entities;
+	}
+
+	@SuppressWarnings("deprecation")
+	private List<Entity> resolve(GameContext context, Player player, Entity source, EntityReference targetKey) {
 		if (targetKey == null || targetKey.equals(EntityReference.NONE)) {
 			return null;
 		}
@@ -247,7 +261,7 @@ public class TargetLogic implements Serializable {
 		} else if (targetKey.equals(EntityReference.ADJACENT_MINIONS)) {
 			return new ArrayList<>(context.getAdjacentMinions(source.getReference()));
 		} else if (targetKey.equals(EntityReference.ATTACKER_ADJACENT_MINIONS)) {
-			return new ArrayList<>(context.getAdjacentMinions(context.resolveSingleTarget(context.getAttackerReferenceStack().peek()).getReference()));
+			return new ArrayList<>(context.getAdjacentMinions(context.resolveSingleTarget(context.getAttackerReferenceStack().peekReference()).getReference()));
 		} else if (targetKey.equals(EntityReference.OPPOSITE_MINIONS)) {
 			return new ArrayList<>(context.getOppositeMinions(source.getReference()));
 		} else if (targetKey.equals(EntityReference.MINIONS_TO_LEFT)) {
@@ -281,13 +295,13 @@ public class TargetLogic implements Serializable {
 		} else if (targetKey.equals(EntityReference.SELF)) {
 			return singleTargetAsList(source);
 		} else if (targetKey.equals(EntityReference.EVENT_TARGET)) {
-			EntityReference target = context.getEventTargetStack().peek();
+			EntityReference target = context.getEventTargetStack().peekReference();
 			if (target == null || target.equals(EntityReference.NONE)) {
 				return new ArrayList<>();
 			}
 			return singleTargetAsList(context.resolveSingleTarget(target));
 		} else if (targetKey.equals(EntityReference.EVENT_SOURCE)) {
-			EntityReference target = context.getEventSourceStack().peek();
+			EntityReference target = context.getEventSourceStack().peekReference();
 			if (target == null || target.equals(EntityReference.NONE)) {
 				return new ArrayList<>();
 			}
@@ -299,13 +313,13 @@ public class TargetLogic implements Serializable {
 			}
 			return singleTargetAsList(context.resolveSingleTarget(targetKey1));
 		} else if (targetKey.equals(EntityReference.SPELL_TARGET)) {
-			return singleTargetAsList(context.resolveSingleTarget(context.getSpellTargetStack().peek()));
+			return singleTargetAsList(context.resolveSingleTarget(context.getSpellTargetStack().peekReference()));
 		} else if (targetKey.equals(EntityReference.KILLED_MINION)) {
 			return singleTargetAsList(context.resolveSingleTarget((EntityReference) context.getEnvironment().get(Environment.KILLED_MINION)));
 		} else if (targetKey.equals(EntityReference.ATTACKER)) {
-			return singleTargetAsList(context.resolveSingleTarget(context.getAttackerReferenceStack().peek()));
+			return singleTargetAsList(context.resolveSingleTarget(context.getAttackerReferenceStack().peekReference()));
 		} else if (targetKey.equals(EntityReference.OUTPUT)) {
-			return singleTargetAsList(context.resolveSingleTarget(context.getOutputStack().peek()));
+			return singleTargetAsList(context.resolveSingleTarget(context.getOutputStack().peekReference()));
 		} else if (targetKey.equals(EntityReference.FRIENDLY_WEAPON)) {
 			if (player.getHero().getWeapon() != null) {
 				return singleTargetAsList(player.getHero().getWeapon());
@@ -375,7 +389,7 @@ public class TargetLogic implements Serializable {
 		} else if (targetKey.equals(EntityReference.ALL_ENTITIES)) {
 			return context.getEntities().collect(Collectors.toList());
 		} else if (targetKey.equals(EntityReference.TRIGGER_HOST)) {
-			return singleTargetAsList(context.resolveSingleTarget(context.getTriggerHostStack().peek()));
+			return singleTargetAsList(context.resolveSingleTarget(context.getTriggerHostStack().peekReference()));
 		} else if (targetKey.equals(EntityReference.PHYSICAL_ATTACK_TARGETS)) {
 			return getValidTargets(context, player, new PhysicalAttackAction(source.getReference()));
 		}
@@ -22,6 +22,9 @@ public class Trace implements Serializable, Cloneable {
 	private int catalogueVersion;
 	private int[][] mulligans;
 	private List<Integer> actions = new ArrayList<>();
+	private boolean hasOutcome;
+	private int winner = -1;
+	private int turn;
 	private transient List<GameAction> rawActions = new ArrayList<>();
 
 	public void setStartState(GameState gameState) {
@@ -57,6 +60,40 @@ public class Trace implements Serializable, Cloneable {
 		rawActions.add(action);
 	}
 
+	/**
+	 * Records how the traced game ended, so that a replay can be checked against it.
+	 *
+	 * @param winner The ID of the winning player, or {@code -1} if the game was a draw.
+	 * @param turn   The turn the game ended on.
+	 */
+	public void setOutcome(int winner, int turn) {
+		this.hasOutcome = true;
+		this.winner = winner;
+		this.turn = turn;
+	}
+
+	/**
+	 * Indicates whether the traced game ended before the trace was taken.
+	 *
+	 * @return {@code true} if {@link #getWinner()} and {@link #getTurn()} are the outcome of the game.
+	 */
+	public boolean hasOutcome() {
+		return hasOutcome;
+	}
+
+	/**
+	 * @return The ID of the winning player of the traced game, or {@code -1} if it was a draw or hasn't ended.
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * @return The turn the traced game ended on, or {@code 0} if it hasn't ended.
+	 */
+	public int getTurn() {
+		return turn;
+	}
 
 	public GameContext replayContext(boolean skipLastAction) {
 		AtomicInteger nextAction = new AtomicInteger();
@@ -81,6 +118,12 @@ public class Trace implements Serializable, Cloneable {
 		return stateRestored;
 	}
 
+	/**
+	 * Serializes this trace, including its starting state, with Java serialization.
+	 *
+	 * @return A base64 string that can only be loaded by the same version of the engine.
+	 * @see TraceWriter for a compact format that survives changes to the engine's classes.
+	 */
 	public String dump() {
 		return Serialization.serializeBase64(this);
 
@@ -94,6 +137,10 @@ public class Trace implements Serializable, Cloneable {
 		this.mulligans = mulligans;
 	}
 
+	public int[][] getMulligans() {
+		return mulligans;
+	}
+
 	@Override
 	public Trace clone() {
 		try {
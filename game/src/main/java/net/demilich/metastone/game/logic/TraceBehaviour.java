@@ -39,7 +39,9 @@ class TraceBehaviour extends UtilityBehaviour {
 		}
 		return Arrays.stream(mulligans[player.getId()])
 				.boxed()
-				.map(i -> cards.stream().filter(c -> c.getId() == i).findFirst().orElseThrow(NullPointerException::new)).collect(Collectors.toList());
+				.map(i -> cards.stream().filter(c -> c.getId() == i).findFirst()
+						.orElseThrow(() -> new IllegalStateException(String.format("Traced mulligan of card %d, which is not in the starting hand", i))))
+				.collect(Collectors.toList());
 	}
 
 	@Override
@@ -52,6 +54,7 @@ class TraceBehaviour extends UtilityBehaviour {
 			throw new CancellationException();
 		}
 		Integer j = actions.get(i);
-		return validActions.stream().filter(f -> f.getId() == j).findFirst().orElseThrow(NullPointerException::new);
+		return validActions.stream().filter(f -> f.getId() == j).findFirst()
+				.orElseThrow(() -> new IllegalStateException(String.format("Traced action %d has ID %d, but only %d actions are valid", i, j, validActions.size())));
 	}
 }
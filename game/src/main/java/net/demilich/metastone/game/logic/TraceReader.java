@@ -0,0 +1,130 @@
+package net.demilich.metastone.game.logic;
+
+import com.hiddenswitch.spellsource.util.Varint;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.cards.CardSet;
+import net.demilich.metastone.game.decks.DeckFormat;
+import net.demilich.metastone.game.decks.GameDeck;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads the traces written by a {@link TraceWriter}, one at a time.
+ * <p>
+ * The starting state of each trace is rebuilt from its decks with the cards currently in the {@link CardCatalogue},
+ * so the catalogue must be loaded before traces are read.
+ */
+public class TraceReader implements Closeable {
+	private final DataInputStream in;
+
+	public TraceReader(InputStream in) {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+	}
+
+	/**
+	 * Reads the next trace from the stream.
+	 *
+	 * @return The trace, or {@code null} if the end of the stream was reached.
+	 * @throws IOException              if the stream could not be read or does not contain traces.
+	 * @throws IllegalArgumentException if a card in the trace is not in the catalogue.
+	 */
+	public Trace read() throws IOException {
+		int first = in.read();
+		if (first == -1) {
+			return null;
+		}
+		int magic = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+		if (magic != TraceWriter.MAGIC) {
+			throw new StreamCorruptedException("Not a trace");
+		}
+		int version = Varint.readUnsignedVarInt(in);
+		if (version < 2 || version > TraceWriter.VERSION) {
+			throw new StreamCorruptedException("Unsupported trace version " + version);
+		}
+
+		Trace trace = new Trace();
+		trace.setSeed(in.readLong());
+		trace.setCatalogueVersion(Varint.readSignedVarInt(in));
+
+		String[] strings = new String[Varint.readUnsignedVarInt(in) + 1];
+		for (int i = 1; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+
+		String deckFormatName = strings[Varint.readUnsignedVarInt(in)];
+		int cardSetCount = Varint.readUnsignedVarInt(in);
+		DeckFormat deckFormat = new DeckFormat().withName(deckFormatName);
+		for (int i = 0; i < cardSetCount; i++) {
+			deckFormat.addSet(CardSet.valueOf(strings[Varint.readUnsignedVarInt(in)]));
+		}
+
+		Player[] players = new Player[2];
+		for (int i = 0; i < players.length; i++) {
+			String name = strings[Varint.readUnsignedVarInt(in)];
+			Card heroCard = getCard(strings[Varint.readUnsignedVarInt(in)]);
+			GameDeck deck = new GameDeck(heroCard.getHeroClass());
+			deck.setHeroCard(heroCard);
+			int deckSize = Varint.readUnsignedVarInt(in);
+			for (int j = 0; j < deckSize; j++) {
+				deck.getCards().addCard(getCard(strings[Varint.readUnsignedVarInt(in)]));
+			}
+			Player player = new Player(deck, name);
+			int handSize = Varint.readUnsignedVarInt(in);
+			for (int j = 0; j < handSize; j++) {
+				player.getHand().addCard(getCard(strings[Varint.readUnsignedVarInt(in)]));
+			}
+			players[i] = player;
+		}
+
+		int[][] mulligans = new int[players.length][];
+		boolean hasMulligans = false;
+		for (int i = 0; i < players.length; i++) {
+			int length = Varint.readUnsignedVarInt(in) - 1;
+			if (length == -1) {
+				continue;
+			}
+			hasMulligans = true;
+			mulligans[i] = new int[length];
+			for (int j = 0; j < length; j++) {
+				mulligans[i][j] = Varint.readSignedVarInt(in);
+			}
+		}
+		trace.setMulligans(hasMulligans ? mulligans : null);
+
+		int actionCount = Varint.readUnsignedVarInt(in);
+		for (int i = 0; i < actionCount; i++) {
+			trace.getActions().add(Varint.readSignedVarInt(in));
+		}
+
+		// Version 2 traces don't have an outcome
+		if (version >= 3 && Varint.readUnsignedVarInt(in) != 0) {
+			int winner = Varint.readSignedVarInt(in);
+			trace.setOutcome(winner, Varint.readUnsignedVarInt(in));
+		}
+
+		GameContext context = new GameContext(players[0], players[1], new GameLogic(), deckFormat);
+		trace.setStartState(context.getGameStateCopy());
+		return trace;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private static Card getCard(String cardId) {
+		Card card = CardCatalogue.getCardById(cardId);
+		if (card == null) {
+			throw new IllegalArgumentException("The card " + cardId + " in the trace is not in the catalogue");
+		}
+		return card;
+	}
+}
@@ -0,0 +1,204 @@
+package net.demilich.metastone.game.logic;
+
+import com.hiddenswitch.spellsource.common.GameState;
+import com.hiddenswitch.spellsource.util.Varint;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.decks.DeckFormat;
+import net.demilich.metastone.game.entities.EntityZone;
+import net.demilich.metastone.game.targeting.IdFactory;
+import net.demilich.metastone.game.targeting.Zones;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link Trace} objects to a stream in a compact binary format that does not depend on the Java serialization
+ * of the game's classes, so that traces written today can be replayed by later versions of the engine.
+ * <p>
+ * Instead of the starting {@link GameState}, a trace record contains the seed, the catalogue version, the deck format
+ * and each player's name, hero card ID, deck and starting hand as card IDs. The mulligans and the action IDs follow as
+ * variable-length integers, followed by the outcome of the game when it ended: the winner and the turn it ended on.
+ * Records are self-delimiting, so any number of traces can be written to the same stream
+ * and read back with a {@link TraceReader}.
+ * <p>
+ * Only traces that start before {@link net.demilich.metastone.game.GameContext#init()} assigns entity IDs can be
+ * written, and attributes that were added to the players or to their cards before the game started are not kept.
+ */
+public class TraceWriter implements Closeable, Flushable {
+	/**
+	 * The first four bytes of every trace record, {@code SPTR}.
+	 */
+	static final int MAGIC = 0x53505452;
+	/**
+	 * The version of the format written by this class. Version 2 traces were recorded with the {@link GameRandom}
+	 * number generator, so version 1 traces can no longer be replayed. Version 3 traces end with the game's outcome.
+	 */
+	static final int VERSION = 3;
+	/**
+	 * The zones that must be empty at the start of a trace.
+	 */
+	private static final Zones[] OTHER_ZONES = new Zones[]{Zones.GRAVEYARD, Zones.BATTLEFIELD, Zones.SECRET, Zones.QUEST,
+			Zones.WEAPON, Zones.DISCOVER, Zones.REMOVED_FROM_PLAY, Zones.SET_ASIDE_ZONE};
+
+	private final DataOutputStream out;
+
+	public TraceWriter(OutputStream out) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+	}
+
+	/**
+	 * Appends a trace to the stream.
+	 *
+	 * @param trace The trace.
+	 * @throws IOException              if the stream could not be written to.
+	 * @throws IllegalArgumentException if the trace has no starting state, or the starting state contains entities
+	 *                                  other than the players' heroes, decks and hands.
+	 */
+	public void write(Trace trace) throws IOException {
+		GameState state = trace.getGameState();
+		if (state == null) {
+			throw new IllegalArgumentException("The trace has no starting state");
+		}
+		Player[] players = new Player[]{state.player1, state.player2};
+		for (Player player : players) {
+			checkStartingState(player);
+		}
+
+		// Card IDs appear many times in the decks, so they are written once and referred to by index
+		List<String> strings = new ArrayList<>();
+		Map<String, Integer> indices = new HashMap<>();
+		DeckFormat deckFormat = state.deckFormat;
+		int deckFormatName = index(strings, indices, deckFormat == null ? null : deckFormat.getName());
+		int[] cardSets;
+		if (deckFormat == null) {
+			cardSets = new int[0];
+		} else {
+			cardSets = deckFormat.getCardSets().stream().mapToInt(cardSet -> index(strings, indices, cardSet.name())).toArray();
+		}
+		int[][] playerStrings = new int[players.length][];
+		for (int i = 0; i < players.length; i++) {
+			Player player = players[i];
+			int[] values = new int[2 + player.getDeck().size() + player.getHand().size()];
+			int j = 0;
+			values[j++] = index(strings, indices, player.getName());
+			values[j++] = index(strings, indices, player.getHero().getSourceCard().getCardId());
+			for (Card card : player.getDeck()) {
+				values[j++] = index(strings, indices, card.getCardId());
+			}
+			for (Card card : player.getHand()) {
+				values[j++] = index(strings, indices, card.getCardId());
+			}
+			playerStrings[i] = values;
+		}
+
+		out.writeInt(MAGIC);
+		Varint.writeUnsignedVarInt(VERSION, out);
+		out.writeLong(trace.getSeed());
+		Varint.writeSignedVarInt(trace.getCatalogueVersion(), out);
+
+		Varint.writeUnsignedVarInt(strings.size(), out);
+		for (String string : strings) {
+			out.writeUTF(string);
+		}
+
+		Varint.writeUnsignedVarInt(deckFormatName, out);
+		Varint.writeUnsignedVarInt(cardSets.length, out);
+		for (int cardSet : cardSets) {
+			Varint.writeUnsignedVarInt(cardSet, out);
+		}
+
+		for (int i = 0; i < players.length; i++) {
+			Player player = players[i];
+			int[] values = playerStrings[i];
+			Varint.writeUnsignedVarInt(values[0], out);
+			Varint.writeUnsignedVarInt(values[1], out);
+			int j = 2;
+			Varint.writeUnsignedVarInt(player.getDeck().size(), out);
+			for (int k = 0; k < player.getDeck().size(); k++) {
+				Varint.writeUnsignedVarInt(values[j++], out);
+			}
+			Varint.writeUnsignedVarInt(player.getHand().size(), out);
+			for (int k = 0; k < player.getHand().size(); k++) {
+				Varint.writeUnsignedVarInt(values[j++], out);
+			}
+		}
+
+		int[][] mulligans = trace.getMulligans();
+		for (int i = 0; i < players.length; i++) {
+			// Zero means that the trace ended before the mulligans were recorded
+			if (mulligans == null || mulligans[i] == null) {
+				Varint.writeUnsignedVarInt(0, out);
+				continue;
+			}
+			Varint.writeUnsignedVarInt(mulligans[i].length + 1, out);
+			for (int entityId : mulligans[i]) {
+				Varint.writeSignedVarInt(entityId, out);
+			}
+		}
+
+		List<Integer> actions = trace.getActions();
+		Varint.writeUnsignedVarInt(actions.size(), out);
+		for (Integer action : actions) {
+			Varint.writeSignedVarInt(action, out);
+		}
+
+		// Zero means that the trace was taken before the game ended
+		if (!trace.hasOutcome()) {
+			Varint.writeUnsignedVarInt(0, out);
+			return;
+		}
+		Varint.writeUnsignedVarInt(1, out);
+		Varint.writeSignedVarInt(trace.getWinner(), out);
+		Varint.writeUnsignedVarInt(trace.getTurn(), out);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Gets the index of the string in the table, adding it if necessary. {@code 0} is reserved for {@code null}.
+	 */
+	private static int index(List<String> strings, Map<String, Integer> indices, String string) {
+		if (string == null) {
+			return 0;
+		}
+		Integer index = indices.get(string);
+		if (index == null) {
+			strings.add(string);
+			index = strings.size();
+			indices.put(string, index);
+		}
+		return index;
+	}
+
+	private static void checkStartingState(Player player) {
+		if (player.getHero() == null) {
+			throw new IllegalArgumentException("The trace's starting state has no hero for player " + player.getId());
+		}
+		for (Zones zone : OTHER_ZONES) {
+			EntityZone<?> entityZone = player.getZone(zone);
+			if (entityZone != null && !entityZone.isEmpty()) {
+				throw new IllegalArgumentException("The trace's starting state has entities in the " + zone + " of player " + player.getId());
+			}
+		}
+		if (player.getHero().getId() != IdFactory.UNASSIGNED) {
+			throw new IllegalArgumentException("The trace's starting state was recorded after entity IDs were assigned");
+		}
+	}
+}
@@ -18,7 +18,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
@@ -84,6 +87,7 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 	protected Deque<GameAction> strictPlan;
 	protected Deque<Integer> indexPlan;
 	protected int maxDepth = 5;
+	protected int beamWidth = 0;
 
 	public GameStateValueBehaviour() {
 		this(FeatureVector.getFittest(), "Botty McBotface");
@@ -99,11 +103,14 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 	 * Returns a clone of the game context, assuming the opponent is a {@link GameStateValueBehaviour} too.
 	 *
 	 * @param original The original game context to use.
+	 * @param streamId The random number stream of the clone.
 	 * @return The clone.
+	 * @see GameContext#fork(long)
 	 */
-	protected GameContext getClone(GameContext original) {
-		GameContext context = original.clone();
+	protected GameContext getClone(GameContext original, long streamId) {
+		GameContext context = original.fork(streamId);
 		context.setLoggingLevel(Level.ERROR);
+		context.setHeadless(true);
 		return context;
 	}
 
@@ -123,11 +130,57 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 		this.maxDepth = maxDepth;
 	}
 
+	/**
+	 * Gets the number of most promising successors of each game state that the search expands.
+	 *
+	 * @return The beam width, or {@code 0} if every successor is expanded.
+	 * @see #setBeamWidth(int)
+	 */
+	public int getBeamWidth() {
+		return beamWidth;
+	}
+
+	/**
+	 * Limits the search to the {@code beamWidth} successors of each game state that have the highest {@link
+	 * Heuristic#getScore(GameContext, int)}. This trades plan quality for time and memory on turns with many possible
+	 * actions.
+	 *
+	 * @param beamWidth The beam width, or {@code 0} (the default) to expand every successor.
+	 */
+	public void setBeamWidth(int beamWidth) {
+		this.beamWidth = beamWidth;
+	}
+
 	@Override
 	public String getName() {
 		return "Game state value " + nameSuffix;
 	}
 
+	/**
+	 * Gets an upper bound of the score of any game state at the end of a plan that continues from the specified game
+	 * state. The search does not expand a game state whose bound is lower than the score of the best plan found so far.
+	 * <p>
+	 * The default bound is positive infinity, which never prunes. Subclasses that use a bounded {@link Heuristic} can
+	 * override this method to search faster without changing the chosen plan.
+	 *
+	 * @param context  The game state.
+	 * @param playerId The player whose plan is being searched.
+	 * @return The bound.
+	 */
+	protected double getUpperBound(GameContext context, int playerId) {
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Gets the pool that runs the searches of all game state value behaviours. It is separate from the common pool, so
+	 * that searches neither wait for nor delay the parallel streams used elsewhere.
+	 *
+	 * @return The pool.
+	 */
+	protected static ForkJoinPool getPool() {
+		return SearchPool.POOL;
+	}
+
 	public Deque<GameAction> getStrictPlan() {
 		return strictPlan;
 	}
@@ -255,8 +308,9 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 	@Suspendable
 	public @Nullable
 	GameAction requestAction(@NotNull GameContext context, @NotNull Player player, @NotNull List<GameAction> validActions) {
-		// Isolate this context
+		// Isolate this context. Its rollouts only need outcomes, so they run headless
 		context = context.clone();
+		context.setHeadless(true);
 		player = context.getPlayer(player.getId());
 
 		// Consistency checks
@@ -326,74 +380,21 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 		// Max depth indicates that we will expand at most 5 non-intermediate (non-Battlecry and non-Discover) actions
 		// away from the game context given to this function.
 		int playerId = player.getId();
-		Deque<Node> contextStack = new ConcurrentLinkedDeque<>();
-		// We're only going to compute scores on the terminal nodes, so we're going to save them separately. Then, we walk
-		// the list of predecessors to build a plan.
-		List<Node> terminalNodes = new ArrayList<>();
-
-		contextStack.push(new Node(context, null, 0));
-		long start = System.currentTimeMillis();
-		while (contextStack.size() > 0) {
-			Node v = contextStack.pop();
-
-			// Is this node terminal?
-			if (v.predecessor != null && (
-					v.depth >= maxDepth
-							|| v.context.updateAndGetGameOver()
-							|| (System.currentTimeMillis() - start > timeout)
-							// Technically allows the bot to play through its extra turns
-							|| v.context.getActivePlayerId() != playerId
-							|| v.context.isDisposed())) {
-				terminalNodes.add(v);
-				continue;
-			}
-
-			final int depth = v.depth;
-
-			List<GameAction> edges;
-			if (v.predecessor == null) {
-				// Initial node
-				edges = validActions;
-			} else {
-				// Expand and compute scores
-				edges = v.context.getValidActions();
-			}
-
-			if (edges == null || edges.isEmpty()) {
-				logger.error("requestAction {} {}: Unexpectedly, an expansion of a game state produced no actions.", gameId, playerId);
-				continue;
-			}
-
-			// Parallelize the expansion of nodes.
-			edges
-					.parallelStream()
-					.unordered()
-					.forEach(edge -> rollout(contextStack, playerId, v, edge, depth));
-
-			/*
-			// Non-parallel expansion of nodes
-			for (GameAction edge : edges) {
-				rollout(contextStack, playerId, v, edge, depth);
-			}
-			*/
-		}
-
-		// Score the terminal nodes, find the highest score
-		Optional<Node> maxScore = terminalNodes
-				.parallelStream()
-				.peek(bc -> postProcess(playerId, bc.context))
-				.peek(bc -> bc.setScore(heuristic.getScore(bc.context, playerId)))
-				.max(Comparator.comparingDouble(Node::getScore));
-
-		if (!maxScore.isPresent()) {
-			logger.error("requestAction {} {}: A problem occurred while trying to find the max score in the terminal nodes {}", gameId, player, terminalNodes);
+		// Terminal nodes are scored as soon as they are reached, so only the best one is kept. Expanded nodes drop their
+		// game contexts, and the plan is rebuilt from the actions stored along the predecessors of the best node.
+		Search search = new Search(playerId, validActions, System.currentTimeMillis());
+		getPool().invoke(new Expansion(search, new Node(context, null, 0)));
+
+		Node best = search.getBest();
+		if (best == null) {
+			logger.error("requestAction {} {}: A problem occurred while trying to find the max score in the terminal nodes", gameId, player);
 			return null;
 		}
 
 		// Save the action plan, iterating backwards from the highest scoring node.
 		Deque<GameAction> strictPlan = new ArrayDeque<>();
 		Deque<Integer> indexPlan = new ArrayDeque<>();
-		Node node = maxScore.get();
+		Node node = best;
 		while (node != null && node.getPredecessor() != null) {
 			for (int i = node.getActions().length - 1; i >= 0; i--) {
 				strictPlan.addFirst(node.getActions()[i]);
@@ -411,7 +412,7 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 
 	/**
 	 * Expands the provided game state with the provided action, then appends a new game state with potential actions to
-	 * the {@code contextStack}. This expands the game tree by one unit of depth.
+	 * {@code children}. This expands the game tree by one unit of depth.
 	 * <p>
 	 * If rolling out the specified action leads to calls to {@link GameLogic#requestAction(Player, List)}, like a
 	 * discover or a battlecry request, this method will breadth-first-search those intermediate actions until it gets to
@@ -430,25 +431,28 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 	 * Clearly, we want the bot to perform the following sequence of actions: Play this card, then make choices #2, #2,
 	 * because that will win the game.
 	 * <p>
-	 * In order to choose that path without emitting intermediate nodes onto the {@code contextStack}, this function
+	 * In order to choose that path without emitting intermediate nodes into {@code children}, this function
 	 * queues these intermediate actions and restarts from the beginning, evaluating a particular sequence it queued.
 	 * Eventually, there is a sequence of actions queued that includes "play this card, make choice #2, then make choice
 	 * #2," and since that sequence terminates into a non-intermediate game state, that sequence and the resulting game
-	 * state are queued as a node onto the {@code contextStack}.
+	 * state are queued as a node into {@code children}.
 	 * <p>
 	 * This optimization only applies to the particular architecture of Spellsource.
 	 *
-	 * @param contextStack The stack of contexts onto which this function should append rolled-out game states.
-	 * @param playerId     The player ID of the player whose point of view we're computing this rollout.
-	 * @param node         The node (i.e., game state) from which the specified action should be rolled out.
-	 * @param action       The action to roll out.
-	 * @param depth        The current depth of this rollout. This is the count of non-intermediate actions from the game
-	 *                     state that {@link #requestAction(GameContext, Player, List)} was called with.
+	 * @param children The nodes to which this function should append rolled-out game states, in the order they were
+	 *                 produced.
+	 * @param playerId The player ID of the player whose point of view we're computing this rollout.
+	 * @param node     The node (i.e., game state) from which the specified action should be rolled out.
+	 * @param action   The action to roll out.
+	 * @param index    The index of the action among the node's actions. Every clone made by this rollout draws
+	 *                 random numbers from the stream with this ID, so the intermediate choices replay the same game.
+	 * @param depth    The current depth of this rollout. This is the count of non-intermediate actions from the game
+	 *                 state that {@link #requestAction(GameContext, Player, List)} was called with.
 	 */
 	@Suspendable
-	protected void rollout(Deque<Node> contextStack, int playerId, Node node, GameAction action, int depth) {
+	protected void rollout(Deque<Node> children, int playerId, Node node, GameAction action, int index, int depth) {
 		// Clone out the context because we're not going to mutate the node's context.
-		GameContext mutateContext = getClone(node.context);
+		GameContext mutateContext = getClone(node.context, index);
 
 		preProcess(playerId, mutateContext);
 
@@ -478,14 +482,14 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 			mutateContext.getLogic().performGameAction(playerId, action);
 		} catch (Throwable simulationError) {
 			logger.error("requestAction (unknown) {}: There was a simulation error for action {}: {}", playerId, action, simulationError);
-			// Do not queue a busted node onto the contextStack
+			// Do not queue a busted node
 			return;
 		}
 
 		// Check if there are intermediates pending
 		if (intermediateNodes.isEmpty()) {
 			// Push the new node
-			contextStack.add(new Node(mutateContext, node, depth + 1, action));
+			children.add(new Node(mutateContext, node, depth + 1, action));
 			return;
 		}
 
@@ -498,7 +502,7 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 
 			// Process each intermediate, which may queue more of them. Create a request action function that returns the
 			// specified intermediate game action and also queues more intermediates if they are made.
-			GameContext intermediateMutateContext = getClone(node.context);
+			GameContext intermediateMutateContext = getClone(node.context, index);
 			preProcess(playerId, intermediateMutateContext);
 
 			int queueSize = intermediateNodes.size();
@@ -544,7 +548,7 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 			for (int i = 0; i < choices.length; i++) {
 				actions[i + 1] = new IntermediateAction(choices[i]);
 			}
-			contextStack.add(new Node(intermediateMutateContext, node, depth + 1, actions));
+			children.add(new Node(intermediateMutateContext, node, depth + 1, actions));
 		}
 	}
 
@@ -629,11 +633,12 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 	 * the predecessor, led to this node.
 	 */
 	static class Node {
-		private final GameContext context;
+		private GameContext context;
 		private final int depth;
 		private final Node predecessor;
 		private final GameAction[] actions;
 		private final int[] actionIndices;
+		private int ordinal;
 		private double score;
 
 		Node(GameContext context, Node predecessor, int depth, GameAction... actions) {
@@ -667,5 +672,166 @@ public class GameStateValueBehaviour extends IntelligentBehaviour {
 		public int[] getActionIndices() {
 			return actionIndices;
 		}
+
+		/**
+		 * Compares the order in which two nodes are reached by a sequential depth-first search, so that ties between equal
+		 * scores are broken the same way regardless of which thread scored a node first.
+		 */
+		static int compareSearchOrder(Node a, Node b) {
+			int[] aPath = a.getPath();
+			int[] bPath = b.getPath();
+			for (int i = 0; i < Math.min(aPath.length, bPath.length); i++) {
+				if (aPath[i] != bPath[i]) {
+					return Integer.compare(aPath[i], bPath[i]);
+				}
+			}
+			return Integer.compare(aPath.length, bPath.length);
+		}
+
+		private int[] getPath() {
+			int[] path = new int[depth];
+			Node node = this;
+			for (int i = depth - 1; i >= 0 && node != null; i--) {
+				path[i] = node.ordinal;
+				node = node.predecessor;
+			}
+			return path;
+		}
+	}
+
+	/**
+	 * The state shared by the tasks of a single search: the best scoring terminal node found so far.
+	 */
+	private static class Search {
+		private final int playerId;
+		private final List<GameAction> validActions;
+		private final long start;
+		private Node best;
+		private double bestScore = Double.NEGATIVE_INFINITY;
+
+		Search(int playerId, List<GameAction> validActions, long start) {
+			this.playerId = playerId;
+			this.validActions = validActions;
+			this.start = start;
+		}
+
+		synchronized void offer(Node node, double score) {
+			int comparison = best == null ? 1 : Double.compare(score, bestScore);
+			if (comparison > 0 || (comparison == 0 && Node.compareSearchOrder(node, best) < 0)) {
+				best = node;
+				bestScore = score;
+			}
+		}
+
+		synchronized Node getBest() {
+			return best;
+		}
+
+		synchronized double getBestScore() {
+			return best == null ? Double.NEGATIVE_INFINITY : bestScore;
+		}
+	}
+
+	/**
+	 * Expands a node: rolls out each of its actions in parallel, then searches the resulting nodes in parallel, or scores
+	 * the node if it is terminal.
+	 */
+	private class Expansion extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Search search;
+		private final Node node;
+
+		Expansion(Search search, Node node) {
+			this.search = search;
+			this.node = node;
+		}
+
+		@Override
+		protected void compute() {
+			GameContext context = node.context;
+			int playerId = search.playerId;
+			// Is this node terminal?
+			if (node.predecessor != null && (
+					node.depth >= maxDepth
+							|| context.updateAndGetGameOver()
+							|| (System.currentTimeMillis() - search.start > timeout)
+							// Technically allows the bot to play through its extra turns
+							|| context.getActivePlayerId() != playerId
+							|| context.isDisposed())) {
+				postProcess(playerId, context);
+				node.context = null;
+				search.offer(node, heuristic.getScore(context, playerId));
+				return;
+			}
+
+			if (node.predecessor != null && getUpperBound(context, playerId) < search.getBestScore()) {
+				node.context = null;
+				return;
+			}
+
+			List<GameAction> edges;
+			if (node.predecessor == null) {
+				// Initial node
+				edges = search.validActions;
+			} else {
+				edges = context.getValidActions();
+			}
+
+			if (edges == null || edges.isEmpty()) {
+				logger.error("requestAction {} {}: Unexpectedly, an expansion of a game state produced no actions.", context.getGameId(), playerId);
+				node.context = null;
+				return;
+			}
+
+			// Parallelize the rollouts of the edges
+			List<Deque<Node>> rollouts = new ArrayList<>(edges.size());
+			List<ForkJoinTask<?>> rolloutTasks = new ArrayList<>(edges.size());
+			for (int i = 0; i < edges.size(); i++) {
+				GameAction edge = edges.get(i);
+				int index = i;
+				Deque<Node> children = new ArrayDeque<>();
+				rollouts.add(children);
+				rolloutTasks.add(ForkJoinTask.adapt(() -> rollout(children, playerId, node, edge, index, node.depth)));
+			}
+			invokeAll(rolloutTasks);
+			// Only the actions are needed to rebuild a plan from here on
+			node.context = null;
+
+			List<Node> children = new ArrayList<>();
+			for (int i = 0; i < rollouts.size(); i++) {
+				int j = 0;
+				for (Node child : rollouts.get(i)) {
+					child.ordinal = (i << 16) | j++;
+					children.add(child);
+				}
+			}
+
+			if (beamWidth > 0 && children.size() > beamWidth) {
+				for (Node child : children) {
+					// Scored like a terminal node, but on a copy, since the child is still expanded
+					GameContext scored = child.context.clone();
+					postProcess(playerId, scored);
+					child.score = heuristic.getScore(scored, playerId);
+				}
+				// Stable, so equally promising children stay in search order
+				children.sort(Comparator.comparingDouble(Node::getScore).reversed());
+				children = children.subList(0, beamWidth);
+			}
+
+			List<Expansion> expansions = new ArrayList<>(children.size());
+			for (Node child : children) {
+				expansions.add(new Expansion(search, child));
+			}
+			invokeAll(expansions);
+		}
+	}
+
+	private static class SearchPool {
+		private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("GameStateValueBehaviour-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
 	}
 }
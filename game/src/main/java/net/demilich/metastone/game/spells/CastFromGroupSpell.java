@@ -171,7 +171,7 @@ public class CastFromGroupSpell extends Spell {
 			// there is at least one target and RANDOM_TARGET flag is not set,
 			// cast in on all targets
 			for (Entity target : validTargets) {
-				context.getSpellTargetStack().push(target.getReference());
+				context.getSpellTargetStack().push(target);
 				onCast(context, player, chosen, source, target);
 				context.getSpellTargetStack().pop();
 			}
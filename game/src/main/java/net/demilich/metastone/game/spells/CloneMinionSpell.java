@@ -28,7 +28,7 @@ public class CloneMinionSpell extends Spell {
 	protected void onCast(GameContext context, Player player, SpellDesc desc, Entity source, Entity target) {
 		// Special case Lord Jaraxxus / Mirror Image interaction
 		if (target instanceof Hero) {
-			target = context.resolveSingleTarget(context.getSummonReferenceStack().peek());
+			target = context.resolveSingleTarget(context.getSummonReferenceStack().peekReference());
 		}
 		Minion template = (Minion) target;
 		Minion clone = template.getCopy();
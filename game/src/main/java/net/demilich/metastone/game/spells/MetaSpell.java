@@ -28,11 +28,11 @@ public class MetaSpell extends Spell {
 	@Override
 	@Suspendable
 	protected void onCast(GameContext context, Player player, SpellDesc desc, Entity source, Entity target) {
-		context.getSpellValueStack().addLast(desc.getValue(SpellArg.VALUE, context, player, target, source, 0));
+		context.getSpellValueStack().push(desc.getValue(SpellArg.VALUE, context, player, target, source, 0));
 		for (SpellDesc spell : (SpellDesc[]) desc.get(SpellArg.SPELLS)) {
 			SpellUtils.castChildSpell(context, player, spell, source, target);
 		}
-		context.getSpellValueStack().pollLast();
+		context.getSpellValueStack().pop();
 	}
 
 }
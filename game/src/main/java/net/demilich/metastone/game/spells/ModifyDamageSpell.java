@@ -24,24 +24,24 @@ public class ModifyDamageSpell extends Spell {
 		int minDamage = 0;
 		switch(operation) {
 		case ADD:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				value *= 2;
 			}
 			damage += value;
 			break;
 		case SUBTRACT:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				value *= 2;
 			}
 			damage -= value;
 			damage = Math.max(minDamage, damage);
 			break;
 		case MODULO:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				damage /= 2;
 			}
 			damage %= value;
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				damage *= 2;
 			}
 			break;
@@ -56,13 +56,13 @@ public class ModifyDamageSpell extends Spell {
 			damage = -damage;
 			break;
 		case SET:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				value *= 2;
 			}
 			damage = value;
 			break;
 		case MINIMUM:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				value *= 2;
 			}
 			if (damage < value) {
@@ -70,7 +70,7 @@ public class ModifyDamageSpell extends Spell {
 			}
 			break;
 		case MAXIMUM:
-			if ((context.resolveSingleTarget(context.getEventTargetStack().peek())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
+			if ((context.resolveSingleTarget(context.getEventTargetStack().peekReference())).hasAttribute(Attribute.TAKE_DOUBLE_DAMAGE)) {
 				value *= 2;
 			}
 			if (damage > value) {
@@ -20,7 +20,7 @@ public class RandomAttackTargetSpell extends Spell {
 	@Override
 	@Suspendable
 	protected void onCast(GameContext context, Player player, SpellDesc desc, Entity source, Entity target) {
-		Actor attacker = (Actor) context.resolveSingleTarget(context.getAttackerReferenceStack().peek());
+		Actor attacker = (Actor) context.resolveSingleTarget(context.getAttackerReferenceStack().peekReference());
 		if (attacker == null) {
 			logger.error("onCast {} {}: No attacker was found", context.getGameId(), source);
 			return;
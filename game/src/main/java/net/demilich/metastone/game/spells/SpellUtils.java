@@ -293,7 +293,7 @@ public class SpellUtils {
 		}
 		Card card;
 		if (cardId.toUpperCase().equals("EVENT_SOURCE")) {
-			card = (Card)context.resolveSingleTarget(context.getEventSourceStack().peek());
+			card = (Card)context.resolveSingleTarget(context.getEventSourceStack().peekReference());
 		} else if (cardId.toUpperCase().equals("OUTPUT")) {
 			card = context.getOutputCard();
 		} else {
@@ -581,7 +581,7 @@ public class SpellUtils {
 			return;
 		}
 
-		context.getOutputStack().push(output.getReference());
+		context.getOutputStack().push(output);
 		castChildSpell(context, player, spell, source, target);
 		context.getOutputStack().pop();
 	}
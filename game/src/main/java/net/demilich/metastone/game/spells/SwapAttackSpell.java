@@ -25,7 +25,7 @@ public class SwapAttackSpell extends Spell {
 		if (context.getSummonReferenceStack().isEmpty()) {
 			return;
 		}
-		Minion sourceMinion = (Minion) context.resolveSingleTarget(context.getSummonReferenceStack().peek());
+		Minion sourceMinion = (Minion) context.resolveSingleTarget(context.getSummonReferenceStack().peekReference());
 		Actor targetActor = (Actor) target;
 		int sourceAttack = sourceMinion.getAttack();
 		int targetAttack = targetActor.getAttack();
@@ -25,7 +25,7 @@ public class SwapHpSpell extends Spell {
 		if (context.getSummonReferenceStack().isEmpty()) {
 			return;
 		}
-		Minion sourceMinion = (Minion) context.resolveSingleTarget(context.getSummonReferenceStack().peek());
+		Minion sourceMinion = (Minion) context.resolveSingleTarget(context.getSummonReferenceStack().peekReference());
 		Actor targetActor = (Actor) target;
 		int sourceHp = sourceMinion.getHp();
 		int targetHp = targetActor.getHp();
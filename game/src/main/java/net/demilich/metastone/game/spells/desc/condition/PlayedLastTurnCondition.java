@@ -1,11 +1,11 @@
 package net.demilich.metastone.game.spells.desc.condition;
 
-import java.util.Map;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilter;
+import net.demilich.metastone.game.statistics.GameStatistics;
 
 public class PlayedLastTurnCondition extends Condition {
 
@@ -15,7 +15,7 @@ public class PlayedLastTurnCondition extends Condition {
 
 	@Override
 	protected boolean isFulfilled(GameContext context, Player player, ConditionDesc desc, Entity source, Entity target) {
-		Map<String, Map<Integer, Integer>> cardIds = player.getStatistics().getCardsPlayed();
+		GameStatistics statistics = player.getStatistics();
 		int count = 0;
 		int turn = context.getTurn();
 		if (player.getId() == context.getActivePlayerId()) {
@@ -24,12 +24,14 @@ public class PlayedLastTurnCondition extends Condition {
 			turn -= 1;
 		}
 		EntityFilter filter = (EntityFilter) desc.get(ConditionArg.FILTER);
-		for (String cardId : cardIds.keySet()) {
-			Entity entity = context.getCardById(cardId);
+		for (int i = 0; i < statistics.getCardsPlayedSize(); i++) {
+			int played = statistics.getCardPlayedCount(i, turn);
+			if (played == 0) {
+				continue;
+			}
+			Entity entity = context.getCardById(statistics.getCardPlayedId(i));
 			if (filter == null || filter.matches(context, player, entity, source)) {
-				if (cardIds.get(cardId).containsKey(turn)) {
-					count += cardIds.get(cardId).get(turn);
-				}
+				count += played;
 			}
 		}
 		return count >= 1;
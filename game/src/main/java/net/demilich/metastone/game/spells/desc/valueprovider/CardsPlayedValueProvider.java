@@ -1,11 +1,11 @@
 package net.demilich.metastone.game.spells.desc.valueprovider;
 
-import java.util.Map;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilter;
+import net.demilich.metastone.game.statistics.GameStatistics;
 
 public class CardsPlayedValueProvider extends ValueProvider {
 
@@ -15,15 +15,13 @@ public class CardsPlayedValueProvider extends ValueProvider {
 
 	@Override
 	protected int provideValue(GameContext context, Player player, Entity target, Entity host) {
-		Map<String, Map<Integer, Integer>> cardIds = player.getStatistics().getCardsPlayed();
+		GameStatistics statistics = player.getStatistics();
 		int count = 0;
 		EntityFilter filter = (EntityFilter) getDesc().get(ValueProviderArg.FILTER);
-		for (String cardId : cardIds.keySet()) {
-			Entity entity = context.getCardById(cardId);
+		for (int i = 0; i < statistics.getCardsPlayedSize(); i++) {
+			Entity entity = context.getCardById(statistics.getCardPlayedId(i));
 			if (filter == null || filter.matches(context, player, entity, host)) {
-				for (Integer turn : cardIds.get(cardId).keySet()) {
-					count += cardIds.get(cardId).get(turn);
-				}
+				count += statistics.getCardPlayedCount(i);
 			}
 		}
 		return count;
@@ -47,7 +47,7 @@ public class GameValueProvider extends ValueProvider {
 				return (int) context.getEnvironment().get(Environment.LAST_MANA_COST);
 			case SPELL_VALUE:
 				// Query the top of the stack since that's almost always what's intended.
-				return context.getSpellValueStack().peekFirst();
+				return context.getSpellValueStack().peekBottom();
 			default:
 				break;
 		}
@@ -1,11 +1,11 @@
 package net.demilich.metastone.game.spells.desc.valueprovider;
 
-import java.util.Map;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilter;
+import net.demilich.metastone.game.statistics.GameStatistics;
 
 public class MinionSummonValueProvider extends ValueProvider {
 
@@ -15,13 +15,13 @@ public class MinionSummonValueProvider extends ValueProvider {
 
 	@Override
 	protected int provideValue(GameContext context, Player player, Entity target, Entity host) {
-		Map<String, Integer> minionIds = player.getStatistics().getMinionsSummoned();
+		GameStatistics statistics = player.getStatistics();
 		int count = 0;
 		EntityFilter filter = (EntityFilter) getDesc().get(ValueProviderArg.FILTER);
-		for (String minionId : minionIds.keySet()) {
-			Entity entity = context.getCardById(minionId);
+		for (int i = 0; i < statistics.getMinionsSummonedSize(); i++) {
+			Entity entity = context.getCardById(statistics.getMinionSummonedId(i));
 			if (filter == null || filter.matches(context, player, entity, host)) {
-				count += minionIds.get(minionId);
+				count += statistics.getMinionSummonedCount(i);
 			}
 		}
 		return count;
@@ -1,11 +1,11 @@
 package net.demilich.metastone.game.spells.desc.valueprovider;
 
-import java.util.Map;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
 import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilter;
+import net.demilich.metastone.game.statistics.GameStatistics;
 
 public class PlayedLastTurnValueProvider extends ValueProvider {
 
@@ -15,7 +15,7 @@ public class PlayedLastTurnValueProvider extends ValueProvider {
 
 	@Override
 	protected int provideValue(GameContext context, Player player, Entity target, Entity host) {
-		Map<String, Map<Integer, Integer>> cardIds = player.getStatistics().getCardsPlayed();
+		GameStatistics statistics = player.getStatistics();
 		int count = 0;
 		int turn = context.getTurn();
 		if (player.getId() == context.getActivePlayerId()) {
@@ -24,12 +24,14 @@ public class PlayedLastTurnValueProvider extends ValueProvider {
 			turn -= 1;
 		}
 		EntityFilter filter = (EntityFilter) getDesc().get(ValueProviderArg.FILTER);
-		for (String cardId : cardIds.keySet()) {
-			Entity entity = context.getCardById(cardId);
+		for (int i = 0; i < statistics.getCardsPlayedSize(); i++) {
+			int played = statistics.getCardPlayedCount(i, turn);
+			if (played == 0) {
+				continue;
+			}
+			Entity entity = context.getCardById(statistics.getCardPlayedId(i));
 			if (filter == null || filter.matches(context, player, entity, host)) {
-				if (cardIds.get(cardId).containsKey(turn)) {
-					count += cardIds.get(cardId).get(turn);
-				}
+				count += played;
 			}
 		}
 		return count;
@@ -9,6 +9,7 @@ import net.demilich.metastone.game.entities.Entity;
 import net.demilich.metastone.game.events.GameEvent;
 import net.demilich.metastone.game.spells.TargetPlayer;
 import net.demilich.metastone.game.spells.desc.filter.EntityFilterArg;
+import net.demilich.metastone.game.statistics.Profiler;
 
 import java.io.Serializable;
 
@@ -53,6 +54,20 @@ public abstract class ValueProvider implements Serializable, HasDesc<ValueProvid
 
 	@Suspendable
 	public int getValue(GameContext context, Player player, Entity target, Entity host) {
+		Profiler profiler = context.getProfiler();
+		if (profiler == null) {
+			return getValueForTargetPlayer(context, player, target, host);
+		}
+
+		long startNanos = profiler.nanoTime();
+		long startBytes = profiler.allocatedBytes();
+		int value = getValueForTargetPlayer(context, player, target, host);
+		profiler.record(Profiler.Category.VALUE_PROVIDER, getClass(), startNanos, startBytes);
+		return value;
+	}
+
+	@Suspendable
+	private int getValueForTargetPlayer(GameContext context, Player player, Entity target, Entity host) {
 		TargetPlayer targetPlayer = (TargetPlayer) getDesc().get(ValueProviderArg.TARGET_PLAYER);
 		if (targetPlayer == null) {
 			targetPlayer = TargetPlayer.SELF;
@@ -208,8 +208,9 @@ public class Enchantment extends Entity implements Trigger {
 		}
 
 		// Notify the game context that a spell trigger was successfully fired, as long as it wasn't due to a
-		// board changed event.
-		if (event.getEventType() != GameEventType.BOARD_CHANGED
+		// board changed event. Headless games have no one to notify.
+		if (!event.getGameContext().isHeadless()
+				&& event.getEventType() != GameEventType.BOARD_CHANGED
 				&& event.getEventType() != GameEventType.WILL_END_SEQUENCE
 				&& triggers.stream().noneMatch(trigger -> trigger.interestedIn() == GameEventType.ALL)
 				&& hostReference != null
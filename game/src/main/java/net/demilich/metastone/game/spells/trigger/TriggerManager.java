@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import net.demilich.metastone.game.events.GameEvent;
 import net.demilich.metastone.game.events.GameEventType;
 import net.demilich.metastone.game.spells.aura.Aura;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.targeting.EntityReference;
 
 public class TriggerManager implements Cloneable, Serializable {
@@ -47,6 +48,14 @@ public class TriggerManager implements Cloneable, Serializable {
 
 	@Suspendable
 	public void fireGameEvent(GameEvent event, List<Trigger> gameTriggers) {
+		Profiler profiler = event.getGameContext().getProfiler();
+		long eventStartNanos = 0L;
+		long eventStartBytes = 0L;
+		if (profiler != null) {
+			eventStartNanos = profiler.nanoTime();
+			eventStartBytes = profiler.allocatedBytes();
+		}
+
 		if (event instanceof HasValue) {
 			event.getGameContext().getEventValueStack().push(((HasValue) event).getValue());
 		} else {
@@ -54,13 +63,13 @@ public class TriggerManager implements Cloneable, Serializable {
 		}
 
 		if (event.getEventTarget() != null) {
-			event.getGameContext().getEventTargetStack().push(event.getEventTarget().getReference());
+			event.getGameContext().getEventTargetStack().push(event.getEventTarget());
 		} else {
 			event.getGameContext().getEventTargetStack().push(EntityReference.NONE);
 		}
 
 		if (event.getEventSource() != null) {
-			event.getGameContext().getEventSourceStack().push(event.getEventSource().getReference());
+			event.getGameContext().getEventSourceStack().push(event.getEventSource());
 		} else {
 			event.getGameContext().getEventSourceStack().push(EntityReference.NONE);
 		}
@@ -109,7 +118,11 @@ public class TriggerManager implements Cloneable, Serializable {
 			event.getGameContext().getTriggerHostStack().push(hostReference);
 
 			if (trigger.canFireCondition(event) && triggers.contains(trigger)) {
-				trigger.onGameEvent(event);
+				if (profiler == null) {
+					trigger.onGameEvent(event);
+				} else {
+					onGameEventProfiled(profiler, trigger, event);
+				}
 			}
 
 			// we need to double check here if the trigger still exists;
@@ -137,6 +150,21 @@ public class TriggerManager implements Cloneable, Serializable {
 		} catch (IndexOutOfBoundsException | NoSuchElementException ex) {
 			logger.error("fireGameEvent", ex);
 		}
+
+		if (profiler != null) {
+			profiler.record(Profiler.Category.EVENT, event.getEventType(), eventStartNanos, eventStartBytes);
+		}
+	}
+
+	@Suspendable
+	private static void onGameEventProfiled(Profiler profiler, Trigger trigger, GameEvent event) {
+		long startNanos = profiler.nanoTime();
+		long startBytes = profiler.allocatedBytes();
+		trigger.onGameEvent(event);
+		profiler.record(Profiler.Category.TRIGGER, trigger.getClass(), startNanos, startBytes);
+		if (trigger instanceof Enchantment && ((Enchantment) trigger).getSourceCard() != null) {
+			profiler.record(Profiler.Category.CARD, ((Enchantment) trigger).getSourceCard().getCardId(), startNanos, startBytes);
+		}
 	}
 
 	private List<Trigger> getListSnapshot(List<Trigger> triggerList) {
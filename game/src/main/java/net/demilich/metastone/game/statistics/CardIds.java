@@ -0,0 +1,60 @@
+package net.demilich.metastone.game.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns card IDs into small, dense integers so that per-card statistics can be stored in primitive arrays.
+ * <p>
+ * Interned indices are only meaningful inside this JVM. Anything that leaves the process, like a serialized {@link
+ * GameStatistics}, must write the card ID strings instead.
+ */
+final class CardIds {
+	private static final ConcurrentMap<String, Integer> indices = new ConcurrentHashMap<>();
+	private static volatile String[] cardIds = new String[256];
+	private static int size;
+
+	private CardIds() {
+	}
+
+	/**
+	 * Gets the interned index of the specified card ID, assigning one if it has not been seen before.
+	 *
+	 * @param cardId The card ID.
+	 * @return The index.
+	 */
+	static int intern(String cardId) {
+		Integer index = indices.get(cardId);
+		if (index != null) {
+			return index;
+		}
+		return internSlow(cardId);
+	}
+
+	private static synchronized int internSlow(String cardId) {
+		Integer index = indices.get(cardId);
+		if (index != null) {
+			return index;
+		}
+		String[] current = cardIds;
+		if (size == current.length) {
+			current = Arrays.copyOf(current, size * 2);
+		}
+		current[size] = cardId;
+		// Publish the array before the index so that readers of the index always see the ID
+		cardIds = current;
+		indices.put(cardId, size);
+		return size++;
+	}
+
+	/**
+	 * Gets the card ID for the specified interned index.
+	 *
+	 * @param index An index returned by {@link #intern(String)}.
+	 * @return The card ID.
+	 */
+	static String cardId(int index) {
+		return cardIds[index];
+	}
+}
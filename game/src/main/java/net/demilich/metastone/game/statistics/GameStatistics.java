@@ -1,6 +1,10 @@
 package net.demilich.metastone.game.statistics;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -11,17 +15,32 @@ import net.demilich.metastone.game.cards.CardType;
 import net.demilich.metastone.game.entities.minions.Minion;
 import net.demilich.metastone.game.entities.weapons.Weapon;
 
+/**
+ * Counts what a player did during a game.
+ * <p>
+ * Counters are stored as primitive {@code long}s indexed by {@link Statistic#ordinal()}. Per-card counts are stored in
+ * arrays indexed by interned card IDs, so that merging and cloning statistics (which happens on every {@link
+ * net.demilich.metastone.game.Player} clone and every reduce step of a simulation) never boxes.
+ */
 public class GameStatistics implements Cloneable, Serializable {
-	private final Map<Statistic, Object> stats = new EnumMap<Statistic, Object>(Statistic.class);
-	private final Map<String, Map<Integer, Integer>> cardsPlayed = new HashMap<>();
-	private final Map<String, Integer> minionsSummoned = new HashMap<String, Integer>();
+	private static final Statistic[] STATISTICS = Statistic.values();
+	private static final int[] EMPTY = new int[0];
+
+	private transient long[] counters = new long[STATISTICS.length];
+	private transient long present;
+	private transient double winRate;
+
+	private transient int cardsPlayedSize;
+	private transient int[] cardsPlayedIds = EMPTY;
+	private transient int[][] cardsPlayedByTurn = new int[0][];
+
+	private transient int minionsSummonedSize;
+	private transient int[] minionsSummonedIds = EMPTY;
+	private transient int[] minionsSummonedCounts = EMPTY;
 
 	private void add(Statistic key, long value) {
-		if (!stats.containsKey(key)) {
-			stats.put(key, 0L);
-		}
-		long newValue = getLong(key) + value;
-		stats.put(key, newValue);
+		counters[key.ordinal()] += value;
+		present |= 1L << key.ordinal();
 	}
 
 	public void armorGained(int armor) {
@@ -62,14 +81,23 @@ public class GameStatistics implements Cloneable, Serializable {
 
 	public GameStatistics clone() {
 		GameStatistics clone = new GameStatistics();
-		clone.stats.putAll(stats);
-		clone.getCardsPlayed().putAll(getCardsPlayed());
-		clone.getMinionsSummoned().putAll(getMinionsSummoned());
+		System.arraycopy(counters, 0, clone.counters, 0, counters.length);
+		clone.present = present;
+		clone.winRate = winRate;
+		clone.cardsPlayedSize = cardsPlayedSize;
+		clone.cardsPlayedIds = Arrays.copyOf(cardsPlayedIds, cardsPlayedSize);
+		clone.cardsPlayedByTurn = new int[cardsPlayedSize][];
+		for (int i = 0; i < cardsPlayedSize; i++) {
+			clone.cardsPlayedByTurn[i] = cardsPlayedByTurn[i].clone();
+		}
+		clone.minionsSummonedSize = minionsSummonedSize;
+		clone.minionsSummonedIds = Arrays.copyOf(minionsSummonedIds, minionsSummonedSize);
+		clone.minionsSummonedCounts = Arrays.copyOf(minionsSummonedCounts, minionsSummonedSize);
 		return clone;
 	}
 
 	public boolean contains(Statistic key) {
-		return stats.containsKey(key);
+		return (present & (1L << key.ordinal())) != 0;
 	}
 
 	public void damageDealt(int damage) {
@@ -94,24 +122,148 @@ public class GameStatistics implements Cloneable, Serializable {
 		updateWinRate();
 	}
 
+	/**
+	 * Gets the value of a statistic.
+	 *
+	 * @param key The statistic.
+	 * @return A {@link Double} for {@link Statistic#WIN_RATE}, a {@link Long} for every other statistic, or {@code null}
+	 * if the statistic was never recorded.
+	 */
 	public Object get(Statistic key) {
-		return stats.get(key);
+		if (!contains(key)) {
+			return null;
+		}
+		if (key == Statistic.WIN_RATE) {
+			return winRate;
+		}
+		return counters[key.ordinal()];
 	}
 
+	/**
+	 * Gets a copy of the per-turn counts of cards played, keyed by card ID and then by turn.
+	 * <p>
+	 * This allocates. Prefer {@link #getCardsPlayedSize()}, {@link #getCardPlayedId(int)} and {@link
+	 * #getCardPlayedCount(int, int)} in game logic.
+	 *
+	 * @return A new map.
+	 */
 	public Map<String, Map<Integer, Integer>> getCardsPlayed() {
+		Map<String, Map<Integer, Integer>> cardsPlayed = new HashMap<>();
+		for (int i = 0; i < cardsPlayedSize; i++) {
+			Map<Integer, Integer> turns = new HashMap<>();
+			int[] counts = cardsPlayedByTurn[i];
+			for (int turn = 0; turn < counts.length; turn++) {
+				if (counts[turn] != 0) {
+					turns.put(turn, counts[turn]);
+				}
+			}
+			cardsPlayed.put(getCardPlayedId(i), turns);
+		}
 		return cardsPlayed;
 	}
 
+	/**
+	 * Gets a copy of the number of times each minion was summoned, keyed by card ID.
+	 * <p>
+	 * This allocates. Prefer {@link #getMinionsSummonedSize()}, {@link #getMinionSummonedId(int)} and {@link
+	 * #getMinionSummonedCount(int)} in game logic.
+	 *
+	 * @return A new map.
+	 */
 	public Map<String, Integer> getMinionsSummoned() {
+		Map<String, Integer> minionsSummoned = new HashMap<>();
+		for (int i = 0; i < minionsSummonedSize; i++) {
+			minionsSummoned.put(getMinionSummonedId(i), minionsSummonedCounts[i]);
+		}
 		return minionsSummoned;
 	}
 
+	/**
+	 * The number of distinct cards played.
+	 *
+	 * @return The number of distinct card IDs in the played cards statistics.
+	 */
+	public int getCardsPlayedSize() {
+		return cardsPlayedSize;
+	}
+
+	/**
+	 * The card ID of the {@code i}th distinct card played.
+	 *
+	 * @param i An index less than {@link #getCardsPlayedSize()}.
+	 * @return The card ID.
+	 */
+	public String getCardPlayedId(int i) {
+		return CardIds.cardId(cardsPlayedIds[i]);
+	}
+
+	/**
+	 * The number of times the {@code i}th distinct card was played on the given turn.
+	 *
+	 * @param i    An index less than {@link #getCardsPlayedSize()}.
+	 * @param turn The turn.
+	 * @return The count.
+	 */
+	public int getCardPlayedCount(int i, int turn) {
+		int[] counts = cardsPlayedByTurn[i];
+		return turn >= 0 && turn < counts.length ? counts[turn] : 0;
+	}
+
+	/**
+	 * The number of times the {@code i}th distinct card was played on any turn.
+	 *
+	 * @param i An index less than {@link #getCardsPlayedSize()}.
+	 * @return The count.
+	 */
+	public int getCardPlayedCount(int i) {
+		int count = 0;
+		for (int turnCount : cardsPlayedByTurn[i]) {
+			count += turnCount;
+		}
+		return count;
+	}
+
+	/**
+	 * The number of distinct minions summoned.
+	 *
+	 * @return The number of distinct card IDs in the minions summoned statistics.
+	 */
+	public int getMinionsSummonedSize() {
+		return minionsSummonedSize;
+	}
+
+	/**
+	 * The card ID of the {@code i}th distinct minion summoned.
+	 *
+	 * @param i An index less than {@link #getMinionsSummonedSize()}.
+	 * @return The card ID.
+	 */
+	public String getMinionSummonedId(int i) {
+		return CardIds.cardId(minionsSummonedIds[i]);
+	}
+
+	/**
+	 * The number of times the {@code i}th distinct minion was summoned.
+	 *
+	 * @param i An index less than {@link #getMinionsSummonedSize()}.
+	 * @return The count.
+	 */
+	public int getMinionSummonedCount(int i) {
+		return minionsSummonedCounts[i];
+	}
+
 	public double getDouble(Statistic key) {
-		return stats.containsKey(key) ? (double) stats.get(key) : 0.0;
+		if (!contains(key)) {
+			return 0.0;
+		}
+		return key == Statistic.WIN_RATE ? winRate : counters[key.ordinal()];
 	}
 
 	public long getLong(Statistic key) {
-		return stats.containsKey(key) ? (long) stats.get(key) : 0L;
+		if (!contains(key)) {
+			return 0L;
+		}
+		return key == Statistic.WIN_RATE ? (long) winRate : counters[key.ordinal()];
 	}
 
 	public void heal(int healing) {
@@ -122,54 +274,96 @@ public class GameStatistics implements Cloneable, Serializable {
 		if (card.getCardType().isCardType(CardType.HERO_POWER)) {
 			return;
 		}
-		String cardId = card.getCardId();
-		if (!getCardsPlayed().containsKey(cardId)) {
-			getCardsPlayed().put(cardId, new HashMap<Integer, Integer>());
+		addCardPlayed(CardIds.intern(card.getCardId()), turn, 1);
+	}
+
+	private void addCardPlayed(int cardIndex, int turn, int count) {
+		int i = indexOf(cardsPlayedIds, cardsPlayedSize, cardIndex);
+		if (i == -1) {
+			if (cardsPlayedSize == cardsPlayedIds.length) {
+				int capacity = Math.max(8, cardsPlayedSize * 2);
+				cardsPlayedIds = Arrays.copyOf(cardsPlayedIds, capacity);
+				cardsPlayedByTurn = Arrays.copyOf(cardsPlayedByTurn, capacity);
+			}
+			i = cardsPlayedSize++;
+			cardsPlayedIds[i] = cardIndex;
+			cardsPlayedByTurn[i] = EMPTY;
 		}
-		if (!getCardsPlayed().get(cardId).containsKey(turn)) {
-			getCardsPlayed().get(cardId).put(turn, 0);
+		int[] counts = cardsPlayedByTurn[i];
+		if (turn >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(turn + 1, counts.length * 2));
+			cardsPlayedByTurn[i] = counts;
 		}
-		getCardsPlayed().get(cardId).put(turn, getCardsPlayed().get(cardId).get(turn) + 1);
+		counts[turn] += count;
 	}
-	
+
 	private void increaseMinionCount(Minion minion) {
-		String cardId = minion.getSourceCard().getCardId();
-		if (!getMinionsSummoned().containsKey(cardId)) {
-			getMinionsSummoned().put(cardId, 0);
+		addMinionSummoned(CardIds.intern(minion.getSourceCard().getCardId()), 1);
+	}
+
+	private void addMinionSummoned(int cardIndex, int count) {
+		int i = indexOf(minionsSummonedIds, minionsSummonedSize, cardIndex);
+		if (i == -1) {
+			if (minionsSummonedSize == minionsSummonedIds.length) {
+				int capacity = Math.max(8, minionsSummonedSize * 2);
+				minionsSummonedIds = Arrays.copyOf(minionsSummonedIds, capacity);
+				minionsSummonedCounts = Arrays.copyOf(minionsSummonedCounts, capacity);
+			}
+			i = minionsSummonedSize++;
+			minionsSummonedIds[i] = cardIndex;
+		}
+		minionsSummonedCounts[i] += count;
+	}
+
+	private static int indexOf(int[] ids, int size, int id) {
+		for (int i = 0; i < size; i++) {
+			if (ids[i] == id) {
+				return i;
+			}
 		}
-		getMinionsSummoned().put(cardId, getMinionsSummoned().get(cardId) + 1);
+		return -1;
 	}
 
 	public void manaSpent(int mana) {
 		add(Statistic.MANA_SPENT, mana);
 	}
 
+	/**
+	 * Adds the other statistics into these statistics.
+	 *
+	 * @param otherStatistics The statistics to add.
+	 * @return This instance.
+	 */
 	public GameStatistics merge(GameStatistics otherStatistics) {
-		for (Statistic stat : otherStatistics.stats.keySet()) {
-			Object value = get(stat);
-			if (value != null) {
-				if (value instanceof Long) {
-					add(stat, otherStatistics.getLong(stat));
-				}
-			} else {
-				stats.put(stat, otherStatistics.get(stat));
-			}
+		return otherStatistics.mergeInto(this);
+	}
+
+	/**
+	 * Adds these statistics into an accumulator, modifying the accumulator in place.
+	 *
+	 * @param accumulator The statistics to add to.
+	 * @return The accumulator.
+	 */
+	public GameStatistics mergeInto(GameStatistics accumulator) {
+		for (int i = 0; i < counters.length; i++) {
+			accumulator.counters[i] += counters[i];
 		}
-		for (String cardId : otherStatistics.getCardsPlayed().keySet()) {
-			if (!getCardsPlayed().containsKey(cardId)) {
-				getCardsPlayed().put(cardId, new HashMap<Integer, Integer>());
-			}
-			for (int turn : otherStatistics.getCardsPlayed().get(cardId).keySet()) {
-				if (!getCardsPlayed().get(cardId).containsKey(turn)) {
-					getCardsPlayed().get(cardId).put(turn, 0);
+		accumulator.present |= present;
+		for (int i = 0; i < cardsPlayedSize; i++) {
+			int[] counts = cardsPlayedByTurn[i];
+			for (int turn = 0; turn < counts.length; turn++) {
+				if (counts[turn] != 0) {
+					accumulator.addCardPlayed(cardsPlayedIds[i], turn, counts[turn]);
 				}
-				getCardsPlayed().get(cardId).put(turn, getCardsPlayed().get(cardId).get(turn) + otherStatistics.getCardsPlayed().get(cardId).get(turn));
 			}
 		}
-		updateWinRate();
-		return this;
+		for (int i = 0; i < minionsSummonedSize; i++) {
+			accumulator.addMinionSummoned(minionsSummonedIds[i], minionsSummonedCounts[i]);
+		}
+		accumulator.updateWinRate();
+		return accumulator;
 	}
-	
+
 	public void minionSummoned(Minion minion) {
 		add(Statistic.MINIONS_PLAYED, 1);
 
@@ -177,7 +371,16 @@ public class GameStatistics implements Cloneable, Serializable {
 	}
 
 	public void set(Statistic key, Object value) {
-		stats.put(key, value);
+		if (value == null) {
+			present &= ~(1L << key.ordinal());
+			return;
+		}
+		present |= 1L << key.ordinal();
+		if (key == Statistic.WIN_RATE) {
+			winRate = ((Number) value).doubleValue();
+		} else {
+			counters[key.ordinal()] = ((Number) value).longValue();
+		}
 	}
 
 	public void startTurn() {
@@ -187,21 +390,94 @@ public class GameStatistics implements Cloneable, Serializable {
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder("[GameStatistics]\n");
-		for (Statistic stat : stats.keySet()) {
+		for (Statistic stat : STATISTICS) {
+			if (!contains(stat)) {
+				continue;
+			}
 			builder.append(stat);
 			builder.append(": ");
-			builder.append(stats.get(stat));
+			builder.append(get(stat));
 			builder.append("\n");
 		}
 		return builder.toString();
 	}
 
 	private void updateWinRate() {
-		double winRate = getLong(Statistic.GAMES_WON) / (double) (getLong(Statistic.GAMES_WON) + getLong(Statistic.GAMES_LOST));
-		set(Statistic.WIN_RATE, winRate);
+		winRate = getLong(Statistic.GAMES_WON) / (double) (getLong(Statistic.GAMES_WON) + getLong(Statistic.GAMES_LOST));
+		present |= 1L << Statistic.WIN_RATE.ordinal();
 	}
 
+	/**
+	 * Gets the recorded statistics as a map. {@link Statistic#WIN_RATE} is a {@link Double}, every other value is a
+	 * {@link Long}. Statistics that were never recorded are absent.
+	 *
+	 * @return A new, unmodifiable map.
+	 */
 	public Map<Statistic, Object> getStats() {
+		Map<Statistic, Object> stats = new EnumMap<>(Statistic.class);
+		for (Statistic stat : STATISTICS) {
+			if (contains(stat)) {
+				stats.put(stat, get(stat));
+			}
+		}
 		return Collections.unmodifiableMap(stats);
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeLong(present);
+		out.writeDouble(winRate);
+		out.writeInt(counters.length);
+		for (long counter : counters) {
+			out.writeLong(counter);
+		}
+		// Interned indices are local to this JVM, so write card IDs instead
+		out.writeInt(cardsPlayedSize);
+		for (int i = 0; i < cardsPlayedSize; i++) {
+			out.writeUTF(getCardPlayedId(i));
+			int[] counts = cardsPlayedByTurn[i];
+			out.writeInt(counts.length);
+			for (int count : counts) {
+				out.writeInt(count);
+			}
+		}
+		out.writeInt(minionsSummonedSize);
+		for (int i = 0; i < minionsSummonedSize; i++) {
+			out.writeUTF(getMinionSummonedId(i));
+			out.writeInt(minionsSummonedCounts[i]);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		present = in.readLong();
+		winRate = in.readDouble();
+		counters = new long[STATISTICS.length];
+		int countersLength = in.readInt();
+		for (int i = 0; i < countersLength; i++) {
+			long counter = in.readLong();
+			if (i < counters.length) {
+				counters[i] = counter;
+			}
+		}
+		cardsPlayedIds = EMPTY;
+		cardsPlayedByTurn = new int[0][];
+		int cardsPlayed = in.readInt();
+		for (int i = 0; i < cardsPlayed; i++) {
+			int cardIndex = CardIds.intern(in.readUTF());
+			int turns = in.readInt();
+			for (int turn = 0; turn < turns; turn++) {
+				int count = in.readInt();
+				if (count != 0) {
+					addCardPlayed(cardIndex, turn, count);
+				}
+			}
+		}
+		minionsSummonedIds = EMPTY;
+		minionsSummonedCounts = EMPTY;
+		int minionsSummoned = in.readInt();
+		for (int i = 0; i < minionsSummoned; i++) {
+			addMinionSummoned(CardIds.intern(in.readUTF()), in.readInt());
+		}
+	}
 }
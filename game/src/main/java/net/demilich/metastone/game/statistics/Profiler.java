@@ -0,0 +1,304 @@
+package net.demilich.metastone.game.statistics;
+
+import io.vertx.core.json.JsonObject;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.cards.desc.Desc;
+import net.demilich.metastone.game.logic.GameLogic;
+import net.demilich.metastone.game.logic.TargetLogic;
+import net.demilich.metastone.game.spells.trigger.TriggerManager;
+import net.demilich.metastone.game.targeting.EntityReference;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how often, for how long and with how much allocation the engine's hot paths run, broken down by the spell,
+ * trigger, value provider and card responsible.
+ * <p>
+ * Profiling is opt-in. A {@link GameContext} only records when {@link GameContext#setProfiler(Profiler)} has been
+ * called with a non-{@code null} profiler, and {@link Desc#create()}, which has no access to a context, only records
+ * when a process-wide profiler was installed with {@link #setGlobal(Profiler)}. Otherwise, the instrumented code only
+ * pays for a {@code null} check.
+ * <p>
+ * The counters are {@link LongAdder} instances, so many games running in parallel on different threads can share one
+ * profiler without contending on the same memory. Timings are inclusive: a spell that casts child spells is charged for
+ * their time too, so the sum of a category can exceed the wall clock time of the games.
+ * <p>
+ * Allocation is estimated from the HotSpot per-thread allocation counter when the JVM supports it, and is otherwise
+ * reported as zero.
+ *
+ * @see GameLogic#castSpell(int, net.demilich.metastone.game.spells.desc.SpellDesc, EntityReference, EntityReference,
+ * net.demilich.metastone.game.targeting.TargetSelection, boolean, net.demilich.metastone.game.actions.GameAction) for
+ * spell casting instrumentation.
+ * @see TriggerManager#fireGameEvent(net.demilich.metastone.game.events.GameEvent, java.util.List) for event and trigger
+ * instrumentation.
+ * @see TargetLogic#resolveTargetKey(GameContext, net.demilich.metastone.game.Player,
+ * net.demilich.metastone.game.entities.Entity, EntityReference) for target resolution instrumentation.
+ */
+public final class Profiler {
+	private static volatile Profiler global;
+	private static volatile Map<Integer, String> groupReferenceNames;
+
+	private final com.sun.management.ThreadMXBean threads;
+	private final Map<Category, ConcurrentMap<Object, Counter>> counters = new EnumMap<>(Category.class);
+
+	/**
+	 * The kinds of code that are profiled.
+	 */
+	public enum Category {
+		/**
+		 * A {@link net.demilich.metastone.game.spells.Spell#cast} call, keyed by spell class.
+		 */
+		SPELL,
+		/**
+		 * A {@link net.demilich.metastone.game.spells.trigger.Trigger#onGameEvent} call, keyed by trigger class.
+		 */
+		TRIGGER,
+		/**
+		 * A complete {@link TriggerManager#fireGameEvent} call, keyed by event type.
+		 */
+		EVENT,
+		/**
+		 * A {@link net.demilich.metastone.game.spells.desc.valueprovider.ValueProvider#getValue} call, keyed by value
+		 * provider class.
+		 */
+		VALUE_PROVIDER,
+		/**
+		 * A {@link TargetLogic#resolveTargetKey} call, keyed by the name of the group reference, or {@code ENTITY} for a
+		 * specific entity.
+		 */
+		TARGET,
+		/**
+		 * A {@link Desc#create()} call, keyed by the class being created.
+		 */
+		DESC,
+		/**
+		 * Spells and triggers, keyed by the card ID of the card that is responsible for them.
+		 */
+		CARD
+	}
+
+	/**
+	 * Creates a profiler. Allocation tracking is enabled when the JVM supports it.
+	 */
+	public Profiler() {
+		com.sun.management.ThreadMXBean threads = null;
+		try {
+			ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+				if (sunBean.isThreadAllocatedMemorySupported()) {
+					sunBean.setThreadAllocatedMemoryEnabled(true);
+					threads = sunBean;
+				}
+			}
+		} catch (LinkageError | UnsupportedOperationException | SecurityException ignored) {
+			// Allocation will be reported as zero
+		}
+		this.threads = threads;
+		for (Category category : Category.values()) {
+			counters.put(category, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Gets the process-wide profiler used by code that has no access to a {@link GameContext}.
+	 *
+	 * @return The profiler, or {@code null} if process-wide profiling is off.
+	 */
+	public static Profiler getGlobal() {
+		return global;
+	}
+
+	/**
+	 * Installs the process-wide profiler.
+	 *
+	 * @param profiler The profiler, or {@code null} to turn process-wide profiling off.
+	 */
+	public static void setGlobal(Profiler profiler) {
+		global = profiler;
+	}
+
+	/**
+	 * Gets the current time to pass as the {@code startNanos} argument of {@link #record(Category, Object, long,
+	 * long)}.
+	 *
+	 * @return The value of {@link System#nanoTime()}.
+	 */
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Gets the number of bytes allocated by the current thread so far, to pass as the {@code startBytes} argument of
+	 * {@link #record(Category, Object, long, long)}.
+	 *
+	 * @return The number of bytes, or {@code 0} if allocation tracking is unsupported.
+	 */
+	public long allocatedBytes() {
+		if (threads == null) {
+			return 0L;
+		}
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Records one invocation of the code identified by the category and key that started at the specified time and
+	 * allocation count.
+	 *
+	 * @param category   The kind of code that ran.
+	 * @param key        The class, card ID or other identity of the code. Its {@link Object#toString()} (or simple name,
+	 *                   for a {@link Class}) is used when exporting.
+	 * @param startNanos The value of {@link #nanoTime()} when the code started.
+	 * @param startBytes The value of {@link #allocatedBytes()} when the code started.
+	 */
+	public void record(Category category, Object key, long startNanos, long startBytes) {
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = threads == null ? 0L : allocatedBytes() - startBytes;
+		Counter counter = counters.get(category).computeIfAbsent(key, k -> new Counter());
+		counter.invocations.increment();
+		counter.nanos.add(nanos);
+		counter.allocatedBytes.add(bytes);
+	}
+
+	/**
+	 * Adds the counters of another profiler to this one, for example to accumulate the profiles of finished games.
+	 *
+	 * @param other The profiler whose counters are added. It is not changed.
+	 */
+	public void add(Profiler other) {
+		for (Map.Entry<Category, ConcurrentMap<Object, Counter>> category : other.counters.entrySet()) {
+			ConcurrentMap<Object, Counter> into = counters.get(category.getKey());
+			for (Map.Entry<Object, Counter> entry : category.getValue().entrySet()) {
+				Counter counter = into.computeIfAbsent(entry.getKey(), k -> new Counter());
+				counter.invocations.add(entry.getValue().invocations.sum());
+				counter.nanos.add(entry.getValue().nanos.sum());
+				counter.allocatedBytes.add(entry.getValue().allocatedBytes.sum());
+			}
+		}
+	}
+
+	/**
+	 * Clears all the counters.
+	 */
+	public void reset() {
+		for (ConcurrentMap<Object, Counter> map : counters.values()) {
+			map.clear();
+		}
+	}
+
+	/**
+	 * Gets the number of times the specified code ran.
+	 *
+	 * @param category The kind of code.
+	 * @param key      The key it was recorded with.
+	 * @return The number of invocations, or {@code 0} if it never ran.
+	 */
+	public long getInvocations(Category category, Object key) {
+		Counter counter = counters.get(category).get(key);
+		return counter == null ? 0L : counter.invocations.sum();
+	}
+
+	/**
+	 * Gets the cumulative time spent in the specified code.
+	 *
+	 * @param category The kind of code.
+	 * @param key      The key it was recorded with.
+	 * @return The time in nanoseconds, or {@code 0} if it never ran.
+	 */
+	public long getNanos(Category category, Object key) {
+		Counter counter = counters.get(category).get(key);
+		return counter == null ? 0L : counter.nanos.sum();
+	}
+
+	/**
+	 * Exports the counters as a map of categories to keys to their {@code invocations}, {@code nanos} and {@code
+	 * allocatedBytes}.
+	 * <p>
+	 * Keys that name the same thing, like the same simple class name in two packages, are summed.
+	 *
+	 * @return A new map that is safe to serialize.
+	 */
+	public Map<String, Object> getCounters() {
+		Map<String, Object> export = new HashMap<>();
+		for (Map.Entry<Category, ConcurrentMap<Object, Counter>> category : counters.entrySet()) {
+			Map<String, Map<String, Long>> keys = new HashMap<>();
+			for (Map.Entry<Object, Counter> entry : category.getValue().entrySet()) {
+				Map<String, Long> values = keys.computeIfAbsent(name(entry.getKey()), k -> {
+					Map<String, Long> initial = new HashMap<>();
+					initial.put("invocations", 0L);
+					initial.put("nanos", 0L);
+					initial.put("allocatedBytes", 0L);
+					return initial;
+				});
+				Counter counter = entry.getValue();
+				values.merge("invocations", counter.invocations.sum(), Long::sum);
+				values.merge("nanos", counter.nanos.sum(), Long::sum);
+				values.merge("allocatedBytes", counter.allocatedBytes.sum(), Long::sum);
+			}
+			export.put(category.getKey().toString(), keys);
+		}
+		return export;
+	}
+
+	/**
+	 * Exports the counters as JSON.
+	 *
+	 * @return A JSON object in the format of {@link #getCounters()}.
+	 * @see #getCounters() for the format.
+	 */
+	public JsonObject toJson() {
+		return new JsonObject(getCounters());
+	}
+
+	private static String name(Object key) {
+		if (key instanceof Class) {
+			return ((Class) key).getSimpleName();
+		}
+		if (key instanceof EntityReference) {
+			EntityReference reference = (EntityReference) key;
+			if (!reference.isTargetGroup()) {
+				return "ENTITY";
+			}
+			return getGroupReferenceNames().getOrDefault(reference.getId(), reference.toString());
+		}
+		return String.valueOf(key);
+	}
+
+	private static Map<Integer, String> getGroupReferenceNames() {
+		Map<Integer, String> names = groupReferenceNames;
+		if (names != null) {
+			return names;
+		}
+		names = new HashMap<>();
+		for (Field field : EntityReference.class.getFields()) {
+			if (!Modifier.isStatic(field.getModifiers())
+					|| !EntityReference.class.equals(field.getType())) {
+				continue;
+			}
+			try {
+				EntityReference reference = (EntityReference) field.get(null);
+				if (reference != null && reference.isTargetGroup()) {
+					names.putIfAbsent(reference.getId(), field.getName());
+				}
+			} catch (IllegalAccessException ignored) {
+			}
+		}
+		groupReferenceNames = names;
+		return names;
+	}
+
+	private static final class Counter {
+		private final LongAdder invocations = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder allocatedBytes = new LongAdder();
+	}
+}
@@ -15,12 +15,28 @@ public class SimulationResult implements Cloneable, Serializable {
 		this.numberOfGames = numberOfGames;
 	}
 
+	/**
+	 * Adds the other result into this result.
+	 *
+	 * @param other The result to add.
+	 * @return This instance.
+	 */
 	public SimulationResult merge(SimulationResult other) {
-		getPlayer1Stats().merge(other.getPlayer1Stats());
-		getPlayer2Stats().merge(other.getPlayer2Stats());
-		duration += other.getDuration();
-		setNumberOfGames(other.getNumberOfGames() + numberOfGames);
-		return this;
+		return other.mergeInto(this);
+	}
+
+	/**
+	 * Adds this result into an accumulator, modifying the accumulator in place. Nothing is copied.
+	 *
+	 * @param accumulator The result to add to.
+	 * @return The accumulator.
+	 */
+	public SimulationResult mergeInto(SimulationResult accumulator) {
+		getPlayer1Stats().mergeInto(accumulator.getPlayer1Stats());
+		getPlayer2Stats().mergeInto(accumulator.getPlayer2Stats());
+		accumulator.duration += duration;
+		accumulator.setNumberOfGames(accumulator.getNumberOfGames() + numberOfGames);
+		return accumulator;
 	}
 
 	public void calculateMetaStatistics() {
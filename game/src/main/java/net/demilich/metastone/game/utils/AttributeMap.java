@@ -28,6 +28,9 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 //@JsonDeserialize(using = AttributeMapDeserializer.class)
 public class AttributeMap extends EnumMap<Attribute, Object> implements Serializable, Cloneable {
+	private transient Listener listener;
+	private transient ChangeCounter changes;
+
 	public AttributeMap() {
 		super(Attribute.class);
 	}
@@ -53,7 +56,88 @@ public class AttributeMap extends EnumMap<Attribute, Object> implements Serializ
 		if (value == null) {
 			return null;
 		}
-		return super.put(key, value);
+		Object previous = super.put(key, value);
+		if (changes != null) {
+			changes.increment();
+		}
+		if (listener != null) {
+			listener.onAttributeChanged(key);
+		}
+		return previous;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		Object previous = super.remove(key);
+		if (changes != null) {
+			changes.increment();
+		}
+		if (listener != null && key instanceof Attribute) {
+			listener.onAttributeChanged((Attribute) key);
+		}
+		return previous;
+	}
+
+	@Override
+	public void putAll(Map<? extends Attribute, ?> m) {
+		super.putAll(m);
+		if (changes != null) {
+			changes.increment();
+		}
+		if (listener != null) {
+			for (Attribute attribute : m.keySet()) {
+				listener.onAttributeChanged(attribute);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		if (changes != null) {
+			changes.increment();
+		}
+		if (listener != null) {
+			listener.onAttributeChanged(null);
+		}
+	}
+
+	/**
+	 * Sets the counter incremented whenever an attribute is put or removed, including through {@link
+	 * net.demilich.metastone.game.entities.Entity#getAttributes()} directly. Like the listener, it is not copied by {@link
+	 * #clone()}.
+	 *
+	 * @param changes The game's counter, or {@code null} to stop counting.
+	 * @see net.demilich.metastone.game.entities.Entity#setChangeCounter(ChangeCounter)
+	 */
+	public void setChangeCounter(ChangeCounter changes) {
+		this.changes = changes;
+	}
+
+	/**
+	 * Gets the listener notified of changes to this map.
+	 *
+	 * @return The listener, or {@code null} if there is none.
+	 */
+	public Listener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listener notified of changes to this map, replacing any previous listener. The listener is not copied by
+	 * {@link #clone()}.
+	 * <p>
+	 * A map has a single listener, and it belongs to the {@link net.demilich.metastone.game.logic.PendingDeaths} of the
+	 * game the entity is in. When another game takes over the entity, its listener replaces the previous game's. Any
+	 * other kind of listener would silently replace it, or be replaced, so listeners of a different class can't be set
+	 * over an existing one.
+	 *
+	 * @param listener The listener, or {@code null} to remove it.
+	 */
+	public void setListener(Listener listener) {
+		assert listener == null || this.listener == null || this.listener.getClass() == listener.getClass()
+				: "An AttributeMap has a single kind of listener";
+		this.listener = listener;
 	}
 
 	public Set<Attribute> unsafeKeySet() {
@@ -64,4 +148,18 @@ public class AttributeMap extends EnumMap<Attribute, Object> implements Serializ
 	public Set<Entry<Attribute, Object>> entrySet() {
 		return super.entrySet();
 	}
+
+	/**
+	 * Receives changes to an {@link AttributeMap}, including changes made through {@link
+	 * net.demilich.metastone.game.entities.Entity#getAttributes()} directly.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * Called after an attribute was put or removed.
+		 *
+		 * @param attribute The attribute that changed, or {@code null} if the map was cleared.
+		 */
+		void onAttributeChanged(Attribute attribute);
+	}
 }
@@ -0,0 +1,32 @@
+package net.demilich.metastone.game.utils;
+
+/**
+ * Counts the changes made to a game's attributes, zones and mana.
+ * <p>
+ * A {@link net.demilich.metastone.game.GameContext} hands its counter to its players with {@link
+ * net.demilich.metastone.game.entities.Entity#setChangeCounter(ChangeCounter)}, and the players hand it to their zones
+ * and the entities in them. Every {@link AttributeMap#put(Attribute, Object)}, zone insertion or removal and mana change
+ * then increments this one number, so comparing it with an earlier value tells whether anything in the game changed
+ * without visiting every entity.
+ * <p>
+ * A game is only ever mutated by one thread at a time, so the counter is not synchronized.
+ */
+public final class ChangeCounter {
+	private long changes;
+
+	/**
+	 * Records a change.
+	 */
+	public void increment() {
+		changes++;
+	}
+
+	/**
+	 * Gets the number of changes recorded so far.
+	 *
+	 * @return The count.
+	 */
+	public long get() {
+		return changes;
+	}
+}
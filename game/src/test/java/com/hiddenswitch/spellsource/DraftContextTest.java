@@ -5,8 +5,10 @@ import com.hiddenswitch.spellsource.draft.*;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import net.demilich.metastone.game.cards.Card;
 import net.demilich.metastone.game.cards.CardCatalogue;
 import net.demilich.metastone.game.cards.CardParseException;
+import net.demilich.metastone.game.cards.Rarity;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -14,6 +16,7 @@ import org.testng.annotations.Test;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Created by bberman on 12/14/16.
@@ -49,4 +52,31 @@ public class DraftContextTest {
 		Assert.assertEquals(context.getPublicState().getSelectedCards().size(), DraftLogic.DRAFTS);
 		Assert.assertEquals(context.getPublicState().getStatus(), DraftStatus.COMPLETE);
 	}
+
+	@Test
+	public void testDraftPoolsOfferClassAndNeutralCards() {
+		CardCatalogue.loadCardsFromPackage();
+		DraftPools pools = DraftPools.get();
+		Assert.assertSame(DraftPools.get(), pools, "The pools should only be computed once");
+		Random random = new Random(101L);
+		for (HeroClass heroClass : new HeroClass[]{HeroClass.BLUE, HeroClass.RED, HeroClass.BLACK}) {
+			DraftPools.Pool pool = pools.getPool(heroClass, Rarity.COMMON, false);
+			Assert.assertFalse(pool.isEmpty());
+			int classCards = 0;
+			int neutralCards = 0;
+			for (int i = 0; i < 2000; i++) {
+				Card card = CardCatalogue.getCardById(pool.sample(random));
+				Assert.assertTrue(card.isCollectible());
+				Assert.assertEquals(card.getRarity(), Rarity.COMMON);
+				Assert.assertFalse(DraftPools.BANNED_CARDS.contains(card.getCardId()));
+				if (card.hasHeroClass(heroClass)) {
+					classCards++;
+				} else {
+					Assert.assertTrue(card.hasHeroClass(HeroClass.ANY), card.getCardId());
+					neutralCards++;
+				}
+			}
+			Assert.assertTrue(classCards > 0 && neutralCards > 0);
+		}
+	}
 }
\ No newline at end of file
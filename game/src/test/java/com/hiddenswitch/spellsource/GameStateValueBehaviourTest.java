@@ -1,5 +1,6 @@
 package com.hiddenswitch.spellsource;
 
+import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.actions.ActionType;
 import net.demilich.metastone.game.actions.GameAction;
 import net.demilich.metastone.game.actions.PlayCardAction;
@@ -138,6 +139,55 @@ public class GameStateValueBehaviourTest extends TestBase implements Serializabl
 		}, /*Set hero class to mage for fireblast hero power*/ HeroClass.BLUE, HeroClass.BLUE);
 	}
 
+	@Test
+	public void testBeamWidthFindsLethal() {
+		runGym((context, player, opponent) -> {
+			Card fireball = receiveCard(context, player, "spell_fireball");
+			receiveCard(context, player, "minion_bloodfen_raptor");
+			player.setMana(6);
+			player.setMaxMana(6);
+			opponent.getHero().setHp(7);
+			GameStateValueBehaviour behaviour = new GameStateValueBehaviour();
+			behaviour.setBeamWidth(2);
+			GameAction first = behaviour.requestAction(context, player, context.getValidActions());
+			context.getLogic().performGameAction(player.getId(), first);
+			GameAction second = behaviour.requestAction(context, player, context.getValidActions());
+			context.getLogic().performGameAction(player.getId(), second);
+			assertTrue(context.updateAndGetGameOver(), "Fireball and Fireblast should have been found even with a narrow beam");
+			assertTrue(fireball.getReference().equals(first.getSourceReference()) || fireball.getReference().equals(second.getSourceReference()));
+		}, HeroClass.BLUE, HeroClass.BLUE);
+	}
+
+	@Test
+	public void testWideBeamMatchesUnboundedSearch() {
+		runGym((context, player, opponent) -> {
+			receiveCard(context, player, "spell_fireball");
+			receiveCard(context, player, "minion_bloodfen_raptor");
+			receiveCard(context, player, "minion_chillwind_yeti");
+			receiveCard(context, player, "spell_arcane_intellect");
+			playMinionCard(context, opponent, "minion_boulderfist_ogre");
+			player.setMana(10);
+			player.setMaxMana(10);
+			GameContext unbounded = playTurn(context, 0);
+			// Narrower than the turn's first choice, so the beam prunes the root and deeper levels of the search
+			GameContext beam = playTurn(context, 8);
+			assertEquals(beam.getOpponent(player).getHero().getHp(), unbounded.getOpponent(player).getHero().getHp());
+			assertEquals(beam.getOpponent(player).getMinions().size(), unbounded.getOpponent(player).getMinions().size());
+			assertEquals(beam.getPlayer(player.getId()).getMinions().size(), unbounded.getPlayer(player.getId()).getMinions().size());
+			assertEquals(beam.getPlayer(player.getId()).getHand().size(), unbounded.getPlayer(player.getId()).getHand().size());
+		}, HeroClass.BLUE, HeroClass.BLUE);
+	}
+
+	private static GameContext playTurn(GameContext context, int beamWidth) {
+		GameContext copy = context.clone();
+		int playerId = copy.getActivePlayerId();
+		GameStateValueBehaviour behaviour = new GameStateValueBehaviour();
+		behaviour.setBeamWidth(beamWidth);
+		copy.setBehaviour(playerId, behaviour);
+		while (copy.takeActionInTurn() && copy.getActivePlayerId() == playerId) {
+		}
+		return copy;
+	}
 
 	@Test
 	public void testAIWillPlayQuests() {
@@ -19,6 +19,8 @@ import net.demilich.metastone.game.entities.EntityType;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
 import net.demilich.metastone.game.logic.GameLogic;
 import net.demilich.metastone.game.logic.Trace;
+import net.demilich.metastone.game.logic.TraceReader;
+import net.demilich.metastone.game.logic.TraceWriter;
 import org.apache.commons.lang3.RandomUtils;
 import org.reflections.Reflections;
 import org.reflections.scanners.ResourcesScanner;
@@ -29,6 +31,8 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Ignore;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
@@ -86,6 +90,39 @@ public class TraceTests {
 		Assert.assertEquals(context1.getTurn(), context2.getTurn());
 	}
 
+	@Test
+	public void testBinaryTraceRoundTrip() throws IOException {
+		List<GameContext> contexts = IntStream.range(0, 3).mapToObj(i -> {
+			GameContext context = GameContext.fromTwoRandomDecks();
+			context.play();
+			return context;
+		}).collect(toList());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TraceWriter writer = new TraceWriter(bytes)) {
+			for (GameContext context : contexts) {
+				writer.write(context.getTrace());
+			}
+		}
+		Assert.assertTrue(bytes.size() < contexts.get(0).getTrace().dump().length());
+
+		try (TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for (GameContext context : contexts) {
+				Trace trace = reader.read();
+				Assert.assertNotNull(trace);
+				Assert.assertEquals(trace.getActions(), context.getTrace().getActions());
+				Assert.assertTrue(trace.hasOutcome());
+				Assert.assertEquals(trace.getWinner(), context.getWinningPlayerId());
+				Assert.assertEquals(trace.getTurn(), context.getTurn());
+				GameContext replayed = trace.replayContext(false);
+				Assert.assertEquals(replayed.getTurn(), context.getTurn());
+				Assert.assertEquals(replayed.getWinningPlayerId(), context.getWinningPlayerId());
+				Assert.assertEquals(replayed.getTrace().getActions(), context.getTrace().getActions());
+			}
+			Assert.assertNull(reader.read());
+		}
+	}
+
 	@Test
 	@Ignore
 	public void testDiagnoseTraces() {
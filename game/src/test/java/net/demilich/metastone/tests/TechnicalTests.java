@@ -1,8 +1,19 @@
 package net.demilich.metastone.tests;
 
+import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import com.hiddenswitch.spellsource.util.Serialization;
+import net.demilich.metastone.tests.util.FixedDecks;
+import net.demilich.metastone.tests.util.SeededRandomBehaviour;
 import net.demilich.metastone.tests.util.TestBase;
 import net.demilich.metastone.tests.util.TestMinionCard;
 import net.demilich.metastone.tests.util.TestSpellCard;
@@ -11,14 +22,27 @@ import org.testng.annotations.Test;
 
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.actions.ActionCode;
+import net.demilich.metastone.game.actions.ActionType;
 import net.demilich.metastone.game.actions.GameAction;
+import net.demilich.metastone.game.behaviour.Behaviour;
+import net.demilich.metastone.game.behaviour.LogicRandomBehaviour;
+import net.demilich.metastone.game.behaviour.PlayRandomBehaviour;
+import net.demilich.metastone.game.behaviour.UtilityBehaviour;
 import net.demilich.metastone.game.cards.Card;
 import net.demilich.metastone.game.cards.CardCatalogue;
 import net.demilich.metastone.game.entities.Entity;
+import net.demilich.metastone.game.environment.Environment;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
 import net.demilich.metastone.game.entities.minions.Minion;
+import net.demilich.metastone.game.logic.GameLogic;
 import net.demilich.metastone.game.spells.DamageSpell;
+import net.demilich.metastone.game.statistics.GameStatistics;
+import net.demilich.metastone.game.statistics.Profiler;
+import net.demilich.metastone.game.statistics.Statistic;
 import net.demilich.metastone.game.targeting.EntityReference;
+import net.demilich.metastone.game.targeting.Zones;
+import net.demilich.metastone.game.utils.Attribute;
 
 public class TechnicalTests extends TestBase {
 
@@ -82,4 +106,328 @@ public class TechnicalTests extends TestBase {
 			Assert.assertEquals(minion.getHp(), -1);
 		}
 	}
+
+	@Test
+	public void testStatisticsMergeAndSerialization() throws IOException, ClassNotFoundException {
+		GameContext context = createContext(HeroClass.WHITE, HeroClass.RED);
+		Player player1 = context.getPlayer1();
+		player1.setMana(10);
+		playCard(context, player1, "minion_wild_pyromancer");
+		playCard(context, player1, "minion_wild_pyromancer");
+		context.endTurn();
+		context.endTurn();
+		player1.setMana(10);
+		playCard(context, player1, "minion_wild_pyromancer");
+
+		GameStatistics statistics = player1.getStatistics();
+		Assert.assertEquals(statistics.getLong(Statistic.MINIONS_PLAYED), 6L);
+		Map<String, Map<Integer, Integer>> cardsPlayed = statistics.getCardsPlayed();
+		Assert.assertEquals(cardsPlayed.get("minion_wild_pyromancer").values().stream().mapToInt(Integer::intValue).sum(), 3);
+		Assert.assertEquals(statistics.getMinionsSummoned().get("minion_wild_pyromancer"), (Integer) 3);
+
+		GameStatistics accumulator = new GameStatistics();
+		statistics.mergeInto(accumulator);
+		statistics.mergeInto(accumulator);
+		Assert.assertEquals(accumulator.getLong(Statistic.CARDS_PLAYED), 2 * statistics.getLong(Statistic.CARDS_PLAYED));
+		Assert.assertEquals(accumulator.getMinionsSummoned().get("minion_wild_pyromancer"), (Integer) 6);
+		Assert.assertTrue(accumulator.contains(Statistic.WIN_RATE));
+
+		GameStatistics clone = statistics.clone();
+		clone.cardDrawn();
+		Assert.assertNotEquals(clone.getLong(Statistic.CARDS_DRAWN), statistics.getLong(Statistic.CARDS_DRAWN));
+
+		GameStatistics deserialized = Serialization.deserialize(Serialization.serializeBytes(statistics));
+		Assert.assertEquals(deserialized.getStats(), statistics.getStats());
+		Assert.assertEquals(deserialized.getCardsPlayed(), cardsPlayed);
+		Assert.assertEquals(deserialized.getMinionsSummoned(), statistics.getMinionsSummoned());
+	}
+
+	@Test
+	public void testProfiler() {
+		GameContext context = createContext(HeroClass.BLUE, HeroClass.RED);
+		Profiler profiler = new Profiler();
+		context.setProfiler(profiler);
+		Player player1 = context.getPlayer1();
+		player1.setMana(10);
+		playCard(context, player1, "minion_wild_pyromancer");
+		playCard(context, player1, "spell_arcane_explosion");
+
+		Assert.assertTrue(profiler.getInvocations(Profiler.Category.SPELL, DamageSpell.class) >= 2);
+		Assert.assertTrue(profiler.getInvocations(Profiler.Category.CARD, "minion_wild_pyromancer") >= 1);
+		Assert.assertTrue(profiler.getInvocations(Profiler.Category.CARD, "spell_arcane_explosion") >= 1);
+		Assert.assertTrue(profiler.getInvocations(Profiler.Category.TARGET, EntityReference.ALL_MINIONS) >= 1);
+		Assert.assertTrue(profiler.getNanos(Profiler.Category.SPELL, DamageSpell.class) > 0L);
+		Assert.assertSame(context.clone().getProfiler(), profiler);
+
+		@SuppressWarnings("unchecked")
+		Map<String, Map<String, Long>> spells = (Map<String, Map<String, Long>>) profiler.getCounters().get(Profiler.Category.SPELL.toString());
+		Assert.assertEquals(spells.get("DamageSpell").get("invocations"), (Long) profiler.getInvocations(Profiler.Category.SPELL, DamageSpell.class));
+		Assert.assertTrue(profiler.toJson().getJsonObject(Profiler.Category.TARGET.toString()).containsKey("ALL_MINIONS"));
+
+		Profiler total = new Profiler();
+		total.add(profiler);
+		total.add(profiler);
+		Assert.assertEquals(total.getInvocations(Profiler.Category.SPELL, DamageSpell.class), 2L * profiler.getInvocations(Profiler.Category.SPELL, DamageSpell.class));
+		Assert.assertEquals(total.getNanos(Profiler.Category.SPELL, DamageSpell.class), 2L * profiler.getNanos(Profiler.Category.SPELL, DamageSpell.class));
+
+		context.setProfiler(null);
+		profiler.reset();
+		playCard(context, player1, "spell_arcane_explosion");
+		Assert.assertEquals(profiler.getInvocations(Profiler.Category.SPELL, DamageSpell.class), 0L);
+	}
+
+	@Test
+	public void testEnvironmentStacksSurviveGameState() {
+		GameContext context = createContext(HeroClass.BLUE, HeroClass.RED);
+		Player player1 = context.getPlayer1();
+		context.getDamageStack().push(3);
+		context.getDamageStack().push(5);
+		context.getSpellValueStack().push(7);
+		context.getSpellValueStack().push(9);
+		context.getEventTargetStack().push(EntityReference.NONE);
+		context.getEventTargetStack().push(player1.getHero());
+
+		Map<Environment, Object> state = context.getEnvironmentState();
+		Assert.assertEquals(((Deque<?>) state.get(Environment.DAMAGE_STACK)).peek(), 5);
+		Assert.assertEquals(((Deque<?>) state.get(Environment.SPELL_VALUE_STACK)).peekFirst(), 7);
+		Assert.assertEquals(((Deque<?>) state.get(Environment.EVENT_TARGET_REFERENCE_STACK)).peek(), player1.getHero().getReference());
+		Assert.assertFalse(context.getEnvironment().containsKey(Environment.DAMAGE_STACK));
+
+		GameContext restored = context.clone();
+		restored.setEnvironment(state);
+		Assert.assertEquals(restored.getDamageStack().pop(), 5);
+		Assert.assertEquals(restored.getDamageStack().pop(), 3);
+		Assert.assertEquals(restored.getSpellValueStack().peekBottom(), 7);
+		Assert.assertEquals(restored.getSpellValueStack().peek(), 9);
+		Assert.assertEquals(restored.getEventTargetStack().peekReference(), player1.getHero().getReference());
+		restored.getEventTargetStack().pop();
+		Assert.assertEquals(restored.getEventTargetStack().peekReference(), EntityReference.NONE);
+
+		// Clones must not share stacks
+		GameContext clone = context.clone();
+		clone.getDamageStack().pop();
+		Assert.assertEquals(context.getDamageStack().peek(), 5);
+		Assert.assertEquals(clone.getDamageStack().peek(), 3);
+	}
+
+	@Test
+	public void testDeathsFromDirectAttributeChanges() {
+		GameContext context = createContext(HeroClass.BLUE, HeroClass.RED);
+		Player player1 = context.getPlayer1();
+		Player player2 = context.getPlayer2();
+		Minion first = playMinionCard(context, player1, new TestMinionCard(1, 10));
+		Minion second = playMinionCard(context, player1, new TestMinionCard(1, 10));
+		context.getLogic().endOfSequence();
+
+		// Spells may edit attributes without going through the logic
+		first.getAttributes().put(Attribute.HP, 0);
+		context.getLogic().endOfSequence();
+		Assert.assertEquals(first.getZone(), Zones.GRAVEYARD);
+		Assert.assertEquals(second.getZone(), Zones.BATTLEFIELD);
+
+		// A clone tracks its own deaths
+		GameContext clone = context.clone();
+		Minion secondClone = (Minion) clone.resolveSingleTarget(second.getReference());
+		secondClone.setAttribute(Attribute.DESTROYED);
+		clone.getLogic().endOfSequence();
+		Assert.assertEquals(secondClone.getZone(), Zones.GRAVEYARD);
+		Assert.assertEquals(second.getZone(), Zones.BATTLEFIELD);
+
+		player2.setAttribute(Attribute.DESTROYED);
+		context.getLogic().endOfSequence();
+		Assert.assertEquals(player2.getHero().getZone(), Zones.GRAVEYARD);
+		Assert.assertTrue(context.updateAndGetGameOver());
+	}
+
+	@Test
+	public void testConditionMet() {
+		GameContext context = createContext(HeroClass.BLACK, HeroClass.RED);
+		Player player = context.getPlayer1();
+		Card eviscerate = receiveCard(context, player, "spell_eviscerate");
+		Card raptor = receiveCard(context, player, "minion_bloodfen_raptor");
+		Assert.assertFalse(context.getLogic().conditionMet(player.getId(), eviscerate));
+		Assert.assertFalse(context.getLogic().conditionMet(player.getId(), raptor), "Cards without conditions are never met");
+
+		// Playing a card enables the combo, and the remembered result must not be used anymore
+		playCard(context, player, "spell_the_coin");
+		Assert.assertTrue(context.getLogic().conditionMet(player.getId(), eviscerate));
+		Assert.assertSame(eviscerate.getDesc().getCompiledConditions(), eviscerate.getDesc().getCompiledConditions());
+
+		// Spells change attributes without firing events, which must also be noticed
+		player.getAttributes().remove(Attribute.COMBO);
+		Assert.assertFalse(context.getLogic().conditionMet(player.getId(), eviscerate));
+		player.setAttribute(Attribute.COMBO, 1);
+		Assert.assertTrue(context.getLogic().conditionMet(player.getId(), eviscerate));
+
+		// Changes anywhere in the game are counted, but not changes in a clone
+		long changes = context.getChangeCounter().get();
+		raptor.setAttribute(Attribute.ATTACK_BONUS, 1);
+		Assert.assertNotEquals(context.getChangeCounter().get(), changes);
+		changes = context.getChangeCounter().get();
+		player.setMana(player.getMana() + 1);
+		Assert.assertNotEquals(context.getChangeCounter().get(), changes);
+		changes = context.getChangeCounter().get();
+		GameContext clone = context.clone();
+		long cloneChanges = clone.getChangeCounter().get();
+		clone.getPlayer1().getHero().setAttribute(Attribute.ARMOR, 5);
+		clone.getPlayer1().getHand().get(0).setAttribute(Attribute.ATTACK_BONUS, 2);
+		Assert.assertEquals(context.getChangeCounter().get(), changes);
+		Assert.assertNotEquals(clone.getChangeCounter().get(), cloneChanges);
+	}
+
+	@Test
+	public void testZoneFindsEqualEntities() {
+		GameContext context = createContext(HeroClass.RED, HeroClass.RED);
+		Player player = context.getPlayer1();
+		playMinionCard(context, player, "minion_bloodfen_raptor");
+		Minion minion = playMinionCard(context, player, "minion_bloodfen_raptor");
+
+		// A copy whose location was reset is still found by its ID
+		Minion copy = minion.clone();
+		copy.resetEntityLocations();
+		Assert.assertTrue(player.getMinions().contains(copy));
+		Assert.assertEquals(player.getMinions().indexOf(copy), 1);
+		Assert.assertTrue(player.getMinions().remove(copy));
+		Assert.assertEquals(player.getMinions().size(), 1);
+		Assert.assertFalse(player.getMinions().contains(minion));
+	}
+
+	@Test
+	public void testHeadlessOutcomesMatchNormalMode() {
+		for (long seed = 1L; seed <= 8L; seed++) {
+			GameContext normal = FixedDecks.seededGame(seed);
+			normal.play();
+			GameContext headless = FixedDecks.seededGame(seed);
+			headless.setHeadless(true);
+			headless.play();
+
+			Assert.assertEquals(headless.getWinningPlayerId(), normal.getWinningPlayerId());
+			Assert.assertEquals(headless.getTurn(), normal.getTurn());
+			for (int i = 0; i < 2; i++) {
+				Player expected = normal.getPlayer(i);
+				Player actual = headless.getPlayer(i);
+				Assert.assertEquals(actual.getHero().getHp(), expected.getHero().getHp());
+				Assert.assertEquals(actual.getHero().getArmor(), expected.getHero().getArmor());
+				Assert.assertEquals(actual.getMinions().size(), expected.getMinions().size());
+				Assert.assertEquals(actual.getHand().size(), expected.getHand().size());
+				Assert.assertEquals(actual.getDeck().size(), expected.getDeck().size());
+				Assert.assertEquals(actual.getGraveyard().size(), expected.getGraveyard().size());
+				Assert.assertEquals(actual.getStatistics().getLong(Statistic.CARDS_PLAYED), expected.getStatistics().getLong(Statistic.CARDS_PLAYED));
+				Assert.assertFalse(actual.getStatistics().contains(Statistic.CARDS_DRAWN));
+			}
+			Assert.assertFalse(normal.getTrace().getActions().isEmpty());
+			Assert.assertTrue(headless.getTrace().getActions().isEmpty());
+			Assert.assertTrue(headless.clone().isHeadless());
+		}
+	}
+
+	@Test
+	public void testForkedSimulationsAreReproducible() {
+		GameContext context = GameContext.fromTwoRandomDecks();
+		context.setLogic(new GameLogic(101L));
+		context.init();
+
+		List<String> sequential = IntStream.range(0, 16).mapToObj(i -> playOut(context.fork(i))).collect(Collectors.toList());
+		List<String> parallel = IntStream.range(0, 16).parallel().mapToObj(i -> playOut(context.fork(i))).collect(Collectors.toList());
+		Assert.assertEquals(parallel, sequential);
+		Assert.assertTrue(new HashSet<>(sequential).size() > 1, "Forks with different stream IDs should play different games");
+
+		// A clone continues the original's random numbers
+		GameContext clone = context.clone();
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(clone.getLogic().random(1000), context.getLogic().random(1000));
+		}
+	}
+
+	private static String playOut(GameContext simulation) {
+		PlayRandomBehaviour behaviour = new LogicRandomBehaviour();
+		simulation.setBehaviours(new Behaviour[]{behaviour, behaviour.clone()});
+		while (!simulation.updateAndGetGameOver() && simulation.getTurn() < 60) {
+			simulation.startTurn(simulation.getActivePlayerId());
+			while (simulation.takeActionInTurn()) {
+			}
+			if (simulation.updateAndGetGameOver()) {
+				break;
+			}
+			simulation.endTurn();
+		}
+		return String.format("%d %d %d %d", simulation.getWinningPlayerId(), simulation.getTurn(),
+				simulation.getPlayer1().getHero().getHp(), simulation.getPlayer2().getHero().getHp());
+	}
+
+	@Test
+	public void testActionCodesMatchValidActions() {
+		List<String> deckLists = Arrays.asList(FixedDecks.CHOOSE_ONE_DRUID, FixedDecks.CONTROL_PRIEST);
+		for (long seed = 1L; seed <= 8L; seed++) {
+			GameContext context = GameContext.fromDeckLists(deckLists, new ActionCodeCheckingBehaviour(seed), new ActionCodeCheckingBehaviour(seed + 1));
+			context.setLogic(new GameLogic(seed));
+			context.play();
+		}
+	}
+
+	@Test
+	public void testActionCodesChooseLikeRequestAction() throws NoSuchMethodException {
+		// takeActionInTurn never calls requestAction on an ActionCodeBehaviour, so subclasses must not be able to override it
+		Assert.assertTrue(Modifier.isFinal(PlayRandomBehaviour.class.getMethod("requestAction", GameContext.class, Player.class, List.class).getModifiers()));
+
+		for (long seed = 1L; seed <= 8L; seed++) {
+			GameContext codes = FixedDecks.seededGame(seed);
+			codes.play();
+			GameContext actions = FixedDecks.seededGame(seed);
+			actions.setBehaviours(new Behaviour[]{new RequestActionBehaviour(seed), new RequestActionBehaviour(seed + 1)});
+			actions.play();
+
+			Assert.assertEquals(actions.getWinningPlayerId(), codes.getWinningPlayerId());
+			Assert.assertEquals(actions.getTurn(), codes.getTurn());
+			Assert.assertEquals(actions.getTrace().getActions().size(), codes.getTrace().getActions().size());
+		}
+	}
+
+	/**
+	 * Chooses like a {@link SeededRandomBehaviour}, but only through {@link #requestAction(GameContext, Player, List)}.
+	 */
+	private static class RequestActionBehaviour extends UtilityBehaviour {
+		private final SeededRandomBehaviour random;
+
+		RequestActionBehaviour(long seed) {
+			this.random = new SeededRandomBehaviour(seed);
+		}
+
+		@Override
+		public String getName() {
+			return random.getName();
+		}
+
+		@Override
+		public List<Card> mulligan(GameContext context, Player player, List<Card> cards) {
+			return random.mulligan(context, player, cards);
+		}
+
+		@Override
+		public GameAction requestAction(GameContext context, Player player, List<GameAction> validActions) {
+			return random.requestAction(context, player, validActions);
+		}
+	}
+
+	private static class ActionCodeCheckingBehaviour extends SeededRandomBehaviour {
+		ActionCodeCheckingBehaviour(long seed) {
+			super(seed);
+		}
+
+		@Override
+		public int requestActionIndex(GameContext context, Player player, long[] validActionCodes) {
+			GameLogic logic = context.getLogic();
+			List<GameAction> validActions = logic.getValidActions(player.getId());
+			Assert.assertEquals(validActionCodes.length, validActions.size());
+			Assert.assertEquals(logic.countValidActions(player.getId()), validActions.size());
+			for (int i = 0; i < validActionCodes.length; i++) {
+				Assert.assertEquals(validActionCodes[i], ActionCode.of(validActions.get(i)), ActionCode.toString(validActionCodes[i]));
+				Assert.assertTrue(logic.isValidAction(player.getId(), validActionCodes[i]));
+				Assert.assertEquals(logic.getGameAction(player.getId(), validActionCodes[i]), validActions.get(i));
+			}
+			Assert.assertFalse(logic.isValidAction(player.getId(), ActionCode.of(ActionType.END_TURN, context.getOpponent(player).getId(), -1, ActionCode.NO_OPTION)));
+			Assert.assertFalse(logic.isValidAction(context.getOpponent(player).getId(), validActionCodes[validActionCodes.length - 1]));
+			return super.requestActionIndex(context, player, validActionCodes);
+		}
+	}
 }
@@ -0,0 +1,109 @@
+package net.demilich.metastone.tests.util;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.logic.GameLogic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed deck lists and seeded games shared by the tests and the benchmarks, so that the games they play are
+ * reproducible and comparable across commits. The benchmarks depend on the game module's test classes for this.
+ * <p>
+ * The cards in these decks come from the {@code cards} module, which must be loaded with {@link
+ * net.demilich.metastone.game.cards.CardCatalogue#loadCardsFromPackage()}. Changing a deck invalidates comparisons with
+ * earlier benchmark results.
+ */
+public final class FixedDecks {
+	public static final String AGGRO_WARRIOR = "Name: Aggro Warrior\n" +
+			"Class: Warrior\n" +
+			"Format: Standard\n" +
+			"2x Southsea Deckhand\n" +
+			"2x Town Crier\n" +
+			"2x Upgrade!\n" +
+			"2x Bloodsail Raider\n" +
+			"2x Redband Wasp\n" +
+			"2x Woodcutter's Axe\n" +
+			"2x Fiery War Axe\n" +
+			"2x Frothing Berserker\n" +
+			"2x Nightmare Amalgam\n" +
+			"2x Southsea Captain\n" +
+			"2x Dread Corsair\n" +
+			"2x Kor'kron Elite\n" +
+			"2x Spellbreaker\n" +
+			"2x Arcanite Reaper\n" +
+			"1x Captain Greenskin\n" +
+			"1x Leeroy Jenkins";
+
+	public static final String CONTROL_PRIEST = "Name: Control Priest\n" +
+			"Class: Priest\n" +
+			"Format: Standard\n" +
+			"2x Northshire Cleric\n" +
+			"2x Power Word: Shield\n" +
+			"2x Divine Hymn\n" +
+			"2x Mind Blast\n" +
+			"2x Shadow Visions\n" +
+			"2x Wild Pyromancer\n" +
+			"2x Acolyte of Pain\n" +
+			"1x Gluttonous Ooze\n" +
+			"2x Duskbreaker\n" +
+			"2x Mass Dispel\n" +
+			"2x Scaleworm\n" +
+			"2x Twilight Drake\n" +
+			"1x Skulking Geist\n" +
+			"2x Psychic Scream\n" +
+			"2x Primordial Drake\n" +
+			"1x Shadowreaper Anduin\n" +
+			"1x Alexstrasza";
+
+	/**
+	 * A deck with many Choose One cards, whose actions have options.
+	 */
+	public static final String CHOOSE_ONE_DRUID = "Name: Choose One Druid\n" +
+			"Class: Druid\n" +
+			"Format: Wild\n" +
+			"2x Innervate\n" +
+			"2x Wild Growth\n" +
+			"2x Wrath\n" +
+			"2x Living Roots\n" +
+			"2x Power of the Wild\n" +
+			"2x Keeper of the Grove\n" +
+			"2x Swipe\n" +
+			"2x Nourish\n" +
+			"2x Starfall\n" +
+			"2x Mark of Nature\n" +
+			"2x Ancient of Lore\n" +
+			"2x Ancient of War\n" +
+			"2x Chillwind Yeti\n" +
+			"2x Boulderfist Ogre\n" +
+			"1x Fandral Staghelm\n" +
+			"1x Cenarius";
+
+	private FixedDecks() {
+	}
+
+	/**
+	 * Creates a game between {@link #AGGRO_WARRIOR} and {@link #CONTROL_PRIEST}.
+	 *
+	 * @param seed The seed.
+	 * @return A context for which {@link GameContext#play()} will immediately work.
+	 * @see #seededGame(List, long)
+	 */
+	public static GameContext seededGame(long seed) {
+		return seededGame(Arrays.asList(AGGRO_WARRIOR, CONTROL_PRIEST), seed);
+	}
+
+	/**
+	 * Creates a game with seeded logic between two {@link SeededRandomBehaviour}s. Games created with the same decks and
+	 * seed play out the same way. The game has not been started.
+	 *
+	 * @param deckLists The deck lists of the two players.
+	 * @param seed      The seed of the logic. The players use this seed and the next one.
+	 * @return A context for which {@link GameContext#play()} will immediately work.
+	 */
+	public static GameContext seededGame(List<String> deckLists, long seed) {
+		GameContext context = GameContext.fromDeckLists(deckLists, new SeededRandomBehaviour(seed), new SeededRandomBehaviour(seed + 1));
+		context.setLogic(new GameLogic(seed));
+		return context;
+	}
+}
@@ -0,0 +1,30 @@
+package net.demilich.metastone.tests.util;
+
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.behaviour.PlayRandomBehaviour;
+
+import java.util.Random;
+
+/**
+ * A random behaviour whose choices are determined by a seed instead of the clock.
+ * <p>
+ * Together with a seeded {@link net.demilich.metastone.game.logic.GameLogic}, games between seeded random behaviours
+ * are reproducible, which is what tests and benchmarks that compare games need. Clones share the random, so they
+ * continue the same sequence of choices.
+ *
+ * @see net.demilich.metastone.game.behaviour.LogicRandomBehaviour for a behaviour that uses the game's own random
+ *      instead.
+ */
+public class SeededRandomBehaviour extends PlayRandomBehaviour {
+	private static final long serialVersionUID = 1L;
+	private final Random random;
+
+	public SeededRandomBehaviour(long seed) {
+		this.random = new Random(seed);
+	}
+
+	@Override
+	protected Random getRandom(GameContext context) {
+		return random;
+	}
+}
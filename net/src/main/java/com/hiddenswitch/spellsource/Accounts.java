@@ -7,6 +7,7 @@ import com.hiddenswitch.spellsource.impl.util.*;
 import com.hiddenswitch.spellsource.models.*;
 import com.hiddenswitch.spellsource.util.QuickJson;
 import com.lambdaworks.crypto.SCryptUtil;
+import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.*;
@@ -24,8 +25,10 @@ import java.sql.Date;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -118,6 +121,21 @@ public interface Accounts {
 		return findOne(userId.toString());
 	}
 
+	/**
+	 * Starts fetching the usernames of the given users in a single query. The caller can do other work while the query
+	 * runs and wait for the result when it needs it.
+	 *
+	 * @param userIds The IDs of the users.
+	 * @return A future of the usernames keyed by user ID. Users that don't exist are missing from the map.
+	 */
+	static Future<Map<String, String>> findUsernames(Collection<String> userIds) {
+		Future<List<JsonObject>> users = Future.future();
+		mongo().client().findWithOptions(USERS, json("_id", json("$in", new JsonArray(new ArrayList<>(userIds)))),
+				new FindOptions().setFields(json("username", 1)), users);
+		return users.map(records -> records.stream()
+				.collect(Collectors.toMap(record -> record.getString("_id"), record -> record.getString("username"))));
+	}
+
 	/**
 	 * Finds user accounts with the given options.
 	 *
@@ -466,6 +484,7 @@ public interface Accounts {
 		mongo().removeDocuments(Inventory.COLLECTIONS, json("userId", record.getId()));
 		// Remove all inventory records
 		mongo().removeDocuments(Inventory.INVENTORY, json("userId", record.getId()));
+		CollectionCache.invalidate(Collections.singletonList(record.getId()), Collections.emptyList());
 		// Remove the user document
 		mongo().removeDocument(Accounts.USERS, json("_id", record.getId()));
 
@@ -478,6 +497,7 @@ public interface Accounts {
 		mongo().removeDocuments(Inventory.COLLECTIONS, json("userId", json("$in", userIds)));
 		// Remove all inventory records
 		mongo().removeDocuments(Inventory.INVENTORY, json("userId", json("$in", userIds)));
+		CollectionCache.invalidate(ids.stream().map(UserId::toString).collect(Collectors.toList()), Collections.emptyList());
 		// Remove the user document
 		MongoClientDeleteResult result = mongo().removeDocuments(Accounts.USERS, json("_id", json("$in", userIds)));
 		return result.getRemovedCount();
@@ -1,17 +1,23 @@
 package com.hiddenswitch.spellsource;
 
+import co.paralleluniverse.fibers.Fiber;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.hiddenswitch.spellsource.impl.GameId;
 import com.hiddenswitch.spellsource.impl.UserId;
+import com.hiddenswitch.spellsource.impl.util.BotLease;
 import com.hiddenswitch.spellsource.impl.util.UserRecord;
 import com.hiddenswitch.spellsource.models.*;
 import com.hiddenswitch.spellsource.util.Mongo;
+import com.hiddenswitch.spellsource.concurrent.SuspendableLock;
 import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
+import com.hiddenswitch.spellsource.concurrent.SuspendableQueue;
+import com.hiddenswitch.spellsource.concurrent.impl.SuspendableHazelcastQueue;
+import io.vertx.core.Closeable;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.json.Json;
+import io.vertx.core.VertxException;
 import io.vertx.ext.mongo.FindOptions;
 import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.actions.GameAction;
@@ -24,12 +30,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.hiddenswitch.spellsource.util.QuickJson.json;
+import static io.vertx.ext.sync.Sync.awaitEvent;
 import static io.vertx.ext.sync.Sync.awaitResult;
+import static io.vertx.ext.sync.Sync.getContextScheduler;
 
 /**
  * A service that processes bot actions, mulligans and conveniently creates bot games.
@@ -37,6 +46,30 @@ import static io.vertx.ext.sync.Sync.awaitResult;
 public interface Bots {
 	Logger LOGGER = LoggerFactory.getLogger(Bots.class);
 	AtomicReference<Supplier<? extends Behaviour>> BEHAVIOUR = new AtomicReference<>(GameStateValueBehaviour::new);
+	/**
+	 * The number of bot actions that were taken from a plan made by an earlier search.
+	 */
+	AtomicLong PLAN_HITS = new AtomicLong();
+	/**
+	 * The number of bot actions that needed a fresh search.
+	 */
+	AtomicLong PLAN_SEARCHES = new AtomicLong();
+	String IDLE_BOTS = "Bots::idle";
+	String BOT_LEASES = "Bots::leases";
+	/**
+	 * How long a bot's lease lasts unless the node running its game renews it with {@link #renewBot(UserId, GameId)}.
+	 */
+	long BOT_LEASE_MILLIS = 60000L;
+	/**
+	 * How often the pool looks for bots that are neither idle, leased nor in a game, and returns them to the pool.
+	 */
+	long BOT_RESEED_INTERVAL = BOT_LEASE_MILLIS;
+	/**
+	 * The number of bots {@link #leaseBot(GameId)} tries before it gives up.
+	 */
+	int MAXIMUM_LEASE_ATTEMPTS = 8;
+	int DEFAULT_BOT_WATERMARK = 4;
+	long BOT_POOL_INTERVAL = 1000L;
 
 	/**
 	 * Decide which cards to mulligan given a starting hand.
@@ -60,30 +93,46 @@ public interface Bots {
 	 */
 	@Suspendable
 	static RequestActionResponse requestAction(RequestActionRequest request) {
+		return requestAction(request, new ArrayDeque<>());
+	}
+
+	/**
+	 * Decides which action to perform given a list of possibilities and the current game state, following the plan from
+	 * the bot's previous search if it's still valid.
+	 * <p>
+	 * The plan is kept by the caller for as long as the game runs, so that consecutive moves from one search don't need
+	 * to look it up anywhere.
+	 *
+	 * @param request   The game state and options for an action.
+	 * @param indexPlan The indices of the actions the bot planned to take next. Updated with the remaining plan.
+	 * @return The selected action.
+	 */
+	@Suspendable
+	static RequestActionResponse requestAction(RequestActionRequest request, Deque<Integer> indexPlan) {
 		RequestActionResponse response = new RequestActionResponse();
 		// Use execute blocking to yield here
 		LOGGER.debug("requestAction: Requesting action from behaviour.");
 		final Behaviour behaviour = getBehaviour().get();
-		// See if there's a cache of bot plans for this action
 		if (behaviour instanceof GameStateValueBehaviour) {
 			GameStateValueBehaviour gsvb = (GameStateValueBehaviour) behaviour;
-			SuspendableMap<GameId, Buffer> map = SuspendableMap.getOrCreate("Bots::indexPlans");
-			GameId gameId = request.gameId;
-			Buffer buf = map.get(gameId);
-			if (buf != null) {
-				List<Integer> indexPlan = Json.decodeValue(buf, new TypeReference<List<Integer>>() {
-				});
-				gsvb.setIndexPlan(new ArrayDeque<>(indexPlan));
-			}
+			int planSize = indexPlan.size();
+			gsvb.setIndexPlan(planSize == 0 ? null : indexPlan);
 
 			delegateRequestAction(request, response, gsvb);
 
+			Deque<Integer> newIndexPlan = gsvb.getIndexPlan();
+			if (newIndexPlan == indexPlan && indexPlan.size() < planSize) {
+				PLAN_HITS.incrementAndGet();
+			} else if (request.validActions.size() > 1) {
+				PLAN_SEARCHES.incrementAndGet();
+			}
+
 			// Save the new index plan
-			Deque<Integer> indexPlan = gsvb.getIndexPlan();
-			if (indexPlan != null) {
-				map.put(gameId, Json.encodeToBuffer(new ArrayList<>(indexPlan)));
-			} else {
-				map.remove(gameId);
+			if (newIndexPlan != indexPlan) {
+				indexPlan.clear();
+				if (newIndexPlan != null) {
+					indexPlan.addAll(newIndexPlan);
+				}
 			}
 		} else {
 			delegateRequestAction(request, response, behaviour);
@@ -119,20 +168,204 @@ public interface Bots {
 		}
 	}
 
-	static UserId pollBotId() throws SuspendExecution, InterruptedException {
-		// TODO: Contains synchronization issues, but the worst that will happen is that a single bot plays multiple games
-		List<String> bots = getBotIds();
+	/**
+	 * Leases an idle bot account for the given game. The lease is returned to the pool by {@link #releaseBot(UserId,
+	 * GameId)} when the game ends. If it isn't, e.g. because the game could not be created or its node died, the lease
+	 * expires after {@link #BOT_LEASE_MILLIS} and the pool takes the bot back.
+	 * <p>
+	 * The idle bots are kept in a cluster-wide queue, so leasing one doesn't need a lock. A new bot account is only
+	 * created here if the pool is empty, because the pool is normally kept filled by {@link #startBotPool(int)}.
+	 * <p>
+	 * The lease is written right after the bot is taken from the queue, before anything else can fail. A bot whose node
+	 * died in between is neither idle nor leased, and is returned to the pool by {@link #reseedBots()}. Since that can
+	 * put a bot into the queue twice, the lease is only written if the bot isn't leased already.
+	 *
+	 * @param gameId The game the bot will play in.
+	 * @return The bot's user record.
+	 * @throws IllegalStateException if no bot could be leased after {@link #MAXIMUM_LEASE_ATTEMPTS} attempts.
+	 */
+	@Suspendable
+	static UserRecord leaseBot(GameId gameId) throws SuspendExecution, InterruptedException {
+		SuspendableQueue<String> idleBots = SuspendableQueue.getDirect(IDLE_BOTS);
+		SuspendableMap<UserId, BotLease> leases = SuspendableMap.getOrCreate(BOT_LEASES);
+		for (int attempt = 0; attempt < MAXIMUM_LEASE_ATTEMPTS; attempt++) {
+			String botId = idleBots.poll(0L);
+			if (botId == null) {
+				LOGGER.warn("leaseBot {}: The bot pool is empty, creating a bot while the player waits", gameId);
+				botId = createBot().toString();
+			}
+			UserId key = new UserId(botId);
+			BotLease lease = new BotLease(gameId, System.currentTimeMillis() + BOT_LEASE_MILLIS);
+			if (leases.putIfAbsent(key, lease) != null) {
+				// The bot was in the queue twice and is already leased
+				continue;
+			}
 
-		Collections.shuffle(bots);
+			UserRecord bot = Accounts.get(botId);
+			if (bot != null) {
+				return bot;
+			}
+			// Skips bots whose accounts were removed while they were idle
+			leases.remove(key, lease);
+		}
+		throw new IllegalStateException(String.format("Could not lease a bot for %s after %d attempts", gameId, MAXIMUM_LEASE_ATTEMPTS));
+	}
+
+	/**
+	 * Returns a leased bot to the pool of idle bots. Releasing a bot that isn't leased for the given game does nothing,
+	 * so it's safe to call for every bot in a game when it ends.
+	 *
+	 * @param botId  The bot's user ID.
+	 * @param gameId The game the bot was leased for.
+	 */
+	@Suspendable
+	static void releaseBot(UserId botId, GameId gameId) throws SuspendExecution {
+		SuspendableMap<UserId, BotLease> leases = SuspendableMap.getOrCreate(BOT_LEASES);
+		BotLease lease = leases.get(botId);
+		if (lease != null && lease.getGameId().equals(gameId) && leases.remove(botId, lease)) {
+			SuspendableQueue.<String>getDirect(IDLE_BOTS).offer(botId.toString());
+		}
+	}
+
+	/**
+	 * Extends the lease of a bot that is still playing the given game.
+	 *
+	 * @param botId  The bot's user ID.
+	 * @param gameId The game the bot was leased for.
+	 */
+	@Suspendable
+	static void renewBot(UserId botId, GameId gameId) throws SuspendExecution {
+		SuspendableMap<UserId, BotLease> leases = SuspendableMap.getOrCreate(BOT_LEASES);
+		BotLease lease = leases.get(botId);
+		if (lease != null && lease.getGameId().equals(gameId)) {
+			// Does nothing if the lease was released or renewed in the meantime
+			leases.replace(botId, lease, new BotLease(gameId, System.currentTimeMillis() + BOT_LEASE_MILLIS));
+		}
+	}
+
+	/**
+	 * Returns the bots whose leases expired to the pool of idle bots.
+	 *
+	 * @return The number of bots returned to the pool.
+	 */
+	@Suspendable
+	static int reclaimExpiredBots() throws SuspendExecution {
+		SuspendableMap<UserId, BotLease> leases = SuspendableMap.getOrCreate(BOT_LEASES);
+		long now = System.currentTimeMillis();
+		int reclaimed = 0;
+		for (Map.Entry<UserId, BotLease> lease : leases.entrySet()) {
+			if (lease.getValue().isExpired(now) && leases.remove(lease.getKey(), lease.getValue())) {
+				LOGGER.warn("reclaimExpiredBots: The lease of {} for {} expired", lease.getKey(), lease.getValue().getGameId());
+				SuspendableQueue.<String>getDirect(IDLE_BOTS).offer(lease.getKey().toString());
+				reclaimed++;
+			}
+		}
+		return reclaimed;
+	}
+
+	/**
+	 * Returns the bots that are neither idle, leased nor in a game to the pool of idle bots. These are bots whose node
+	 * died after taking them from the pool but before writing their lease, and, when the first pool of the cluster
+	 * starts, all the existing bots.
+	 *
+	 * @return The number of bots returned to the pool.
+	 */
+	@Suspendable
+	static int reseedBots() throws SuspendExecution, InterruptedException {
+		SuspendableHazelcastQueue<String> idleBots = new SuspendableHazelcastQueue<>(IDLE_BOTS);
 		SuspendableMap<UserId, GameId> games = Games.getGames();
+		SuspendableMap<UserId, BotLease> leases = SuspendableMap.getOrCreate(BOT_LEASES);
+		Set<String> idle = new HashSet<>(idleBots.toList());
+		int reseeded = 0;
+		for (String botId : getBotIds()) {
+			UserId key = new UserId(botId);
+			if (!idle.contains(botId) && !games.containsKey(key) && !leases.containsKey(key)) {
+				idleBots.offer(botId);
+				reseeded++;
+			}
+		}
+		return reseeded;
+	}
+
+	/**
+	 * Starts keeping the pool of idle bots filled to the given watermark in the background. Only one pool is filled at a
+	 * time in the cluster.
+	 * <p>
+	 * The pool takes back the bots whose leases expired, and every {@link #BOT_RESEED_INTERVAL} the bots that were lost
+	 * between the queue and their lease, see {@link #reseedBots()}. The first time it does that, it adds the existing bot
+	 * accounts that aren't in a game to the pool.
+	 *
+	 * @param watermark The number of idle bots to keep in the pool.
+	 * @return A handle to stop filling the pool.
+	 */
+	@Suspendable
+	static Closeable startBotPool(int watermark) throws SuspendExecution {
+		Vertx vertx = Vertx.currentContext().owner();
+		Fiber<Void> fiber = getContextScheduler().newFiber(() -> {
+			SuspendableLock lock = null;
+			try {
+				lock = SuspendableLock.lock("Bots::pool");
+				SuspendableQueue<String> idleBots = SuspendableQueue.getDirect(IDLE_BOTS);
+				long reseededAt = 0L;
 
-		for (String id : bots) {
-			UserId key = new UserId(id);
-			if (!games.containsKey(key)) {
-				return key;
+				while (true) {
+					reclaimExpiredBots();
+					long now = System.currentTimeMillis();
+					if (now - reseededAt >= BOT_RESEED_INTERVAL) {
+						reseededAt = now;
+						int reseeded = reseedBots();
+						if (reseeded > 0) {
+							LOGGER.debug("startBotPool: Returned {} bots to the pool", reseeded);
+						}
+					}
+					int idle = idleBots.size();
+					for (int i = idle; i < watermark; i++) {
+						idleBots.offer(createBot().toString());
+					}
+					if (idle < watermark) {
+						LOGGER.debug("startBotPool: Created {} bots", watermark - idle);
+					}
+					awaitEvent((Handler<Long> h) -> vertx.setTimer(BOT_POOL_INTERVAL, h));
+				}
+			} catch (VertxException | InterruptedException ex) {
+				// Cancelled
+			} finally {
+				if (lock != null) {
+					lock.release();
+				}
 			}
+			return null;
+		});
+
+		fiber.start();
+
+		return completionHandler -> {
+			fiber.interrupt();
+			completionHandler.handle(Future.succeededFuture());
+		};
+	}
+
+	/**
+	 * Gets the number of idle bots to keep in the pool, configured by the {@code BOT_WATERMARK} environment variable or
+	 * the {@code spellsource.bots.watermark} system property.
+	 *
+	 * @return The watermark.
+	 */
+	static int botWatermark() {
+		String environmentWatermark = System.getenv("BOT_WATERMARK");
+		String systemPropertyWatermark = System.getProperty("spellsource.bots.watermark");
+		int watermark = DEFAULT_BOT_WATERMARK;
+		if (environmentWatermark != null) {
+			watermark = Integer.parseInt(environmentWatermark);
+		}
+		if (systemPropertyWatermark != null) {
+			watermark = Integer.parseInt(systemPropertyWatermark);
 		}
+		return watermark;
+	}
 
+	@Suspendable
+	static UserId createBot() throws SuspendExecution, InterruptedException {
 		CreateAccountResponse response = Accounts.createAccount(new CreateAccountRequest()
 				.withName("Botcharles")
 				.withEmailAddress("botid" + RandomStringUtils.randomAlphanumeric(32) + "@hiddenswitch.com")
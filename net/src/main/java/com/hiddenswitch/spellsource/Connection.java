@@ -5,20 +5,17 @@ import co.paralleluniverse.fibers.Suspendable;
 import co.paralleluniverse.strands.SuspendableAction1;
 import com.hiddenswitch.spellsource.client.models.Envelope;
 import com.hiddenswitch.spellsource.impl.ConnectionImpl;
+import com.hiddenswitch.spellsource.impl.ConnectionRegistry;
 import com.hiddenswitch.spellsource.impl.UserId;
 import com.hiddenswitch.spellsource.util.Hazelcast;
 import com.hiddenswitch.spellsource.concurrent.SuspendableLock;
-import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
 import com.hiddenswitch.spellsource.util.Sync;
 import io.vertx.core.*;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.MessageConsumer;
-import io.vertx.core.eventbus.MessageProducer;
 import io.vertx.core.http.ServerWebSocket;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.core.streams.ReadStream;
 import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.web.RoutingContext;
@@ -33,14 +30,6 @@ import static com.hiddenswitch.spellsource.util.Sync.suspendableHandler;
 public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>, Closeable {
 	Logger logger = LoggerFactory.getLogger(Hazelcast.class);
 
-	static SuspendableMap<UserId, String> getConnections() throws SuspendExecution {
-		return SuspendableMap.getOrCreate("Connection::connections");
-	}
-
-	static void getConnections(Handler<AsyncResult<AsyncMap<UserId, String>>> handler) {
-		SuspendableMap.getOrCreate("Connection::connections", handler);
-	}
-
 	/**
 	 * Retrieves a valid reference to write to a connection from anywhere, as long as the event bus on the other node is
 	 * shared/clustered with this one.
@@ -49,14 +38,7 @@ public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>,
 	 * @return A connection object.
 	 */
 	static WriteStream<Envelope> writeStream(String userId) throws SuspendExecution {
-		SuspendableMap<UserId, String> connections = getConnections();
-		String handlerId = connections.get(new UserId(userId));
-		if (handlerId == null) {
-			return null;
-		}
-
-		MessageProducer<Envelope> producer = Vertx.currentContext().owner().eventBus().publisher(handlerId);
-		return producer;
+		return ConnectionRegistry.current().writeStream(userId);
 	}
 
 	static WriteStream<Envelope> writeStream(UserId userId) throws SuspendExecution {
@@ -64,31 +46,13 @@ public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>,
 	}
 
 	static void writeStream(String userId, Handler<AsyncResult<WriteStream<Envelope>>> handler) {
-		getConnections(r1 -> {
-			if (r1.failed()) {
-				handler.handle(Future.failedFuture(r1.cause()));
-			} else {
-				r1.result().get(new UserId(userId), r2 -> {
-					if (r2.failed()) {
-						handler.handle(Future.failedFuture(r2.cause()));
-					} else {
-						String handlerId = r2.result();
-						if (handlerId != null) {
-							handler.handle(Future.succeededFuture(Vertx.currentContext().owner().eventBus().publisher(handlerId)));
-						} else {
-							handler.handle(Future.succeededFuture());
-						}
-					}
-				});
-			}
-		});
+		ConnectionRegistry.current().writeStream(userId, handler);
 	}
 
 	static Connection create(String userId) throws SuspendExecution {
-		SuspendableMap<UserId, String> connections = getConnections();
-		String id = "Connection::clusteredConsumer[" + userId + "]";
-		connections.put(new UserId(userId), id);
-		return new ConnectionImpl(userId).setId(id);
+		Connection connection = new ConnectionImpl(userId);
+		ConnectionRegistry.current().register(connection);
+		return connection;
 	}
 
 	static Handler<RoutingContext> handler() {
@@ -113,7 +77,7 @@ public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>,
 
 	@Suspendable
 	static SuspendableLock methodLock(String userId) {
-		return SuspendableLock.lock("Connection::method-ordering-lock[" + userId + "]");
+		return ConnectionRegistry.current().methodLock(userId);
 	}
 
 	@Suspendable
@@ -133,8 +97,6 @@ public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>,
 			return;
 		}
 
-		SuspendableLock lock = SuspendableLock.lock("Connection::realtime[" + userId + "]");
-
 		Deque<Handler<Connection>> handlers = getHandlers();
 		Connection connection = create(userId);
 
@@ -143,9 +105,6 @@ public interface Connection extends ReadStream<Envelope>, WriteStream<Envelope>,
 			Vertx.currentContext().runOnContext(v -> handler.handle(connection));
 		}
 
-		// The lock gets released when the user disconnects
-		connection.endHandler(v -> lock.release());
-
 		ServerWebSocket socket = routingContext.request().upgrade();
 		connection.setSocket(socket);
 	}
@@ -3,16 +3,21 @@ package com.hiddenswitch.spellsource;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.SuspendableAction1;
 import com.hiddenswitch.spellsource.client.models.*;
-import com.hiddenswitch.spellsource.concurrent.SuspendableMultimap;
+import com.hiddenswitch.spellsource.impl.ChatStore;
 import com.hiddenswitch.spellsource.impl.util.UserRecord;
 import com.hiddenswitch.spellsource.util.*;
-import io.reactivex.disposables.Disposable;
-import org.apache.commons.lang3.RandomStringUtils;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
 
 public interface Conversations {
+	String MESSAGES = "conversations.messages";
 
 	static void handleConnections() throws SuspendExecution {
-		SuspendableMultimap<ConversationId, ChatMessage> conversations = SuspendableMultimap.getOrCreate("conversations");
+		Vertx vertx = Vertx.currentContext().owner();
+		ChatStore store = ChatStore.get(vertx);
 
 		Connection.connected(connection -> {
 			connection.handler(Sync.suspendableHandler((SuspendableAction1<Envelope>) msg -> {
@@ -29,14 +34,12 @@ public interface Conversations {
 					}
 					// Conversation IDs should be of the form userId1,userId2
 					// TODO: Assert that it's two valid user IDs.
-					ChatMessage message = new ChatMessage()
-									.messageId("c:" + Integer.toString(conversations.size()) + ":" + RandomStringUtils.randomAlphanumeric(6))
+					ChatMessage message = store.append(new ChatMessage()
 									.conversationId(conversationId)
 									.message(sendMessage.getMessage())
 									.senderUserId(sender.getId())
-									.senderName(sender.getUsername());
+									.senderName(sender.getUsername()));
 
-					conversations.put(new ConversationId(conversationId), message);
 					connection.write(new Envelope().result(new EnvelopeResult().sendMessage(new EnvelopeResultSendMessage().messageId(message.getMessageId()))));
 				}
 
@@ -44,25 +47,33 @@ public interface Conversations {
 					// Subscribe to conversation
 					EnvelopeSubConversation request = msg.getSub().getConversation();
 					String conversationId = request.getConversationId();
-					ConversationId key = new ConversationId(conversationId);
 
-					AddedChangedRemoved<ConversationId, ChatMessage> observer =
-									SuspendableMultimap.subscribeToKeyInMultimap("conversations", key);
+					MessageConsumer<JsonObject> consumer = vertx.eventBus().consumer(ChatStore.messagesAddress(conversationId), next -> {
+						connection.write(new Envelope().added(new EnvelopeAdded().chatMessage(next.body().mapTo(ChatMessage.class))));
+					});
 
-					for (ChatMessage message : conversations.get(key)) {
+					// Only the recent messages are replayed. Older ones are paged with history
+					for (ChatMessage message : store.recent(conversationId)) {
 						connection.write(new Envelope().added(new EnvelopeAdded().chatMessage(message)));
 					}
 
-					Disposable sub = observer.added().subscribe(next -> {
-						connection.write(new Envelope().added(new EnvelopeAdded().chatMessage(next.getValue())));
-					});
-
-					connection.endHandler(v -> {
-						sub.dispose();
-						observer.dispose();
-					});
+					connection.endHandler(v -> consumer.unregister());
 				}
 			}));
 		});
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Gets a page of a conversation's history.
+	 *
+	 * @param conversationId  The conversation.
+	 * @param beforeMessageId The ID of the oldest message the caller already has, or {@code null} to get the most
+	 *                        recent messages.
+	 * @param limit           The maximum number of messages to return.
+	 * @return The messages, from oldest to newest.
+	 * @throws SuspendExecution
+	 */
+	static List<ChatMessage> history(String conversationId, String beforeMessageId, int limit) throws SuspendExecution {
+		return ChatStore.get(Vertx.currentContext().owner()).history(conversationId, beforeMessageId, limit);
+	}
+}
@@ -4,6 +4,7 @@ import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
 import com.hiddenswitch.spellsource.client.models.DecksUpdateCommand;
 import com.hiddenswitch.spellsource.common.DeckCreateRequest;
+import com.hiddenswitch.spellsource.impl.util.CollectionCache;
 import com.hiddenswitch.spellsource.impl.util.DeckType;
 import com.hiddenswitch.spellsource.impl.util.InventoryRecord;
 import com.hiddenswitch.spellsource.models.*;
@@ -127,6 +128,7 @@ public interface Decks {
 
 		if (!collectionUpdate.isEmpty()) {
 			MongoClientUpdateResult result = mongo().updateCollection(Inventory.COLLECTIONS, json("_id", deckId), collectionUpdate);
+			CollectionCache.invalidate(Collections.singletonList(deckId), Collections.emptyList());
 		}
 
 		if (updateCommand.getPullAllInventoryIds() != null
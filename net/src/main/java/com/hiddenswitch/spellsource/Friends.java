@@ -3,11 +3,17 @@ package com.hiddenswitch.spellsource;
 import co.paralleluniverse.fibers.SuspendExecution;
 import com.hiddenswitch.spellsource.client.models.FriendPutRequest;
 import com.hiddenswitch.spellsource.client.models.FriendPutResponse;
+import com.hiddenswitch.spellsource.client.models.PresenceEnum;
 import com.hiddenswitch.spellsource.client.models.UnfriendResponse;
+import com.hiddenswitch.spellsource.impl.UserId;
+import com.hiddenswitch.spellsource.impl.util.FriendIndex;
 import com.hiddenswitch.spellsource.impl.util.FriendRecord;
 import com.hiddenswitch.spellsource.impl.util.UserRecord;
 import com.hiddenswitch.spellsource.util.Mongo;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static com.hiddenswitch.spellsource.util.QuickJson.json;
 
 public interface Friends {
@@ -64,9 +70,14 @@ public interface Friends {
 		Accounts.update(userId, json("$push", json("friends", json(friendRecord))));
 		Accounts.update(friendId, json("$push", json("friends", json(friendOfFriendRecord))));
 
-		// Update presence for both users
-		Presence.setPresence(userId);
-		Presence.setPresence(friendId);
+		FriendIndex.invalidate(Arrays.asList(userId, friendId));
+
+		// Let the new friends see each other's presence
+		PresenceEnum userPresence = Presence.getPresence(userId);
+		PresenceEnum friendPresence = Presence.getPresence(friendId);
+		Presence.notify(new UserId(userId), userPresence, Collections.singletonList(friendId));
+		Presence.notify(new UserId(friendId), friendPresence, Collections.singletonList(userId));
+		friendRecord.setPresence(friendPresence);
 		return new FriendPutResponse().friend(friendRecord.toFriendDto());
 	}
 
@@ -97,6 +108,7 @@ public interface Friends {
 				json("friends", json("friendId", friendId))));
 		Accounts.update(Mongo.mongo().client(), friendId, json("$pull",
 				json("friends", json("friendId", userId))));
+		FriendIndex.invalidate(Arrays.asList(userId, friendId));
 
 		return new UnfriendResponse().deletedFriend(friendRecord.toFriendDto());
 	}
@@ -3,6 +3,7 @@ package com.hiddenswitch.spellsource;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
 import com.hiddenswitch.spellsource.client.models.*;
+import com.hiddenswitch.spellsource.common.ClientEntityCache;
 import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
 import com.hiddenswitch.spellsource.impl.ClusteredGames;
 import com.hiddenswitch.spellsource.impl.GameId;
@@ -10,6 +11,7 @@ import com.hiddenswitch.spellsource.impl.UserId;
 import com.hiddenswitch.spellsource.models.*;
 import com.hiddenswitch.spellsource.util.Hazelcast;
 import com.hiddenswitch.spellsource.util.Rpc;
+import com.hiddenswitch.spellsource.util.RpcOptions;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
 import net.demilich.metastone.game.GameContext;
@@ -35,6 +37,7 @@ import net.demilich.metastone.game.spells.trigger.Trigger;
 import net.demilich.metastone.game.spells.trigger.secrets.Quest;
 import net.demilich.metastone.game.spells.trigger.secrets.Secret;
 import net.demilich.metastone.game.targeting.EntityReference;
+import net.demilich.metastone.game.targeting.IdFactory;
 import net.demilich.metastone.game.targeting.Zones;
 import net.demilich.metastone.game.utils.Attribute;
 import org.slf4j.Logger;
@@ -635,6 +638,7 @@ public interface Games extends Verticle {
 	 * @throws SuspendExecution
 	 * @throws InterruptedException
 	 */
+	@RpcOptions(serialization = RpcOptions.Serialization.BINARY)
 	@Suspendable
 	CreateGameSessionResponse createGameSession(ConfigurationRequest request) throws SuspendExecution, InterruptedException;
 
@@ -657,6 +661,7 @@ public interface Games extends Verticle {
 	 * @throws InterruptedException
 	 * @throws SuspendExecution
 	 */
+	@RpcOptions(serialization = RpcOptions.Serialization.BINARY)
 	EndGameSessionResponse endGameSession(EndGameSessionRequest request) throws InterruptedException, SuspendExecution;
 
 	/**
@@ -691,6 +696,7 @@ public interface Games extends Verticle {
 	 * @throws InterruptedException
 	 * @throws SuspendExecution
 	 */
+	@RpcOptions(serialization = RpcOptions.Serialization.BINARY)
 	@Suspendable
 	ConcedeGameSessionResponse concedeGameSession(ConcedeGameSessionRequest request) throws InterruptedException, SuspendExecution;
 
@@ -730,6 +736,24 @@ public interface Games extends Verticle {
 	 * @return A client view game state.
 	 */
 	static GameState getGameState(GameContext workingContext, Player local, Player opponent) {
+		return getGameState(workingContext, local, opponent, null);
+	}
+
+	/**
+	 * Given a context and a specification of who the local and opposing players are, generate a client game state view.
+	 * This view does not leak secure information.
+	 * <p>
+	 * Entities that have not changed since they were last rendered into the cache are not rendered again. The entities in
+	 * the returned game state may be shared with other game states generated with the same cache, so they must not be
+	 * modified.
+	 *
+	 * @param workingContext A context containing the complete game state.
+	 * @param local          The local player.
+	 * @param opponent       The opposing player.
+	 * @param cache          The cache of client views for this game, or {@code null} to render every entity.
+	 * @return A client view game state.
+	 */
+	static GameState getGameState(GameContext workingContext, Player local, Player opponent, ClientEntityCache cache) {
 		List<com.hiddenswitch.spellsource.client.models.Entity> entities = new ArrayList<>();
 		// Censor the opponent hand and deck entities
 		// All minions are visible
@@ -738,7 +762,7 @@ public interface Games extends Verticle {
 
 		List<com.hiddenswitch.spellsource.client.models.Entity> localHand = new ArrayList<>();
 		for (Card card : local.getHand()) {
-			com.hiddenswitch.spellsource.client.models.Entity entity = getEntity(workingContext, card, localPlayerId);
+			com.hiddenswitch.spellsource.client.models.Entity entity = getEntity(workingContext, card, localPlayerId, cache);
 			localHand.add(entity);
 		}
 
@@ -748,7 +772,7 @@ public interface Games extends Verticle {
 		for (EntityZone<Minion> battlefield : Arrays.asList(local.getMinions(), opponent.getMinions())) {
 			List<com.hiddenswitch.spellsource.client.models.Entity> minions = new ArrayList<>();
 			for (Minion minion : battlefield) {
-				com.hiddenswitch.spellsource.client.models.Entity entity = getEntity(workingContext, minion, localPlayerId);
+				com.hiddenswitch.spellsource.client.models.Entity entity = getEntity(workingContext, minion, localPlayerId, cache);
 				minions.add(entity);
 			}
 
@@ -803,24 +827,19 @@ public interface Games extends Verticle {
 							.gameStarted(player.hasAttribute(Attribute.GAME_STARTED)));
 			playerEntities.add(playerEntity);
 			// The heroes may have wound up in the graveyard
-			com.hiddenswitch.spellsource.client.models.Entity heroEntity = getEntity(workingContext, player.getHero(), localPlayerId);
+			com.hiddenswitch.spellsource.client.models.Entity heroEntity = getEntity(workingContext, player.getHero(), localPlayerId, cache);
 
 			if (heroEntity == null) {
 				continue;
 			}
 
-			// Include the player's mana, locked mana and max mana in the hero entity for convenience
-			heroEntity.getState()
-					.mana(player.getMana())
-					.maxMana(player.getMaxMana())
-					.lockedMana(player.getLockedMana());
 			playerEntities.add(heroEntity);
 			if (player.getHero().getHeroPower() != null) {
-				com.hiddenswitch.spellsource.client.models.Entity heroPowerEntity = getEntity(workingContext, player.getHero().getHeroPower(), localPlayerId);
+				com.hiddenswitch.spellsource.client.models.Entity heroPowerEntity = getEntity(workingContext, player.getHero().getHeroPower(), localPlayerId, cache);
 				playerEntities.add(heroPowerEntity);
 			}
 			if (player.getHero().getWeapon() != null) {
-				com.hiddenswitch.spellsource.client.models.Entity weaponEntity = getEntity(workingContext, player.getHero().getWeapon(), localPlayerId);
+				com.hiddenswitch.spellsource.client.models.Entity weaponEntity = getEntity(workingContext, player.getHero().getWeapon(), localPlayerId, cache);
 				playerEntities.add(weaponEntity);
 			}
 		}
@@ -829,27 +848,19 @@ public interface Games extends Verticle {
 
 		// Get local discoveries
 		entities.addAll(local.getDiscoverZone().stream()
-				.map(c -> getEntity(workingContext, c, localPlayerId))
+				.map(c -> getEntity(workingContext, c, localPlayerId, cache))
 				.collect(toList()));
 
 		// If the opponent's discovers are uncensored, add them
 		entities.addAll(opponent.getDiscoverZone().stream()
 				.filter(c -> c.hasAttribute(Attribute.UNCENSORED))
-				.map(c -> getEntity(workingContext, c, localPlayerId))
+				.map(c -> getEntity(workingContext, c, localPlayerId, cache))
 				.collect(toList()));
 
 		// Get the heroes that may have wound up in the graveyard
 		List<Entity> graveyardHeroes = Stream.of(local.getGraveyard().stream(), opponent.getGraveyard().stream(), local.getRemovedFromPlay().stream(), opponent.getRemovedFromPlay().stream()).flatMap(e -> e)
 				.filter(e -> e.getEntityType() == EntityType.HERO)
-				.map(h -> {
-					Entity e = getEntity(workingContext, h, localPlayerId);
-					Player owner = h.getOwner() == local.getId() ? local : opponent;
-					e.getState()
-							.mana(owner.getMana())
-							.maxMana(owner.getMaxMana())
-							.lockedMana(owner.getLockedMana());
-					return e;
-				})
+				.map(h -> getEntity(workingContext, (Hero) h, localPlayerId, cache))
 				// Don't include heroes that have already been added
 				.filter(e -> playerEntities.stream().noneMatch(v -> v.getId().equals(e.getId())))
 				.collect(toList());
@@ -913,6 +924,20 @@ public interface Games extends Verticle {
 	 * @return A client entity view.
 	 */
 	static com.hiddenswitch.spellsource.client.models.Entity getEntity(GameContext workingContext, Actor actor, int localPlayerId) {
+		return getEntity(workingContext, actor, localPlayerId, null);
+	}
+
+	/**
+	 * Gets the client's view of an actor in the game engine, rendering it only if it has changed since it was last
+	 * rendered into the cache.
+	 *
+	 * @param workingContext A context to generate the entity view for.
+	 * @param actor          The specified actor.
+	 * @param localPlayerId  The point of view this method should use o determine which information to show the client.
+	 * @param cache          The cache of client views for this game, or {@code null} to render the actor.
+	 * @return A client entity view, which must not be modified if it came from the cache.
+	 */
+	static com.hiddenswitch.spellsource.client.models.Entity getEntity(GameContext workingContext, Actor actor, int localPlayerId, ClientEntityCache cache) {
 		if (actor == null) {
 			return null;
 		}
@@ -922,6 +947,45 @@ public interface Games extends Verticle {
 			workingContext.updateAndGetGameOver();
 		}
 
+		boolean playable = actor.getOwner() == workingContext.getActivePlayerId()
+				&& actor.getOwner() == localPlayerId
+				&& workingContext.getStatus() == GameStatus.RUNNING
+				&& actor.canAttackThisTurn();
+		List<Trigger> triggers = workingContext.getTriggerManager().getTriggersAssociatedWith(actor.getReference());
+		// The derived stats can depend on other entities, like a hero's attack on its weapon, so they aren't cached
+		EntityState dynamicState = new EntityState()
+				.playable(playable)
+				.hostsTrigger(triggers.size() > 0)
+				.attack(actor.getAttack())
+				.hp(actor.getHp())
+				.maxHp(actor.getMaxHp());
+		if (actor instanceof Hero) {
+			dynamicState.armor(actor.getArmor());
+		}
+		if (actor instanceof Hero && actor.getOwner() != IdFactory.UNASSIGNED) {
+			// Include the player's mana, locked mana and max mana in the hero entity for convenience
+			Player owner = workingContext.getPlayer(actor.getOwner());
+			dynamicState
+					.mana(owner.getMana())
+					.maxMana(owner.getMaxMana())
+					.lockedMana(owner.getLockedMana());
+		}
+
+		if (cache == null) {
+			return renderEntity(actor, dynamicState);
+		}
+		return cache.get(actor, dynamicState, Games::renderEntity);
+	}
+
+	/**
+	 * Renders the client's view of an actor.
+	 *
+	 * @param actor        The actor.
+	 * @param dynamicState The parts of the view that depend on the rest of the game, as computed by {@link
+	 *                     #getEntity(GameContext, Actor, int, ClientEntityCache)}.
+	 * @return A new client entity view.
+	 */
+	static com.hiddenswitch.spellsource.client.models.Entity renderEntity(Actor actor, EntityState dynamicState) {
 		Card card = actor.getSourceCard();
 		EntityState entityState = new EntityState();
 		com.hiddenswitch.spellsource.client.models.Entity entity = new com.hiddenswitch.spellsource.client.models.Entity()
@@ -935,7 +999,7 @@ public interface Games extends Verticle {
 			entityState.boardPosition(actor.getEntityLocation().getIndex());
 		} else if (actor instanceof Hero) {
 			entity.setEntityType(com.hiddenswitch.spellsource.client.models.Entity.EntityTypeEnum.HERO);
-			entityState.armor(actor.getArmor());
+			entityState.armor(dynamicState.getArmor());
 		} else if (actor instanceof Weapon) {
 			entity.setEntityType(com.hiddenswitch.spellsource.client.models.Entity.EntityTypeEnum.WEAPON);
 		}
@@ -949,16 +1013,12 @@ public interface Games extends Verticle {
 		entityState.baseManaCost(card.getBaseManaCost());
 		entityState.silenced(actor.hasAttribute(Attribute.SILENCED));
 		entityState.deathrattles(actor.getDeathrattles() != null);
-		boolean playable = actor.getOwner() == workingContext.getActivePlayerId()
-				&& actor.getOwner() == localPlayerId
-				&& workingContext.getStatus() == GameStatus.RUNNING
-				&& actor.canAttackThisTurn();
-		entityState.playable(playable);
-		entityState.attack(actor.getAttack());
+		entityState.playable(dynamicState.isPlayable());
+		entityState.attack(dynamicState.getAttack());
 		entityState.baseAttack(actor.getBaseAttack());
 		entityState.baseHp(actor.getBaseHp());
-		entityState.hp(actor.getHp());
-		entityState.maxHp(actor.getMaxHp());
+		entityState.hp(dynamicState.getHp());
+		entityState.maxHp(dynamicState.getMaxHp());
 		entityState.heroClass(actor.getHeroClass().toString());
 		entityState.underAura(actor.hasAttribute(Attribute.AURA_ATTACK_BONUS)
 				|| actor.hasAttribute(Attribute.AURA_HP_BONUS)
@@ -988,8 +1048,10 @@ public interface Games extends Verticle {
 		entityState.permanent(actor.hasAttribute(Attribute.PERMANENT));
 		entityState.rush(actor.hasAttribute(Attribute.RUSH) || actor.hasAttribute(Attribute.AURA_RUSH));
 		entityState.tribe(actor.getRace() != null ? actor.getRace().name() : null);
-		List<Trigger> triggers = workingContext.getTriggerManager().getTriggersAssociatedWith(actor.getReference());
-		entityState.hostsTrigger(triggers.size() > 0);
+		entityState.hostsTrigger(dynamicState.isHostsTrigger());
+		entityState.mana(dynamicState.getMana());
+		entityState.maxMana(dynamicState.getMaxMana());
+		entityState.lockedMana(dynamicState.getLockedMana());
 		entity.state(entityState);
 		return entity;
 	}
@@ -1045,18 +1107,26 @@ public interface Games extends Verticle {
 	 */
 	@Suspendable
 	static com.hiddenswitch.spellsource.client.models.Entity getEntity(GameContext workingContext, Card card, int localPlayerId) {
+		return getEntity(workingContext, card, localPlayerId, null);
+	}
+
+	/**
+	 * A view of a card, rendered only if it has changed since it was last rendered into the cache. This does not censor
+	 * information from opposing player's--the calling method should handle the censoring.
+	 *
+	 * @param workingContext The context to generate the client view for.
+	 * @param card           The card entity.
+	 * @param localPlayerId  The point of view this method should use o determine which information to show the client.
+	 * @param cache          The cache of client views for this game, or {@code null} to render the card.
+	 * @return A client entity view, which must not be modified if it came from the cache.
+	 */
+	@Suspendable
+	static com.hiddenswitch.spellsource.client.models.Entity getEntity(GameContext workingContext, Card card, int localPlayerId, ClientEntityCache cache) {
 		if (card == null) {
 			return null;
 		}
 
-		com.hiddenswitch.spellsource.client.models.Entity entity = new com.hiddenswitch.spellsource.client.models.Entity()
-				.description(card.getDescription())
-				.entityType(com.hiddenswitch.spellsource.client.models.Entity.EntityTypeEnum.CARD)
-				.name(card.getName())
-				.description(card.getDescription())
-				.id(card.getId())
-				.cardId(card.getCardId());
-		EntityState entityState = new EntityState();
+		EntityState dynamicState = new EntityState();
 		int owner = card.getOwner();
 		Player owningPlayer;
 		if (owner != -1) {
@@ -1065,22 +1135,87 @@ public interface Games extends Verticle {
 					|| card.getZone() == Zones.SET_ASIDE_ZONE
 					|| card.getZone() == Zones.HERO_POWER
 					&& owner == localPlayerId) {
-				boolean playable = workingContext.getLogic().canPlayCard(owner, card.getReference())
-						&& card.getOwner() == workingContext.getActivePlayerId()
-						&& localPlayerId == card.getOwner();
-				entityState.playable(playable);
-				entityState.manaCost(workingContext.getLogic().getModifiedManaCost(workingContext.getPlayer(owner), card));
+				// Check the cheap conditions first, canPlayCard is expensive
+				boolean playable = card.getOwner() == workingContext.getActivePlayerId()
+						&& localPlayerId == card.getOwner()
+						&& workingContext.getLogic().canPlayCard(owner, card.getReference());
+				dynamicState.playable(playable);
+				dynamicState.manaCost(workingContext.getLogic().getModifiedManaCost(workingContext.getPlayer(owner), card));
 			} else {
-				entityState.playable(false);
-				entityState.manaCost(card.getBaseManaCost());
+				dynamicState.playable(false);
+				dynamicState.manaCost(card.getBaseManaCost());
 			}
 			owningPlayer = workingContext.getPlayer(card.getOwner());
 		} else {
-			entityState.playable(false);
-			entityState.manaCost(card.getBaseManaCost());
+			dynamicState.playable(false);
+			dynamicState.manaCost(card.getBaseManaCost());
 			owningPlayer = Player.empty();
 		}
 
+		dynamicState.conditionMet(workingContext.getLogic().conditionMet(localPlayerId, card));
+		boolean hostsTrigger = workingContext.getTriggerManager().getTriggersAssociatedWith(card.getReference()).size() > 0;
+		// TODO: Run the game context to see if the card has any triggering side effects. If it does, then color its border yellow.
+		switch (card.getCardType()) {
+			case MINION:
+				dynamicState.underAura(card.getBonusAttack() > 0
+						|| card.getBonusAttack() > 0
+						|| hostsTrigger);
+				break;
+			case WEAPON:
+				dynamicState.underAura(card.getBonusDamage() > 0
+						|| card.getBonusDurability() > 0
+						|| hostsTrigger);
+				break;
+			case SPELL:
+			case HERO_POWER:
+				int damage = 0;
+				int spellpowerDamage = 0;
+				SpellDesc spell = card.getSpell();
+
+				// Could be a choose-one hero power card
+				if (spell == null) {
+					break;
+				}
+
+				if (card.getZone() == Zones.HAND
+						&& DamageSpell.class.isAssignableFrom(spell.getDescClass())
+						&& owningPlayer != null) {
+
+					Minion oneOne = CardCatalogue.getCardById("minion_snowflipper_penguin").summon();
+					oneOne.setId(65535);
+					damage = DamageSpell.getDamage(workingContext, owningPlayer, card.getSpell(), card, oneOne);
+					spellpowerDamage = workingContext.getLogic().applySpellpower(owningPlayer, card, damage);
+				}
+				dynamicState.underAura(spellpowerDamage > damage
+						|| hostsTrigger);
+				dynamicState.spellDamage(spellpowerDamage);
+				break;
+		}
+
+		if (cache == null) {
+			return renderEntity(card, dynamicState);
+		}
+		return cache.get(card, dynamicState, Games::renderEntity);
+	}
+
+	/**
+	 * Renders the client's view of a card.
+	 *
+	 * @param card         The card.
+	 * @param dynamicState The parts of the view that depend on the rest of the game, as computed by {@link
+	 *                     #getEntity(GameContext, Card, int, ClientEntityCache)}.
+	 * @return A new client entity view.
+	 */
+	static com.hiddenswitch.spellsource.client.models.Entity renderEntity(Card card, EntityState dynamicState) {
+		com.hiddenswitch.spellsource.client.models.Entity entity = new com.hiddenswitch.spellsource.client.models.Entity()
+				.entityType(com.hiddenswitch.spellsource.client.models.Entity.EntityTypeEnum.CARD)
+				.name(card.getName())
+				.description(card.getDescription())
+				.id(card.getId())
+				.cardId(card.getCardId());
+		EntityState entityState = new EntityState();
+		entityState.playable(dynamicState.isPlayable());
+		entityState.manaCost(dynamicState.getManaCost());
 		entityState.owner(card.getOwner());
 		entityState.cardSet(Objects.toString(card.getCardSet()));
 		entityState.rarity(card.getRarity() != null ? card.getRarity().getClientRarity() : null);
@@ -1091,8 +1226,7 @@ public interface Games extends Verticle {
 		entityState.deathrattles(card.hasAttribute(Attribute.DEATHRATTLES));
 		entityState.permanent(card.hasAttribute(Attribute.PERMANENT));
 		entityState.collectible(card.isCollectible());
-		// TODO: A little too underperformant so we're going to skip this
-		// entityState.conditionMet(workingContext.getLogic().conditionMet(localPlayerId, card));
+		entityState.conditionMet(dynamicState.isConditionMet());
 		HeroClass heroClass = card.getHeroClass();
 
 		// Handles tri-class cards correctly
@@ -1102,8 +1236,8 @@ public interface Games extends Verticle {
 
 		entityState.heroClass(heroClass.toString());
 		entityState.cardType(EntityState.CardTypeEnum.valueOf(card.getCardType().toString()));
-		boolean hostsTrigger = workingContext.getTriggerManager().getTriggersAssociatedWith(card.getReference()).size() > 0;
-		// TODO: Run the game context to see if the card has any triggering side effects. If it does, then color its border yellow.
+		entityState.underAura(dynamicState.isUnderAura());
+		entityState.spellDamage(dynamicState.getSpellDamage());
 		switch (card.getCardType()) {
 			case HERO:
 				// Retrieve the weapon attack
@@ -1120,9 +1254,6 @@ public interface Games extends Verticle {
 				entityState.hp(card.getHp());
 				entityState.baseHp(card.getBaseHp());
 				entityState.maxHp(card.getBaseHp() + card.getBonusHp());
-				entityState.underAura(card.getBonusAttack() > 0
-						|| card.getBonusAttack() > 0
-						|| hostsTrigger);
 				entityState.tribe(card.getRace() != null ? card.getRace().name() : null);
 				break;
 			case WEAPON:
@@ -1130,33 +1261,6 @@ public interface Games extends Verticle {
 				entityState.hp(card.getDurability());
 				entityState.maxHp(card.getBaseDurability() + card.getBonusDurability());
 				entityState.attack(card.getDamage() + card.getBonusDamage());
-				entityState.underAura(card.getBonusDamage() > 0
-						|| card.getBonusDurability() > 0
-						|| hostsTrigger);
-				break;
-			case SPELL:
-			case HERO_POWER:
-				int damage = 0;
-				int spellpowerDamage = 0;
-				SpellDesc spell = card.getSpell();
-
-				// Could be a choose-one hero power card
-				if (spell == null) {
-					break;
-				}
-
-				if (card.getZone() == Zones.HAND
-						&& DamageSpell.class.isAssignableFrom(spell.getDescClass())
-						&& owningPlayer != null) {
-
-					Minion oneOne = CardCatalogue.getCardById("minion_snowflipper_penguin").summon();
-					oneOne.setId(65535);
-					damage = DamageSpell.getDamage(workingContext, owningPlayer, card.getSpell(), card, oneOne);
-					spellpowerDamage = workingContext.getLogic().applySpellpower(owningPlayer, card, damage);
-				}
-				entityState.underAura(spellpowerDamage > damage
-						|| hostsTrigger);
-				entityState.spellDamage(spellpowerDamage);
 				break;
 			case CHOOSE_ONE:
 				// TODO: Handle choose one cards
@@ -5,6 +5,7 @@ import co.paralleluniverse.fibers.Suspendable;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.hiddenswitch.spellsource.impl.UserId;
+import com.hiddenswitch.spellsource.impl.util.CollectionCache;
 import com.hiddenswitch.spellsource.impl.util.CollectionRecord;
 import com.hiddenswitch.spellsource.impl.util.InventoryRecord;
 import com.hiddenswitch.spellsource.models.*;
@@ -20,14 +21,12 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.function.Function;
 
 import static com.hiddenswitch.spellsource.util.Mongo.mongo;
 import static com.hiddenswitch.spellsource.util.QuickJson.json;
 import static io.vertx.ext.sync.Sync.awaitResult;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 /**
  * Provides methods to manage a player's persistent inventory.
@@ -94,6 +93,8 @@ public interface Inventory {
 					newInventoryIds.addAll(Inventory.openCardPack(request.getOpenCardPackRequest()).getCreatedInventoryIds());
 				}
 
+				CollectionCache.invalidate(Collections.singletonList(userId), Collections.emptyList());
+
 				return CreateCollectionResponse.user(userId, newInventoryIds);
 			case DECK:
 				CollectionRecord record1 = CollectionRecord.deck(userId, request.getName(), request.getHeroClass(), request.isDraft());
@@ -108,6 +109,7 @@ public interface Inventory {
 									json("_id", json("$in", request.getInventoryIds())),
 									json("$addToSet", json("collectionIds", deckId)),
 									new UpdateOptions().setMulti(true));
+					CollectionCache.invalidate(Collections.singletonList(deckId), request.getInventoryIds());
 				}
 
 				return CreateCollectionResponse.deck(deckId);
@@ -137,6 +139,7 @@ public interface Inventory {
 				.collect(toList());
 
 		mongo().insertManyWithOptions(INVENTORY, documents, new BulkWriteOptions().setOrdered(false).setWriteOption(WriteOption.ACKNOWLEDGED));
+		CollectionCache.invalidate(userIdCollection, Collections.emptyList());
 
 		return documents.stream().map(o -> o.getString("_id")).collect(toList());
 	}
@@ -202,6 +205,7 @@ public interface Inventory {
 				json("_id", json("$in", inventoryIds)),
 				json("$addToSet", json("collectionIds", collectionId)),
 				new UpdateOptions().setMulti(true));
+		CollectionCache.invalidate(Collections.singletonList(collectionId), inventoryIds);
 
 		return AddToCollectionResponse.create(result, inventoryIds);
 	}
@@ -240,6 +244,7 @@ public interface Inventory {
 				json("_id", json("$in", inventoryIds)),
 				json("$pull", json("collectionIds", request.getCollectionId())),
 				new UpdateOptions().setMulti(true));
+		CollectionCache.invalidate(Collections.singletonList(request.getCollectionId()), inventoryIds);
 
 		if (result.getDocMatched() != inventoryIds.size()) {
 			throw new ArrayStoreException(String.format("Could not find the correct number of inventoryIds=%s to remove from collectionId=%s.", request.getInventoryIds().toString(), request.getCollectionId()));
@@ -255,6 +260,7 @@ public interface Inventory {
 				json("_id", json("$in", request.getInventoryIds())),
 				json("$set", json("allianceId", request.getAllianceId()),
 						"$addToSet", json("collectionIds", request.getAllianceId())));
+		CollectionCache.invalidate(Collections.singletonList(request.getAllianceId()), request.getInventoryIds());
 
 		return new DonateToCollectionResponse();
 	}
@@ -274,6 +280,7 @@ public interface Inventory {
 				json("collectionIds", json("$in", collectionIds)),
 				json("$set", json("borrowed", true, "borrowedByUserId", request.getUserId())),
 				new UpdateOptions().setMulti(true));
+		CollectionCache.invalidate(collectionIds, Collections.emptyList());
 
 		return BorrowFromCollectionResponse.response(update.getDocModified());
 	}
@@ -290,6 +297,7 @@ public interface Inventory {
 				json("collectionIds", json("$in", request.getDeckIds())),
 				json("$set", json("borrowed", false, "borrowedByUserId", null)),
 				new UpdateOptions().setMulti(true));
+		CollectionCache.invalidate(request.getDeckIds(), Collections.emptyList());
 
 		return new ReturnToCollectionResponse();
 	}
@@ -322,22 +330,43 @@ public interface Inventory {
 				}
 			}
 
-			// Bulk retrieve deck inventory records and collection information
+			// Bulk retrieve the deck inventory records and collection information that aren't cached
 			final List<String> deckIds = deckRequests.stream().map(GetCollectionRequest::getDeckId).collect(toList());
-			final Map<String, CollectionRecord> deckRecords = mongo().find(COLLECTIONS, json("_id", json("$in", deckIds)), CollectionRecord.class)
-					.stream().collect(toMap(CollectionRecord::getId, Function.identity()));
-
+			final CollectionCache cache = CollectionCache.current();
+			final Map<String, CollectionRecord> deckRecords = new HashMap<>();
 			final Map<String, List<InventoryRecord>> deckInventories = new HashMap<>();
+			final List<String> missingDeckIds = new ArrayList<>();
 			for (String deckId : deckIds) {
-				deckInventories.put(deckId, new Vector<>());
+				CollectionCache.Entry entry = cache == null ? null : cache.get(deckId);
+				if (entry != null) {
+					deckRecords.put(deckId, entry.getCollectionRecord());
+					deckInventories.put(deckId, entry.getInventoryRecords());
+				} else {
+					missingDeckIds.add(deckId);
+					deckInventories.put(deckId, new Vector<>());
+				}
 			}
 
-			mongo().find(INVENTORY, json("collectionIds", json("$in", deckIds)), InventoryRecord.class)
-					.forEach(ir -> ir.getCollectionIds().forEach(cid -> {
-						if (deckInventories.containsKey(cid)) {
-							deckInventories.get(cid).add(ir);
+			if (!missingDeckIds.isEmpty()) {
+				long generation = cache == null ? 0L : cache.getGeneration();
+				mongo().find(COLLECTIONS, json("_id", json("$in", missingDeckIds)), CollectionRecord.class)
+						.forEach(record -> deckRecords.put(record.getId(), record));
+
+				mongo().find(INVENTORY, json("collectionIds", json("$in", missingDeckIds)), InventoryRecord.class)
+						.forEach(ir -> ir.getCollectionIds().forEach(cid -> {
+							if (missingDeckIds.contains(cid)) {
+								deckInventories.get(cid).add(ir);
+							}
+						}));
+
+				if (cache != null) {
+					for (String deckId : missingDeckIds) {
+						if (deckRecords.containsKey(deckId)) {
+							cache.put(generation, deckId, deckRecords.get(deckId), deckInventories.get(deckId));
 						}
-					}));
+					}
+				}
+			}
 
 			deckIds.forEach(deckId -> {
 				CollectionRecord record = deckRecords.get(deckId);
@@ -366,11 +395,26 @@ public interface Inventory {
 			throw new NullPointerException("No collection was specified");
 		}
 
-		List<JsonObject> results = awaitResult(h -> mongo().client().find(INVENTORY, json("collectionIds", collectionId), h));
-		final List<InventoryRecord> inventoryRecords = results.stream().map(r -> QuickJson.fromJson(r, InventoryRecord.class)).collect(toList());
+		final CollectionCache cache = CollectionCache.current();
+		CollectionCache.Entry entry = cache == null ? null : cache.get(collectionId);
+		final List<InventoryRecord> inventoryRecords;
+		CollectionRecord deck = null;
+		if (entry != null) {
+			inventoryRecords = entry.getInventoryRecords();
+			deck = entry.getCollectionRecord();
+		} else {
+			long generation = cache == null ? 0L : cache.getGeneration();
+			List<JsonObject> results = awaitResult(h -> mongo().client().find(INVENTORY, json("collectionIds", collectionId), h));
+			inventoryRecords = results.stream().map(r -> QuickJson.fromJson(r, InventoryRecord.class)).collect(toList());
+			if (type == CollectionTypes.DECK) {
+				deck = mongo().findOne(COLLECTIONS, json("_id", collectionId), CollectionRecord.class);
+			}
+			if (cache != null && (type != CollectionTypes.DECK || deck != null)) {
+				cache.put(generation, collectionId, deck, inventoryRecords);
+			}
+		}
 
 		if (type == CollectionTypes.DECK) {
-			CollectionRecord deck = mongo().findOne(COLLECTIONS, json("_id", collectionId), CollectionRecord.class);
 			return GetCollectionResponse.deck(deck.getUserId(), request.getDeckId(), deck.getName(), deck.getHeroClass(), deck.getHeroCardId(), deck.getFormat(), deck.getDeckType(), inventoryRecords, deck.isTrashed());
 		} else /* if (type == CollectionTypes.USER) */ {
 			return GetCollectionResponse.user(userId, inventoryRecords);
@@ -394,6 +438,7 @@ public interface Inventory {
 						json("$pull", json("collectionIds", collectionId)),
 						new UpdateOptions().setMulti(true), h));
 
+		CollectionCache.invalidate(Collections.singletonList(collectionId), Collections.emptyList());
 		return new TrashCollectionResponse(result1.getDocModified() == 1, result2.getDocModified());
 	}
 
@@ -411,22 +456,30 @@ public interface Inventory {
 						json("$addToSet", json("collectionIds", collectionId)),
 						new UpdateOptions().setMulti(true), h));
 
+		CollectionCache.invalidate(Collections.singletonList(collectionId), setCollectionRequest.getInventoryIds());
 		return new SetCollectionResponse(r2, r);
 	}
 
 	@Suspendable
 	static MongoClientUpdateResult update(MongoClient client, JsonObject query, JsonObject update) {
-		return Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, query, update, new UpdateOptions().setMulti(true), h));
+		MongoClientUpdateResult result = Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, query, update, new UpdateOptions().setMulti(true), h));
+		// The records matched by an arbitrary query aren't known
+		CollectionCache.invalidateAll();
+		return result;
 	}
 
 	@Suspendable
 	static MongoClientUpdateResult update(MongoClient client, String inventoryId, JsonObject update) {
-		return Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, json("_id", inventoryId), update, new UpdateOptions().setMulti(true), h));
+		MongoClientUpdateResult result = Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, json("_id", inventoryId), update, new UpdateOptions().setMulti(true), h));
+		CollectionCache.invalidate(Collections.emptyList(), Collections.singletonList(inventoryId));
+		return result;
 	}
 
 	@Suspendable
 	static MongoClientUpdateResult update(MongoClient client, List<String> inventoryIds, JsonObject update) {
-		return Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, json("_id", json("$in", inventoryIds)), update, new UpdateOptions().setMulti(true), h));
+		MongoClientUpdateResult result = Sync.awaitResult(h -> client.updateCollectionWithOptions(INVENTORY, json("_id", json("$in", inventoryIds)), update, new UpdateOptions().setMulti(true), h));
+		CollectionCache.invalidate(Collections.emptyList(), inventoryIds);
+		return result;
 	}
 
 	@Suspendable
@@ -199,7 +199,10 @@ public interface Matchmaking extends Verticle {
 				.setStillConnectedTimeout(4000L)
 				.setWaitsForHost(false));
 
-		return (completionHandler -> constructed.close(v1 -> quickPlay.close(completionHandler)));
+		// Keep bots ready for the quick play queue
+		Closeable botPool = Bots.startBotPool(Bots.botWatermark());
+
+		return (completionHandler -> constructed.close(v1 -> quickPlay.close(v2 -> botPool.close(completionHandler))));
 	}
 
 	@Suspendable
@@ -240,26 +243,24 @@ public interface Matchmaking extends Verticle {
 						// Actually creating the game can happen without joining
 						// Create a bot game.
 						MatchmakingRequest user = thisMatchRequests.get(0);
-						SuspendableLock botLock = SuspendableLock.lock("Matchmaking::takingBot");
-
-						try {
-						// TODO: Move this lock into pollBotId
 						// The player has been waiting too long. Match to an AI.
 						// Retrieve a bot and use it to play against the opponent
-						UserRecord bot = Accounts.get(Bots.pollBotId());
-
-						DeckId botDeckId = user.getBotDeckId() == null
-								? new DeckId(Bots.getRandomDeck(bot))
-								: new DeckId(user.getBotDeckId());
-
-						Games.createGame(ConfigurationRequest.botMatch(
-								gameId,
-								new UserId(user.getUserId()),
-								new UserId(bot.getId()),
-								new DeckId(user.getDeckId()),
-								botDeckId));
-						} finally {
-							botLock.release();
+						UserRecord bot = Bots.leaseBot(gameId);
+
+						try {
+							DeckId botDeckId = user.getBotDeckId() == null
+									? new DeckId(Bots.getRandomDeck(bot))
+									: new DeckId(user.getBotDeckId());
+
+							Games.createGame(ConfigurationRequest.botMatch(
+									gameId,
+									new UserId(user.getUserId()),
+									new UserId(bot.getId()),
+									new DeckId(user.getDeckId()),
+									botDeckId));
+						} catch (RuntimeException ex) {
+							Bots.releaseBot(new UserId(bot.getId()), gameId);
+							throw ex;
 						}
 
 						WriteStream<Envelope> connection = Connection.writeStream(user.getUserId());
@@ -1,63 +1,153 @@
 package com.hiddenswitch.spellsource;
 
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
 import co.paralleluniverse.strands.SuspendableAction1;
 import com.hiddenswitch.spellsource.client.models.Envelope;
 import com.hiddenswitch.spellsource.client.models.EnvelopeChanged;
 import com.hiddenswitch.spellsource.client.models.Friend;
 import com.hiddenswitch.spellsource.client.models.PresenceEnum;
+import com.hiddenswitch.spellsource.impl.ConnectionRegistry;
 import com.hiddenswitch.spellsource.impl.UserId;
+import com.hiddenswitch.spellsource.impl.util.FriendIndex;
+import com.hiddenswitch.spellsource.util.Hazelcast;
 import com.hiddenswitch.spellsource.util.Sync;
-import io.vertx.core.Future;
-import io.vertx.core.json.Json;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.mongo.FindOptions;
-import io.vertx.ext.mongo.UpdateOptions;
+
+import java.util.*;
 
 import static com.hiddenswitch.spellsource.util.Mongo.mongo;
 import static com.hiddenswitch.spellsource.util.QuickJson.json;
 
+/**
+ * Tracks which users are online and notifies their friends when that changes.
+ * <p>
+ * Presence is kept in memory and never written to the users' documents. A user is online while a member of the cluster
+ * holds the lease on their connection in the {@link ConnectionRegistry}, so a user whose node died is offline without
+ * any cleanup. A change in presence is fanned out by looking up the user's friends in the {@link FriendIndex},
+ * looking up which of them are online with one batched read of the leases, and sending one message per node and
+ * {@link #BATCH_SIZE} friends to the nodes they're connected to.
+ */
 public interface Presence {
+	/**
+	 * The maximum number of friends notified by one event bus message.
+	 */
+	int BATCH_SIZE = 64;
+
 	static void handleConnections() {
-		// A node that is updating presences may not be the same node that has a user that needs to be notified
-		Connection.connected(Sync.suspendableHandler((SuspendableAction1<Connection>) connection -> {
-			final UserId key = new UserId(connection.userId());
-			connection.endHandler(Sync.suspendableHandler((SuspendableAction1<Void>) ignored -> {
-				setPresence(key, PresenceEnum.OFFLINE);
-			}));
-
-			// Once the user is connected, set their status to online
-			setPresence(key, PresenceEnum.ONLINE);
-		}));
+		Vertx vertx = Vertx.currentContext().owner();
+		Connection.registerCodecs();
+		// Delivers the batches of notifications meant for the users connected to this node
+		vertx.eventBus().<JsonObject>consumer(notificationsAddress(nodeId()), message -> {
+			JsonObject batch = message.body();
+			Envelope envelope = new Envelope().changed(new EnvelopeChanged().friend(new Friend()
+					.friendId(batch.getString("friendId"))
+					.presence(PresenceEnum.valueOf(batch.getString("presence")))));
+			ConnectionRegistry registry = ConnectionRegistry.get(vertx);
+			for (Object recipient : batch.getJsonArray("recipients")) {
+				Connection connection = registry.getLocal((String) recipient);
+				if (connection != null) {
+					connection.write(envelope);
+				}
+			}
+		});
+
+		// Only called once, by the node that released the user's last lease
+		ConnectionRegistry.get(vertx).offlineHandler(Sync.suspendableHandler((SuspendableAction1<String>) userId ->
+				notifyFriends(new UserId(userId), PresenceEnum.OFFLINE)));
+
+		// The connection is registered, and the user online, before the connected handlers are called
+		Connection.connected(Sync.suspendableHandler((SuspendableAction1<Connection>) connection ->
+				notifyFriends(new UserId(connection.userId()), PresenceEnum.ONLINE)));
+	}
+
+	/**
+	 * Gets the presence of a user.
+	 *
+	 * @param userId The user's ID.
+	 * @return {@link PresenceEnum#ONLINE} if the user is connected to any node, otherwise {@link PresenceEnum#OFFLINE}.
+	 */
+	@Suspendable
+	static PresenceEnum getPresence(String userId) {
+		return ConnectionRegistry.current().isOnline(userId) ? PresenceEnum.ONLINE : PresenceEnum.OFFLINE;
+	}
+
+	/**
+	 * Notifies a user's friends of a change in the user's presence.
+	 *
+	 * @param userId   The user whose presence changed.
+	 * @param presence The user's new presence.
+	 * @throws SuspendExecution
+	 */
+	static void notifyFriends(UserId userId, PresenceEnum presence) throws SuspendExecution {
+		notify(userId, presence, getFriendIds(userId.toString()));
 	}
 
-	static void setPresence(UserId userId, PresenceEnum presence) {
-		// This doesn't need to be blocking.
-		mongo().client().updateCollectionWithOptions(Accounts.USERS,
-						json("friends.friendId", userId.toString()),
-						json("$set", json("friends.$.presence", presence.name())), new UpdateOptions().setMulti(true), Future.future());
-
-		FindOptions findOptions = new FindOptions()
-						.setFields(json("_id", 1, "friends.friendId", 1, "friends.presence", 1));
-		mongo().client().findWithOptions(Accounts.USERS, json("friends.friendId", userId.toString()), findOptions, res -> {
-			for (JsonObject user : res.result()) {
-				Connection.writeStream(user.getString("_id"), otherUser -> {
-					if (otherUser.failed() || otherUser.result() == null) {
-						return;
-					}
-					otherUser.result().write(new Envelope().changed(new EnvelopeChanged().friend(new Friend().friendId(userId.toString()).presence(presence))));
-				});
+	/**
+	 * Notifies the given users of another user's presence. Only the recipients who are online are notified.
+	 *
+	 * @param userId     The user whose presence the recipients should see.
+	 * @param presence   The user's presence.
+	 * @param recipients The IDs of the users to notify.
+	 * @throws SuspendExecution
+	 */
+	static void notify(UserId userId, PresenceEnum presence, Collection<String> recipients) throws SuspendExecution {
+		if (recipients.isEmpty()) {
+			return;
+		}
+
+		Map<String, String> nodeIds = ConnectionRegistry.current().getOwners(new HashSet<>(recipients));
+		Map<String, List<String>> recipientsByNode = new HashMap<>();
+		for (Map.Entry<String, String> entry : nodeIds.entrySet()) {
+			recipientsByNode.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+		}
+
+		EventBus eventBus = Vertx.currentContext().owner().eventBus();
+		for (Map.Entry<String, List<String>> entry : recipientsByNode.entrySet()) {
+			List<String> onNode = entry.getValue();
+			for (int i = 0; i < onNode.size(); i += BATCH_SIZE) {
+				JsonArray batch = new JsonArray(new ArrayList<>(onNode.subList(i, Math.min(i + BATCH_SIZE, onNode.size()))));
+				eventBus.send(notificationsAddress(entry.getKey()),
+						json("friendId", userId.toString(), "presence", presence.name(), "recipients", batch));
 			}
-		});
+		}
 	}
 
-	static void setPresence(String userId) {
-		final UserId key = new UserId(userId);
-		Connection.writeStream(userId, res -> {
-			if (res.failed() || res.result() == null) {
-				setPresence(key, PresenceEnum.OFFLINE);
-			} else {
-				setPresence(key, PresenceEnum.ONLINE);
+	/**
+	 * Gets the IDs of a user's friends from this node's {@link FriendIndex}, reading them from the database if they
+	 * aren't cached.
+	 *
+	 * @param userId The user's ID.
+	 * @return The IDs of the user's friends.
+	 * @throws SuspendExecution
+	 */
+	static Set<String> getFriendIds(String userId) throws SuspendExecution {
+		FriendIndex index = FriendIndex.current();
+		Set<String> friendIds = index.get(userId);
+		if (friendIds != null) {
+			return friendIds;
+		}
+
+		long generation = index.getGeneration();
+		JsonObject user = mongo().findOne(Accounts.USERS, json("_id", userId), json("friends.friendId", 1));
+		friendIds = new HashSet<>();
+		if (user != null) {
+			for (Object friend : user.getJsonArray("friends", new JsonArray())) {
+				friendIds.add(((JsonObject) friend).getString("friendId"));
 			}
-		});
+		}
+		index.put(generation, userId, friendIds);
+		return friendIds;
+	}
+
+	static String nodeId() {
+		return Hazelcast.getClusterManager().getNodeID();
+	}
+
+	static String notificationsAddress(String nodeId) {
+		return "Presence::notifications[" + nodeId + "]";
 	}
-}
\ No newline at end of file
+}
@@ -5,6 +5,7 @@ import co.paralleluniverse.fibers.Suspendable;
 import co.paralleluniverse.strands.SuspendableAction1;
 import com.google.common.io.Resources;
 import com.hiddenswitch.spellsource.common.DeckCreateRequest;
+import com.hiddenswitch.spellsource.impl.NodeServices;
 import com.hiddenswitch.spellsource.impl.Trigger;
 import com.hiddenswitch.spellsource.impl.UserId;
 import com.hiddenswitch.spellsource.impl.util.*;
@@ -398,7 +399,17 @@ public class Spellsource {
 									"wins", 0, "totalGames", 0
 							)), new UpdateOptions().setMulti(true));
 						}))
-				.migrateTo(20, then2 ->
+				.add(new MigrationRequest()
+						.withVersion(21)
+						.withUp(thisVertx -> {
+							// Chat messages are paged by conversation, newest first
+							if (!mongo().getCollections().contains(Conversations.MESSAGES)) {
+								mongo().createCollection(Conversations.MESSAGES);
+							}
+
+							mongo().createIndex(Conversations.MESSAGES, json("conversationId", 1, "_id", -1));
+						}))
+				.migrateTo(21, then2 ->
 						then.handle(then2.succeeded() ? Future.succeededFuture() : Future.failedFuture(then2.cause())));
 		return this;
 	}
@@ -505,6 +516,7 @@ public class Spellsource {
 
 	protected Verticle[] services() {
 		return new Verticle[]{
+				new NodeServices(),
 				Games.create(),
 				Gateway.create()};
 	}
@@ -553,13 +565,17 @@ public class Spellsource {
 			return new MongoClientUpdateResult();
 		}
 
-		return Mongo.mongo().updateCollectionWithOptions(INVENTORY,
+		MongoClientUpdateResult result = Mongo.mongo().updateCollectionWithOptions(INVENTORY,
 				json("cardDesc.id", oldId), json("$set", json("cardDesc.id", newId)), new UpdateOptions().setMulti(true));
+		CollectionCache.invalidateAll();
+		return result;
 	}
 
 	@Suspendable
 	protected static MongoClientDeleteResult removeCards(String... ids) {
-		return Mongo.mongo().removeDocuments(INVENTORY, json("cardDesc.id",
+		MongoClientDeleteResult result = Mongo.mongo().removeDocuments(INVENTORY, json("cardDesc.id",
 				json("$in", array(ids))));
+		CollectionCache.invalidateAll();
+		return result;
 	}
 }
@@ -8,6 +8,7 @@ import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.behaviour.Behaviour;
 import net.demilich.metastone.game.decks.Deck;
 import net.demilich.metastone.game.decks.GameDeck;
+import net.demilich.metastone.game.statistics.Profiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +49,18 @@ public class PythonBridge {
 	}
 
 	public static long simulate(SimulationResultGenerator generator, List<String> deckLists, int gamesPerBatch, List<Supplier<Behaviour>> behaviours, boolean mirrors, boolean reduce) {
+		return simulate(generator, deckLists, gamesPerBatch, behaviours, mirrors, reduce, false);
+	}
+
+	/**
+	 * Simulates every combination of the specified decks on a new thread, offering each result to the generator as a
+	 * JSON string.
+	 *
+	 * @param profile When {@code true}, every game of a matchup records into the same {@link Profiler}, whose counters so
+	 *                far are included in each result under the {@code "profile"} key.
+	 * @return The ID of the job, for {@link #terminate(long)}.
+	 */
+	public static long simulate(SimulationResultGenerator generator, List<String> deckLists, int gamesPerBatch, List<Supplier<Behaviour>> behaviours, boolean mirrors, boolean reduce, boolean profile) {
 		final Map<String, GameDeck> decks = Simulation.getDecks(deckLists);
 		final List<String[]> combinations = Simulation.getCombinations(mirrors, decks, behaviours.size() > 2
 				&& !behaviours.get(0).get().getClass().equals(behaviours.get(1).get().getClass()));
@@ -59,18 +72,22 @@ public class PythonBridge {
 					List<GameDeck> deckPair = Arrays.stream(deckKeyPair).map(decks::get).collect(Collectors.toList());
 					// Run a single simulation on the decks
 
+					Profiler profiler = profile ? new Profiler() : null;
 					try {
 						GameContext.simulate(deckPair, behaviours, gamesPerBatch, reduce, simulationResult -> {
-							generator.offer(new JsonObject()
+							JsonObject result = new JsonObject()
 									.put("decks", new JsonArray(Arrays.asList(
 											deckKeyPair[0],
 											deckKeyPair[1])))
 									.put("numberOfGames", simulationResult.getNumberOfGames())
 									.put("results", new JsonArray(Arrays.asList(
 											JsonObject.mapFrom(simulationResult.getPlayer1Stats().getStats()),
-											JsonObject.mapFrom(simulationResult.getPlayer2Stats().getStats()))))
-									.encode());
-						});
+											JsonObject.mapFrom(simulationResult.getPlayer2Stats().getStats()))));
+							if (profiler != null) {
+								result.put("profile", profiler.toJson());
+							}
+							generator.offer(result.encode());
+						}, profiler == null ? null : context -> context.setProfiler(profiler));
 					} catch (InterruptedException e) {
 						logger.warn("simulate: Interrupted {} {}", deckKeyPair, e);
 						return;
@@ -0,0 +1,161 @@
+package com.hiddenswitch.spellsource.common;
+
+import com.hiddenswitch.spellsource.Games;
+import com.hiddenswitch.spellsource.client.models.EntityState;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.entities.Entity;
+import net.demilich.metastone.game.entities.EntityLocation;
+import net.demilich.metastone.game.targeting.IdFactory;
+import net.demilich.metastone.game.utils.AttributeMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Caches the client views of the entities in a single game, so that {@link Games#getGameState(net.demilich.metastone.game.GameContext,
+ * net.demilich.metastone.game.Player, net.demilich.metastone.game.Player, ClientEntityCache)} only renders the entities
+ * that changed since the last message.
+ * <p>
+ * The game contexts the client views are generated from are rebuilt from a copy of the game state for every message,
+ * so an entity is considered unchanged when its class, card ID, name, owner, location and attributes (and those of its
+ * source card) are equal to the ones it had when it was last rendered. The parts of the view that depend on the rest
+ * of the game and on the point of view, like whether the entity is playable, its modified mana cost or the attack of a
+ * hero, which includes the attack of its weapon, are computed for every message and passed to {@link #get(Entity,
+ * EntityState, BiFunction)} as a dynamic state. Views with equal dynamic states are the same object, which means they
+ * are shared between both players and across messages.
+ * <p>
+ * Views returned by this cache must not be modified.
+ */
+public final class ClientEntityCache {
+	/**
+	 * The number of differently rendered views to keep for an unchanged entity. Two are needed when an entity looks
+	 * different to each player, e.g. a playable card in the hand of the active player.
+	 */
+	private static final int MAX_VIEWS_PER_ENTITY = 4;
+
+	private final Map<Integer, Renderings> entities = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Gets the client view of an entity, rendering it only if it or its dynamic state changed since it was last
+	 * rendered.
+	 *
+	 * @param entity       The game engine entity.
+	 * @param dynamicState The parts of the view that are computed for every message.
+	 * @param render       Renders the view of the entity with the given dynamic state.
+	 * @param <T>          The type of entity.
+	 * @return The client view, which must not be modified.
+	 */
+	public <T extends Entity> com.hiddenswitch.spellsource.client.models.Entity get(T entity, EntityState dynamicState, BiFunction<T, EntityState, com.hiddenswitch.spellsource.client.models.Entity> render) {
+		if (entity.getId() == IdFactory.UNASSIGNED) {
+			misses.incrementAndGet();
+			return render.apply(entity, dynamicState);
+		}
+
+		Renderings renderings = entities.get(entity.getId());
+		if (renderings == null || !renderings.matches(entity)) {
+			renderings = new Renderings(entity);
+			entities.put(entity.getId(), renderings);
+		}
+
+		synchronized (renderings) {
+			for (int i = 0; i < renderings.views.size(); i++) {
+				View view = renderings.views.get(i);
+				if (view.dynamicState.equals(dynamicState)) {
+					hits.incrementAndGet();
+					return view.entity;
+				}
+			}
+
+			misses.incrementAndGet();
+			com.hiddenswitch.spellsource.client.models.Entity rendered = render.apply(entity, dynamicState);
+			if (renderings.views.size() == MAX_VIEWS_PER_ENTITY) {
+				renderings.views.remove(0);
+			}
+			renderings.views.add(new View(dynamicState, rendered));
+			return rendered;
+		}
+	}
+
+	/**
+	 * Forgets all the views.
+	 */
+	public void clear() {
+		entities.clear();
+	}
+
+	/**
+	 * Gets the number of views that were retrieved from the cache instead of being rendered.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of views that were rendered.
+	 *
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * The views of one version of an entity.
+	 */
+	private static final class Renderings {
+		private final Class<?> entityClass;
+		private final String cardId;
+		private final String name;
+		private final int owner;
+		private final EntityLocation location;
+		private final AttributeMap attributes;
+		private final AttributeMap sourceCardAttributes;
+		private final List<View> views = new ArrayList<>(2);
+
+		private Renderings(Entity entity) {
+			Card sourceCard = entity.getSourceCard();
+			this.entityClass = entity.getClass();
+			this.cardId = sourceCard == null ? null : sourceCard.getCardId();
+			this.name = entity.getName();
+			this.owner = entity.getOwner();
+			this.location = entity.getEntityLocation();
+			this.attributes = new AttributeMap(entity.getAttributes());
+			this.sourceCardAttributes = sourceCard == null || sourceCard == entity ? null : new AttributeMap(sourceCard.getAttributes());
+		}
+
+		private boolean matches(Entity entity) {
+			Card sourceCard = entity.getSourceCard();
+			if (entity.getClass() != entityClass
+					|| entity.getOwner() != owner
+					|| !entity.getEntityLocation().equals(location)
+					|| !Objects.equals(sourceCard == null ? null : sourceCard.getCardId(), cardId)
+					|| !Objects.equals(entity.getName(), name)
+					|| !attributes.equals(entity.getAttributes())) {
+				return false;
+			}
+			if (sourceCard == null || sourceCard == entity) {
+				return sourceCardAttributes == null;
+			}
+			return sourceCardAttributes != null && sourceCardAttributes.equals(sourceCard.getAttributes());
+		}
+	}
+
+	private static final class View {
+		private final EntityState dynamicState;
+		private final com.hiddenswitch.spellsource.client.models.Entity entity;
+
+		private View(EntityState dynamicState, com.hiddenswitch.spellsource.client.models.Entity entity) {
+			this.dynamicState = dynamicState;
+			this.entity = entity;
+		}
+	}
+}
@@ -28,4 +28,11 @@ public interface Server extends ClientConnectionHandler {
 	 * to the game session.
 	 */
 	boolean isGameReady();
+
+	/**
+	 * Gets the cache of client entity views shared by every client connected to this game.
+	 *
+	 * @return The cache.
+	 */
+	ClientEntityCache getEntityCache();
 }
@@ -582,7 +582,7 @@ public class UnityClientBehaviour extends UtilityBehaviour implements Client, Cl
 			throw new IllegalStateException("playerId");
 		}
 		simulatedContext.setIgnoreEvents(true);
-		return Games.getGameState(simulatedContext, local, opponent)
+		return Games.getGameState(simulatedContext, local, opponent, server.getEntityCache())
 				.powerHistory(new ArrayList<>(powerHistory));
 	}
 
@@ -3,6 +3,7 @@ package com.hiddenswitch.spellsource.concurrent;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
 import com.hiddenswitch.spellsource.concurrent.impl.SuspendableArrayQueue;
+import com.hiddenswitch.spellsource.concurrent.impl.SuspendableHazelcastQueue;
 import org.jetbrains.annotations.NotNull;
 
 public interface SuspendableQueue<V> {
@@ -41,6 +42,20 @@ public interface SuspendableQueue<V> {
 //		return SuspendableLinkedQueue.getOrCreate(name);
 	}
 
+	/**
+	 * Gets a reference to an unbounded queue backed directly by a Hazelcast queue.
+	 * <p>
+	 * Unlike {@link #get(String)}, offering and polling don't take a cluster-wide lock, so each costs a single round trip
+	 * no matter how many items the queue holds. Use it for pools of items that many callers take from and return to.
+	 *
+	 * @param name The name of the queue shared in the cluster
+	 * @param <V>  The type of the items. They must be serializable.
+	 * @return A reference to a suspendable queue.
+	 */
+	static <V> SuspendableQueue<V> getDirect(String name) throws SuspendExecution {
+		return new SuspendableHazelcastQueue<>(name);
+	}
+
 	@Suspendable
 	boolean offer(@NotNull V item, boolean createQueue);
 
@@ -78,6 +93,14 @@ public interface SuspendableQueue<V> {
 		return offer(item, true);
 	}
 
+	/**
+	 * Gets the number of items in the queue.
+	 *
+	 * @return The number of items.
+	 */
+	@Suspendable
+	int size();
+
 	/**
 	 * Destroys the queue.
 	 * <p>
@@ -235,6 +235,13 @@ public class SuspendableArrayQueue<V> implements SuspendableQueue<V> {
 		return SuspendableMap.getOrCreate("SuspendableArrayQueue::arrayQueues");
 	}
 
+	@Override
+	@Suspendable
+	public int size() {
+		SuspendableArrayQueueHeader header = getArrayQueues().get(name);
+		return header == null ? 0 : header.count;
+	}
+
 	@Override
 	@Suspendable
 	public void destroy() {
@@ -2,10 +2,13 @@ package com.hiddenswitch.spellsource.concurrent.impl;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.shareddata.AsyncMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -99,10 +102,17 @@ public final class SuspendableAsyncMap<K, V> implements SuspendableMap<K, V> {
 
 	@Override
 	@Suspendable
+	@SuppressWarnings("unchecked")
 	public void putAll(Map<? extends K, ? extends V> m) {
+		// Issue the puts together, so that the caller waits for one round trip instead of one per entry
+		List<Future> puts = new ArrayList<>();
 		for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
-			put(entry.getKey(), entry.getValue());
+			Future<Void> put = Future.future();
+			map.put(entry.getKey(), entry.getValue(), put);
+			puts.add(put);
 		}
+		CompositeFuture all = CompositeFuture.all(puts);
+		awaitResult(all::setHandler);
 	}
 
 	@Override
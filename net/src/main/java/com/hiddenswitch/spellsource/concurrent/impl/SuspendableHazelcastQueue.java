@@ -0,0 +1,75 @@
+package com.hiddenswitch.spellsource.concurrent.impl;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import com.hazelcast.core.IQueue;
+import com.hiddenswitch.spellsource.concurrent.SuspendableQueue;
+import com.hiddenswitch.spellsource.util.Hazelcast;
+import io.vertx.core.Vertx;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hiddenswitch.spellsource.util.Sync.invoke;
+import static com.hiddenswitch.spellsource.util.Sync.invoke0;
+import static io.vertx.ext.sync.Sync.awaitResult;
+
+/**
+ * A queue backed directly by a Hazelcast {@link IQueue}. Its operations block a worker thread instead of the fiber.
+ *
+ * @param <V> The type of the items.
+ */
+public class SuspendableHazelcastQueue<V> implements SuspendableQueue<V> {
+	private final IQueue<V> queue;
+
+	public SuspendableHazelcastQueue(String name) {
+		queue = Hazelcast.getHazelcastInstance().getQueue(name);
+	}
+
+	@Override
+	@Suspendable
+	public boolean offer(@NotNull V item, boolean createQueue) {
+		// Hazelcast creates the queue when it's first referenced
+		return invoke(queue::offer, item);
+	}
+
+	@Override
+	@Suspendable
+	public V poll(long timeout) throws InterruptedException, SuspendExecution {
+		if (timeout <= 0L) {
+			return invoke(queue::poll);
+		}
+
+		return awaitResult(h -> Vertx.currentContext().executeBlocking(fut -> {
+			try {
+				fut.complete(queue.poll(timeout, TimeUnit.MILLISECONDS));
+			} catch (InterruptedException e) {
+				fut.complete(null);
+			}
+		}, false, h));
+	}
+
+	@Override
+	@Suspendable
+	public int size() {
+		return invoke(queue::size);
+	}
+
+	/**
+	 * Copies the items that are in the queue right now.
+	 *
+	 * @return The items, from head to tail.
+	 */
+	@Suspendable
+	public List<V> toList() {
+		return invoke(() -> new ArrayList<>(queue));
+	}
+
+	@Override
+	@Suspendable
+	public void destroy() {
+		invoke0(queue::destroy);
+	}
+}
@@ -259,6 +259,13 @@ public class SuspendableLinkedQueue<V> implements SuspendableQueue<V> {
 		}
 	}
 
+	@Override
+	@Suspendable
+	public int size() {
+		// A destroyed queue's counter is -1
+		return (int) Math.max(0L, counter.get());
+	}
+
 	@Override
 	@Suspendable
 	public void destroy() {
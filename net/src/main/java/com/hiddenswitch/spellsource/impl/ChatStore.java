@@ -0,0 +1,313 @@
+package com.hiddenswitch.spellsource.impl;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.hiddenswitch.spellsource.Conversations;
+import com.hiddenswitch.spellsource.client.models.ChatMessage;
+import com.hiddenswitch.spellsource.impl.util.ChatWindow;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static com.hiddenswitch.spellsource.util.Mongo.mongo;
+import static com.hiddenswitch.spellsource.util.QuickJson.json;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Stores the chat messages of conversations on a node.
+ * <p>
+ * Messages are written to the {@link Conversations#MESSAGES} collection in batches, at most {@link #FLUSH_INTERVAL}
+ * milliseconds after they were sent. New messages are also published on the event bus, so that every node can keep a
+ * {@link ChatWindow} of the {@link #WINDOW_SIZE} most recent messages of the conversations its users are looking at.
+ * Older messages are paged from the database using the ID of the oldest message a client has as the cursor.
+ * <p>
+ * When a write fails because the database is unreachable, the batch is put back in front of the pending messages and
+ * written again after a backoff that doubles with every consecutive failure, up to {@link #MAXIMUM_BACKOFF}. Messages
+ * the database rejected are dropped, since writing them again would fail the same way.
+ * <p>
+ * Message IDs are {@link ObjectId}s, which can be generated on any node and sort in the order the messages were sent.
+ */
+public final class ChatStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatStore.class);
+	/**
+	 * The number of recent messages kept in memory per conversation.
+	 */
+	public static final int WINDOW_SIZE = 50;
+	/**
+	 * The maximum number of conversations whose recent messages are kept on a node. The least recently viewed
+	 * conversations are evicted first.
+	 */
+	public static final int MAXIMUM_CONVERSATIONS = 1024;
+	/**
+	 * The number of pending messages that triggers a write before the {@link #FLUSH_INTERVAL} elapsed.
+	 */
+	public static final int BATCH_SIZE = 100;
+	public static final long FLUSH_INTERVAL = 250L;
+	/**
+	 * The longest time to wait before writing a batch again after failures.
+	 */
+	public static final long MAXIMUM_BACKOFF = 30000L;
+	private static final Map<Vertx, ChatStore> STORES = new WeakHashMap<>();
+
+	private final Vertx vertx;
+	private final LinkedHashMap<String, Window> windows = new LinkedHashMap<>(16, 0.75f, true);
+	private List<JsonObject> pending = new ArrayList<>();
+	private boolean flushScheduled;
+	private int failures;
+
+	private ChatStore(Vertx vertx) {
+		this.vertx = vertx;
+	}
+
+	/**
+	 * Gets the chat store of the given node.
+	 *
+	 * @param vertx The node.
+	 * @return The store.
+	 */
+	public static ChatStore get(Vertx vertx) {
+		synchronized (STORES) {
+			return STORES.computeIfAbsent(vertx, ChatStore::new);
+		}
+	}
+
+	/**
+	 * Gets the event bus address new messages of a conversation are published to.
+	 *
+	 * @param conversationId The conversation.
+	 * @return The address.
+	 */
+	public static String messagesAddress(String conversationId) {
+		return "Conversations::messages[" + conversationId + "]";
+	}
+
+	/**
+	 * Sends a message to a conversation. Assigns the message its ID and timestamp.
+	 *
+	 * @param message The message, whose conversation ID must be set.
+	 * @return The message.
+	 */
+	public ChatMessage append(ChatMessage message) {
+		message.messageId(new ObjectId().toHexString())
+				.timestamp(System.currentTimeMillis());
+
+		boolean flushNow;
+		synchronized (this) {
+			pending.add(toDocument(message));
+			// While writes are failing, only the backoff timer writes
+			flushNow = pending.size() >= BATCH_SIZE && failures == 0;
+			if (!flushNow && !flushScheduled) {
+				flushScheduled = true;
+				vertx.setTimer(FLUSH_INTERVAL, ignored -> flush());
+			}
+		}
+		if (flushNow) {
+			flush();
+		}
+
+		vertx.eventBus().publish(messagesAddress(message.getConversationId()), json(message));
+		return message;
+	}
+
+	/**
+	 * Gets the most recent messages of a conversation, loading them into this node's memory if necessary.
+	 *
+	 * @param conversationId The conversation.
+	 * @return At most {@link #WINDOW_SIZE} messages, from oldest to newest.
+	 * @throws SuspendExecution
+	 */
+	public List<ChatMessage> recent(String conversationId) throws SuspendExecution {
+		Window window;
+		synchronized (this) {
+			window = windows.get(conversationId);
+		}
+		if (window != null) {
+			return window.getMessages().toList();
+		}
+
+		// Subscribe before reading, so that messages sent during the read are not missed
+		Window newWindow = new Window();
+		newWindow.consumer = vertx.eventBus().consumer(messagesAddress(conversationId),
+				message -> newWindow.add(fromJson(message.body())));
+
+		List<ChatMessage> messages = new ArrayList<>(history(conversationId, null, WINDOW_SIZE));
+		synchronized (this) {
+			// Messages sent from this node that aren't in the database yet
+			for (JsonObject document : pending) {
+				if (conversationId.equals(document.getString("conversationId"))) {
+					messages.add(fromDocument(document.copy()));
+				}
+			}
+
+			window = windows.get(conversationId);
+			if (window != null) {
+				// Another fiber loaded the conversation first
+				newWindow.consumer.unregister();
+				return window.getMessages().toList();
+			}
+
+			newWindow.fill(messages);
+			windows.put(conversationId, newWindow);
+			if (windows.size() > MAXIMUM_CONVERSATIONS) {
+				Iterator<Window> eldest = windows.values().iterator();
+				eldest.next().consumer.unregister();
+				eldest.remove();
+			}
+		}
+		return newWindow.getMessages().toList();
+	}
+
+	/**
+	 * Gets a page of a conversation's messages from the database.
+	 *
+	 * @param conversationId  The conversation.
+	 * @param beforeMessageId The cursor: only messages older than the message with this ID are returned. Use {@code
+	 *                        null} to get the most recent messages.
+	 * @param limit           The maximum number of messages to return.
+	 * @return The messages, from oldest to newest.
+	 * @throws SuspendExecution
+	 */
+	public List<ChatMessage> history(String conversationId, String beforeMessageId, int limit) throws SuspendExecution {
+		JsonObject query = json("conversationId", conversationId);
+		if (beforeMessageId != null) {
+			query.put("_id", json("$lt", beforeMessageId));
+		}
+		List<JsonObject> documents = mongo().findWithOptions(Conversations.MESSAGES, query,
+				new FindOptions().setSort(json("_id", -1)).setLimit(limit));
+		List<ChatMessage> messages = documents.stream().map(ChatStore::fromDocument).collect(toList());
+		Collections.reverse(messages);
+		return messages;
+	}
+
+	/**
+	 * Writes the pending messages of this node to the database.
+	 *
+	 * @return A future that completes when the messages were written, or fails if they couldn't be and were queued to be
+	 * written again.
+	 */
+	public Future<Void> flush() {
+		List<JsonObject> batch;
+		synchronized (this) {
+			batch = pending;
+			pending = new ArrayList<>();
+			flushScheduled = false;
+		}
+		if (batch.isEmpty()) {
+			return Future.succeededFuture();
+		}
+
+		Future<MongoClientBulkWriteResult> written = Future.future();
+		// Unordered, so that one bad message doesn't keep the rest of the batch from being written
+		mongo().client().bulkWriteWithOptions(Conversations.MESSAGES,
+				batch.stream().map(BulkOperation::createInsert).collect(toList()),
+				new BulkWriteOptions(false), written);
+		Future<Void> flushed = Future.future();
+		written.setHandler(res -> {
+			List<JsonObject> retry = res.succeeded() ? Collections.emptyList() : retriable(batch, res.cause());
+			if (retry.isEmpty()) {
+				synchronized (this) {
+					failures = 0;
+				}
+				flushed.complete();
+				return;
+			}
+
+			long backoff;
+			synchronized (this) {
+				failures++;
+				backoff = Math.min(MAXIMUM_BACKOFF, FLUSH_INTERVAL << Math.min(failures, 16));
+				// Put the batch back in front, so that messages are still written in about the order they were sent
+				List<JsonObject> requeued = new ArrayList<>(retry);
+				requeued.addAll(pending);
+				pending = requeued;
+				if (!flushScheduled) {
+					flushScheduled = true;
+					vertx.setTimer(backoff, ignored -> flush());
+				}
+			}
+			LOGGER.warn("flush: Failed to write {} chat messages, trying again in {}ms", retry.size(), backoff, res.cause());
+			flushed.fail(res.cause());
+		});
+		return flushed;
+	}
+
+	/**
+	 * Gets the messages of a batch whose write failed that should be written again. Messages that were written anyway,
+	 * i.e. whose insert failed because their ID already exists, and messages the database rejected are not retried.
+	 *
+	 * @param batch The messages.
+	 * @param t     The failure.
+	 * @return The messages to write again.
+	 */
+	static List<JsonObject> retriable(List<JsonObject> batch, Throwable t) {
+		if (!(t instanceof MongoBulkWriteException)) {
+			// Nothing is known about which messages were written
+			return batch;
+		}
+		MongoBulkWriteException exception = (MongoBulkWriteException) t;
+		if (exception.getWriteConcernError() != null) {
+			// The writes may not be durable, so write everything again. Duplicates are ignored next time.
+			return batch;
+		}
+		int rejected = 0;
+		for (BulkWriteError error : exception.getWriteErrors()) {
+			if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+				rejected++;
+			}
+		}
+		if (rejected > 0) {
+			LOGGER.error("retriable: The database rejected {} of {} chat messages", rejected, batch.size(), t);
+		}
+		return Collections.emptyList();
+	}
+
+	private static JsonObject toDocument(ChatMessage message) {
+		return json(message).put("_id", message.getMessageId());
+	}
+
+	private static ChatMessage fromDocument(JsonObject document) {
+		document.remove("_id");
+		return fromJson(document);
+	}
+
+	private static ChatMessage fromJson(JsonObject json) {
+		return json.mapTo(ChatMessage.class);
+	}
+
+	private static final class Window {
+		private ChatWindow messages = new ChatWindow(WINDOW_SIZE);
+		private MessageConsumer<JsonObject> consumer;
+
+		private synchronized ChatWindow getMessages() {
+			return messages;
+		}
+
+		private synchronized void add(ChatMessage message) {
+			messages.add(message);
+		}
+
+		private synchronized void fill(List<ChatMessage> loaded) {
+			// Merges the loaded messages with the ones that arrived over the event bus in the meantime
+			List<ChatMessage> all = new ArrayList<>(loaded);
+			all.addAll(messages.toList());
+			all.sort(Comparator.comparing(ChatMessage::getMessageId));
+			ChatWindow filled = new ChatWindow(WINDOW_SIZE);
+			for (ChatMessage message : all) {
+				filled.add(message);
+			}
+			messages = filled;
+		}
+	}
+}
@@ -2,12 +2,13 @@ package com.hiddenswitch.spellsource.impl;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
+import co.paralleluniverse.strands.SuspendableAction1;
 import com.hiddenswitch.spellsource.*;
 import com.hiddenswitch.spellsource.common.Client;
 import com.hiddenswitch.spellsource.common.UnityClientBehaviour;
 import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
 import com.hiddenswitch.spellsource.impl.server.Configuration;
-import com.hiddenswitch.spellsource.impl.server.VertxScheduler;
+import com.hiddenswitch.spellsource.impl.server.TimerWheel;
 import com.hiddenswitch.spellsource.impl.util.ActivityMonitor;
 import com.hiddenswitch.spellsource.impl.util.DeckType;
 import com.hiddenswitch.spellsource.impl.util.ServerGameContext;
@@ -15,7 +16,7 @@ import com.hiddenswitch.spellsource.models.*;
 import com.hiddenswitch.spellsource.util.Mongo;
 import com.hiddenswitch.spellsource.util.Registration;
 import com.hiddenswitch.spellsource.util.Rpc;
-import io.vertx.core.Vertx;
+import io.vertx.core.Future;
 import io.vertx.ext.sync.SyncVerticle;
 import net.demilich.metastone.game.cards.CardCatalogue;
 import net.demilich.metastone.game.decks.CollectionDeck;
@@ -24,19 +25,29 @@ import net.demilich.metastone.game.utils.Attribute;
 import net.demilich.metastone.game.utils.AttributeMap;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.hiddenswitch.spellsource.util.QuickJson.json;
+import static com.hiddenswitch.spellsource.util.Sync.suspendableHandler;
+import static io.vertx.ext.sync.Sync.awaitResult;
+import static java.util.stream.Collectors.toList;
 
 public class ClusteredGames extends SyncVerticle implements Games {
 	private Registration registration;
 	private Map<GameId, ServerGameContext> contexts = new ConcurrentHashMap<>();
+	private TimerWheel timers;
+	private long botLeaseTimer;
 
 	@Override
 	public void start() throws SuspendExecution {
 		CardCatalogue.loadCardsFromPackage();
+		// All the turn, mulligan and no activity timers of this verticle's games share one periodic timer
+		timers = new TimerWheel(vertx);
+		// Keeps the bots of this verticle's games leased while the games run
+		botLeaseTimer = vertx.setPeriodic(Bots.BOT_LEASE_MILLIS / 3, suspendableHandler((SuspendableAction1<Long>) ignored -> renewBots()));
 
 		registration = Rpc.register(this, Games.class);
 	}
@@ -52,32 +63,7 @@ public class ClusteredGames extends SyncVerticle implements Games {
 		}
 
 		Logic.triggers();
-		List<String> borrowableGameIds = new ArrayList<>();
-		// Get the collection data from the configurations that are not yet populated with valid cards
-		for (Configuration configuration : request.getConfigurations()) {
-			if (configuration.getDeck() instanceof CollectionDeck) {
-				GetCollectionResponse deckCollection = Inventory.getCollection(new GetCollectionRequest()
-						.withUserId(configuration.getUserId().toString())
-						.withDeckId(configuration.getDeck().getDeckId()));
-
-				// Create the deck and assign all the appropriate IDs to the cards
-				Deck deck = deckCollection.asDeck(configuration.getUserId().toString());
-
-				// TODO: Add player information as attached to the hero entity
-				configuration.setDeck(deck);
-			}
-
-			String username = Accounts.findOne(configuration.getUserId()).getUsername();
-			configuration.setName(username);
-			// TODO: Get more attributes from database
-			AttributeMap playerAttributes = new AttributeMap();
-			playerAttributes.put(Attribute.NAME, username);
-			playerAttributes.put(Attribute.USER_ID, configuration.getUserId().toString());
-			playerAttributes.put(Attribute.DECK_ID, configuration.getDeck().getDeckId());
-
-			configuration.setPlayerAttributes(playerAttributes);
-			borrowableGameIds.add(configuration.getDeck().getDeckId());
-		}
+		List<String> borrowableGameIds = hydrate(request.getConfigurations());
 
 		if (borrowableGameIds.size() > 0) {
 			Inventory.borrowFromCollection(
@@ -93,12 +79,13 @@ public class ClusteredGames extends SyncVerticle implements Games {
 		if (connection == null) {
 
 			Games.LOGGER.debug("createGameSession: DeploymentId {} is responsible for deploying this match.", deploymentID());
-			ServerGameContext session = new ServerGameContext(request.getGameId(),
-					new VertxScheduler(Vertx.currentContext().owner()), request.getConfigurations());
+			ServerGameContext session = new ServerGameContext(request.getGameId(), timers, request.getConfigurations());
 
+			Map<UserId, GameId> userGames = new HashMap<>();
 			for (Configuration configuration : request.getConfigurations()) {
-				games.put(configuration.getUserId(), request.getGameId());
+				userGames.put(configuration.getUserId(), request.getGameId());
 			}
+			games.putAll(userGames);
 
 			// Deal with ending the game
 			session.handleEndGame(this::onGameOver);
@@ -116,6 +103,67 @@ public class ClusteredGames extends SyncVerticle implements Games {
 		}
 	}
 
+	/**
+	 * Populates the configurations with their players' decks, names and attributes.
+	 * <p>
+	 * The decks of all the players are fetched in one batched collection request, while the usernames are fetched in
+	 * one query that runs at the same time.
+	 *
+	 * @param configurations The configurations of the players in the game.
+	 * @return The IDs of the decks to borrow for the game.
+	 */
+	@Suspendable
+	private List<String> hydrate(List<Configuration> configurations) {
+		Future<Map<String, String>> usernamesFuture = Accounts.findUsernames(configurations.stream()
+				.map(configuration -> configuration.getUserId().toString())
+				.collect(toList()));
+
+		// Get the collection data from the configurations that are not yet populated with valid cards
+		List<GetCollectionRequest> deckRequests = new ArrayList<>();
+		for (Configuration configuration : configurations) {
+			if (configuration.getDeck() instanceof CollectionDeck) {
+				deckRequests.add(GetCollectionRequest.deck(configuration.getDeck().getDeckId())
+						.withUserId(configuration.getUserId().toString()));
+			}
+		}
+
+		Map<String, GetCollectionResponse> deckCollections = new HashMap<>();
+		if (deckRequests.size() > 0) {
+			for (GetCollectionResponse deckCollection : Inventory.getCollection(new GetCollectionRequest()
+					.withRequests(deckRequests)).getResponses()) {
+				deckCollections.put(deckCollection.getCollectionId(), deckCollection);
+			}
+		}
+
+		Map<String, String> usernames = awaitResult(usernamesFuture::setHandler);
+		List<String> borrowableGameIds = new ArrayList<>();
+		for (Configuration configuration : configurations) {
+			String userId = configuration.getUserId().toString();
+			if (configuration.getDeck() instanceof CollectionDeck) {
+				// Create the deck and assign all the appropriate IDs to the cards
+				Deck deck = deckCollections.get(configuration.getDeck().getDeckId()).asDeck(userId);
+
+				// TODO: Add player information as attached to the hero entity
+				configuration.setDeck(deck);
+			}
+
+			String username = usernames.get(userId);
+			if (username == null) {
+				throw new NullPointerException("User not found.");
+			}
+			configuration.setName(username);
+			// TODO: Get more attributes from database
+			AttributeMap playerAttributes = new AttributeMap();
+			playerAttributes.put(Attribute.NAME, username);
+			playerAttributes.put(Attribute.USER_ID, userId);
+			playerAttributes.put(Attribute.DECK_ID, configuration.getDeck().getDeckId());
+
+			configuration.setPlayerAttributes(playerAttributes);
+			borrowableGameIds.add(configuration.getDeck().getDeckId());
+		}
+		return borrowableGameIds;
+	}
+
 	@Suspendable
 	private void onGameOver(ServerGameContext session) {
 		Games.LOGGER.debug("onGameOver: Handling on game over for session " + session.getGameId());
@@ -133,6 +181,17 @@ public class ClusteredGames extends SyncVerticle implements Games {
 		endGame(monitor.getGameId());
 	}
 
+	@Suspendable
+	private void renewBots() throws SuspendExecution {
+		for (Map.Entry<GameId, ServerGameContext> entry : contexts.entrySet()) {
+			for (Configuration configuration : entry.getValue().getPlayerConfigurations()) {
+				if (configuration.isBot()) {
+					Bots.renewBot(configuration.getUserId(), entry.getKey());
+				}
+			}
+		}
+	}
+
 	@Suspendable
 	private void endGame(GameId gameId) throws InterruptedException, SuspendExecution {
 		if (!contexts.containsKey(gameId)) {
@@ -184,6 +243,13 @@ public class ClusteredGames extends SyncVerticle implements Games {
 		if (session.isRunning()) {
 			session.loseBothPlayers();
 		}
+
+		// The game is over for everyone now, so its bots can play other games
+		for (Configuration configuration : session.getPlayerConfigurations()) {
+			if (configuration.isBot()) {
+				Bots.releaseBot(configuration.getUserId(), gameId);
+			}
+		}
 	}
 
 	@Override
@@ -255,11 +321,13 @@ public class ClusteredGames extends SyncVerticle implements Games {
 	public void stop() throws Exception {
 		Games.LOGGER.debug("stop: Stopping the ClusteredGamesImpl.");
 		super.stop();
+		vertx.cancelTimer(botLeaseTimer);
 		Rpc.unregister(registration);
 		Games.LOGGER.debug("stop: Activity monitors unregistered");
 		for (GameId gameId : contexts.keySet()) {
 			endGame(new GameId(gameId.toString()));
 		}
 		Games.LOGGER.debug("stop: Sessions killed");
+		timers.close();
 	}
 }
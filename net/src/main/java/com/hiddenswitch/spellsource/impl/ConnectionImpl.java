@@ -7,9 +7,7 @@ import com.hiddenswitch.spellsource.util.Sync;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.http.ServerWebSocket;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
@@ -26,7 +24,6 @@ public class ConnectionImpl implements Connection {
 	private final List<Handler<Void>> drainHandlers = new ArrayList<>();
 	private final List<Handler<Envelope>> handlers = new ArrayList<>();
 	private final List<Handler<Void>> endHandlers = new ArrayList<>();
-	private String id;
 
 	public ConnectionImpl(String userId) {
 		this.userId = userId;
@@ -37,11 +34,6 @@ public class ConnectionImpl implements Connection {
 	public void setSocket(ServerWebSocket socket) {
 		this.socket = socket;
 
-		MessageConsumer<Envelope> consumer = Vertx.currentContext().owner().eventBus().consumer(id);
-		consumer.handler(msg -> {
-			socket.write(Buffer.buffer(Json.encode(msg.body())));
-		});
-
 		socket.handler(buf -> {
 			Envelope decoded = Json.decodeValue(buf, Envelope.class);
 			for (Handler<Envelope> handler : handlers) {
@@ -69,8 +61,7 @@ public class ConnectionImpl implements Connection {
 			drainHandlers.clear();
 			handlers.clear();
 			endHandlers.clear();
-			consumer.unregister();
-			Connection.getConnections().remove(new UserId(userId));
+			ConnectionRegistry.current().unregister(this);
 		}));
 	}
 
@@ -153,13 +144,4 @@ public class ConnectionImpl implements Connection {
 		}
 
 	}
-
-	public ConnectionImpl setId(String id) {
-		this.id = id;
-		return this;
-	}
-
-	public String getId() {
-		return id;
-	}
 }
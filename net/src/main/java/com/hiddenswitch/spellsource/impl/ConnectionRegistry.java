@@ -0,0 +1,373 @@
+package com.hiddenswitch.spellsource.impl;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.MembershipAdapter;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.query.Predicates;
+import com.hiddenswitch.spellsource.Connection;
+import com.hiddenswitch.spellsource.client.models.Envelope;
+import com.hiddenswitch.spellsource.concurrent.SuspendableLock;
+import com.hiddenswitch.spellsource.util.Hazelcast;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.hiddenswitch.spellsource.util.Sync.invoke;
+
+/**
+ * The realtime connections of the users on a node.
+ * <p>
+ * Every node owns the connections of the users connected to it. Writes to a user connected to this node go straight
+ * to their socket. The cluster only needs to know which node owns a user, so that writes from other nodes can be sent
+ * to that node's address directly. Ownership is recorded in the {@link #OWNERS} map under a lease of {@link
+ * #LEASE_MILLIS}, which the owning node renews while the user stays connected, so that the users of a node that died
+ * become unreachable on their own. When a node leaves the cluster, the leases it held are released right away.
+ * <p>
+ * The owners of the users are also their presence: a user is online while a member of the cluster holds their lease.
+ * The {@link #offlineHandler(Handler)}s are called once, on one node, when a user's last connection ends or the node
+ * that owned it leaves the cluster.
+ * <p>
+ * A user has at most one connection. When the user connects again, on this or another node, the older connection is
+ * closed.
+ * <p>
+ * The registry only receives writes from other nodes, renews its leases and releases the leases of nodes that left
+ * while it is subscribed with {@link #subscribe()}, which {@link NodeServices} does for the lifetime of the node.
+ */
+public final class ConnectionRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionRegistry.class);
+	public static final String OWNERS = "Connection::owners";
+	public static final long LEASE_MILLIS = 60000L;
+	public static final long RENEW_INTERVAL = 20000L;
+	private static final String USER_ID_HEADER = "userId";
+	private static final Map<Vertx, ConnectionRegistry> REGISTRIES = new WeakHashMap<>();
+
+	private final Vertx vertx;
+	private final String nodeId;
+	private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+	private final List<Handler<String>> offlineHandlers = new CopyOnWriteArrayList<>();
+	private final List<MessageConsumer<?>> consumers = new ArrayList<>();
+	private long renewTimer = -1L;
+	private String membershipListenerId;
+
+	private ConnectionRegistry(Vertx vertx, String nodeId) {
+		this.vertx = vertx;
+		this.nodeId = nodeId;
+	}
+
+	/**
+	 * Gets the registry of the given node, creating it if necessary.
+	 *
+	 * @param vertx The node.
+	 * @return The registry.
+	 */
+	public static ConnectionRegistry get(Vertx vertx) {
+		synchronized (REGISTRIES) {
+			return REGISTRIES.computeIfAbsent(vertx, k -> {
+				Connection.registerCodecs();
+				return new ConnectionRegistry(vertx, Hazelcast.getClusterManager().getNodeID());
+			});
+		}
+	}
+
+	/**
+	 * Gets the registry of the node the caller is running on.
+	 *
+	 * @return The registry.
+	 */
+	public static ConnectionRegistry current() {
+		return get(Vertx.currentContext().owner());
+	}
+
+	/**
+	 * Starts receiving the writes and closes sent to this node's users, renewing this node's leases and releasing the
+	 * leases of the nodes that leave the cluster. The consumers and the timer belong to the Vert.x context this is called
+	 * on, so call it from a verticle that lives as long as the node.
+	 */
+	public synchronized void subscribe() {
+		if (membershipListenerId != null) {
+			return;
+		}
+		consumers.add(vertx.eventBus().<Envelope>consumer(writeAddress(nodeId), message -> {
+			Connection connection = connections.get(message.headers().get(USER_ID_HEADER));
+			if (connection != null) {
+				connection.write(message.body());
+			}
+		}));
+		consumers.add(vertx.eventBus().<String>consumer(closeAddress(nodeId), message -> {
+			Connection connection = connections.get(message.body());
+			if (connection != null) {
+				connection.close(ignored -> {
+				});
+			}
+		}));
+		renewTimer = vertx.setPeriodic(RENEW_INTERVAL, ignored -> renew());
+		membershipListenerId = Hazelcast.getHazelcastInstance().getCluster().addMembershipListener(new MembershipAdapter() {
+			@Override
+			public void memberRemoved(MembershipEvent membershipEvent) {
+				release(membershipEvent.getMember().getUuid());
+			}
+		});
+	}
+
+	/**
+	 * Stops everything started by {@link #subscribe()}.
+	 */
+	public synchronized void unsubscribe() {
+		if (membershipListenerId == null) {
+			return;
+		}
+		for (MessageConsumer<?> consumer : consumers) {
+			consumer.unregister();
+		}
+		consumers.clear();
+		vertx.cancelTimer(renewTimer);
+		renewTimer = -1L;
+		Hazelcast.getHazelcastInstance().getCluster().removeMembershipListener(membershipListenerId);
+		membershipListenerId = null;
+	}
+
+	/**
+	 * Makes this node the owner of a user's connection, closing the user's previous connection wherever it is.
+	 *
+	 * @param connection The new connection.
+	 */
+	@Suspendable
+	public void register(Connection connection) {
+		String userId = connection.userId();
+		Connection previous = connections.put(userId, connection);
+		if (previous != null) {
+			previous.close(ignored -> {
+			});
+		}
+
+		String previousNodeId = invoke(() -> owners().put(userId, nodeId, LEASE_MILLIS, TimeUnit.MILLISECONDS));
+		if (previousNodeId != null && !previousNodeId.equals(nodeId)) {
+			vertx.eventBus().send(closeAddress(previousNodeId), userId);
+		}
+	}
+
+	/**
+	 * Gives up the ownership of a connection that ended, unless the user already connected again. If the user has no
+	 * other connection, the {@link #offlineHandler(Handler)}s are called.
+	 *
+	 * @param connection The connection that ended.
+	 */
+	public void unregister(Connection connection) {
+		String userId = connection.userId();
+		if (!connections.remove(userId, connection)) {
+			return;
+		}
+		// Nobody waits for this, so it doesn't need to hold up the caller
+		vertx.<Boolean>executeBlocking(fut -> {
+			IMap<String, String> owners = owners();
+			boolean released = owners.remove(userId, nodeId);
+			if (released && connections.containsKey(userId)) {
+				// The user connected to this node again while the lease was being released
+				owners.set(userId, nodeId, LEASE_MILLIS, TimeUnit.MILLISECONDS);
+				released = false;
+			}
+			fut.complete(released);
+		}, false, res -> {
+			if (res.failed()) {
+				LOGGER.warn("unregister: Could not release the lease of {}", userId, res.cause());
+			} else if (res.result()) {
+				offline(userId);
+			}
+		});
+	}
+
+	/**
+	 * Adds a handler that is called with the ID of a user who went offline. It's only called on the node that owned the
+	 * user's last connection, or, if that node left the cluster, on the first node that released its leases.
+	 *
+	 * @param handler The handler.
+	 * @return This registry.
+	 */
+	public ConnectionRegistry offlineHandler(Handler<String> handler) {
+		offlineHandlers.add(handler);
+		return this;
+	}
+
+	/**
+	 * Checks whether a user is connected to any node.
+	 *
+	 * @param userId The user.
+	 * @return {@code true} if a member of the cluster owns the user's connection.
+	 */
+	@Suspendable
+	public boolean isOnline(String userId) {
+		if (connections.containsKey(userId)) {
+			return true;
+		}
+		String ownerNodeId = invoke(owners()::get, userId);
+		return ownerNodeId != null && isMember(ownerNodeId);
+	}
+
+	/**
+	 * Gets the nodes that own the connections of the given users, with one batched read.
+	 *
+	 * @param userIds The users.
+	 * @return A map from the IDs of the users who are online to the IDs of the nodes they're connected to.
+	 */
+	@Suspendable
+	public Map<String, String> getOwners(Set<String> userIds) {
+		Map<String, String> owners = new HashMap<>(invoke(owners()::getAll, userIds));
+		owners.values().removeIf(ownerNodeId -> !isMember(ownerNodeId));
+		return owners;
+	}
+
+	/**
+	 * Gets a stream to write to a user's connection.
+	 *
+	 * @param userId The user.
+	 * @return The user's connection if they're connected to this node, a stream to the node they're connected to, or
+	 * {@code null} if they're not connected.
+	 */
+	@Suspendable
+	public WriteStream<Envelope> writeStream(String userId) {
+		Connection local = connections.get(userId);
+		if (local != null) {
+			return local;
+		}
+		return remote(userId, invoke(owners()::get, userId));
+	}
+
+	/**
+	 * Gets a stream to write to a user's connection.
+	 *
+	 * @param userId  The user.
+	 * @param handler Receives the stream, or {@code null} if the user isn't connected.
+	 * @see #writeStream(String)
+	 */
+	public void writeStream(String userId, Handler<AsyncResult<WriteStream<Envelope>>> handler) {
+		Connection local = connections.get(userId);
+		if (local != null) {
+			handler.handle(Future.succeededFuture(local));
+			return;
+		}
+		vertx.<String>executeBlocking(fut -> fut.complete(owners().get(userId)), false, res -> {
+			if (res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+			} else {
+				handler.handle(Future.succeededFuture(remote(userId, res.result())));
+			}
+		});
+	}
+
+	/**
+	 * Gets the connection of a user connected to this node.
+	 *
+	 * @param userId The user.
+	 * @return The connection, or {@code null} if the user isn't connected to this node.
+	 */
+	public Connection getLocal(String userId) {
+		return connections.get(userId);
+	}
+
+	/**
+	 * Acquires the lock that orders the method calls of a user. The calls that come in through the user's connection
+	 * run on the node that owns it, but calls made on behalf of the user over HTTP can run on any node, so the lock is
+	 * cluster-wide. Unlike the connection itself, it is only held for the duration of a call.
+	 *
+	 * @param userId The user.
+	 * @return The lock, which must be released when the call is done.
+	 */
+	@Suspendable
+	public SuspendableLock methodLock(String userId) {
+		return SuspendableLock.lock("Connection::method-ordering-lock[" + userId + "]");
+	}
+
+	public int size() {
+		return connections.size();
+	}
+
+	private WriteStream<Envelope> remote(String userId, String ownerNodeId) {
+		if (ownerNodeId == null || !isMember(ownerNodeId)) {
+			return null;
+		}
+		return vertx.eventBus().publisher(writeAddress(ownerNodeId), new DeliveryOptions().addHeader(USER_ID_HEADER, userId));
+	}
+
+	private boolean isMember(String ownerNodeId) {
+		// A lease can outlive its node by up to LEASE_MILLIS
+		ClusterManager clusterManager = Hazelcast.getClusterManager();
+		return ownerNodeId.equals(nodeId) || clusterManager.getNodes().contains(ownerNodeId);
+	}
+
+	/**
+	 * Releases the leases of a node that left the cluster. Every node tries to, but a lease is only released once.
+	 *
+	 * @param leftNodeId The node that left.
+	 */
+	private void release(String leftNodeId) {
+		vertx.<List<String>>executeBlocking(fut -> {
+			IMap<String, String> owners = owners();
+			List<String> released = new ArrayList<>();
+			for (String userId : owners.keySet(Predicates.equal("this", leftNodeId))) {
+				if (owners.remove(userId, leftNodeId)) {
+					released.add(userId);
+				}
+			}
+			fut.complete(released);
+		}, false, res -> {
+			if (res.failed()) {
+				LOGGER.warn("release: Could not release the leases of {}", leftNodeId, res.cause());
+				return;
+			}
+			for (String userId : res.result()) {
+				offline(userId);
+			}
+		});
+	}
+
+	private void offline(String userId) {
+		for (Handler<String> handler : offlineHandlers) {
+			handler.handle(userId);
+		}
+	}
+
+	private void renew() {
+		if (connections.isEmpty()) {
+			return;
+		}
+		IMap<String, String> owners = owners();
+		for (String userId : connections.keySet()) {
+			owners.setAsync(userId, nodeId, LEASE_MILLIS, TimeUnit.MILLISECONDS).andThen(new ExecutionCallback<Void>() {
+				@Override
+				public void onResponse(Void response) {
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					LOGGER.warn("renew: Could not renew the lease of {}", userId, t);
+				}
+			});
+		}
+	}
+
+	private static IMap<String, String> owners() {
+		return Hazelcast.getHazelcastInstance().getMap(OWNERS);
+	}
+
+	private static String writeAddress(String nodeId) {
+		return "Connection::write[" + nodeId + "]";
+	}
+
+	private static String closeAddress(String nodeId) {
+		return "Connection::close[" + nodeId + "]";
+	}
+}
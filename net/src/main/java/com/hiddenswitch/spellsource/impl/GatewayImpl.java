@@ -11,7 +11,9 @@ import com.hiddenswitch.spellsource.client.models.LoginRequest;
 import com.hiddenswitch.spellsource.client.models.LoginResponse;
 import com.hiddenswitch.spellsource.common.DeckCreateRequest;
 import com.hiddenswitch.spellsource.concurrent.SuspendableMap;
+import com.hiddenswitch.spellsource.impl.util.CollectionCache;
 import com.hiddenswitch.spellsource.impl.util.DraftRecord;
+import com.hiddenswitch.spellsource.impl.util.FriendIndex;
 import com.hiddenswitch.spellsource.impl.util.HandlerFactory;
 import com.hiddenswitch.spellsource.impl.util.ServerGameContext;
 import com.hiddenswitch.spellsource.impl.util.UserRecord;
@@ -19,6 +21,7 @@ import com.hiddenswitch.spellsource.models.ChangePasswordRequest;
 import com.hiddenswitch.spellsource.models.ChangePasswordResponse;
 import com.hiddenswitch.spellsource.models.*;
 import com.hiddenswitch.spellsource.models.MatchCancelResponse;
+import com.hiddenswitch.spellsource.util.Mongo;
 import com.hiddenswitch.spellsource.util.Rpc;
 import com.hiddenswitch.spellsource.util.Serialization;
 import com.hiddenswitch.spellsource.util.Sync;
@@ -27,12 +30,14 @@ import io.vertx.core.Closeable;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.sync.SyncVerticle;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.*;
 import io.vertx.ext.web.impl.Utils;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
+import net.demilich.metastone.game.statistics.Profiler;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -129,6 +134,15 @@ public class GatewayImpl extends SyncVerticle implements Gateway {
 					routingContext.response().end("OK");
 				});
 
+		// Metrics of this node, also without logging
+		router.route("/metrics")
+				.method(HttpMethod.GET)
+				.handler(routingContext -> {
+					routingContext.response().setStatusCode(200);
+					routingContext.response().putHeader("Content-Type", "application/json");
+					routingContext.response().end(getMetrics().encode());
+				});
+
 		// All routes need logging of URLs. URLs never leak private information
 		router.route().handler(LoggerHandler.create(true, LoggerFormat.DEFAULT));
 
@@ -678,6 +692,35 @@ public class GatewayImpl extends SyncVerticle implements Gateway {
 	}
 
 
+	/**
+	 * Gets the metrics of the database access and the caches of this node.
+	 *
+	 * @return The metrics.
+	 */
+	private JsonObject getMetrics() {
+		CollectionCache collections = CollectionCache.get(vertx);
+		FriendIndex friends = FriendIndex.get(vertx);
+		// Only recorded when the server runs with -Dspellsource.profile=true
+		Profiler profiler = Profiler.getGlobal();
+		return new JsonObject()
+				.put("mongo", Mongo.mongo().getMetrics().toJson())
+				.put("collectionCache", new JsonObject()
+						.put("size", collections.size())
+						.put("hits", collections.getHits())
+						.put("misses", collections.getMisses())
+						.put("hitRate", collections.getHitRate())
+						.put("invalidations", collections.getInvalidations()))
+				.put("friendIndex", new JsonObject()
+						.put("size", friends.size())
+						.put("hits", friends.getHits())
+						.put("misses", friends.getMisses()))
+				.put("connections", ConnectionRegistry.get(vertx).size())
+				.put("bots", new JsonObject()
+						.put("planHits", Bots.PLAN_HITS.get())
+						.put("planSearches", Bots.PLAN_SEARCHES.get()))
+				.put("profile", profiler == null ? null : profiler.toJson());
+	}
+
 	public Games getGames() throws InterruptedException, SuspendExecution {
 		return Rpc.connect(Games.class).sync();
 	}
@@ -691,6 +734,8 @@ public class GatewayImpl extends SyncVerticle implements Gateway {
 		if (queues != null) {
 			Sync.invoke1(queues::close);
 		}
+		// Write the chat messages that are still pending
+		awaitResult(ChatStore.get(vertx).flush()::setHandler);
 	}
 
 }
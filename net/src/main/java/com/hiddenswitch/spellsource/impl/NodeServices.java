@@ -0,0 +1,31 @@
+package com.hiddenswitch.spellsource.impl;
+
+import com.hiddenswitch.spellsource.impl.util.CollectionCache;
+import com.hiddenswitch.spellsource.impl.util.FriendIndex;
+import io.vertx.core.AbstractVerticle;
+
+/**
+ * Owns the event bus consumers, timers and cluster listeners of the node-local caches and registries that are shared
+ * by every verticle of a {@link io.vertx.core.Vertx} instance.
+ * <p>
+ * Consumers and timers belong to the context of the verticle that created them, and are removed when that verticle is
+ * undeployed. The {@link CollectionCache}, {@link FriendIndex} and {@link ConnectionRegistry} are created by whichever
+ * verticle uses them first, so their subscriptions are made here instead, by a verticle deployed for the lifetime of
+ * the node.
+ */
+public class NodeServices extends AbstractVerticle {
+
+	@Override
+	public void start() throws Exception {
+		CollectionCache.get(vertx).subscribe(vertx);
+		FriendIndex.get(vertx).subscribe(vertx);
+		ConnectionRegistry.get(vertx).subscribe();
+	}
+
+	@Override
+	public void stop() throws Exception {
+		ConnectionRegistry.get(vertx).unsubscribe();
+		FriendIndex.get(vertx).unsubscribe();
+		CollectionCache.get(vertx).unsubscribe();
+	}
+}
@@ -14,10 +14,17 @@ import net.demilich.metastone.game.behaviour.UtilityBehaviour;
 import net.demilich.metastone.game.cards.Card;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 public class BotsServiceBehaviour extends UtilityBehaviour {
 	private static final Logger logger = org.slf4j.LoggerFactory.getLogger(BotsServiceBehaviour.class);
+	/**
+	 * The bot's plan. A behaviour is created for each bot in a game on the node that hosts it, so the plan lives exactly
+	 * as long as the game.
+	 */
+	private final Deque<Integer> indexPlan = new ArrayDeque<>();
 
 	@Override
 	public String getName() {
@@ -36,7 +43,7 @@ public class BotsServiceBehaviour extends UtilityBehaviour {
 		RequestActionRequest request = new RequestActionRequest(new GameId(context.getGameId()), player.getId(), validActions, context.getDeckFormat(), context.getGameStateCopy());
 
 		try {
-			RequestActionResponse response = Bots.requestAction(request);
+			RequestActionResponse response = Bots.requestAction(request, indexPlan);
 			return response.gameAction;
 		} catch (RuntimeException cause) {
 			logger.error("requestAction: The AI threw an exception while trying to get an action: ", cause);
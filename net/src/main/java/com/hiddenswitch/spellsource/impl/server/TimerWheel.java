@@ -0,0 +1,176 @@
+package com.hiddenswitch.spellsource.impl.server;
+
+import com.hiddenswitch.spellsource.impl.TimerId;
+import com.hiddenswitch.spellsource.impl.util.Scheduler;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel that schedules the timers of all the games in a verticle on one periodic Vert.x timer.
+ * <p>
+ * Timers are kept in a ring of buckets, one per tick, and a timer is put in the bucket of the tick it expires on. Setting
+ * and cancelling a timer is a constant time update of a linked list. Every tick, the wheel fires the expired timers of
+ * the buckets it passed in one batch. Timers that are further away than one revolution of the wheel stay in their
+ * bucket until the wheel comes around to their tick.
+ * <p>
+ * Timers fire up to one tick late. Their handlers run on the context that created the wheel.
+ */
+public class TimerWheel implements Scheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+	/**
+	 * The resolution of the wheel.
+	 */
+	public static final long TICK_MILLIS = 100L;
+	/**
+	 * The number of buckets in the wheel. Must be a power of two.
+	 */
+	public static final int WHEEL_SIZE = 512;
+
+	private final Vertx vertx;
+	private final long tickMillis;
+	private final Timeout[] buckets;
+	private final int mask;
+	private final Map<Long, Timeout> timeouts = new HashMap<>();
+	private final long startNanos = System.nanoTime();
+	private final long periodicId;
+	private long tick;
+	private long nextId;
+
+	public TimerWheel(Vertx vertx) {
+		this(vertx, TICK_MILLIS, WHEEL_SIZE);
+	}
+
+	public TimerWheel(Vertx vertx, long tickMillis, int wheelSize) {
+		if (Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("wheelSize must be a power of two");
+		}
+		this.vertx = vertx;
+		this.tickMillis = tickMillis;
+		this.buckets = new Timeout[wheelSize];
+		this.mask = wheelSize - 1;
+		this.periodicId = vertx.setPeriodic(tickMillis, ignored -> advance());
+	}
+
+	@Override
+	public synchronized TimerId setTimer(long delay, Handler<Long> handler) {
+		long id = nextId++;
+		// Round up, so that a timer never fires early
+		long deadlineTick = currentTick() + Math.max(1L, (delay + tickMillis - 1L) / tickMillis);
+		Timeout timeout = new Timeout(id, deadlineTick, handler);
+		link(timeout);
+		timeouts.put(id, timeout);
+		return new TimerId(id);
+	}
+
+	@Override
+	public synchronized boolean cancelTimer(TimerId id) {
+		Timeout timeout = timeouts.remove(id.longValue());
+		if (timeout == null) {
+			return false;
+		}
+		unlink(timeout);
+		return true;
+	}
+
+	/**
+	 * Gets the number of timers that haven't fired or been cancelled yet.
+	 *
+	 * @return The number of timers.
+	 */
+	public synchronized int size() {
+		return timeouts.size();
+	}
+
+	/**
+	 * Stops the wheel. Pending timers never fire.
+	 */
+	public synchronized void close() {
+		vertx.cancelTimer(periodicId);
+		timeouts.clear();
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = null;
+		}
+	}
+
+	/**
+	 * Advances the wheel to the current time and fires the timers that expired since the last tick.
+	 */
+	void advance() {
+		List<Timeout> expired = new ArrayList<>();
+		synchronized (this) {
+			long target = currentTick();
+			// When the event loop fell behind by a whole revolution or more, every bucket needs to be visited only once
+			long from = Math.max(tick + 1L, target - buckets.length + 1L);
+			for (long t = from; t <= target; t++) {
+				Timeout timeout = buckets[(int) (t & mask)];
+				while (timeout != null) {
+					Timeout next = timeout.next;
+					if (timeout.deadlineTick <= target) {
+						unlink(timeout);
+						timeouts.remove(timeout.id);
+						expired.add(timeout);
+					}
+					timeout = next;
+				}
+			}
+			tick = Math.max(tick, target);
+		}
+
+		// Fire the handlers outside the lock, since they typically set new timers
+		for (Timeout timeout : expired) {
+			try {
+				timeout.handler.handle(timeout.id);
+			} catch (RuntimeException ex) {
+				LOGGER.error("advance: Timer {} threw", timeout.id, ex);
+			}
+		}
+	}
+
+	private long currentTick() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) / tickMillis;
+	}
+
+	private void link(Timeout timeout) {
+		int bucket = (int) (timeout.deadlineTick & mask);
+		timeout.next = buckets[bucket];
+		if (timeout.next != null) {
+			timeout.next.previous = timeout;
+		}
+		buckets[bucket] = timeout;
+	}
+
+	private void unlink(Timeout timeout) {
+		if (timeout.previous != null) {
+			timeout.previous.next = timeout.next;
+		} else {
+			buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+		}
+		if (timeout.next != null) {
+			timeout.next.previous = timeout.previous;
+		}
+		timeout.next = null;
+		timeout.previous = null;
+	}
+
+	private static final class Timeout {
+		private final long id;
+		private final long deadlineTick;
+		private final Handler<Long> handler;
+		private Timeout previous;
+		private Timeout next;
+
+		private Timeout(long id, long deadlineTick, Handler<Long> handler) {
+			this.id = id;
+			this.deadlineTick = deadlineTick;
+			this.handler = handler;
+		}
+	}
+}
@@ -13,12 +13,17 @@ import java.lang.ref.WeakReference;
 import static com.hiddenswitch.spellsource.util.Sync.suspendableHandler;
 
 /**
- * Created by bberman on 12/6/16.
+ * Calls a handler when there was no activity for a while.
+ * <p>
+ * Activity only moves a deadline forward. The monitor keeps at most one timer pending, and when it fires before the
+ * deadline because of later activity, it is set again for the remaining time. This way, frequent activity doesn't
+ * create and cancel timers.
  */
 public class ActivityMonitor {
 	private final long noActivityTimeout;
 	private final WeakReference<Scheduler> scheduler;
 	private TimerId lastTimerId;
+	private volatile long deadline;
 	private final SuspendableAction1<ActivityMonitor> onTimeout;
 	private GameId gameId;
 
@@ -34,21 +39,32 @@ public class ActivityMonitor {
 	}
 
 	private void handleTimeout(long t) throws InterruptedException, SuspendExecution {
+		synchronized (this) {
+			if (lastTimerId == null || lastTimerId.longValue() != t) {
+				// Cancelled
+				return;
+			}
+			lastTimerId = null;
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining > 0L) {
+				// There was activity since the timer was set
+				schedule(remaining);
+				return;
+			}
+		}
 		onTimeout.call(this);
 	}
 
 	public void activity() {
-		Scheduler scheduler = this.scheduler.get();
-		if (scheduler == null) {
-			return;
+		deadline = System.currentTimeMillis() + noActivityTimeout;
+		synchronized (this) {
+			if (lastTimerId == null) {
+				schedule(noActivityTimeout);
+			}
 		}
-
-		cancel();
-
-		lastTimerId = scheduler.setTimer(noActivityTimeout, suspendableHandler(this::handleTimeout));
 	}
 
-	public void cancel() {
+	public synchronized void cancel() {
 		Scheduler scheduler = this.scheduler.get();
 
 		if (scheduler == null) {
@@ -57,10 +73,20 @@ public class ActivityMonitor {
 
 		if (lastTimerId != null) {
 			scheduler.cancelTimer(lastTimerId);
+			lastTimerId = null;
 		}
 	}
 
 	public GameId getGameId() {
 		return gameId;
 	}
+
+	private void schedule(long delay) {
+		Scheduler scheduler = this.scheduler.get();
+		if (scheduler == null) {
+			return;
+		}
+
+		lastTimerId = scheduler.setTimer(delay, suspendableHandler(this::handleTimeout));
+	}
 }
@@ -0,0 +1,58 @@
+package com.hiddenswitch.spellsource.impl.util;
+
+import com.hiddenswitch.spellsource.impl.GameId;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A bot's lease for a game. The lease expires unless the node running the game renews it, so a bot whose game was
+ * lost, e.g. because its node died, goes back to the pool on its own.
+ */
+public final class BotLease implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private GameId gameId;
+	private long expiresAt;
+
+	public BotLease() {
+	}
+
+	public BotLease(GameId gameId, long expiresAt) {
+		this.gameId = gameId;
+		this.expiresAt = expiresAt;
+	}
+
+	public GameId getGameId() {
+		return gameId;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof BotLease)) {
+			return false;
+		}
+		BotLease that = (BotLease) o;
+		return expiresAt == that.expiresAt && Objects.equals(gameId, that.gameId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(gameId, expiresAt);
+	}
+
+	@Override
+	public String toString() {
+		return "BotLease{gameId=" + gameId + ", expiresAt=" + expiresAt + "}";
+	}
+}
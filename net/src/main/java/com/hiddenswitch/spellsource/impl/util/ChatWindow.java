@@ -0,0 +1,67 @@
+package com.hiddenswitch.spellsource.impl.util;
+
+import com.hiddenswitch.spellsource.client.models.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The most recent messages of a conversation, kept in a ring buffer of a fixed capacity. Adding a message to a full
+ * window overwrites its oldest message.
+ */
+public final class ChatWindow {
+	private final ChatMessage[] messages;
+	private int head;
+	private int size;
+
+	public ChatWindow(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.messages = new ChatMessage[capacity];
+	}
+
+	/**
+	 * Adds a message as the newest message of the window, unless the window already contains it.
+	 *
+	 * @param message The message.
+	 * @return {@code true} if the message was added.
+	 */
+	public synchronized boolean add(ChatMessage message) {
+		// Messages can arrive both from the database and from the event bus
+		for (int i = 0; i < size; i++) {
+			if (Objects.equals(messages[(head + i) % messages.length].getMessageId(), message.getMessageId())) {
+				return false;
+			}
+		}
+		messages[(head + size) % messages.length] = message;
+		if (size < messages.length) {
+			size++;
+		} else {
+			head = (head + 1) % messages.length;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the messages in the window.
+	 *
+	 * @return A copy of the messages, from oldest to newest.
+	 */
+	public synchronized List<ChatMessage> toList() {
+		List<ChatMessage> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(messages[(head + i) % messages.length]);
+		}
+		return list;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return messages.length;
+	}
+}
@@ -0,0 +1,344 @@
+package com.hiddenswitch.spellsource.impl.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hiddenswitch.spellsource.util.QuickJson.json;
+
+/**
+ * A node-local cache of the inventory records in user and deck collections, shared by every verticle of a {@link
+ * Vertx} instance.
+ * <p>
+ * Code that changes the inventory or the collections must call {@link #invalidate(Collection, Collection)} after the
+ * write. This drops the stale entries on this node right away and publishes the invalidation on the event bus for
+ * the other nodes in the cluster.
+ * <p>
+ * An entry is stale if its collection was changed, or if it contains a record that was changed. A record is changed
+ * either directly by its inventory ID or by a write to one of the collections it belongs to, so the cache indexes its
+ * entries by the inventory IDs and the collection IDs of the records they contain.
+ * <p>
+ * The cache keeps snapshots of the records it is given, and returns new copies of them on every read, so callers may
+ * modify what they put and what they get.
+ * <p>
+ * The cache only receives the invalidations of other nodes while it is subscribed with {@link #subscribe(Vertx)}, which
+ * {@link com.hiddenswitch.spellsource.impl.NodeServices} does for the lifetime of the node.
+ */
+public final class CollectionCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CollectionCache.class);
+	public static final String INVALIDATE_ADDRESS = "Inventory::invalidateCollections";
+	/**
+	 * The maximum number of collections to keep on a node. The least recently used collections are evicted first.
+	 */
+	public static final int MAXIMUM_SIZE = 1024;
+	private static final Map<Vertx, CollectionCache> CACHES = new WeakHashMap<>();
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Set<String>> byInventoryId = new HashMap<>();
+	private final Map<String, Set<String>> byRecordCollectionId = new HashMap<>();
+	private final int maximumSize;
+	private long generation;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private MessageConsumer<JsonObject> consumer;
+
+	public CollectionCache() {
+		this(MAXIMUM_SIZE);
+	}
+
+	public CollectionCache(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Gets the cache of the given node, creating it if necessary.
+	 *
+	 * @param vertx The node.
+	 * @return The cache.
+	 */
+	public static CollectionCache get(Vertx vertx) {
+		synchronized (CACHES) {
+			return CACHES.computeIfAbsent(vertx, k -> new CollectionCache());
+		}
+	}
+
+	/**
+	 * Gets the cache of the node the caller is running on.
+	 *
+	 * @return The cache, or {@code null} if the caller is not running on a Vert.x context.
+	 */
+	public static CollectionCache current() {
+		Context context = Vertx.currentContext();
+		if (context == null) {
+			return null;
+		}
+		return get(context.owner());
+	}
+
+	/**
+	 * Invalidates the given collections, and the collections containing the given inventory records, on every node.
+	 *
+	 * @param collectionIds The IDs of the collections that were changed.
+	 * @param inventoryIds  The IDs of the inventory records that were changed.
+	 */
+	public static void invalidate(Collection<String> collectionIds, Collection<String> inventoryIds) {
+		publish(json("collectionIds", new JsonArray(new ArrayList<>(collectionIds)),
+				"inventoryIds", new JsonArray(new ArrayList<>(inventoryIds))));
+	}
+
+	/**
+	 * Invalidates every collection on every node. Use this for writes whose affected collections aren't known, like
+	 * migrations.
+	 */
+	public static void invalidateAll() {
+		publish(json("all", true));
+	}
+
+	private static void publish(JsonObject invalidation) {
+		Context context = Vertx.currentContext();
+		if (context == null) {
+			return;
+		}
+		Vertx vertx = context.owner();
+		// Invalidate locally first, so that this node never reads its own stale writes
+		get(vertx).invalidate(invalidation);
+		vertx.eventBus().publish(INVALIDATE_ADDRESS, invalidation);
+	}
+
+	/**
+	 * Subscribes this cache to the invalidations published on the cluster. The subscription belongs to the Vert.x
+	 * context this is called on, so call it from a verticle that lives as long as the node.
+	 *
+	 * @param vertx The node.
+	 */
+	public synchronized void subscribe(Vertx vertx) {
+		if (consumer != null) {
+			return;
+		}
+		consumer = vertx.eventBus().consumer(INVALIDATE_ADDRESS, message -> invalidate(message.body()));
+	}
+
+	/**
+	 * Stops receiving the invalidations published on the cluster, and removes every collection from this node's cache,
+	 * since it can't be kept up to date anymore.
+	 */
+	public synchronized void unsubscribe() {
+		if (consumer == null) {
+			return;
+		}
+		consumer.unregister();
+		consumer = null;
+		clear();
+	}
+
+	/**
+	 * Gets the generation of the cache. Pass the generation from before a read of the database to {@link #put(long,
+	 * String, CollectionRecord, List)}, so that the result of a read that raced an invalidation is not cached.
+	 *
+	 * @return The generation.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Gets a cached collection.
+	 *
+	 * @param collectionId The ID of the user or deck collection.
+	 * @return The entry, or {@code null} if the collection isn't cached.
+	 */
+	public synchronized Entry get(String collectionId) {
+		Entry entry = entries.get(collectionId);
+		if (entry == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	/**
+	 * Caches a collection that was read from the database.
+	 *
+	 * @param generation       The {@link #getGeneration()} from before the collection was read.
+	 * @param collectionId     The ID of the user or deck collection.
+	 * @param collectionRecord The collection's record, or {@code null} for user collections.
+	 * @param inventoryRecords The inventory records in the collection.
+	 * @return {@code true} if the collection was cached.
+	 */
+	public synchronized boolean put(long generation, String collectionId, CollectionRecord collectionRecord, List<InventoryRecord> inventoryRecords) {
+		if (generation != this.generation) {
+			return false;
+		}
+		remove(collectionId);
+		Entry entry = new Entry(collectionRecord, inventoryRecords);
+		entries.put(collectionId, entry);
+		for (String inventoryId : entry.inventoryIds) {
+			index(byInventoryId, inventoryId, collectionId);
+		}
+		for (String recordCollectionId : entry.recordCollectionIds) {
+			index(byRecordCollectionId, recordCollectionId, collectionId);
+		}
+
+		if (entries.size() > maximumSize) {
+			remove(entries.keySet().iterator().next());
+		}
+		return true;
+	}
+
+	/**
+	 * Invalidates the given collections and the collections containing the given inventory records on this node only.
+	 *
+	 * @param collectionIds The IDs of the collections that were changed.
+	 * @param inventoryIds  The IDs of the inventory records that were changed.
+	 */
+	public synchronized void invalidateLocal(Collection<String> collectionIds, Collection<String> inventoryIds) {
+		generation++;
+		invalidations.incrementAndGet();
+		Set<String> stale = new HashSet<>();
+		for (String collectionId : collectionIds) {
+			stale.add(collectionId);
+			stale.addAll(byRecordCollectionId.getOrDefault(collectionId, Collections.emptySet()));
+		}
+		for (String inventoryId : inventoryIds) {
+			stale.addAll(byInventoryId.getOrDefault(inventoryId, Collections.emptySet()));
+		}
+		for (String collectionId : stale) {
+			remove(collectionId);
+		}
+	}
+
+	/**
+	 * Removes every collection from this node's cache.
+	 */
+	public synchronized void clear() {
+		generation++;
+		invalidations.incrementAndGet();
+		entries.clear();
+		byInventoryId.clear();
+		byRecordCollectionId.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Gets the fraction of lookups that were served from the cache.
+	 *
+	 * @return The hit rate, or {@code 0} if there weren't any lookups yet.
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0L ? 0d : (double) hits / total;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CollectionCache{size=%d, hits=%d, misses=%d, hitRate=%.3f, invalidations=%d}",
+				size(), getHits(), getMisses(), getHitRate(), getInvalidations());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void invalidate(JsonObject invalidation) {
+		if (invalidation.getBoolean("all", false)) {
+			clear();
+		} else {
+			invalidateLocal(invalidation.getJsonArray("collectionIds", new JsonArray()).getList(),
+					invalidation.getJsonArray("inventoryIds", new JsonArray()).getList());
+		}
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("invalidate: {} after {}", this, invalidation);
+		}
+	}
+
+	private void remove(String collectionId) {
+		Entry entry = entries.remove(collectionId);
+		if (entry == null) {
+			return;
+		}
+		for (String inventoryId : entry.inventoryIds) {
+			unindex(byInventoryId, inventoryId, collectionId);
+		}
+		for (String recordCollectionId : entry.recordCollectionIds) {
+			unindex(byRecordCollectionId, recordCollectionId, collectionId);
+		}
+	}
+
+	private static void index(Map<String, Set<String>> index, String key, String collectionId) {
+		index.computeIfAbsent(key, k -> new HashSet<>()).add(collectionId);
+	}
+
+	private static void unindex(Map<String, Set<String>> index, String key, String collectionId) {
+		Set<String> collectionIds = index.get(key);
+		if (collectionIds == null) {
+			return;
+		}
+		collectionIds.remove(collectionId);
+		if (collectionIds.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	/**
+	 * A cached collection. The entry keeps its own copies of the records, and hands out copies made with the records'
+	 * copy constructors, so callers may change what they get.
+	 */
+	public static final class Entry {
+		private final CollectionRecord collectionRecord;
+		private final List<InventoryRecord> inventoryRecords;
+		private final Set<String> inventoryIds = new HashSet<>();
+		private final Set<String> recordCollectionIds = new HashSet<>();
+
+		private Entry(CollectionRecord collectionRecord, List<InventoryRecord> inventoryRecords) {
+			this.collectionRecord = collectionRecord == null ? null : new CollectionRecord(collectionRecord);
+			this.inventoryRecords = new ArrayList<>(inventoryRecords.size());
+			for (InventoryRecord record : inventoryRecords) {
+				this.inventoryRecords.add(new InventoryRecord(record));
+				inventoryIds.add(record.getId());
+				if (record.getCollectionIds() != null) {
+					recordCollectionIds.addAll(record.getCollectionIds());
+				}
+			}
+		}
+
+		/**
+		 * @return A copy of the collection's record, or {@code null} for user collections.
+		 */
+		public CollectionRecord getCollectionRecord() {
+			return collectionRecord == null ? null : new CollectionRecord(collectionRecord);
+		}
+
+		/**
+		 * @return Copies of the inventory records in the collection, in a new list.
+		 */
+		public List<InventoryRecord> getInventoryRecords() {
+			List<InventoryRecord> copies = new ArrayList<>(inventoryRecords.size());
+			for (InventoryRecord record : inventoryRecords) {
+				copies.add(new InventoryRecord(record));
+			}
+			return copies;
+		}
+	}
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.hiddenswitch.spellsource.models.CollectionTypes;
 import net.demilich.metastone.game.entities.heroes.HeroClass;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,6 +37,26 @@ public class CollectionRecord extends MongoRecord {
 	protected CollectionRecord() {
 	}
 
+	/**
+	 * Creates a copy of another record that can be changed without affecting it.
+	 *
+	 * @param other The record to copy.
+	 */
+	public CollectionRecord(CollectionRecord other) {
+		super(other._id);
+		this.userId = other.userId;
+		this.type = other.type;
+		this.trashed = other.trashed;
+		this.deckType = other.deckType;
+		this.friendUserIds = other.friendUserIds == null ? null : new ArrayList<>(other.friendUserIds);
+		this.wins = other.wins;
+		this.totalGames = other.totalGames;
+		this.heroClass = other.heroClass;
+		this.name = other.name;
+		this.heroCardId = other.heroCardId;
+		this.format = other.format;
+	}
+
 	public CollectionRecord setId(final String id) {
 		this._id = id;
 		return this;
@@ -0,0 +1,194 @@
+package com.hiddenswitch.spellsource.impl.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node-local cache of who is friends with whom, shared by every verticle of a {@link Vertx} instance.
+ * <p>
+ * Presence changes are fanned out to a user's friends, so the friend IDs of a user are read far more often than they
+ * change. Code that friends or unfriends users must call {@link #invalidate(Collection)} after the write, which drops
+ * the stale entries on this node right away and on the other nodes in the cluster over the event bus.
+ * <p>
+ * The sets returned by the index are shared and unmodifiable.
+ * <p>
+ * The index only receives the invalidations of other nodes while it is subscribed with {@link #subscribe(Vertx)},
+ * which {@link com.hiddenswitch.spellsource.impl.NodeServices} does for the lifetime of the node.
+ */
+public final class FriendIndex {
+	public static final String INVALIDATE_ADDRESS = "Friends::invalidateIndex";
+	/**
+	 * The maximum number of users whose friends are kept on a node. The least recently used entries are evicted first.
+	 */
+	public static final int MAXIMUM_SIZE = 4096;
+	private static final Map<Vertx, FriendIndex> INDICES = new WeakHashMap<>();
+
+	private final LinkedHashMap<String, Set<String>> friendIds = new LinkedHashMap<>(16, 0.75f, true);
+	private final int maximumSize;
+	private long generation;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private MessageConsumer<JsonArray> consumer;
+
+	public FriendIndex() {
+		this(MAXIMUM_SIZE);
+	}
+
+	public FriendIndex(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Gets the index of the given node, creating it if necessary.
+	 *
+	 * @param vertx The node.
+	 * @return The index.
+	 */
+	public static FriendIndex get(Vertx vertx) {
+		synchronized (INDICES) {
+			return INDICES.computeIfAbsent(vertx, k -> new FriendIndex());
+		}
+	}
+
+	/**
+	 * Gets the index of the node the caller is running on.
+	 *
+	 * @return The index, or {@code null} if the caller is not running on a Vert.x context.
+	 */
+	public static FriendIndex current() {
+		Context context = Vertx.currentContext();
+		if (context == null) {
+			return null;
+		}
+		return get(context.owner());
+	}
+
+	/**
+	 * Invalidates the friends of the given users on every node.
+	 *
+	 * @param userIds The IDs of the users whose friends changed.
+	 */
+	public static void invalidate(Collection<String> userIds) {
+		Context context = Vertx.currentContext();
+		if (context == null) {
+			return;
+		}
+		Vertx vertx = context.owner();
+		get(vertx).invalidateLocal(userIds);
+		vertx.eventBus().publish(INVALIDATE_ADDRESS, new JsonArray(new ArrayList<>(userIds)));
+	}
+
+	/**
+	 * Subscribes this index to the invalidations published on the cluster. The subscription belongs to the Vert.x
+	 * context this is called on, so call it from a verticle that lives as long as the node.
+	 *
+	 * @param vertx The node.
+	 */
+	public synchronized void subscribe(Vertx vertx) {
+		if (consumer != null) {
+			return;
+		}
+		consumer = vertx.eventBus().consumer(INVALIDATE_ADDRESS, message -> invalidateLocal(asStrings(message.body())));
+	}
+
+	/**
+	 * Stops receiving the invalidations published on the cluster, and removes every user from this node's index, since
+	 * it can't be kept up to date anymore.
+	 */
+	public synchronized void unsubscribe() {
+		if (consumer == null) {
+			return;
+		}
+		consumer.unregister();
+		consumer = null;
+		generation++;
+		friendIds.clear();
+	}
+
+	/**
+	 * Gets the generation of the index. Pass the generation from before a read of the database to {@link #put(long,
+	 * String, Collection)}, so that the result of a read that raced an invalidation is not cached.
+	 *
+	 * @return The generation.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Gets the friends of a user.
+	 *
+	 * @param userId The user's ID.
+	 * @return The IDs of the user's friends, or {@code null} if they aren't cached.
+	 */
+	public synchronized Set<String> get(String userId) {
+		Set<String> friends = friendIds.get(userId);
+		if (friends == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return friends;
+	}
+
+	/**
+	 * Caches the friends of a user that were read from the database.
+	 *
+	 * @param generation The {@link #getGeneration()} from before the friends were read.
+	 * @param userId     The user's ID.
+	 * @param friends    The IDs of the user's friends.
+	 * @return {@code true} if the friends were cached.
+	 */
+	public synchronized boolean put(long generation, String userId, Collection<String> friends) {
+		if (generation != this.generation) {
+			return false;
+		}
+		friendIds.put(userId, Collections.unmodifiableSet(new HashSet<>(friends)));
+		if (friendIds.size() > maximumSize) {
+			friendIds.remove(friendIds.keySet().iterator().next());
+		}
+		return true;
+	}
+
+	/**
+	 * Invalidates the friends of the given users on this node only.
+	 *
+	 * @param userIds The IDs of the users whose friends changed.
+	 */
+	public synchronized void invalidateLocal(Collection<String> userIds) {
+		generation++;
+		for (String userId : userIds) {
+			friendIds.remove(userId);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int size() {
+		return friendIds.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FriendIndex{size=%d, hits=%d, misses=%d}", size(), getHits(), getMisses());
+	}
+
+	private static List<String> asStrings(JsonArray array) {
+		List<String> strings = new ArrayList<>(array.size());
+		for (int i = 0; i < array.size(); i++) {
+			strings.add(array.getString(i));
+		}
+		return strings;
+	}
+}
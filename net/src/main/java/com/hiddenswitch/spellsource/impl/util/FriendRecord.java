@@ -1,5 +1,6 @@
 package com.hiddenswitch.spellsource.impl.util;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.hiddenswitch.spellsource.client.models.Friend;
 import com.hiddenswitch.spellsource.client.models.PresenceEnum;
 
@@ -12,6 +13,10 @@ public class FriendRecord implements Serializable {
 	private String friendId;
 	private long since;
 	private String displayName;
+	/**
+	 * Filled in from {@link com.hiddenswitch.spellsource.Presence} when needed, never stored.
+	 */
+	@JsonIgnore
 	private PresenceEnum presence;
 
 	public long getSince() {
@@ -12,6 +12,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +62,21 @@ public class InventoryRecord extends MongoRecord {
 		this.cardDesc = cardDesc;
 	}
 
+	/**
+	 * Creates a copy of another record that can be changed without affecting it.
+	 *
+	 * @param other The record to copy.
+	 */
+	public InventoryRecord(InventoryRecord other) {
+		super(other._id);
+		this.cardDesc = other.cardDesc == null ? null : other.cardDesc.clone();
+		this.userId = other.userId;
+		this.allianceId = other.allianceId;
+		this.collectionIds = other.collectionIds == null ? null : new ArrayList<>(other.collectionIds);
+		this.borrowedByUserId = other.borrowedByUserId;
+		this.facts = other.facts == null ? null : new HashMap<>(other.facts);
+	}
+
 	@JsonIgnore
 	public CardDesc getCardDesc() {
 		return cardDesc;
@@ -17,7 +17,6 @@ import com.hiddenswitch.spellsource.impl.TimerId;
 import com.hiddenswitch.spellsource.impl.UserId;
 import com.hiddenswitch.spellsource.impl.server.BotsServiceBehaviour;
 import com.hiddenswitch.spellsource.impl.server.Configuration;
-import com.hiddenswitch.spellsource.impl.server.VertxScheduler;
 import com.hiddenswitch.spellsource.models.GetCollectionResponse;
 import com.hiddenswitch.spellsource.models.LogicGetDeckRequest;
 import com.hiddenswitch.spellsource.models.MatchExpireRequest;
@@ -46,6 +45,7 @@ import net.demilich.metastone.game.spells.desc.SpellArg;
 import net.demilich.metastone.game.spells.desc.SpellDesc;
 import net.demilich.metastone.game.spells.trigger.Enchantment;
 import net.demilich.metastone.game.spells.trigger.Trigger;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.targeting.IdFactory;
 import net.demilich.metastone.game.targeting.Zones;
 import net.demilich.metastone.game.utils.Attribute;
@@ -74,11 +74,19 @@ import static java.util.stream.Collectors.toList;
 public class ServerGameContext extends GameContext implements Server {
 	public static final String WRITER_ADDRESS_PREFIX = "Games::writer[";
 	public static final String READER_ADDRESS_PREFIX = "Games::reader[";
+	/**
+	 * When this system property is {@code true}, every server game records a {@link Profiler} of its spells, triggers
+	 * and cards, which is logged when the game ends and returned by {@link com.hiddenswitch.spellsource.Games#describeGameSession}.
+	 * Finished games are also added to the process-wide {@link Profiler#getGlobal()}, which the gateway's {@code
+	 * /metrics} route reports.
+	 */
+	public static final String PROFILE_PROPERTY = "spellsource.profile";
 
 	private final transient ReentrantLock lock = new ReentrantLock();
 	private final transient Queue<SuspendableAction1<ServerGameContext>> onGameEndHandlers = new ConcurrentLinkedQueue<>();
 	private final transient Map<Integer, Future<Client>> clientsReady = new HashMap<>();
 	private final transient List<Client> clients = new ArrayList<>();
+	private final transient ClientEntityCache entityCache = new ClientEntityCache();
 	private final List<Configuration> playerConfigurations = new ArrayList<>();
 	private final List<Closeable> closeables = new ArrayList<>();
 	private final GameId gameId;
@@ -118,6 +126,11 @@ public class ServerGameContext extends GameContext implements Server {
 		// Mulligans should happen simultaneously
 		setLogic(new SimultaneousMulliganGameLogic());
 
+		if (Boolean.getBoolean(PROFILE_PROPERTY)) {
+			setProfiler(new Profiler());
+			installGlobalProfiler();
+		}
+
 		// Persistence effects mean cards that remember things that have happened to them in other games
 		enablePersistenceEffects();
 		enableTriggers();
@@ -158,7 +171,7 @@ public class ServerGameContext extends GameContext implements Server {
 
 				// Create a client that handles game events and action/mulligan requests
 				UnityClientBehaviour client = new UnityClientBehaviour(this,
-						new VertxScheduler(Vertx.currentContext().owner()),
+						scheduler,
 						consumer.bodyStream(),
 						producer,
 						userId,
@@ -666,6 +679,14 @@ public class ServerGameContext extends GameContext implements Server {
 			// Actually end the game
 			super.endGame();
 
+			if (getProfiler() != null) {
+				logger.info("endGame {}: Profile {}", getGameId(), getProfiler().toJson().encode());
+				Profiler global = Profiler.getGlobal();
+				if (global != null) {
+					global.add(getProfiler());
+				}
+			}
+
 			// No end of game handler should be called more than once, so we're removing them one-by-one as we're processing
 			// them.
 			SuspendableAction1<ServerGameContext> handler;
@@ -760,6 +781,11 @@ public class ServerGameContext extends GameContext implements Server {
 		return clientsReady.values().stream().allMatch(Future::succeeded);
 	}
 
+	@Override
+	public ClientEntityCache getEntityCache() {
+		return entityCache;
+	}
+
 	@Override
 	public Long getMillisRemaining() {
 		if (timerStartTimeMillis == null
@@ -862,4 +888,10 @@ public class ServerGameContext extends GameContext implements Server {
 	public boolean getDidExpire() {
 		return didExpire;
 	}
+
+	private static synchronized void installGlobalProfiler() {
+		if (Profiler.getGlobal() == null) {
+			Profiler.setGlobal(new Profiler());
+		}
+	}
 }
\ No newline at end of file
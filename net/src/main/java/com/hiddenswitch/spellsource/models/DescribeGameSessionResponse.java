@@ -18,6 +18,7 @@ public class DescribeGameSessionResponse implements Serializable {
 	private String gameId;
 	private GameState state;
 	private Map<String, Object> statistics;
+	private Map<String, Object> profile;
 
 	public String getGameId() {
 		return gameId;
@@ -35,6 +36,21 @@ public class DescribeGameSessionResponse implements Serializable {
 		this.statistics = statistics;
 	}
 
+	/**
+	 * Gets the counters of the game's {@link net.demilich.metastone.game.statistics.Profiler}.
+	 *
+	 * @return The counters in the format of {@link net.demilich.metastone.game.statistics.Profiler#getCounters()}, or
+	 * {@code null} if the game is not being profiled.
+	 * @see ServerGameContext#PROFILE_PROPERTY for how to turn on profiling.
+	 */
+	public Map<String, Object> getProfile() {
+		return profile;
+	}
+
+	public void setProfile(Map<String, Object> profile) {
+		this.profile = profile;
+	}
+
 	public GameState getState() {
 		return state;
 	}
@@ -52,6 +68,9 @@ public class DescribeGameSessionResponse implements Serializable {
 			response.getStatistics().put(entry.getKey().toString(), entry.getValue());
 		}
 		response.setState(context.getGameStateCopy());
+		if (context.getProfiler() != null) {
+			response.setProfile(context.getProfiler().getCounters());
+		}
 		return response;
 	}
 }
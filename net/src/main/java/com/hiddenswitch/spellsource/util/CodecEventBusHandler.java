@@ -0,0 +1,47 @@
+package com.hiddenswitch.spellsource.util;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import co.paralleluniverse.strands.SuspendableAction1;
+import com.hiddenswitch.spellsource.concurrent.SuspendableFunction;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Handles requests to methods that use {@link RpcOptions.Serialization#BINARY}. The request was already decoded by the
+ * {@link RpcCodec}, and the reply is sent with it too.
+ */
+class CodecEventBusHandler<T, R> implements SuspendableAction1<Message<Object>> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CodecEventBusHandler.class);
+	private final SuspendableFunction<T, R> method;
+
+	CodecEventBusHandler(SuspendableFunction<T, R> method) {
+		this.method = method;
+	}
+
+	@Override
+	@Suspendable
+	@SuppressWarnings("unchecked")
+	public void call(Message<Object> message) {
+		T request = (T) message.body();
+		R response = null;
+
+		try {
+			response = method.apply(request);
+		} catch (InterruptedException | SuspendExecution e) {
+			LOGGER.error("call {}: The method was interrupted", message.address(), e);
+		} catch (InvocationTargetException e) {
+			message.fail(-1, BufferEventBusHandler.getMessage(e.getCause()));
+			return;
+		} catch (Throwable e) {
+			message.fail(-1, BufferEventBusHandler.getMessage(e));
+			return;
+		}
+
+		message.reply(response, new DeliveryOptions().setCodecName(RpcCodec.NAME));
+	}
+}
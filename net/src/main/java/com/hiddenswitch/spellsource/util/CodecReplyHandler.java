@@ -0,0 +1,26 @@
+package com.hiddenswitch.spellsource.util;
+
+import co.paralleluniverse.fibers.Suspendable;
+import co.paralleluniverse.strands.SuspendableAction1;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+
+class CodecReplyHandler implements SuspendableAction1<AsyncResult<Message<Object>>> {
+	private final Handler<AsyncResult<Object>> next;
+
+	CodecReplyHandler(Handler<AsyncResult<Object>> next) {
+		this.next = next;
+	}
+
+	@Override
+	@Suspendable
+	public void call(AsyncResult<Message<Object>> reply) {
+		if (reply.succeeded()) {
+			next.handle(Future.succeededFuture(reply.result().body()));
+		} else {
+			next.handle(Future.failedFuture(reply.cause()));
+		}
+	}
+}
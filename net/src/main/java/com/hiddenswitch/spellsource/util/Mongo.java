@@ -3,6 +3,7 @@ package com.hiddenswitch.spellsource.util;
 import ch.qos.logback.classic.Level;
 import co.paralleluniverse.fibers.Suspendable;
 import com.hiddenswitch.spellsource.impl.util.MongoRecord;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -15,6 +16,8 @@ import static io.vertx.ext.sync.Sync.awaitResult;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +30,9 @@ public class Mongo {
 	private static Mongo instance;
 	private Map<Vertx, MongoClient> clients = new ConcurrentHashMap<>();
 	private LocalMongo localMongoServer;
+	private final MongoMetrics metrics = new MongoMetrics();
+	private static final ToLongFunction<Object> NONE = result -> 0L;
+	private static final ToLongFunction<Object> ONE = result -> 1L;
 
 	static {
 		ch.qos.logback.classic.Logger mongoLogger = (ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory
@@ -118,17 +124,17 @@ public class Mongo {
 
 	@Suspendable
 	public String insert(String collection, JsonObject document) {
-		return awaitResult(h -> getClient().insert(collection, document, h));
+		return timed(collection, "insert", document, ONE, h -> getClient().insert(collection, document, h));
 	}
 
 	@Suspendable
 	public String insertWithOptions(String collection, JsonObject document, WriteOption writeOption) {
-		return awaitResult(h -> getClient().insertWithOptions(collection, document, writeOption, h));
+		return timed(collection, "insertWithOptions", document, ONE, h -> getClient().insertWithOptions(collection, document, writeOption, h));
 	}
 
 	@Suspendable
 	public MongoClientUpdateResult updateCollection(String collection, JsonObject query, JsonObject update) {
-		return awaitResult(h -> getClient().updateCollection(collection, query, update, h));
+		return timed(collection, "updateCollection", query, MongoClientUpdateResult::getDocModified, h -> getClient().updateCollection(collection, query, update, h));
 	}
 
 	@Suspendable
@@ -140,29 +146,29 @@ public class Mongo {
 			String id = (String) update.getJsonObject("$set").remove("_id");
 			update.put("$setOnInsert", new JsonObject().put("_id", id));
 		}
-		return awaitResult(h -> getClient().updateCollectionWithOptions(collection, query, update, options, h));
+		return timed(collection, "updateCollectionWithOptions", query, MongoClientUpdateResult::getDocModified, h -> getClient().updateCollectionWithOptions(collection, query, update, options, h));
 	}
 
 	@Suspendable
 	public List<JsonObject> find(String collection, JsonObject query) {
-		return awaitResult(h -> getClient().find(collection, query, h));
+		return timed(collection, "find", query, List::size, h -> getClient().find(collection, query, h));
 	}
 
 	@Suspendable
 	public <T> List<T> find(String collection, JsonObject query, Class<T> returnClass) {
-		final List<JsonObject> objs = awaitResult(h -> getClient().find(collection, query, h));
+		final List<JsonObject> objs = timed(collection, "find", query, List::size, h -> getClient().find(collection, query, h));
 		return QuickJson.fromJson(objs, returnClass);
 	}
 
 	@Suspendable
 	public <T> List<T> findWithOptions(String collection, JsonObject query, FindOptions options, Class<T> returnClass) {
-		final List<JsonObject> objs = awaitResult(h -> getClient().findWithOptions(collection, query, options, h));
+		final List<JsonObject> objs = timed(collection, "findWithOptions", query, List::size, h -> getClient().findWithOptions(collection, query, options, h));
 		return QuickJson.fromJson(objs, returnClass);
 	}
 
 	@Suspendable
 	public List<JsonObject> findWithOptions(String collection, JsonObject query, FindOptions options) {
-		return awaitResult(h -> getClient().findWithOptions(collection, query, options, then -> h.handle(then.otherwiseEmpty())));
+		return timed(collection, "findWithOptions", query, List::size, h -> getClient().findWithOptions(collection, query, options, then -> h.handle(then.otherwiseEmpty())));
 	}
 
 	/**
@@ -173,12 +179,12 @@ public class Mongo {
 	 */
 	@Suspendable
 	public JsonObject findOne(String collection, JsonObject query, JsonObject fields) {
-		return awaitResult(h -> getClient().findOne(collection, query, fields, then -> h.handle(then.otherwiseEmpty())));
+		return timed(collection, "findOne", query, ONE, h -> getClient().findOne(collection, query, fields, then -> h.handle(then.otherwiseEmpty())));
 	}
 
 	@Suspendable
 	public <T> T findOne(String collection, JsonObject query, JsonObject fields, Class<? extends T> returnClass) {
-		final JsonObject obj = awaitResult(h -> getClient().findOne(collection, query, fields, then -> h.handle(then.otherwiseEmpty())));
+		final JsonObject obj = timed(collection, "findOne", query, ONE, h -> getClient().findOne(collection, query, fields, then -> h.handle(then.otherwiseEmpty())));
 		if (obj == null) {
 			return null;
 		}
@@ -187,7 +193,7 @@ public class Mongo {
 
 	@Suspendable
 	public <T> T findOne(String collection, JsonObject query, Class<? extends T> returnClass) {
-		final JsonObject obj = awaitResult(h -> getClient().findOne(collection, query, null, then -> h.handle(then.otherwiseEmpty())));
+		final JsonObject obj = timed(collection, "findOne", query, ONE, h -> getClient().findOne(collection, query, null, then -> h.handle(then.otherwiseEmpty())));
 		if (obj == null) {
 			return null;
 		}
@@ -196,7 +202,7 @@ public class Mongo {
 
 	@Suspendable
 	public Long count(String collection, JsonObject query) {
-		return awaitResult(h -> getClient().count(collection, query, h));
+		return timed(collection, "count", query, NONE, h -> getClient().count(collection, query, h));
 	}
 
 	@Suspendable
@@ -206,17 +212,17 @@ public class Mongo {
 
 	@Suspendable
 	public Void createIndex(String collection, JsonObject key) {
-		return awaitResult(h -> getClient().createIndex(collection, key, h));
+		return timed(collection, "createIndex", key, NONE, h -> getClient().createIndex(collection, key, h));
 	}
 
 	@Suspendable
 	public Void createIndexWithOptions(String collection, JsonObject key, IndexOptions options) {
-		return awaitResult(h -> getClient().createIndexWithOptions(collection, key, options, h));
+		return timed(collection, "createIndexWithOptions", key, NONE, h -> getClient().createIndexWithOptions(collection, key, options, h));
 	}
 
 	@Suspendable
 	public Void dropIndex(String collection, String indexName) {
-		return awaitResult(h -> getClient().dropIndex(collection, indexName, h));
+		return timed(collection, "dropIndex", null, NONE, h -> getClient().dropIndex(collection, indexName, h));
 	}
 
 	/**
@@ -227,7 +233,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientDeleteResult removeDocuments(String collection, JsonObject query) {
-		return awaitResult(h -> getClient().removeDocuments(collection, query, h));
+		return timed(collection, "removeDocuments", query, MongoClientDeleteResult::getRemovedCount, h -> getClient().removeDocuments(collection, query, h));
 	}
 
 	/**
@@ -240,7 +246,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientDeleteResult removeDocumentsWithOptions(String collection, JsonObject query, WriteOption writeOption) {
-		return awaitResult(h -> getClient().removeDocumentsWithOptions(collection, query, writeOption, h));
+		return timed(collection, "removeDocumentsWithOptions", query, MongoClientDeleteResult::getRemovedCount, h -> getClient().removeDocumentsWithOptions(collection, query, writeOption, h));
 	}
 
 	/**
@@ -251,7 +257,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientDeleteResult removeDocument(String collection, JsonObject query) {
-		return awaitResult(h -> getClient().removeDocument(collection, query, h));
+		return timed(collection, "removeDocument", query, MongoClientDeleteResult::getRemovedCount, h -> getClient().removeDocument(collection, query, h));
 	}
 
 	/**
@@ -264,7 +270,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientDeleteResult removeDocumentWithOptions(String collection, JsonObject query, WriteOption writeOption) {
-		return awaitResult(h -> getClient().removeDocumentWithOptions(collection, query, writeOption, h));
+		return timed(collection, "removeDocumentWithOptions", query, MongoClientDeleteResult::getRemovedCount, h -> getClient().removeDocumentWithOptions(collection, query, writeOption, h));
 	}
 
 	/**
@@ -274,7 +280,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public Void createCollection(String collectionName) {
-		return awaitResult(h -> getClient().createCollection(collectionName, h));
+		return timed(collectionName, "createCollection", null, NONE, h -> getClient().createCollection(collectionName, h));
 	}
 
 	/**
@@ -288,7 +294,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public <T extends MongoRecord> T findOneAndUpdate(String collection, JsonObject query, JsonObject update, Class<? extends T> returnClass) {
-		final JsonObject obj = awaitResult(h -> getClient().findOneAndUpdate(collection, query, update, then -> h.handle(then.otherwiseEmpty())));
+		final JsonObject obj = timed(collection, "findOneAndUpdate", query, ONE, h -> getClient().findOneAndUpdate(collection, query, update, then -> h.handle(then.otherwiseEmpty())));
 		return QuickJson.fromJson(obj, returnClass);
 	}
 
@@ -301,7 +307,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientBulkWriteResult bulkWrite(String collection, List<BulkOperation> operations) {
-		return awaitResult(h -> getClient().bulkWrite(collection, operations, h));
+		return timed(collection, "bulkWrite", null, Mongo::documents, h -> getClient().bulkWrite(collection, operations, h));
 	}
 
 	/**
@@ -314,7 +320,7 @@ public class Mongo {
 	 */
 	@Suspendable
 	public MongoClientBulkWriteResult bulkWriteWithOptions(String collection, List<BulkOperation> operations, BulkWriteOptions bulkWriteOptions) {
-		return awaitResult(h -> getClient().bulkWriteWithOptions(collection, operations, bulkWriteOptions, h));
+		return timed(collection, "bulkWriteWithOptions", null, Mongo::documents, h -> getClient().bulkWriteWithOptions(collection, operations, bulkWriteOptions, h));
 	}
 
 	/**
@@ -401,4 +407,43 @@ public class Mongo {
 	public MongoClient getClient() {
 		return clients.get(Vertx.currentContext().owner());
 	}
+
+	/**
+	 * Gets the latencies and document counts of the operations made through this instance.
+	 *
+	 * @return The metrics.
+	 */
+	public MongoMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Awaits a call to the client and records how long it took in the {@link #getMetrics()}.
+	 *
+	 * @param collection The collection.
+	 * @param operation  The name of the operation.
+	 * @param query      The query, whose shape is logged if the operation is slow.
+	 * @param documents  Counts the documents the operation returned or wrote.
+	 * @param call       The call to the client.
+	 * @param <T>        The type of the result.
+	 * @return The result of the call.
+	 */
+	@Suspendable
+	private <T> T timed(String collection, String operation, JsonObject query, ToLongFunction<? super T> documents, Consumer<Handler<AsyncResult<T>>> call) {
+		long start = System.nanoTime();
+		T result;
+		try {
+			result = awaitResult(call);
+		} catch (RuntimeException ex) {
+			metrics.recordError(collection, operation, query, System.nanoTime() - start);
+			throw ex;
+		}
+		metrics.record(collection, operation, query, System.nanoTime() - start, result == null ? 0L : documents.applyAsLong(result));
+		return result;
+	}
+
+	private static long documents(MongoClientBulkWriteResult result) {
+		return result.getInsertedCount() + result.getMatchedCount() + result.getDeletedCount()
+				+ (result.getUpserts() == null ? 0L : result.getUpserts().size());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.hiddenswitch.spellsource.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency and the number of documents of every database operation made through {@link Mongo}, by
+ * collection and operation.
+ * <p>
+ * Recording an operation only increments counters, so it's cheap enough to do on every call. Latencies are counted
+ * in the buckets of a fixed histogram whose bounds are in {@link #BUCKET_MILLIS}. Operations that take longer than
+ * the slow operation threshold are logged with the shape of their query, i.e., the query with its values replaced by
+ * {@code "?"}, so that the log never contains user data.
+ */
+public final class MongoMetrics {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MongoMetrics.class);
+	/**
+	 * The upper bounds of the latency histogram's buckets. The last bucket counts everything slower.
+	 */
+	public static final long[] BUCKET_MILLIS = {1L, 2L, 5L, 10L, 20L, 50L, 100L, 200L, 500L, 1000L, 2000L, 5000L};
+	public static final long DEFAULT_SLOW_OPERATION_MILLIS = 200L;
+
+	private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+	private final long slowOperationNanos;
+
+	public MongoMetrics() {
+		this(slowOperationMillis());
+	}
+
+	public MongoMetrics(long slowOperationMillis) {
+		this.slowOperationNanos = TimeUnit.MILLISECONDS.toNanos(slowOperationMillis);
+	}
+
+	/**
+	 * Records an operation that succeeded.
+	 *
+	 * @param collection The collection.
+	 * @param operation  The name of the {@link Mongo} method.
+	 * @param query      The query or the document, or {@code null} if the operation has neither.
+	 * @param nanos      How long the operation took.
+	 * @param documents  The number of documents returned or written.
+	 */
+	public void record(String collection, String operation, JsonObject query, long nanos, long documents) {
+		Operation stats = get(collection, operation);
+		stats.calls.increment();
+		stats.documents.add(documents);
+		stats.record(nanos);
+		if (nanos >= slowOperationNanos) {
+			LOGGER.warn("record: Slow {} on {} took {}ms and returned {} documents, query {}", operation, collection,
+					TimeUnit.NANOSECONDS.toMillis(nanos), documents, shape(query));
+		}
+	}
+
+	/**
+	 * Records an operation that failed.
+	 *
+	 * @param collection The collection.
+	 * @param operation  The name of the {@link Mongo} method.
+	 * @param query      The query or the document, or {@code null} if the operation has neither.
+	 * @param nanos      How long the operation took.
+	 */
+	public void recordError(String collection, String operation, JsonObject query, long nanos) {
+		Operation stats = get(collection, operation);
+		stats.calls.increment();
+		stats.errors.increment();
+		stats.record(nanos);
+		if (nanos >= slowOperationNanos) {
+			LOGGER.warn("recordError: Slow failed {} on {} took {}ms, query {}", operation, collection,
+					TimeUnit.NANOSECONDS.toMillis(nanos), shape(query));
+		}
+	}
+
+	/**
+	 * Gets a snapshot of the metrics.
+	 *
+	 * @return An object whose keys are collections and whose values have the metrics of each operation on the collection.
+	 */
+	public JsonObject toJson() {
+		Map<String, JsonObject> collections = new TreeMap<>();
+		for (Operation stats : new TreeMap<>(operations).values()) {
+			collections.computeIfAbsent(stats.collection, k -> new JsonObject()).put(stats.operation, stats.toJson());
+		}
+		JsonObject json = new JsonObject();
+		collections.forEach(json::put);
+		return json;
+	}
+
+	public void reset() {
+		operations.clear();
+	}
+
+	/**
+	 * Replaces the values in a query with {@code "?"}, keeping its field names and operators.
+	 *
+	 * @param query The query.
+	 * @return The shape of the query, or {@code null} if the query is {@code null}.
+	 */
+	public static Object shape(Object query) {
+		if (query instanceof JsonObject) {
+			JsonObject shape = new JsonObject();
+			for (Map.Entry<String, Object> entry : (JsonObject) query) {
+				shape.put(entry.getKey(), shape(entry.getValue()));
+			}
+			return shape;
+		} else if (query instanceof JsonArray) {
+			JsonArray array = (JsonArray) query;
+			// The elements of $and and $or are queries, the elements of $in are values
+			if (!array.isEmpty() && array.getValue(0) instanceof JsonObject) {
+				JsonArray shape = new JsonArray();
+				for (Object element : array) {
+					shape.add(shape(element));
+				}
+				return shape;
+			}
+			return "?";
+		} else if (query == null) {
+			return null;
+		}
+		return "?";
+	}
+
+	static long slowOperationMillis() {
+		String environment = System.getenv("MONGO_SLOW_OPERATION_MILLIS");
+		String systemProperty = System.getProperty("spellsource.mongo.slowOperationMillis");
+		long millis = DEFAULT_SLOW_OPERATION_MILLIS;
+		if (environment != null) {
+			millis = Long.parseLong(environment);
+		}
+		if (systemProperty != null) {
+			millis = Long.parseLong(systemProperty);
+		}
+		return millis;
+	}
+
+	private Operation get(String collection, String operation) {
+		String key = collection + "::" + operation;
+		Operation stats = operations.get(key);
+		if (stats == null) {
+			stats = operations.computeIfAbsent(key, k -> new Operation(collection, operation));
+		}
+		return stats;
+	}
+
+	private static final class Operation {
+		private final String collection;
+		private final String operation;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder documents = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder[] buckets = new LongAdder[BUCKET_MILLIS.length + 1];
+
+		private Operation(String collection, String operation) {
+			this.collection = collection;
+			this.operation = operation;
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		private void record(long nanos) {
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = 0;
+			while (bucket < BUCKET_MILLIS.length && millis >= BUCKET_MILLIS[bucket]) {
+				bucket++;
+			}
+			buckets[bucket].increment();
+		}
+
+		private JsonObject toJson() {
+			long calls = this.calls.sum();
+			long[] counts = new long[buckets.length];
+			JsonArray histogram = new JsonArray();
+			for (int i = 0; i < buckets.length; i++) {
+				counts[i] = buckets[i].sum();
+				histogram.add(counts[i]);
+			}
+			return new JsonObject()
+					.put("calls", calls)
+					.put("errors", errors.sum())
+					.put("documents", documents.sum())
+					.put("meanMillis", calls == 0L ? 0d : totalNanos.sum() / 1e6 / calls)
+					.put("maxMillis", maxNanos.get() / 1e6)
+					.put("p50Millis", percentile(counts, 0.50))
+					.put("p95Millis", percentile(counts, 0.95))
+					.put("p99Millis", percentile(counts, 0.99))
+					.put("histogram", histogram);
+		}
+
+		/**
+		 * @return The upper bound of the bucket the percentile falls in, or {@code null} if it falls in the last bucket.
+		 */
+		private static Long percentile(long[] counts, double percentile) {
+			long total = 0L;
+			for (long count : counts) {
+				total += count;
+			}
+			if (total == 0L) {
+				return 0L;
+			}
+			long rank = (long) Math.ceil(percentile * total);
+			long seen = 0L;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return i < BUCKET_MILLIS.length ? BUCKET_MILLIS[i] : null;
+				}
+			}
+			return null;
+		}
+	}
+}
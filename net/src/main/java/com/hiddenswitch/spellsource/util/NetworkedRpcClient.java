@@ -16,6 +16,7 @@ class NetworkedRpcClient<T> implements RpcClient<T> {
 	NetworkedRpcClient(EventBus bus, Class<? extends T> serviceInterface) {
 		this.bus = bus;
 		this.serviceInterface = serviceInterface;
+		RpcCodec.register(bus);
 	}
 
 
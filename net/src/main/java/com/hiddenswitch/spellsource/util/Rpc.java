@@ -49,7 +49,8 @@ public class Rpc {
 	 * {@code serviceInterface.getName() + "::" + method.getName(); }
 	 * <p>
 	 * Internally, the system will use {@link Serialization#serialize(Object)} to serialize the message, which uses {@link
-	 * java.io.ObjectOutputStream} to write the message (i.e., {@link java.io.Serializable} for serialization).
+	 * java.io.ObjectOutputStream} to write the message (i.e., {@link java.io.Serializable} for serialization). Methods
+	 * annotated with {@link RpcOptions#serialization()} can use JSON or the {@link RpcCodec} instead.
 	 * <p>
 	 * The following is an example of how to use {@link #register(Object, Class)}. Typically you would register your
 	 * service at the end of a verticle {@link io.vertx.core.Verticle#start(Future)} implementation. Suppose you are
@@ -98,6 +99,7 @@ public class Rpc {
 	public static <T, R extends T> void register(R instance, Class<T> serviceInterface, Handler<AsyncResult<Registration>> handler) {
 		final EventBus eb = Vertx.currentContext().owner().eventBus();
 		final String name = serviceInterface.getName();
+		RpcCodec.register(eb);
 
 		Registration registration = new Registration();
 
@@ -123,6 +125,8 @@ public class Rpc {
 				eventBusHandler = new BufferEventBusHandler<>(method1);
 			} else if (serialization == RpcOptions.Serialization.JSON) {
 				eventBusHandler = new JsonEventBusHandler<>(method1, method.getParameterTypes()[0]);
+			} else if (serialization == RpcOptions.Serialization.BINARY) {
+				eventBusHandler = new CodecEventBusHandler<>(method1);
 			} else {
 				throw new RuntimeException("Unexpected serialization option for this event bus handler.");
 			}
@@ -0,0 +1,138 @@
+package com.hiddenswitch.spellsource.util;
+
+import com.hiddenswitch.spellsource.common.GameState;
+import com.hiddenswitch.spellsource.impl.DeckId;
+import com.hiddenswitch.spellsource.impl.GameId;
+import com.hiddenswitch.spellsource.impl.UserId;
+import com.hiddenswitch.spellsource.impl.server.Configuration;
+import com.hiddenswitch.spellsource.models.*;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.actions.EndTurnAction;
+import net.demilich.metastone.game.actions.HeroPowerAction;
+import net.demilich.metastone.game.actions.PhysicalAttackAction;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardArrayList;
+import net.demilich.metastone.game.decks.DeckFormat;
+import net.demilich.metastone.game.decks.GameDeck;
+import net.demilich.metastone.game.entities.EntityLocation;
+import net.demilich.metastone.game.entities.EntityZone;
+import net.demilich.metastone.game.entities.heroes.Hero;
+import net.demilich.metastone.game.entities.minions.Minion;
+import net.demilich.metastone.game.entities.weapons.Weapon;
+import net.demilich.metastone.game.environment.Environment;
+import net.demilich.metastone.game.spells.trigger.Enchantment;
+import net.demilich.metastone.game.spells.trigger.TriggerManager;
+import net.demilich.metastone.game.targeting.EntityReference;
+import net.demilich.metastone.game.utils.Attribute;
+import net.demilich.metastone.game.utils.AttributeMap;
+import org.nustaq.serialization.FSTConfiguration;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * An {@link EventBus} codec for the RPC methods annotated with {@link RpcOptions.Serialization#BINARY}.
+ * <p>
+ * Messages delivered to a consumer on the same node are passed by reference and are never serialized, so a sender must
+ * not modify a request after sending it. Messages that cross the network are written with FST, which is considerably
+ * faster and more compact than {@link java.io.ObjectOutputStream} for the {@link GameState} object graph. The request,
+ * response and game classes that appear in RPC messages are registered ahead of time, so they are written as small
+ * integers instead of class names.
+ * <p>
+ * Every node in a cluster must register the same classes in the same order. Append new classes to the end of {@link
+ * #REGISTERED_CLASSES}.
+ */
+public final class RpcCodec implements MessageCodec<Object, Object> {
+	public static final String NAME = "spellsource-rpc";
+
+	private static final Class<?>[] REGISTERED_CLASSES = new Class<?>[]{
+			ConfigurationRequest.class,
+			Configuration.class,
+			CreateGameSessionResponse.class,
+			EndGameSessionRequest.class,
+			EndGameSessionResponse.class,
+			ConcedeGameSessionRequest.class,
+			ConcedeGameSessionResponse.class,
+			RequestActionRequest.class,
+			RequestActionResponse.class,
+			MulliganRequest.class,
+			MulliganResponse.class,
+			GameId.class,
+			UserId.class,
+			DeckId.class,
+			GameState.class,
+			Player.class,
+			Card.class,
+			CardArrayList.class,
+			GameDeck.class,
+			DeckFormat.class,
+			EntityZone.class,
+			EntityLocation.class,
+			EntityReference.class,
+			Hero.class,
+			Minion.class,
+			Weapon.class,
+			Enchantment.class,
+			TriggerManager.class,
+			Environment.class,
+			Attribute.class,
+			AttributeMap.class,
+			PhysicalAttackAction.class,
+			HeroPowerAction.class,
+			EndTurnAction.class
+	};
+
+	private static final ThreadLocal<FSTConfiguration> CONFIGURATIONS = ThreadLocal.withInitial(() -> {
+		FSTConfiguration configuration = FSTConfiguration.createDefaultConfiguration();
+		configuration.registerClass(REGISTERED_CLASSES);
+		return configuration;
+	});
+
+	private static final Set<EventBus> REGISTERED = Collections.newSetFromMap(new WeakHashMap<>());
+
+	/**
+	 * Registers the codec on the event bus if it has not been registered there already.
+	 *
+	 * @param eventBus The event bus.
+	 */
+	public static void register(EventBus eventBus) {
+		synchronized (REGISTERED) {
+			if (REGISTERED.add(eventBus)) {
+				eventBus.registerCodec(new RpcCodec());
+			}
+		}
+	}
+
+	@Override
+	public void encodeToWire(Buffer buffer, Object o) {
+		byte[] bytes = CONFIGURATIONS.get().asByteArray(o);
+		buffer.appendInt(bytes.length);
+		buffer.appendBytes(bytes);
+	}
+
+	@Override
+	public Object decodeFromWire(int pos, Buffer buffer) {
+		int length = buffer.getInt(pos);
+		pos += 4;
+		return CONFIGURATIONS.get().asObject(buffer.getBytes(pos, pos + length));
+	}
+
+	@Override
+	public Object transform(Object o) {
+		return o;
+	}
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public byte systemCodecID() {
+		return -1;
+	}
+}
@@ -19,13 +19,15 @@ public @interface RpcOptions {
 	/**
 	 * What kind of serialization should this method use?
 	 *
-	 * @return {@link Serialization#JAVA} to use the Java runtime serialization, or {@link Serialization#JSON} to use
-	 * the JSON serialization that is provided by Vertx (typically Jackson).
+	 * @return {@link Serialization#JAVA} to use the Java runtime serialization, {@link Serialization#JSON} to use the
+	 * JSON serialization that is provided by Vertx (typically Jackson), or {@link Serialization#BINARY} to use the {@link
+	 * RpcCodec}, which skips serialization entirely when the service is on the same node.
 	 */
 	Serialization serialization() default Serialization.JAVA;
 
 	enum Serialization {
 		JAVA,
-		JSON
+		JSON,
+		BINARY
 	}
 }
@@ -6,6 +6,7 @@ import net.demilich.metastone.game.GameContext;
 import net.demilich.metastone.game.behaviour.Behaviour;
 import net.demilich.metastone.game.decks.Deck;
 import net.demilich.metastone.game.decks.GameDeck;
+import net.demilich.metastone.game.statistics.Profiler;
 import net.demilich.metastone.game.statistics.SimulationResult;
 import net.demilich.metastone.game.statistics.Statistic;
 import org.jetbrains.annotations.NotNull;
@@ -16,6 +17,7 @@ import java.lang.reflect.Constructor;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -89,6 +91,17 @@ public class Simulation {
 	}
 
 	public static Map<String[], SimulationResult> getResults(Supplier<Behaviour> behaviourSupplier1, Supplier<Behaviour> behaviourSupplier2, int number, Map<String, GameDeck> decks, List<String[]> combinations, AtomicInteger matchesComplete) {
+		return getResults(behaviourSupplier1, behaviourSupplier2, number, decks, combinations, matchesComplete, null);
+	}
+
+	/**
+	 * Simulates every combination of decks.
+	 *
+	 * @param profiler When not {@code null}, every game records into this profiler.
+	 * @return A map of deck pairs to their merged simulation results.
+	 */
+	public static Map<String[], SimulationResult> getResults(Supplier<Behaviour> behaviourSupplier1, Supplier<Behaviour> behaviourSupplier2, int number, Map<String, GameDeck> decks, List<String[]> combinations, AtomicInteger matchesComplete, Profiler profiler) {
+		Consumer<GameContext> contextHandler = profiler == null ? null : context -> context.setProfiler(profiler);
 		// Get the results
 		return combinations.stream()
 				// Get a map of deck pairs..
@@ -98,7 +111,7 @@ public class Simulation {
 							// Get a pair of decks
 							List<GameDeck> deckPair = Arrays.stream(deckKeyPair).map(decks::get).collect(Collectors.toList());
 							// Run a single simulation on the decks
-							return GameContext.simulate(deckPair, behaviourSupplier1, behaviourSupplier2, number, true, matchesComplete);
+							return GameContext.simulate(deckPair, behaviourSupplier1, behaviourSupplier2, number, true, matchesComplete, contextHandler);
 						}));
 	}
 
@@ -121,6 +121,10 @@ class VertxInvocationHandler<T> implements InvocationHandler, Serializable {
 		} else if (serialization == RpcOptions.Serialization.JSON) {
 			message = Serialization.serialize(args[0]);
 			handler = new JsonReplyHandler(next, method.getReturnType());
+		} else if (serialization == RpcOptions.Serialization.BINARY) {
+			message = args[0];
+			deliveryOptions.setCodecName(RpcCodec.NAME);
+			handler = new CodecReplyHandler(next);
 		} else {
 			throw new RuntimeException("Unspecified serialization option in invocation.");
 		}
@@ -0,0 +1,33 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.client.models.ChatMessage;
+import com.hiddenswitch.spellsource.impl.util.ChatWindow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ChatWindowTest {
+
+	@Test
+	public void testKeepsMostRecentMessages() {
+		ChatWindow window = new ChatWindow(3);
+		for (int i = 0; i < 5; i++) {
+			Assert.assertTrue(window.add(new ChatMessage().messageId("m" + i)));
+		}
+
+		Assert.assertEquals(3, window.size());
+		List<String> ids = window.toList().stream().map(ChatMessage::getMessageId).collect(Collectors.toList());
+		Assert.assertEquals(Arrays.asList("m2", "m3", "m4"), ids);
+	}
+
+	@Test
+	public void testIgnoresDuplicateMessages() {
+		ChatWindow window = new ChatWindow(3);
+		window.add(new ChatMessage().messageId("m0"));
+		Assert.assertFalse(window.add(new ChatMessage().messageId("m0")));
+		Assert.assertEquals(1, window.size());
+	}
+}
@@ -0,0 +1,81 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.client.models.Entity;
+import com.hiddenswitch.spellsource.client.models.GameState;
+import com.hiddenswitch.spellsource.common.ClientEntityCache;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.Player;
+import net.demilich.metastone.game.cards.Card;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.utils.Attribute;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ClientEntityCacheTest {
+
+	@BeforeClass
+	public static void loadCards() {
+		CardCatalogue.loadCardsFromPackage();
+	}
+
+	@Test
+	public void testCachedGameStateMatchesRenderedGameState() {
+		ClientEntityCache cache = new ClientEntityCache();
+		for (int i = 0; i < 5; i++) {
+			cache.clear();
+			GameContext context = GameContext.fromTwoRandomDecks();
+			context.init();
+			while (!context.updateAndGetGameOver() && context.getTurn() < 40) {
+				context.startTurn(context.getActivePlayerId());
+				while (context.takeActionInTurn()) {
+					for (int playerId = 0; playerId < 2; playerId++) {
+						// The servers render every message from a fresh copy of the game state
+						GameState rendered = getGameState(context, playerId, null);
+						GameState cached = getGameState(context, playerId, cache);
+						Assert.assertEquals(rendered.timestamp(0L), cached.timestamp(0L));
+					}
+				}
+				if (context.updateAndGetGameOver()) {
+					break;
+				}
+				context.endTurn();
+			}
+		}
+
+		Assert.assertTrue(cache.getHits() > 0);
+	}
+
+	@Test
+	public void testHeroAttackFollowsWeapon() {
+		ClientEntityCache cache = new ClientEntityCache();
+		GameContext context = GameContext.fromTwoRandomDecks();
+		context.init();
+		Player player = context.getActivePlayer();
+		Card weaponCard = CardCatalogue.getCardById("weapon_fiery_war_axe");
+		context.getLogic().equipWeapon(player.getId(), weaponCard.createWeapon(), weaponCard, false);
+		int attack = player.getHero().getAttack();
+		Assert.assertEquals(attack, (int) getHero(context, player.getId(), cache).getState().getAttack());
+
+		// Buffing or deactivating the weapon changes the hero's attack without changing the hero's attributes
+		player.getHero().getWeapon().modifyAttribute(Attribute.ATTACK_BONUS, 2);
+		Assert.assertEquals(attack + 2, (int) getHero(context, player.getId(), cache).getState().getAttack());
+
+		player.getHero().activateWeapon(false);
+		Assert.assertTrue(player.getHero().getAttack() < attack);
+		Assert.assertEquals(player.getHero().getAttack(), (int) getHero(context, player.getId(), cache).getState().getAttack());
+	}
+
+	private static Entity getHero(GameContext context, int playerId, ClientEntityCache cache) {
+		GameContext workingContext = GameContext.fromState(context.getGameStateCopy());
+		workingContext.setIgnoreEvents(true);
+		return Games.getEntity(workingContext, workingContext.getPlayer(playerId).getHero(), playerId, cache);
+	}
+
+	private static GameState getGameState(GameContext context, int playerId, ClientEntityCache cache) {
+		GameContext workingContext = GameContext.fromState(context.getGameStateCopy());
+		workingContext.setIgnoreEvents(true);
+		Player local = workingContext.getPlayer(playerId);
+		return Games.getGameState(workingContext, local, workingContext.getOpponent(local), cache);
+	}
+}
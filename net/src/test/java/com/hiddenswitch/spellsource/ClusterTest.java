@@ -6,6 +6,7 @@ import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hiddenswitch.spellsource.concurrent.SuspendableLock;
 import com.hiddenswitch.spellsource.concurrent.SuspendableQueue;
+import com.hiddenswitch.spellsource.impl.NodeServices;
 import com.hiddenswitch.spellsource.impl.SpellsourceTestBase;
 import com.hiddenswitch.spellsource.util.Mongo;
 import com.hiddenswitch.spellsource.util.UnityClient;
@@ -87,6 +88,7 @@ public class ClusterTest extends SpellsourceTestBase {
 			// Deploy a second gateway
 			newVertx.set(newVertxInstance);
 			Mongo.mongo().connectWithEnvironment(newVertxInstance);
+			newVertxInstance.deployVerticle(new NodeServices(), context.asyncAssertSuccess());
 			newVertxInstance.deployVerticle(Gateway.create(9090), context.asyncAssertSuccess(v2 -> {
 				newVertxInstance.deployVerticle(Games.create(), context.asyncAssertSuccess(v3 -> {
 					// Distribute clients to the two gateways
@@ -0,0 +1,95 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.impl.util.CollectionCache;
+import com.hiddenswitch.spellsource.impl.util.InventoryRecord;
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CollectionCacheTest {
+
+	@Test
+	public void testInvalidatesCollectionsSharingRecords() {
+		CollectionCache cache = new CollectionCache();
+		InventoryRecord inDeck = record("inventory1", "user1", "deck1");
+		InventoryRecord notInDeck = record("inventory2", "user1");
+		cache.put(cache.getGeneration(), "user1", null, Arrays.asList(inDeck, notInDeck));
+		cache.put(cache.getGeneration(), "deck1", null, Collections.singletonList(inDeck));
+		cache.put(cache.getGeneration(), "user2", null, Collections.singletonList(record("inventory3", "user2")));
+
+		Assert.assertEquals(2, cache.get("user1").getInventoryRecords().size());
+
+		// Borrowing a deck changes its records, which the user's collection contains too
+		cache.invalidateLocal(Collections.singletonList("deck1"), Collections.emptyList());
+		Assert.assertNull(cache.get("deck1"));
+		Assert.assertNull(cache.get("user1"));
+		Assert.assertNotNull(cache.get("user2"));
+
+		cache.put(cache.getGeneration(), "user1", null, Arrays.asList(inDeck, notInDeck));
+		cache.invalidateLocal(Collections.emptyList(), Collections.singletonList("inventory2"));
+		Assert.assertNull(cache.get("user1"));
+		Assert.assertNotNull(cache.get("user2"));
+
+		Assert.assertEquals(3L, cache.getHits());
+		Assert.assertEquals(3L, cache.getMisses());
+		Assert.assertEquals(0.5d, cache.getHitRate(), 0.0001d);
+	}
+
+	@Test
+	public void testDoesNotCacheReadsThatRacedAnInvalidation() {
+		CollectionCache cache = new CollectionCache();
+		long generation = cache.getGeneration();
+		cache.invalidateLocal(Collections.singletonList("user1"), Collections.emptyList());
+		Assert.assertFalse(cache.put(generation, "user1", null, Collections.singletonList(record("inventory1", "user1"))));
+		Assert.assertNull(cache.get("user1"));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		CollectionCache cache = new CollectionCache(2);
+		cache.put(cache.getGeneration(), "user1", null, Collections.singletonList(record("inventory1", "user1")));
+		cache.put(cache.getGeneration(), "user2", null, Collections.singletonList(record("inventory2", "user2")));
+		cache.get("user1");
+		cache.put(cache.getGeneration(), "user3", null, Collections.singletonList(record("inventory3", "user3")));
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNotNull(cache.get("user1"));
+		Assert.assertNull(cache.get("user2"));
+		Assert.assertNotNull(cache.get("user3"));
+	}
+
+	@Test
+	public void testReturnsCopies() {
+		CollectionCache cache = new CollectionCache();
+		InventoryRecord put = record("inventory1", "user1");
+		cache.put(cache.getGeneration(), "user1", null, Collections.singletonList(put));
+		put.withUserId("user2");
+
+		InventoryRecord got = cache.get("user1").getInventoryRecords().get(0);
+		Assert.assertEquals("user1", got.getUserId());
+		got.withUserId("user3");
+		Assert.assertEquals("user1", cache.get("user1").getInventoryRecords().get(0).getUserId());
+		Assert.assertEquals("minion_bloodfen_raptor", got.getCardDesc().getId());
+
+		got.getCollectionIds().add("deck1");
+		got.getFacts().put("fact", 1);
+		InventoryRecord again = cache.get("user1").getInventoryRecords().get(0);
+		Assert.assertEquals(Collections.singletonList("user1"), again.getCollectionIds());
+		Assert.assertTrue(again.getFacts().isEmpty());
+		Assert.assertNotSame(got.getCardDesc(), again.getCardDesc());
+	}
+
+	private static InventoryRecord record(String inventoryId, String userId, String... deckIds) {
+		List<String> collectionIds = new ArrayList<>();
+		collectionIds.add(userId);
+		collectionIds.addAll(Arrays.asList(deckIds));
+		return new InventoryRecord(inventoryId, new JsonObject().put("id", "minion_bloodfen_raptor"))
+				.withUserId(userId)
+				.withCollectionIds(collectionIds);
+	}
+}
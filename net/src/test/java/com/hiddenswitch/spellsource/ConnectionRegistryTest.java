@@ -0,0 +1,143 @@
+package com.hiddenswitch.spellsource;
+
+import co.paralleluniverse.strands.Strand;
+import co.paralleluniverse.strands.SuspendableAction1;
+import co.paralleluniverse.strands.concurrent.CountDownLatch;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hiddenswitch.spellsource.concurrent.SuspendableLock;
+import com.hiddenswitch.spellsource.impl.ConnectionImpl;
+import com.hiddenswitch.spellsource.impl.ConnectionRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.hiddenswitch.spellsource.util.Sync.suspendableHandler;
+
+@RunWith(VertxUnitRunner.class)
+public class ConnectionRegistryTest {
+	private static HazelcastInstance hazelcastInstance;
+	private static HazelcastInstance otherHazelcastInstance;
+	private static Vertx vertx;
+	private static Vertx otherVertx;
+
+	@BeforeClass
+	public static void setUp(TestContext context) {
+		// Two nodes that form their own cluster
+		hazelcastInstance = Hazelcast.newHazelcastInstance(getConfig(5711));
+		otherHazelcastInstance = Hazelcast.newHazelcastInstance(getConfig(5712));
+		Vertx.clusteredVertx(new VertxOptions()
+				.setClusterManager(new HazelcastClusterManager(hazelcastInstance)), context.asyncAssertSuccess(newVertx -> {
+			vertx = newVertx;
+		}));
+		Vertx.clusteredVertx(new VertxOptions()
+				.setClusterManager(new HazelcastClusterManager(otherHazelcastInstance)), context.asyncAssertSuccess(newVertx -> {
+			otherVertx = newVertx;
+		}));
+	}
+
+	@AfterClass
+	public static void tearDown(TestContext context) {
+		otherVertx.close(context.asyncAssertSuccess(v -> otherHazelcastInstance.shutdown()));
+		vertx.close(context.asyncAssertSuccess(v -> hazelcastInstance.shutdown()));
+	}
+
+	private static Config getConfig(int port) {
+		Config config = Cluster.getConfig(port);
+		config.getNetworkConfig().getJoin().getTcpIpConfig().setMembers(Arrays.asList("localhost:5711", "localhost:5712"));
+		return config;
+	}
+
+	@Test
+	public void testReconnectKeepsUserOnline(TestContext context) {
+		Async async = context.async();
+		vertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v -> {
+			ConnectionRegistry registry = ConnectionRegistry.current();
+			List<String> offline = Collections.synchronizedList(new ArrayList<>());
+			registry.offlineHandler(offline::add);
+
+			Connection first = new ConnectionImpl("user1");
+			Connection second = new ConnectionImpl("user1");
+			registry.register(first);
+			registry.register(second);
+			context.assertEquals(second, registry.getLocal("user1"));
+
+			// The replaced connection ending must not take the user offline
+			registry.unregister(first);
+			context.assertEquals(second, registry.getLocal("user1"));
+			context.assertTrue(registry.isOnline("user1"));
+
+			registry.unregister(second);
+			context.assertNull(registry.getLocal("user1"));
+			vertx.setTimer(1000L, suspendableHandler((SuspendableAction1<Long>) t -> {
+				context.assertFalse(registry.isOnline("user1"));
+				context.assertEquals(Collections.singletonList("user1"), offline);
+				async.complete();
+			}));
+		}));
+	}
+
+	@Test
+	public void testOtherNodeSeesOwner(TestContext context) {
+		Async async = context.async();
+		vertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v -> {
+			Connection connection = new ConnectionImpl("user4");
+			ConnectionRegistry.current().register(connection);
+			otherVertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v2 -> {
+				ConnectionRegistry other = ConnectionRegistry.current();
+				context.assertNull(other.getLocal("user4"));
+				context.assertTrue(other.isOnline("user4"));
+				context.assertEquals(Collections.singleton("user4"), other.getOwners(Collections.singleton("user4")).keySet());
+				vertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v3 -> {
+					ConnectionRegistry.current().unregister(connection);
+					async.complete();
+				}));
+			}));
+		}));
+	}
+
+	@Test
+	public void testMethodLockOrdersCallsOfAUser(TestContext context) {
+		Async async = context.async();
+		vertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v -> {
+			ConnectionRegistry registry = ConnectionRegistry.current();
+			Connection connection = new ConnectionImpl("user2");
+			registry.register(connection);
+
+			// A call through the connection on the owning node and a call over HTTP on another node must not overlap
+			List<Integer> calls = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch started = new CountDownLatch(1);
+			SuspendableLock held = registry.methodLock("user2");
+			otherVertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v2 -> {
+				started.countDown();
+				SuspendableLock lock = ConnectionRegistry.current().methodLock("user2");
+				calls.add(2);
+				lock.release();
+				context.assertEquals(2, calls.size());
+				context.assertEquals(1, (int) calls.get(0));
+				vertx.runOnContext(suspendableHandler((SuspendableAction1<Void>) v3 -> {
+					registry.unregister(connection);
+					async.complete();
+				}));
+			}));
+			started.await();
+			// Give the other node time to acquire the lock if it wasn't excluded
+			Strand.sleep(1000L);
+			calls.add(1);
+			held.release();
+		}));
+	}
+}
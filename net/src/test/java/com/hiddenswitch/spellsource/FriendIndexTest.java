@@ -0,0 +1,50 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.impl.util.FriendIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FriendIndexTest {
+
+	@Test
+	public void testInvalidatesBothSidesOfAFriendship() {
+		FriendIndex index = new FriendIndex();
+		index.put(index.getGeneration(), "user1", Collections.singletonList("user2"));
+		index.put(index.getGeneration(), "user2", Collections.singletonList("user1"));
+		index.put(index.getGeneration(), "user3", Collections.emptyList());
+
+		Assert.assertEquals(Collections.singleton("user2"), index.get("user1"));
+
+		index.invalidateLocal(Arrays.asList("user1", "user2"));
+		Assert.assertNull(index.get("user1"));
+		Assert.assertNull(index.get("user2"));
+		Assert.assertNotNull(index.get("user3"));
+		Assert.assertEquals(2L, index.getHits());
+		Assert.assertEquals(2L, index.getMisses());
+	}
+
+	@Test
+	public void testDoesNotCacheReadsThatRacedAnInvalidation() {
+		FriendIndex index = new FriendIndex();
+		long generation = index.getGeneration();
+		index.invalidateLocal(Collections.singletonList("user1"));
+		Assert.assertFalse(index.put(generation, "user1", Collections.singletonList("user2")));
+		Assert.assertNull(index.get("user1"));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		FriendIndex index = new FriendIndex(2);
+		index.put(index.getGeneration(), "user1", Collections.emptyList());
+		index.put(index.getGeneration(), "user2", Collections.emptyList());
+		index.get("user1");
+		index.put(index.getGeneration(), "user3", Collections.emptyList());
+
+		Assert.assertEquals(2, index.size());
+		Assert.assertNotNull(index.get("user1"));
+		Assert.assertNull(index.get("user2"));
+	}
+}
@@ -0,0 +1,41 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.util.MongoMetrics;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hiddenswitch.spellsource.util.QuickJson.json;
+
+public class MongoMetricsTest {
+
+	@Test
+	public void testShapeHidesValues() {
+		JsonObject query = json("_id", json("$in", new JsonArray().add("user1").add("user2")),
+				"$or", new JsonArray().add(json("username", "doctorpangloss")).add(json("bot", true)));
+
+		Assert.assertEquals(json("_id", json("$in", "?"),
+				"$or", new JsonArray().add(json("username", "?")).add(json("bot", "?"))), MongoMetrics.shape(query));
+		Assert.assertNull(MongoMetrics.shape(null));
+	}
+
+	@Test
+	public void testRecordsByCollectionAndOperation() {
+		MongoMetrics metrics = new MongoMetrics(Long.MAX_VALUE / 1000000L);
+		metrics.record("accounts.users", "findOne", json("_id", "user1"), TimeUnit.MILLISECONDS.toNanos(3), 1L);
+		metrics.record("accounts.users", "findOne", json("_id", "user2"), TimeUnit.MILLISECONDS.toNanos(30), 1L);
+		metrics.recordError("accounts.users", "findOne", json("_id", "user3"), TimeUnit.MILLISECONDS.toNanos(300));
+		metrics.record("inventory.cards", "find", json(), TimeUnit.MILLISECONDS.toNanos(1), 40L);
+
+		JsonObject findOne = metrics.toJson().getJsonObject("accounts.users").getJsonObject("findOne");
+		Assert.assertEquals(3L, (long) findOne.getLong("calls"));
+		Assert.assertEquals(1L, (long) findOne.getLong("errors"));
+		Assert.assertEquals(2L, (long) findOne.getLong("documents"));
+		Assert.assertEquals(50L, (long) findOne.getLong("p50Millis"));
+		Assert.assertEquals(500L, (long) findOne.getLong("p99Millis"));
+		Assert.assertEquals(40L, (long) metrics.toJson().getJsonObject("inventory.cards").getJsonObject("find").getLong("documents"));
+	}
+}
@@ -0,0 +1,104 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.impl.GameId;
+import com.hiddenswitch.spellsource.models.RequestActionRequest;
+import com.hiddenswitch.spellsource.models.RequestActionResponse;
+import com.hiddenswitch.spellsource.util.RpcCodec;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import net.demilich.metastone.game.GameContext;
+import net.demilich.metastone.game.actions.GameAction;
+import net.demilich.metastone.game.cards.CardCatalogue;
+import net.demilich.metastone.game.logic.GameLogic;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class RpcCodecTest {
+
+	@BeforeClass
+	public static void loadCards() {
+		CardCatalogue.loadCardsFromPackage();
+	}
+
+	@Test
+	public void testWireRoundTrip() {
+		RpcCodec codec = new RpcCodec();
+		for (int i = 0; i < 5; i++) {
+			GameContext context = GameContext.fromTwoRandomDecks();
+			context.init();
+			context.startTurn(context.getActivePlayerId());
+			RequestActionRequest request = createRequest(context);
+
+			Buffer buffer = Buffer.buffer();
+			// Vert.x writes its own headers before the body
+			buffer.appendInt(42);
+			codec.encodeToWire(buffer, request);
+			RequestActionRequest decoded = (RequestActionRequest) codec.decodeFromWire(4, buffer);
+
+			Assert.assertEquals(request.gameId, decoded.gameId);
+			Assert.assertEquals(request.playerId, decoded.playerId);
+			Assert.assertEquals(describe(request.validActions), describe(decoded.validActions));
+			GameContext decodedContext = new GameContext();
+			decodedContext.setLogic(new GameLogic());
+			decodedContext.setDeckFormat(decoded.format);
+			decodedContext.setGameState(decoded.gameState);
+			Assert.assertEquals(describe(context.getValidActions()), describe(decodedContext.getValidActions()));
+			Assert.assertEquals(context.getEntities().count(), decodedContext.getEntities().count());
+		}
+	}
+
+	@Test
+	public void testLocalDeliveryIsNotSerialized() throws Exception {
+		Vertx vertx = Vertx.vertx();
+		try {
+			EventBus eventBus = vertx.eventBus();
+			RpcCodec.register(eventBus);
+			// Registering twice is allowed
+			RpcCodec.register(eventBus);
+
+			GameContext context = GameContext.fromTwoRandomDecks();
+			context.init();
+			context.startTurn(context.getActivePlayerId());
+			RequestActionRequest request = createRequest(context);
+			RequestActionResponse response = new RequestActionResponse();
+			response.gameAction = request.validActions.get(0);
+
+			CompletableFuture<Object> received = new CompletableFuture<>();
+			CompletableFuture<Object> replied = new CompletableFuture<>();
+			DeliveryOptions options = new DeliveryOptions().setCodecName(RpcCodec.NAME);
+			eventBus.consumer("RpcCodecTest::requestAction", message -> {
+				received.complete(message.body());
+				message.reply(response, options);
+			});
+			eventBus.send("RpcCodecTest::requestAction", request, options, reply -> {
+				if (reply.succeeded()) {
+					replied.complete(reply.result().body());
+				} else {
+					replied.completeExceptionally(reply.cause());
+				}
+			});
+
+			Assert.assertSame(request, received.get(10, TimeUnit.SECONDS));
+			Assert.assertSame(response, replied.get(10, TimeUnit.SECONDS));
+		} finally {
+			vertx.close();
+		}
+	}
+
+	private static RequestActionRequest createRequest(GameContext context) {
+		return new RequestActionRequest(new GameId(context.getGameId()), context.getActivePlayerId(),
+				context.getValidActions(), context.getDeckFormat(), context.getGameStateCopy());
+	}
+
+	private static List<String> describe(List<GameAction> actions) {
+		return actions.stream().map(GameAction::toString).collect(Collectors.toList());
+	}
+}
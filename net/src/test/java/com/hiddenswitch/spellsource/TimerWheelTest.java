@@ -0,0 +1,53 @@
+package com.hiddenswitch.spellsource;
+
+import com.hiddenswitch.spellsource.impl.TimerId;
+import com.hiddenswitch.spellsource.impl.server.TimerWheel;
+import io.vertx.core.Vertx;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class TimerWheelTest {
+
+	@Test
+	public void testFiresInOrderAndSkipsCancelled() throws Exception {
+		Vertx vertx = Vertx.vertx();
+		try {
+			List<String> fired = new CopyOnWriteArrayList<>();
+			CompletableFuture<Void> done = new CompletableFuture<>();
+			CompletableFuture<TimerWheel> wheelFuture = new CompletableFuture<>();
+			vertx.runOnContext(v -> {
+				// A small wheel, so that the last timer needs more than one revolution
+				TimerWheel wheel = new TimerWheel(vertx, 10L, 4);
+				long start = System.currentTimeMillis();
+				wheel.setTimer(30L, id -> {
+					Assert.assertTrue(System.currentTimeMillis() - start >= 30L);
+					fired.add("first");
+				});
+				TimerId cancelled = wheel.setTimer(40L, id -> fired.add("cancelled"));
+				wheel.setTimer(60L, id -> fired.add("second"));
+				wheel.setTimer(120L, id -> {
+					fired.add("third");
+					done.complete(null);
+				});
+				Assert.assertTrue(wheel.cancelTimer(cancelled));
+				Assert.assertFalse(wheel.cancelTimer(cancelled));
+				wheelFuture.complete(wheel);
+			});
+
+			done.get(5, TimeUnit.SECONDS);
+			Assert.assertEquals(0, wheelFuture.get().size());
+			Assert.assertEquals("first", fired.get(0));
+			Assert.assertEquals("second", fired.get(1));
+			Assert.assertEquals("third", fired.get(2));
+			Assert.assertEquals(3, fired.size());
+			wheelFuture.get().close();
+		} finally {
+			vertx.close();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.hiddenswitch.spellsource.impl;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.vertx.core.json.JsonObject;
+import org.bson.BsonDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ChatStoreTest {
+
+	@Test
+	public void testRetriesBatchesThatWereNotWritten() {
+		List<JsonObject> batch = Arrays.asList(new JsonObject().put("_id", "1"), new JsonObject().put("_id", "2"));
+		Assert.assertEquals(batch, ChatStore.retriable(batch, new MongoSocketReadException("Closed", new ServerAddress())));
+	}
+
+	@Test
+	public void testDoesNotRetryWrittenOrRejectedMessages() {
+		List<JsonObject> batch = Arrays.asList(new JsonObject().put("_id", "1"), new JsonObject().put("_id", "2"));
+		// The first message was written by an earlier attempt, the second is invalid
+		MongoBulkWriteException exception = new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 0, 0, 0, Collections.emptyList()),
+				Arrays.asList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0),
+						new BulkWriteError(121, "validation failed", new BsonDocument(), 1)),
+				null, new ServerAddress());
+		Assert.assertTrue(ChatStore.retriable(batch, exception).isEmpty());
+	}
+}
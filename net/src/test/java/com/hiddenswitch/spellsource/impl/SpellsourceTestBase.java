@@ -50,6 +50,8 @@ public abstract class SpellsourceTestBase {
 	public static void setUp(TestContext context) {
 		if (initialized.compareAndSet(false, true)) {
 			Bots.BEHAVIOUR.set(PlayRandomBehaviour::new);
+			// Tests count the bots they create, so don't provision any in the background
+			System.setProperty("spellsource.bots.watermark", "0");
 			hazelcastInstance = Hazelcast.newHazelcastInstance(Cluster.getConfig(5701));
 			final Async async = context.async();
 
@@ -11,7 +11,7 @@ from spellsource.context import Context
 
 def simulate(context: Context, decks: Sequence[str] = (), number: int = 1,
              behaviours: Sequence[Union[str, Behaviour, Callable[[], Behaviour]]] = (), mirrors: bool = False,
-             reduce: bool = True):
+             reduce: bool = True, profile: bool = False):
     ctx = context
     PythonBridge = ctx.PythonBridge
     ArrayList = ctx.ArrayList
@@ -45,7 +45,7 @@ def simulate(context: Context, decks: Sequence[str] = (), number: int = 1,
     old_converters = ctx._gateway._gateway_client.converters
     try:
         ctx._gateway._gateway_client.converters = None
-        generator.job_id = PythonBridge.simulate(generator, decks_java, number, behaviours_java, mirrors, reduce)
+        generator.job_id = PythonBridge.simulate(generator, decks_java, number, behaviours_java, mirrors, reduce, profile)
     finally:
         ctx._gateway._gateway_client.converters = old_converters
     